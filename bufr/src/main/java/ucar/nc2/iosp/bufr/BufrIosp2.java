@@ -44,6 +44,7 @@ import ucar.unidata.io.RandomAccessFile;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * IOSP for BUFR data - version 2, use the preprocessor
@@ -66,6 +67,28 @@ public class BufrIosp2 extends AbstractIOServiceProvider {
     debugIter = debugFlag.isSet("Bufr/iter");
   }
 
+  // optional look-ahead decoding of messages when iterating
+  static private int lookAheadThreads = 0;
+  static private ExecutorService lookAheadExecutor;
+
+  /**
+   * Decode messages ahead of the iterator on worker threads. Records are still returned in file order.
+   * At most 2 * nthreads decoded messages are kept in memory for each iterator.
+   *
+   * @param nthreads number of decoding threads; 0 (the default) decodes on the caller's thread, when needed.
+   */
+  static public synchronized void setLookAhead(int nthreads) {
+    if (lookAheadExecutor != null) lookAheadExecutor.shutdown(); // running tasks complete
+    lookAheadExecutor = null;
+    lookAheadThreads = Math.max(0, nthreads);
+    if (lookAheadThreads > 0)
+      lookAheadExecutor = Executors.newFixedThreadPool(lookAheadThreads, r -> {
+        Thread t = new Thread(r, "BufrIosp2 look-ahead");
+        t.setDaemon(true);
+        return t;
+      });
+  }
+
   //static public final Set<NetcdfDataset.Enhance> enhance = Collections.unmodifiableSet(EnumSet.of(NetcdfDataset.Enhance.ScaleMissing));
 
 
@@ -92,6 +115,7 @@ public class BufrIosp2 extends AbstractIOServiceProvider {
     protoMessage = scanner.getFirstDataMessage();
     if (protoMessage == null)
       throw new IOException("No data messages in the file= "+ncfile.getLocation());
+    protoMessage.ownRootDataDescriptor(); // Construct2 modifies it
     // DataDescriptor dds = protoMessage.getRootDataDescriptor(); // construct the data descriptors, check for complete tables
     if (!protoMessage.isTablesComplete())
       throw new IllegalStateException("BUFR file has incomplete tables");
@@ -111,7 +135,7 @@ public class BufrIosp2 extends AbstractIOServiceProvider {
     this.raf = raf;
 
     protoMessage = single;
-    protoMessage.getRootDataDescriptor(); // construct the data descriptors, check for complete tables
+    protoMessage.ownRootDataDescriptor(); // construct the data descriptors, check for complete tables; Construct2 modifies it
     if (!protoMessage.isTablesComplete())
       throw new IllegalStateException("BUFR file has incomplete tables");
 
@@ -160,15 +184,29 @@ public class BufrIosp2 extends AbstractIOServiceProvider {
   private class SeqIter implements StructureDataIterator {
     StructureDataIterator currIter;
     int recnum = 0;
+    int nmess = 0;
+    long start;
+
+    // look-ahead: messages being decoded, in file order
+    ExecutorService executor;
+    int maxPending;
+    ArrayDeque<Future<ArrayStructure>> pending = new ArrayDeque<>();
 
     SeqIter() {
+      synchronized (BufrIosp2.class) {
+        executor = lookAheadExecutor;
+        maxPending = 2 * lookAheadThreads;
+      }
       reset();
     }
 
     @Override
     public StructureDataIterator reset() {
       recnum = 0;
+      nmess = 0;
+      start = System.currentTimeMillis();
       currIter = null;
+      cancelPending();
       scanner.reset();
       return this;
     }
@@ -198,41 +236,87 @@ public class BufrIosp2 extends AbstractIOServiceProvider {
     }
 
     private StructureDataIterator readNextMessage() throws IOException {
-      if (!scanner.hasNext()) return null;
-      Message m = scanner.next();
-      if (m == null) {
+      if (executor != null)
+        return readNextMessageLookAhead();
+
+      Message m = nextDataMessage();
+      if (m == null) return null;
+      nmess++;
+      ArrayStructure as = readMessage(m, raf);
+      return as.getStructureDataIterator();
+    }
+
+    // keep up to maxPending messages decoding on the executor, return the first one
+    private StructureDataIterator readNextMessageLookAhead() throws IOException {
+      while (pending.size() < maxPending) {
+        Message m = nextDataMessage();
+        if (m == null) break;
+        // read the data section and build the descriptor tree here, so the workers dont share the raf or the table lookup
+        m.getRootDataDescriptor();
+        RandomAccessFile mraf = new MessageDataFile(raf, m);
+        pending.add(executor.submit(() -> readMessage(m, mraf)));
+      }
+      Future<ArrayStructure> first = pending.poll();
+      if (first == null) return null;
+
+      try {
+        ArrayStructure as = first.get();
+        nmess++;
+        return as.getStructureDataIterator();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("BUFR look-ahead interrupted");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) throw (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        throw new IOException(cause);
+      }
+    }
+
+    // next message that matches the proto message, or null when done
+    private Message nextDataMessage() throws IOException {
+      while (scanner.hasNext()) {
+        Message m = scanner.next();
+        if (m == null) {
           log.warn("BUFR scanner hasNext() true but next() null!");
           return null;
-      }
-      if (m.containsBufrTable()) // data messages only
-        return readNextMessage();
-
-      // mixed messages
-      if (!protoMessage.equals(m)) {
-        if (messHash == null) messHash = new HashSet<>(20);
-        if (!messHash.contains(m.hashCode()))  {
-          log.warn("File " + raf.getLocation() + " has different BUFR message types hash=" + protoMessage.hashCode() + "; skipping");
-          messHash.add(m.hashCode());
         }
-        return readNextMessage();
+        if (m.containsBufrTable()) // data messages only
+          continue;
+
+        // mixed messages
+        if (!protoMessage.equals(m)) {
+          if (messHash == null) messHash = new HashSet<>(20);
+          if (!messHash.contains(m.hashCode())) {
+            log.warn("File " + raf.getLocation() + " has different BUFR message types hash=" + protoMessage.hashCode() + "; skipping");
+            messHash.add(m.hashCode());
+          }
+          continue;
+        }
+        return m;
       }
-
-      ArrayStructure as = readMessage(m);
-      return as.getStructureDataIterator();
+      return null;
     }
 
-    private ArrayStructure readMessage(Message m) throws IOException {
+    private ArrayStructure readMessage(Message m, RandomAccessFile mraf) throws IOException {
       ArrayStructure as;
       if (m.dds.isCompressed()) {
         MessageCompressedDataReader reader = new MessageCompressedDataReader();
-        as = reader.readEntireMessage(obsStructure, protoMessage, m, raf, null);
+        as = reader.readEntireMessage(obsStructure, protoMessage, m, mraf, null);
       } else {
         MessageUncompressedDataReader reader = new MessageUncompressedDataReader();
-        as = reader.readEntireMessage(obsStructure, protoMessage, m, raf, null);
+        as = reader.readEntireMessage(obsStructure, protoMessage, m, mraf, null);
       }
       return as;
     }
 
+    private void cancelPending() {
+      for (Future<ArrayStructure> f : pending)
+        f.cancel(false);
+      pending.clear();
+    }
+
     @Override
     public int getCurrentRecno() {
       return recnum - 1;
@@ -242,7 +326,44 @@ public class BufrIosp2 extends AbstractIOServiceProvider {
     public void close() {
       if (currIter != null) currIter.close();
       currIter = null;
-      if (debugIter) System.out.printf("BUFR read recnum %d%n", recnum);
+      cancelPending();
+      if (debugIter) {
+        long took = System.currentTimeMillis() - start;
+        System.out.printf("BUFR read recnum %d nmess %d took %d msecs = %.1f messages/sec%n", recnum, nmess, took,
+                took == 0 ? 0.0 : nmess * 1000.0 / took);
+      }
+    }
+  }
+
+  /**
+   * The data section of one message, read into memory so it can be decoded on another thread.
+   * Positions are the same as in the original file.
+   */
+  static private class MessageDataFile extends RandomAccessFile {
+    private final long dataStart;
+    private final byte[] data;
+
+    MessageDataFile(RandomAccessFile raf, Message m) throws IOException {
+      super(defaultBufferSize);
+      this.location = raf.getLocation();
+      this.dataStart = m.dataSection.getDataPos();
+      int len = (int) Math.max(0, Math.min(m.dataSection.getDataLength(), raf.length() - dataStart));
+      this.data = new byte[len];
+      raf.seek(dataStart);
+      raf.readFully(data);
+    }
+
+    @Override
+    public long length() {
+      return dataStart + data.length;
+    }
+
+    @Override
+    protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+      if (pos < dataStart || pos >= dataStart + data.length) return -1;
+      len = Math.min(len, (int) (dataStart + data.length - pos));
+      System.arraycopy(data, (int) (pos - dataStart), b, offset, len);
+      return len;
     }
   }
 
@@ -358,6 +358,7 @@ public class DataDescriptor {
   boolean isVarLength;
   boolean isBad;
   int total_nbits;
+  int ddsHash; // hashCode2(), computed once
 
   public int getTotalBits() { return total_nbits; }
   public boolean isVarLength() { return isVarLength; }
@@ -0,0 +1,65 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp.bufr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shares one DataDescriptor tree among all messages that use the same tables and the same data descriptors,
+ * so that Table D expansion, Table C operators and bit counting are done once per message type, not once per message.
+ * The shared trees must not be modified, see Message.ownRootDataDescriptor().
+ *
+ * @since 5.0
+ */
+class DataDescriptorCache {
+  static private final int MAX_SIZE = 1000;
+
+  static private final Cache<Key, DataDescriptor> cache = CacheBuilder.newBuilder()
+          .maximumSize(MAX_SIZE)
+          .recordStats()
+          .build();
+
+  static DataDescriptor factory(BufrTableLookup lookup, BufrDataDescriptionSection dds) {
+    Key key = new Key(lookup.getTableLookup(), dds.getDataDescriptors());
+    try {
+      return cache.get(key, () -> new DataDescriptorTreeConstructor().factory(lookup, dds));
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  static CacheStats getStats() {
+    return cache.stats();
+  }
+
+  static void clear() {
+    cache.invalidateAll();
+  }
+
+  private static class Key {
+    final TableLookup tables;
+    final List<Short> descriptors;
+
+    Key(TableLookup tables, List<Short> descriptors) {
+      this.tables = tables;
+      this.descriptors = descriptors;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return tables.equals(key.tables) && descriptors.equals(key.descriptors);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * tables.hashCode() + descriptors.hashCode();
+    }
+  }
+}
@@ -75,6 +75,7 @@ public class DataDescriptorTreeConstructor {
 
     // count the size
     root.total_nbits = root.countBits();
+    root.ddsHash = root.hashCode2();
 
     return root;
   }
@@ -80,6 +80,7 @@ public class EmbeddedTable {
 
   private void read2() throws IOException {
     Message proto = messages.get(0);
+    proto.ownRootDataDescriptor(); // Construct2 modifies it
     BufrConfig config = BufrConfig.openFromMessage(raf, proto, null);
     Construct2 construct = new Construct2(proto, config, new NetcdfFileSubclass());
 
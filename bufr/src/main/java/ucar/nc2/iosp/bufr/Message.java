@@ -59,7 +59,9 @@ public class Message {
 
   private RandomAccessFile raf;
   private BufrTableLookup lookup;
-  private DataDescriptor root;
+  private DataDescriptor sharedRoot; // shared with messages of the same type, must not be modified
+  private DataDescriptor root;       // sharedRoot, or a tree owned by this message or the proto message
+  private boolean ownsRoot;
 
   private String header; // wmo header
   private long startPos; // starting pos in raf
@@ -81,6 +83,9 @@ public class Message {
 
   void setTableLookup(TableLookup lookup) {
     this.lookup.setTableLookup(lookup);
+    this.sharedRoot = null;
+    this.root = null;
+    this.ownsRoot = false;
   }
 
   public void close() throws IOException {
@@ -147,15 +152,50 @@ public class Message {
 
   /**
    * Get the root of the DataDescriptor tree.
+   * Unless ownRootDataDescriptor() has been called, the tree is shared with other messages and must not be modified.
    *
    * @return root DataDescriptor
    */
   public DataDescriptor getRootDataDescriptor() {
     if (root == null)
-      root = new DataDescriptorTreeConstructor().factory(lookup, dds);
+      root = getSharedRootDataDescriptor();
     return root;
   }
 
+  private DataDescriptor getSharedRootDataDescriptor() {
+    if (sharedRoot == null)
+      sharedRoot = DataDescriptorCache.factory(lookup, dds);
+    return sharedRoot;
+  }
+
+  /**
+   * Give this message its own DataDescriptor tree, which may then be modified, eg by Construct2.
+   */
+  void ownRootDataDescriptor() {
+    if (!ownsRoot) {
+      getSharedRootDataDescriptor(); // so messages of the same type can use this tree
+      root = new DataDescriptorTreeConstructor().factory(lookup, dds);
+      ownsRoot = true;
+    }
+  }
+
+  /**
+   * Use the names and CDM objects that were assigned to the DataDescriptors of the proto message.
+   * A message with the same tables and data descriptors just uses the proto message's tree.
+   *
+   * @param proto message with the exact same structure
+   */
+  void transferInfo(Message proto) {
+    if (this == proto) return;
+    if (getSharedRootDataDescriptor() == proto.getSharedRootDataDescriptor()) {
+      root = proto.getRootDataDescriptor();
+      ownsRoot = false;
+    } else {
+      ownRootDataDescriptor();
+      DataDescriptor.transferInfo(proto.getRootDataDescriptor().getSubKeys(), root.getSubKeys());
+    }
+  }
+
   public boolean usesLocalTable() throws IOException {
     DataDescriptor root = getRootDataDescriptor();
     return usesLocalTable(root);
@@ -295,8 +335,7 @@ public class Message {
   }
 
   public int getDDShashcode() {
-    root = getRootDataDescriptor();
-    return root.hashCode2();
+    return getRootDataDescriptor().ddsHash;
   }
 
   /**
@@ -37,7 +37,7 @@ import ucar.ma2.*;
 import ucar.nc2.Structure;
 import ucar.nc2.Sequence;
 import ucar.nc2.constants.CDM;
-import ucar.nc2.iosp.BitReader;
+import ucar.nc2.iosp.BitUnpacker;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
@@ -117,7 +117,7 @@ public class MessageCompressedDataReader {
    */
   public ArrayStructure readEntireMessage(Structure s, Message proto, Message m, RandomAccessFile raf, Formatter f) throws IOException {
     // transfer info (refersTo, name) from the proto message
-    DataDescriptor.transferInfo(proto.getRootDataDescriptor().getSubKeys(), m.getRootDataDescriptor().getSubKeys());
+    m.transferInfo(proto);
 
     // allocate ArrayStructureMA for outer structure
     int n = m.getNumberDatasets();
@@ -238,7 +238,7 @@ public class MessageCompressedDataReader {
   // read / count the bits in a compressed message
   private int readData(Message m, RandomAccessFile raf, Formatter f, Request req) throws IOException {
     
-    BitReader reader = new BitReader(raf, m.dataSection.getDataPos() + 4);
+    BitUnpacker reader = new BitUnpacker(raf, m.dataSection.getDataPos() + 4, m.dataSection.getDataLength() - 4);
     DataDescriptor root = m.getRootDataDescriptor();
     if (root.isBad) return 0;
 
@@ -264,7 +264,7 @@ public class MessageCompressedDataReader {
    * @return bitOffset
    * @throws IOException  on read error
    */
-  private int readData(DebugOut out, BitReader reader, BitCounterCompressed[] fldCounters, DataDescriptor parent, int bitOffset,
+  private int readData(DebugOut out, BitUnpacker reader, BitCounterCompressed[] fldCounters, DataDescriptor parent, int bitOffset,
                                   int ndatasets, Request req) throws IOException {
 
     List<DataDescriptor> flds = parent.getSubKeys();
@@ -419,12 +419,17 @@ public class MessageCompressedDataReader {
 
       // numeric fields
 
-      // if dataWidth == 0, just use min value, otherwise read the compressed value here
+      // if dataWidth == 0, just use min value, otherwise read the compressed values here
+      long[] compressed = null;
+      if (dataWidth > 0) {
+        compressed = new long[ndatasets];
+        reader.unpack(dataWidth, compressed, 0, ndatasets);
+      }
       for (int dataset = 0; dataset < ndatasets; dataset++) {
         long value = dataMin;
 
         if (dataWidth > 0) {
-          long cv = reader.bits2UInt(dataWidth);
+          long cv = compressed[dataset];
           if ( BufrNumbers.isMissing(cv, dataWidth))
             value = BufrNumbers.missingValue(useBitWidth); // set to missing value
           else // add to minimum
@@ -467,7 +472,7 @@ public class MessageCompressedDataReader {
   }
 
   // read in the data into an ArrayStructureMA, holding an ArrayObject() of ArraySequence
-  private int makeArraySequenceCompressed(DebugOut out, BitReader reader, BitCounterCompressed bitCounterNested, DataDescriptor seqdd,
+  private int makeArraySequenceCompressed(DebugOut out, BitUnpacker reader, BitCounterCompressed bitCounterNested, DataDescriptor seqdd,
                          int bitOffset, int ndatasets, int count, Request req) throws IOException {
 
     // construct ArrayStructureMA and associated map
@@ -103,7 +103,7 @@ public class MessageUncompressedDataReader {
    */
   public ArrayStructure readEntireMessage(Structure s, Message proto, Message m, RandomAccessFile raf, Formatter f) throws IOException {
     // transfer info from proto message
-    DataDescriptor.transferInfo(proto.getRootDataDescriptor().getSubKeys(), m.getRootDataDescriptor().getSubKeys());
+    m.transferInfo(proto);
 
     // allocate ArrayStructureBB for outer structure
     // This assumes that all of the fields and all of the datasets are being read
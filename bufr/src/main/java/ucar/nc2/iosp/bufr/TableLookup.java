@@ -109,6 +109,26 @@ public class TableLookup {
     return localTableD;
   }
 
+  // two lookups are the same if they use the same tables
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    TableLookup that = (TableLookup) o;
+    return localTableB == that.localTableB && localTableD == that.localTableD &&
+            wmoTableB == that.wmoTableB && wmoTableD == that.wmoTableD && mode == that.mode;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = System.identityHashCode(localTableB);
+    result = 31 * result + System.identityHashCode(localTableD);
+    result = 31 * result + System.identityHashCode(wmoTableB);
+    result = 31 * result + System.identityHashCode(wmoTableD);
+    result = 31 * result + mode.hashCode();
+    return result;
+  }
+
   public TableB.Descriptor getDescriptorTableB(short fxy) {
     TableB.Descriptor b = null;
     boolean isWmoRange = Descriptor.isWmoRange(fxy);
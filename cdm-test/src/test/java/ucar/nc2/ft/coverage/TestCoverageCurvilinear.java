@@ -93,7 +93,6 @@ public class TestCoverageCurvilinear {
   }
 
   @Test
-  // @Ignore("takes too long - problem HorizCoordSys2D.computeBoundsExhaustive")
   public void TestGribCurvilinearSubset() throws IOException, InvalidRangeException {
     String endpoint = TestDir.cdmUnitTestDir + "ft/fmrc/rtofs/ofs.20091122/ofs_atl.t00z.F024.grb.grib2";  // GRIB Curvilinear
     System.out.printf("open %s%n", endpoint);
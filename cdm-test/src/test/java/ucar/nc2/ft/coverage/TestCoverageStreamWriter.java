@@ -0,0 +1,69 @@
+/* Copyright */
+package ucar.nc2.ft.coverage;
+
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft2.coverage.*;
+import ucar.nc2.ft2.coverage.writer.CFGridCoverageWriter2;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.nc2.util.Optional;
+import ucar.unidata.util.test.category.NeedsCdmUnitTest;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Streaming a netcdf-3 coverage subset gives the same file as writing it with NetcdfFileWriter.
+ */
+@Category(NeedsCdmUnitTest.class)
+public class TestCoverageStreamWriter {
+
+  @Test
+  public void testStreamSameAsFile() throws IOException, InvalidRangeException {
+    String endpoint = TestDir.cdmUnitTestDir + "ft/coverage/03061219_ruc.nc";
+    List<String> covList = Lists.newArrayList("P_sfc", "P_trop", "T");
+    SubsetParams params = new SubsetParams();
+
+    File fileOut = TestDir.getTempFile();
+    File streamOut = TestDir.getTempFile();
+
+    try (FeatureDatasetCoverage cc = CoverageDatasetFactory.open(endpoint)) {
+      Assert.assertNotNull(endpoint, cc);
+      CoverageCollection gcs = cc.findCoverageDataset(FeatureType.GRID);
+
+      NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileOut.getPath(), null);
+      Optional<Long> fileSize = CFGridCoverageWriter2.writeOrTestSize(gcs, covList, params, false, false, writer);
+      Assert.assertTrue(fileSize.isPresent());
+
+      try (OutputStream out = new FileOutputStream(streamOut)) {
+        Optional<Long> streamSize = CFGridCoverageWriter2.writeNetcdf3Stream(gcs, covList, params, false, out);
+        Assert.assertTrue(streamSize.isPresent());
+        Assert.assertEquals(fileSize.get(), streamSize.get());
+      }
+    }
+
+    try (NetcdfFile ncfile = NetcdfFile.open(fileOut.getPath());
+         NetcdfFile ncstream = NetcdfFile.open(streamOut.getPath())) {
+      CompareNetcdf2 compare = new CompareNetcdf2();
+      for (Variable v : ncfile.getVariables()) {
+        Variable vs = ncstream.findVariable(v.getFullNameEscaped());
+        Assert.assertNotNull(v.getFullName(), vs);
+        Assert.assertEquals(v.getFullName(), v.getDataType(), vs.getDataType());
+        Assert.assertArrayEquals(v.getFullName(), v.getShape(), vs.getShape());
+        Assert.assertTrue(v.getFullName(), compare.compareData(v.getFullName(), v.read(), vs.read()));
+      }
+      Assert.assertEquals(ncfile.getVariables().size(), ncstream.getVariables().size());
+    }
+  }
+}
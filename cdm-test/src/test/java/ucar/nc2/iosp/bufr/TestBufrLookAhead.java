@@ -0,0 +1,56 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp.bufr;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Sequence;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Check that decoding messages ahead of the iterator returns the same records, in the same order,
+ * as decoding them on the caller's thread.
+ */
+public class TestBufrLookAhead {
+
+  @Test
+  public void compareWithSerial() throws IOException {
+    String filename = TestDir.cdmLocalTestDataDir + "dataset/nestedTable.bufr";
+
+    List<StructureData> serial = readAll(filename);
+    Assert.assertTrue(serial.size() > 0);
+
+    try {
+      BufrIosp2.setLookAhead(3);
+      List<StructureData> lookAhead = readAll(filename);
+      Assert.assertEquals(serial.size(), lookAhead.size());
+
+      Formatter f = new Formatter();
+      CompareNetcdf2 compare = new CompareNetcdf2(f, false, false, true);
+      for (int i = 0; i < serial.size(); i++)
+        Assert.assertTrue(f.toString(), compare.compareStructureData(serial.get(i), lookAhead.get(i), 0.0, false));
+    } finally {
+      BufrIosp2.setLookAhead(0);
+    }
+  }
+
+  private List<StructureData> readAll(String filename) throws IOException {
+    List<StructureData> result = new ArrayList<>();
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Sequence obs = (Sequence) ncfile.findVariable(BufrIosp2.obsRecord);
+      try (StructureDataIterator iter = obs.getStructureIterator()) {
+        while (iter.hasNext())
+          result.add(iter.next());
+      }
+    }
+    return result;
+  }
+}
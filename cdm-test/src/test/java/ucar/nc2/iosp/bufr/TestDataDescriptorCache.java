@@ -0,0 +1,58 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp.bufr;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Check that messages with the same tables and data descriptors share one DataDescriptor tree,
+ * and that a message that owns its tree does not change the shared one.
+ */
+public class TestDataDescriptorCache {
+
+  @Test
+  public void testShared() throws IOException {
+    String filename = TestDir.cdmLocalTestDataDir + "dataset/nestedTable.bufr";
+    List<Message> messages = new ArrayList<>();
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      MessageScanner scanner = new MessageScanner(raf);
+      while (scanner.hasNext()) {
+        Message m = scanner.next();
+        if (m != null && !m.containsBufrTable()) messages.add(m);
+      }
+    }
+    Assert.assertTrue(messages.size() > 0);
+
+    Message first = messages.get(0);
+    for (Message m : messages) {
+      if (m.equals(first) && m.getLookup().getTableLookup().equals(first.getLookup().getTableLookup()))
+        Assert.assertSame(first.getRootDataDescriptor(), m.getRootDataDescriptor());
+    }
+
+    DataDescriptor shared = first.getRootDataDescriptor();
+    String name = shared.getSubKeys().get(0).getName();
+    first.ownRootDataDescriptor();
+    DataDescriptor owned = first.getRootDataDescriptor();
+    Assert.assertNotSame(shared, owned);
+    Assert.assertEquals(shared.hashCode2(), owned.hashCode2());
+    Assert.assertEquals(first.getDDShashcode(), shared.hashCode2());
+
+    owned.getSubKeys().get(0).name = "renamed";
+    Assert.assertEquals(name, shared.getSubKeys().get(0).getName());
+
+    // a message of the same type reads through the proto message's tree
+    Message other = new MessageScanner(new RandomAccessFile(filename, "r")).getFirstDataMessage();
+    try {
+      other.transferInfo(first);
+      Assert.assertSame(owned, other.getRootDataDescriptor());
+    } finally {
+      other.close();
+    }
+  }
+}
@@ -37,6 +37,7 @@ import org.junit.experimental.categories.Category;
 import ucar.ma2.Array;
 import ucar.ma2.IndexIterator;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
 import ucar.nc2.Dimension;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
@@ -161,6 +162,26 @@ public class TestNexrad2 {
     }
   }
 
+  @Test
+  public void testUncompressInMemory() throws IOException {
+    String filename = TestDir.cdmUnitTestDir + "formats/nexrad/level2/Level2_KYUX_20060527_2335.ar2v";
+    Array want;
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      want = ncfile.findVariable("Reflectivity").read();
+    }
+
+    // parallel decompression into memory gives the same data as the disk cache copy
+    Level2VolumeScan.setUncompressThreads(4);
+    Level2VolumeScan.setUseDiskCache(false);
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Array data = ncfile.findVariable("Reflectivity").read();
+      assert MAMath.equals(want, data);
+    } finally {
+      Level2VolumeScan.setUncompressThreads(0);
+      Level2VolumeScan.setUseDiskCache(true);
+    }
+  }
+
   @Test
   public void testBzipProblem() throws IOException, InvalidRangeException {
     // file where there was an error unzipping the file
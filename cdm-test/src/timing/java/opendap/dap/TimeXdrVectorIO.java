@@ -0,0 +1,59 @@
+/* Copyright Unidata */
+package opendap.dap;
+
+import timing.Average;
+
+import java.io.*;
+
+/**
+ * Time XDR encoding and decoding of a large float array, one value at a time through
+ * DataOutputStream / DataInputStream, and in bulk with XdrVectorIO.
+ * Usage: TimeXdrVectorIO [nelems nloops]
+ */
+public class TimeXdrVectorIO {
+
+  public static void main(String[] args) throws IOException {
+    int nelems = (args.length > 0) ? Integer.parseInt(args[0]) : 100 * 1000 * 1000;
+    int nloops = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+    float[] vals = new float[nelems];
+    for (int i = 0; i < nelems; i++) vals[i] = (float) Math.sin(i * .001);
+    float[] back = new float[nelems];
+    byte[] encoded = null;
+
+    Average writeOne = new Average(), writeBulk = new Average();
+    Average readOne = new Average(), readBulk = new Average();
+    for (int loop = 0; loop < nloops; loop++) {
+      ByteArrayOutputStream bout = new ByteArrayOutputStream(4 * nelems);
+      long start = System.nanoTime();
+      DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(bout));
+      for (float val : vals) dout.writeFloat(val);
+      dout.flush();
+      writeOne.add((System.nanoTime() - start) / 1000 / 1000);
+
+      bout.reset();
+      start = System.nanoTime();
+      dout = new DataOutputStream(new BufferedOutputStream(bout));
+      XdrVectorIO.writeFloats(dout, vals, 0, nelems - 1, 1);
+      dout.flush();
+      writeBulk.add((System.nanoTime() - start) / 1000 / 1000);
+      encoded = bout.toByteArray();
+
+      start = System.nanoTime();
+      DataInputStream din = new DataInputStream(new BufferedInputStream(new ByteArrayInputStream(encoded)));
+      for (int i = 0; i < nelems; i++) back[i] = din.readFloat();
+      readOne.add((System.nanoTime() - start) / 1000 / 1000);
+
+      start = System.nanoTime();
+      din = new DataInputStream(new BufferedInputStream(new ByteArrayInputStream(encoded)));
+      XdrVectorIO.readFloats(din, back, null);
+      readBulk.add((System.nanoTime() - start) / 1000 / 1000);
+    }
+
+    System.out.printf("%d floats, %d loops (msecs)%n", nelems, nloops);
+    System.out.printf(" write one at a time = %8.1f +/- %6.1f%n", writeOne.mean(), writeOne.stddev());
+    System.out.printf(" write bulk          = %8.1f +/- %6.1f%n", writeBulk.mean(), writeBulk.stddev());
+    System.out.printf(" read one at a time  = %8.1f +/- %6.1f%n", readOne.mean(), readOne.stddev());
+    System.out.printf(" read bulk           = %8.1f +/- %6.1f%n", readBulk.mean(), readBulk.stddev());
+  }
+}
@@ -0,0 +1,66 @@
+/* Copyright Unidata */
+package ucar.nc2.dataset;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.nc2.Attribute;
+import ucar.nc2.constants.CDM;
+
+import java.util.Random;
+
+/**
+ * Time unpacking of scale/offset/missing packed data, as done when reading an enhanced Variable:
+ * one value at a time through IndexIterator, EnhanceScaleMissingImpl.convertScaleOffsetMissing(Array),
+ * and the same in parallel.
+ * Usage: TimeEnhanceScaleMissing [npts nloops]
+ */
+public class TimeEnhanceScaleMissing {
+
+  public static void main(String[] args) {
+    int npts = (args.length > 0) ? Integer.parseInt(args[0]) : 10 * 1000 * 1000;
+    int nloops = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+    for (DataType dt : new DataType[]{DataType.BYTE, DataType.SHORT, DataType.INT}) {
+      for (boolean unsigned : new boolean[]{false, true}) {
+        NetcdfDataset ncd = new NetcdfDataset();
+        VariableDS var = new VariableDS(ncd, null, null, "packed", dt, "", null, null);
+        var.addAttribute(new Attribute(CDM.SCALE_FACTOR, 0.01f));
+        var.addAttribute(new Attribute(CDM.ADD_OFFSET, 273.15f));
+        var.addAttribute(new Attribute(CDM.MISSING_VALUE, -1));
+        var.addAttribute(new Attribute(CDM.FILL_VALUE, 127));
+        if (unsigned) var.addAttribute(new Attribute(CDM.UNSIGNED, "true"));
+        EnhanceScaleMissingImpl impl = new EnhanceScaleMissingImpl(var, true, true, true, true);
+
+        Array packed = Array.factory(dt, new int[]{npts});
+        Random r = new Random(0);
+        for (int i = 0; i < npts; i++)
+          packed.setInt(i, r.nextInt());
+
+        for (int loop = 0; loop < nloops; loop++) {
+          long start = System.nanoTime();
+          Array result = Array.factory(impl.getConvertedDataType(), packed.getShape());
+          IndexIterator iterIn = packed.getIndexIterator();
+          IndexIterator iterOut = result.getIndexIterator();
+          while (iterIn.hasNext())
+            iterOut.setDoubleNext(impl.convertScaleOffsetMissing(iterIn.getDoubleNext()));
+          double t1 = (System.nanoTime() - start) * 1.0e-9;
+
+          NetcdfDataset.setParallelConvertThreshold(0);
+          start = System.nanoTime();
+          impl.convertScaleOffsetMissing(packed);
+          double t2 = (System.nanoTime() - start) * 1.0e-9;
+
+          NetcdfDataset.setParallelConvertThreshold(1000 * 1000);
+          start = System.nanoTime();
+          impl.convertScaleOffsetMissing(packed);
+          double t3 = (System.nanoTime() - start) * 1.0e-9;
+          NetcdfDataset.setParallelConvertThreshold(0);
+
+          System.out.printf(" %-6s unsigned=%-5s: IndexIterator %7.1f Mvalues/sec, convert Array %7.1f Mvalues/sec, parallel %7.1f Mvalues/sec%n",
+                  dt, unsigned, npts / t1 * 1.0e-6, npts / t2 * 1.0e-6, npts / t3 * 1.0e-6);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 1998-2009 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.grib;
+
+import timing.Average;
+import ucar.nc2.grib.grib2.*;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare decoding GRIB2 template 5.40 (JPEG2000) records with a new decoder and code stream buffer per record
+ * against the pooled, thread confined decoder used by Grib2DataReader2.
+ * Usage: TimeJpeg2000 file.grib2 [nloops]
+ */
+public class TimeJpeg2000 {
+
+  public static void main(String[] args) throws IOException {
+    String filename = args[0];
+    int nloops = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      List<Grib2Record> records = new ArrayList<>();
+      Grib2RecordScanner scan = new Grib2RecordScanner(raf);
+      while (scan.hasNext()) {
+        Grib2Record gr = scan.next();
+        if (gr.getDataRepresentationSection().getDataTemplate() == 40)
+          records.add(gr);
+      }
+      System.out.printf("%s has %d JPEG2000 records%n", filename, records.size());
+      if (records.isEmpty()) return;
+
+      // warm up
+      decodeEach(raf, records);
+      decodePooled(raf, records);
+
+      Average each = new Average();
+      Average pooled = new Average();
+      for (int i = 0; i < nloops; i++) {
+        each.add(decodeEach(raf, records));
+        pooled.add(decodePooled(raf, records));
+      }
+      System.out.printf("new decoder per record = %8.3f msecs (stddev %6.3f)%n", each.mean(), each.stddev());
+      System.out.printf("pooled decoder         = %8.3f msecs (stddev %6.3f)%n", pooled.mean(), pooled.stddev());
+    }
+  }
+
+  // the old way: new decoder and code stream buffer, copied into the jj2000 input stream, then level shift and scale
+  static private double decodeEach(RandomAccessFile raf, List<Grib2Record> records) throws IOException {
+    long start = System.nanoTime();
+    for (Grib2Record gr : records) {
+      Grib2Drs.Type40 drs = (Grib2Drs.Type40) gr.getDataRepresentationSection().getDrs(raf);
+      if (drs.numberOfBits == 0) continue;
+      Grib2SectionData dataSection = gr.getDataSection();
+      raf.seek(dataSection.getStartingPosition() + 5);
+      byte[] buf = new byte[dataSection.getMsgLength() - 5];
+      raf.readFully(buf);
+      Grib2JpegDecoder g2j = new Grib2JpegDecoder(drs.numberOfBits, false);
+      g2j.decode(buf);
+      scale(g2j.getGdata(), 0, drs);
+    }
+    return (System.nanoTime() - start) / 1000.0 / 1000.0;
+  }
+
+  static private double decodePooled(RandomAccessFile raf, List<Grib2Record> records) throws IOException {
+    long start = System.nanoTime();
+    try (Grib2JpegDecoder.Reuse reuse = Grib2JpegDecoder.reuseOnThisThread()) {
+      for (Grib2Record gr : records) {
+        Grib2Drs.Type40 drs = (Grib2Drs.Type40) gr.getDataRepresentationSection().getDrs(raf);
+        if (drs.numberOfBits == 0) continue;
+        Grib2SectionData dataSection = gr.getDataSection();
+        raf.seek(dataSection.getStartingPosition() + 5);
+        int len = dataSection.getMsgLength() - 5;
+        Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(drs.numberOfBits);
+        byte[] buf = g2j.getCodeStreamBuffer(len);
+        raf.readFully(buf, 0, len);
+        g2j.decode(buf, 0, len, false);
+        scale(g2j.getGdata(), g2j.getLevelShift(), drs);
+      }
+    }
+    return (System.nanoTime() - start) / 1000.0 / 1000.0;
+  }
+
+  static private float[] scale(int[] idata, int levelShift, Grib2Drs.Type40 drs) {
+    float DD = (float) Math.pow(10.0, drs.decimalScaleFactor);
+    float EE = (float) Math.pow(2.0, drs.binaryScaleFactor);
+    float R = drs.referenceValue;
+    float[] result = new float[idata.length];
+    for (int i = 0; i < idata.length; i++)
+      result[i] = (R + (idata[i] + levelShift) * EE) / DD;
+    return result;
+  }
+}
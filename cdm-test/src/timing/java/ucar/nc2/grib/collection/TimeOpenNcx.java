@@ -0,0 +1,98 @@
+/*
+ * Copyright 1998-2009 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.featurecollection.FeatureCollectionConfig;
+import timing.Average;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compare opening a GribCollectionImmutable from its ncx4 index by copying the proto message into a byte array,
+ * against parsing it from a memory mapped region of the index.
+ * Reports open time, and the heap allocated while opening, which is what mapping saves.
+ * The opened collections are the same size either way, since the message is decoded in one go.
+ * Usage: TimeOpenNcx file.ncx4 [nloops]
+ */
+public class TimeOpenNcx {
+  static private final Logger logger = LoggerFactory.getLogger(TimeOpenNcx.class);
+
+  public static void main(String[] args) throws IOException {
+    String filename = args[0];
+    int nloops = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+    FeatureCollectionConfig config = new FeatureCollectionConfig();
+
+    // warm up
+    open(filename, config, true);
+    open(filename, config, false);
+
+    Average copy = new Average();
+    Average mapped = new Average();
+    for (int i = 0; i < nloops; i++) {
+      copy.add(open(filename, config, false));
+      mapped.add(open(filename, config, true));
+    }
+    System.out.printf("%s%n", filename);
+    System.out.printf("read into byte[] = %8.3f msecs (stddev %6.3f) allocated = %d Kb%n", copy.mean(), copy.stddev(), allocated(filename, config, false) / 1000);
+    System.out.printf("memory mapped    = %8.3f msecs (stddev %6.3f) allocated = %d Kb%n", mapped.mean(), mapped.stddev(), allocated(filename, config, true) / 1000);
+    GribCdmIndex.setUseMemoryMap(false);
+  }
+
+  static private double open(String filename, FeatureCollectionConfig config, boolean useMemoryMap) throws IOException {
+    GribCdmIndex.setUseMemoryMap(useMemoryMap);
+    long start = System.nanoTime();
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r");
+         GribCollectionImmutable gc = GribCdmIndex.openGribCollectionFromIndexFile(raf, config, logger)) {
+      if (gc == null) throw new IOException("Failed to open " + filename);
+    }
+    return (System.nanoTime() - start) / 1000.0 / 1000.0;
+  }
+
+  // bytes allocated by this thread while opening, garbage included
+  static private long allocated(String filename, FeatureCollectionConfig config, boolean useMemoryMap) throws IOException {
+    GribCdmIndex.setUseMemoryMap(useMemoryMap);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long id = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(id);
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r");
+         GribCollectionImmutable gc = GribCdmIndex.openGribCollectionFromIndexFile(raf, config, logger)) {
+      long after = threads.getThreadAllocatedBytes(id);
+      if (gc == null) throw new IOException("Failed to open " + filename);
+      return after - before;
+    }
+  }
+}
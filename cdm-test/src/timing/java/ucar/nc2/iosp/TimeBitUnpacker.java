@@ -0,0 +1,59 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp;
+
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Time unpacking a grid of bit packed values from a file, as the GRIB simple packing readers do:
+ * BitReader one value at a time, BitUnpacker one value at a time, and BitUnpacker.unpack() of all values at once.
+ * Usage: TimeBitUnpacker [npts nloops]
+ */
+public class TimeBitUnpacker {
+
+  public static void main(String[] args) throws IOException {
+    int npts = (args.length > 0) ? Integer.parseInt(args[0]) : 1000 * 1000;
+    int nloops = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+    File file = File.createTempFile("TimeBitUnpacker", ".dat");
+    file.deleteOnExit();
+    byte[] packed = new byte[BitUnpacker.nbytes(32, npts)];
+    new Random(0).nextBytes(packed);
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(packed);
+    }
+
+    float ref = 273.15f, scale = 0.01f;
+    float[] values = new float[npts];
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      for (int nb : new int[]{7, 8, 12, 13, 16, 24}) {
+        for (int loop = 0; loop < nloops; loop++) {
+          long start = System.nanoTime();
+          BitReader reader = new BitReader(raf, 0);
+          for (int i = 0; i < npts; i++)
+            values[i] = ref + scale * reader.bits2UInt(nb);
+          double t1 = (System.nanoTime() - start) * 1.0e-9;
+
+          start = System.nanoTime();
+          BitUnpacker unpacker = new BitUnpacker(raf, 0, BitUnpacker.nbytes(nb, npts));
+          for (int i = 0; i < npts; i++)
+            values[i] = ref + scale * unpacker.bits2UInt(nb);
+          double t2 = (System.nanoTime() - start) * 1.0e-9;
+
+          start = System.nanoTime();
+          unpacker = new BitUnpacker(raf, 0, BitUnpacker.nbytes(nb, npts));
+          unpacker.unpack(nb, ref, scale, values, 0, npts);
+          double t3 = (System.nanoTime() - start) * 1.0e-9;
+
+          System.out.printf(" nb=%2d: BitReader %6.1f Mvalues/sec, BitUnpacker.bits2UInt %6.1f Mvalues/sec, BitUnpacker.unpack %6.1f Mvalues/sec%n",
+                  nb, npts / t1 * 1.0e-6, npts / t2 * 1.0e-6, npts / t3 * 1.0e-6);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp.bufr;
+
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Sequence;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+
+/**
+ * Time iterating over all the records of a BUFR file, decoding messages on the caller's thread,
+ * and with look-ahead decoding on 1, 2, 4 ... threads.
+ * Usage: TimeBufrLookAhead file.bufr [maxThreads nloops]
+ */
+public class TimeBufrLookAhead {
+
+  public static void main(String[] args) throws IOException {
+    String filename = args[0];
+    int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    int nloops = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+
+    int nmess = 0;
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      MessageScanner scanner = new MessageScanner(raf);
+      while (scanner.hasNext()) {
+        Message m = scanner.next();
+        if (m != null && !m.containsBufrTable()) nmess++;
+      }
+    }
+    System.out.printf("%s: %d data messages%n", filename, nmess);
+
+    for (int nthreads = 0; nthreads <= maxThreads; nthreads = (nthreads == 0) ? 1 : 2 * nthreads) {
+      BufrIosp2.setLookAhead(nthreads);
+      for (int loop = 0; loop < nloops; loop++) {
+        long start = System.nanoTime();
+        int nrecs = iterate(filename);
+        double secs = (System.nanoTime() - start) * 1.0e-9;
+        System.out.printf(" lookAhead threads=%d: %d records in %.3f secs = %.1f messages/sec%n", nthreads, nrecs, secs, nmess / secs);
+      }
+    }
+    BufrIosp2.setLookAhead(0);
+  }
+
+  private static int iterate(String filename) throws IOException {
+    int nrecs = 0;
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Sequence obs = (Sequence) ncfile.findVariable(BufrIosp2.obsRecord);
+      try (StructureDataIterator iter = obs.getStructureIterator()) {
+        while (iter.hasNext()) {
+          iter.next();
+          nrecs++;
+        }
+      }
+    }
+    return nrecs;
+  }
+}
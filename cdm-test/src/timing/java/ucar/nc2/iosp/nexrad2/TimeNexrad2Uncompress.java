@@ -0,0 +1,36 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp.nexrad2;
+
+import ucar.nc2.NetcdfFile;
+
+import java.io.IOException;
+
+/**
+ * Time opening a compressed NEXRAD Level II volume, uncompressing it into memory on the caller's thread,
+ * and on 1, 2, 4 ... threads. Nothing is written to the disk cache.
+ * Usage: TimeNexrad2Uncompress file.ar2v [maxThreads nloops]
+ */
+public class TimeNexrad2Uncompress {
+
+  public static void main(String[] args) throws IOException {
+    String filename = args[0];
+    int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    int nloops = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+
+    Level2VolumeScan.setUseDiskCache(false);
+    for (int nthreads = 0; nthreads <= maxThreads; nthreads = (nthreads == 0) ? 1 : 2 * nthreads) {
+      Level2VolumeScan.setUncompressThreads(nthreads);
+      for (int loop = 0; loop < nloops; loop++) {
+        long start = System.nanoTime();
+        long size;
+        try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+          size = ncfile.findVariable("Reflectivity").getSize();
+        }
+        double secs = (System.nanoTime() - start) * 1.0e-9;
+        System.out.printf(" uncompress threads=%d: open in %.3f secs (Reflectivity has %d values)%n", nthreads, secs, size);
+      }
+    }
+    Level2VolumeScan.setUncompressThreads(0);
+    Level2VolumeScan.setUseDiskCache(true);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 1998-2009 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.unidata.geoloc;
+
+import timing.Average;
+import ucar.unidata.geoloc.projection.*;
+
+/**
+ * Time computing 2D lat/lon for a projection grid: one point at a time, with the array transforms,
+ * and with the array transforms split across threads.
+ * Usage: TimeProjectionArrays [nx ny nloops]
+ */
+public class TimeProjectionArrays {
+
+  public static void main(String[] args) {
+    int nx = (args.length > 0) ? Integer.parseInt(args[0]) : 3000;
+    int ny = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+    int nloops = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+
+    ProjectionImpl[] projections = {
+            new LambertConformal(38.5, 262.5, 38.5, 38.5),
+            new Stereographic(90.0, 255.0, 0.933),
+            new RotatedPole(37.0, -153.0),
+            new Mercator(-105.0, 20.0),
+            new LatLonProjection(),
+    };
+
+    System.out.printf("grid %d x %d, %d loops%n", nx, ny, nloops);
+    for (ProjectionImpl proj : projections)
+      time(proj, nx, ny, nloops);
+  }
+
+  static private void time(ProjectionImpl proj, int nx, int ny, int nloops) {
+    // a grid around the projection origin
+    int n = nx * ny;
+    double[][] xy = new double[2][n];
+    ProjectionPoint center = proj.latLonToProj(40.0, -100.0);
+    double dx = proj.isLatLon() ? 0.01 : 1.0;
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        xy[0][j * nx + i] = center.getX() + (i - nx / 2) * dx;
+        xy[1][j * nx + i] = center.getY() + (j - ny / 2) * dx;
+      }
+    }
+    double[][] latlon = new double[2][n];
+
+    Average point = new Average();
+    Average serial = new Average();
+    Average parallel = new Average();
+    for (int loop = 0; loop <= nloops; loop++) {
+      long start = System.nanoTime();
+      ProjectionPointImpl ppt = new ProjectionPointImpl();
+      LatLonPointImpl llpt = new LatLonPointImpl();
+      for (int i = 0; i < n; i++) {
+        ppt.setLocation(xy[0][i], xy[1][i]);
+        proj.projToLatLon(ppt, llpt);
+        latlon[0][i] = llpt.getLatitude();
+        latlon[1][i] = llpt.getLongitude();
+      }
+      long t1 = System.nanoTime();
+
+      ProjectionImpl.setParallelThreshold(0);
+      proj.projToLatLon(xy, latlon);
+      long t2 = System.nanoTime();
+
+      ProjectionImpl.setParallelThreshold(1);
+      proj.projToLatLon(xy, latlon);
+      long t3 = System.nanoTime();
+      ProjectionImpl.setParallelThreshold(0);
+
+      if (loop == 0) continue; // warm up
+      point.add((t1 - start) / 1000.0 / 1000.0);
+      serial.add((t2 - t1) / 1000.0 / 1000.0);
+      parallel.add((t3 - t2) / 1000.0 / 1000.0);
+    }
+
+    System.out.printf("%-20s point = %8.2f msecs, array = %8.2f msecs, parallel = %8.2f msecs%n", proj.getClassName(),
+            point.mean(), serial.mean(), parallel.mean());
+  }
+}
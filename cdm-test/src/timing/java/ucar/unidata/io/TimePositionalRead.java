@@ -0,0 +1,113 @@
+/* Copyright Unidata */
+package ucar.unidata.io;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Time random small reads from one file on 1, 8 and 32 threads:
+ * <ol>
+ * <li>one RandomAccessFile shared by all threads, each read holding its lock (seek + read), as an IOSP must today
+ * <li>one RandomAccessFile per thread, ie one open copy for each concurrent reader
+ * <li>one PositionalRandomAccessFile, with one view per thread
+ * </ol>
+ * Usage: TimePositionalRead [file [nreads nloops]]. Without a file, a 256 Mbyte temporary file is used.
+ */
+public class TimePositionalRead {
+  static private final int READ_SIZE = 64;
+
+  interface Reader {
+    void read(long pos, byte[] b) throws IOException;
+  }
+
+  interface ReaderFactory {
+    Reader make() throws IOException;
+  }
+
+  public static void main(String[] args) throws Exception {
+    File file;
+    if (args.length > 0) {
+      file = new File(args[0]);
+    } else {
+      file = File.createTempFile("TimePositionalRead", ".dat");
+      file.deleteOnExit();
+      byte[] block = new byte[1024 * 1024];
+      new Random(0).nextBytes(block);
+      try (OutputStream out = new FileOutputStream(file)) {
+        for (int i = 0; i < 256; i++) out.write(block);
+      }
+    }
+    int nreads = (args.length > 1) ? Integer.parseInt(args[1]) : 200 * 1000;
+    int nloops = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+    String filename = file.getPath();
+    long length = file.length();
+    System.out.printf("%s: %d bytes, %d random reads of %d bytes per run%n", filename, length, nreads, READ_SIZE);
+
+    for (int nthreads : new int[]{1, 8, 32}) {
+      for (int loop = 0; loop < nloops; loop++) {
+        try (RandomAccessFile shared = new RandomAccessFile(filename, "r")) {
+          time("shared RandomAccessFile, locked", nthreads, nreads, length, () -> (pos, b) -> {
+            synchronized (shared) {
+              shared.seek(pos);
+              shared.readFully(b);
+            }
+          }, null);
+        }
+
+        List<RandomAccessFile> copies = new CopyOnWriteArrayList<>();
+        time("RandomAccessFile per thread", nthreads, nreads, length, () -> {
+          RandomAccessFile raf = new RandomAccessFile(filename, "r");
+          copies.add(raf);
+          return (pos, b) -> {
+            raf.seek(pos);
+            raf.readFully(b);
+          };
+        }, copies);
+
+        try (PositionalRandomAccessFile praf = new PositionalRandomAccessFile(filename)) {
+          time("PositionalRandomAccessFile views", nthreads, nreads, length, () -> {
+            RandomAccessFile view = praf.view();
+            return (pos, b) -> {
+              view.seek(pos);
+              view.readFully(b);
+            };
+          }, null);
+        }
+      }
+      System.out.printf("%n");
+    }
+  }
+
+  private static void time(String what, int nthreads, int nreads, long length, ReaderFactory factory,
+                           List<RandomAccessFile> toClose) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(nthreads);
+    try {
+      List<Callable<Void>> tasks = new ArrayList<>();
+      for (int t = 0; t < nthreads; t++) {
+        final int seed = t;
+        final int n = nreads / nthreads;
+        tasks.add(() -> {
+          Reader reader = factory.make();
+          Random r = new Random(seed);
+          byte[] b = new byte[READ_SIZE];
+          for (int i = 0; i < n; i++)
+            reader.read((long) (r.nextDouble() * (length - READ_SIZE)), b);
+          return null;
+        });
+      }
+
+      long start = System.nanoTime();
+      for (Future<Void> f : pool.invokeAll(tasks)) f.get();
+      double secs = (System.nanoTime() - start) * 1.0e-9;
+      System.out.printf(" %-35s threads=%2d: %8.3f secs = %10.0f reads/sec%n", what, nthreads, secs, nreads / secs);
+
+    } finally {
+      pool.shutdown();
+      if (toClose != null)
+        for (RandomAccessFile raf : toClose) raf.close();
+    }
+  }
+}
@@ -466,6 +466,7 @@ public class FeatureCollectionConfig {
     public boolean intvMerge = intvMergeDef;
     public boolean useCenter = useCenterDef;
     public boolean unionRuntimeCoord;
+    public int indexThreads;  // number of threads to make indexes, 0 = use GribCdmIndex default
 
     public GribIntvFilter intvFilter;
     public TimeUnitConverterHash tuc;
@@ -493,6 +494,15 @@ public class FeatureCollectionConfig {
       if (null != datasetTypes)
         addDatasetType(datasetTypes);
 
+      String indexThreadsS = configElem.getAttributeValue("indexThreads");
+      if (null != indexThreadsS) {
+        try {
+          indexThreads = Integer.parseInt(indexThreadsS.trim());
+        } catch (NumberFormatException e) {
+          log.warn("Failed to parse indexThreads = {}", indexThreadsS);
+        }
+      }
+
       List<Element> gdsElems = configElem.getChildren("gdsHash", ns);
       for (Element gds : gdsElems)
         addGdsHash(gds.getAttributeValue("from"), gds.getAttributeValue("to"));
@@ -688,6 +698,7 @@ public class FeatureCollectionConfig {
       if (intvMerge != intvMergeDef) f.format(" intvMerge=%s", intvMerge);
       if (useCenter != useCenterDef) f.format(" useCenter=%s", useCenter);
       if (userTimeUnit != null) f.format(" userTimeUnit= %s", userTimeUnit);
+      if (indexThreads > 0) f.format(" indexThreads=%d", indexThreads);
       f.format("%n");
       if (gdsHash != null) f.format("  gdsHash=%s%n", gdsHash);
       if (gdsNamer != null) f.format("  gdsNamer=%s%n", gdsNamer);
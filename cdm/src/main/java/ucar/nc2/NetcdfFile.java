@@ -69,6 +69,7 @@ import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
 import ucar.nc2.iosp.IOServiceProvider;
 import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.IospProbe;
 import ucar.nc2.iosp.netcdf3.N3header;
 import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.iosp.netcdf3.SPFactory;
@@ -487,13 +488,14 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
     if (N3header.isValidFile(raf)) {
       return true;
     } else {
+      IospProbe probe = new IospProbe(raf); // read the start of the file once
       for (IOServiceProvider iosp : ServiceLoader.load(IOServiceProvider.class)) {
-        log.info("ServiceLoader IOServiceProvider {}", iosp.getClass().getName());        if (iosp.isValidFile(raf)) {
+        log.info("ServiceLoader IOServiceProvider {}", iosp.getClass().getName());        if (probe.isValidFile(iosp)) {
           return true;
         }
       }
       for (IOServiceProvider registeredSpi : registeredProviders) {
-        if (registeredSpi.isValidFile(raf))
+        if (probe.isValidFile(registeredSpi))
           return true;
       }
     }
@@ -821,10 +823,12 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
       // spi = new ucar.nc2.iosp.hdf5.H5iosp();
 
     } else {
+      // read the start of the file once, only probe iosps whose signature matches it, see IOServiceProvider.getFileSignature()
+      IospProbe probe = new IospProbe(raf);
 
       // look for dynamically loaded IOSPs
       for (IOServiceProvider currentSpi : ServiceLoader.load(IOServiceProvider.class)) {
-        if (currentSpi.isValidFile(raf)) {
+        if (probe.isValidFile(currentSpi)) {
           Class c = currentSpi.getClass();
           try {
             spi = (IOServiceProvider) c.newInstance();
@@ -841,7 +845,7 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
       for (IOServiceProvider registeredSpi : registeredProviders) {
         if (debugSPI) log.info(" try iosp = {}", registeredSpi.getClass().getName());
 
-        if (registeredSpi.isValidFile(raf)) {
+        if (probe.isValidFile(registeredSpi)) {
           // need a new instance for thread safety
           Class c = registeredSpi.getClass();
           try {
@@ -36,6 +36,7 @@ import ucar.ma2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.IOServiceProviderWriter;
 import ucar.nc2.iosp.hdf5.H5header;
+import ucar.nc2.iosp.hdf5.H5iospWriter;
 import ucar.nc2.iosp.netcdf3.N3header;
 import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.iosp.netcdf3.N3raf;
@@ -115,6 +116,19 @@ public class NetcdfFileWriter implements Closeable {
     }
   }
 
+  static private boolean useJavaNetcdf4Writer = false;
+
+  /**
+   * Write new netCDF-4 files with the pure Java H5iospWriter, instead of the netCDF-C library through JNA.
+   * Files that H5iospWriter cannot write (eg with groups, Structures, String variables or attributes with several Strings)
+   * still use the C library.
+   *
+   * @param useJava true to use H5iospWriter when possible; default false
+   */
+  static public void setJavaNetcdf4Writer(boolean useJava) {
+    useJavaNetcdf4Writer = useJava;
+  }
+
   /**
    * Open an existing Netcdf file for writing data. Fill mode is true.
    * Cannot add new objects, you can only read/write data to existing Variables.
@@ -166,6 +180,7 @@ public class NetcdfFileWriter implements Closeable {
   private int extraHeader;
   private long preallocateSize;
   private Map<String,String> varRenameMap = new HashMap<>();
+  private Nc4Chunking chunker;
 
   /**
    * Open an existing or create a new Netcdf file
@@ -210,21 +225,14 @@ public class NetcdfFileWriter implements Closeable {
 
     this.version = version;
     this.location = location;
+    this.chunker = chunker;
 
-    if (version.useJniIosp()) {
-      IOServiceProviderWriter spi;
-      try {
-        //  Nc4Iosp.setLibraryAndPath(path, name);
-        Class iospClass = this.getClass().getClassLoader().loadClass("ucar.nc2.jni.netcdf.Nc4Iosp");
-        Constructor<IOServiceProviderWriter> ctor = iospClass.getConstructor(Version.class);
-        spi = ctor.newInstance(version);
-
-        Method method = iospClass.getMethod("setChunker", Nc4Chunking.class);
-        method.invoke(spi, chunker);
-      } catch (Throwable e) {
-        throw new IllegalArgumentException("ucar.nc2.jni.netcdf.Nc4Iosp failed, cannot use version " + version, e);
-      }
+    if (version.isNetdf4format() && !isExisting && useJavaNetcdf4Writer) {
+      H5iospWriter spi = new H5iospWriter(version);
+      spi.setChunker(chunker);
       spiw = spi;
+    } else if (version.useJniIosp()) {
+      spiw = makeJniIosp();
     } else {
       spiw = new N3raf();
     }
@@ -237,6 +245,22 @@ public class NetcdfFileWriter implements Closeable {
       defineMode = true;
   }
 
+  private IOServiceProviderWriter makeJniIosp() {
+    IOServiceProviderWriter spi;
+    try {
+      //  Nc4Iosp.setLibraryAndPath(path, name);
+      Class iospClass = this.getClass().getClassLoader().loadClass("ucar.nc2.jni.netcdf.Nc4Iosp");
+      Constructor<IOServiceProviderWriter> ctor = iospClass.getConstructor(Version.class);
+      spi = ctor.newInstance(version);
+
+      Method method = iospClass.getMethod("setChunker", Nc4Chunking.class);
+      method.invoke(spi, chunker);
+    } catch (Throwable e) {
+      throw new IllegalArgumentException("ucar.nc2.jni.netcdf.Nc4Iosp failed, cannot use version " + version, e);
+    }
+    return spi;
+  }
+
   /**
    * Set the fill flag: call before calling create() or doing any data writing. Only used by netcdf-3 (?).
    * If true, the data is first written with fill values.
@@ -881,6 +905,14 @@ public class NetcdfFileWriter implements Closeable {
       throw new UnsupportedOperationException("can only call create on a new file");
 
     ncfile.finish(); // ??
+    if (spiw instanceof H5iospWriter) {
+      Formatter errlog = new Formatter();
+      if (!H5iospWriter.isSupported(ncfile, errlog)) {
+        log.debug("{} uses the netCDF-C library: {}", location, errlog);
+        spiw = makeJniIosp();
+        ncfile.spi = spiw;
+      }
+    }
     spiw.setFill(fill); // ??
     spiw.create(location, ncfile, extraHeader, preallocateSize, isLargeFile);
 
@@ -41,6 +41,8 @@ import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.util.Misc;
 
 import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Implementation of EnhanceScaleMissing for missing data, unsigned, and scale/offset packed data.
@@ -663,6 +665,9 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
     if (debugRead) System.out.println("convertScaleOffset ");
 
     Array out = Array.factory(convertedDataType, in.getShape());
+    if (convertScaleOffsetPrimitive(in, out.getStorage()))
+      return out;
+
     IndexIterator iterIn = in.getIndexIterator();
     IndexIterator iterOut = out.getIndexIterator();
 
@@ -710,28 +715,180 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
     }
   }
 
+  ////////////////////////////////////////////////////////////////////////////////////////////
+  // Loops over the backing java arrays, one for each packed type, instead of IndexIterator.
+  // byte data, and short data when there are many values, is converted through a table of all possible values.
+
+  static private final int SHORT_TABLE_MIN = 4 * 65536; // make the short table if at least this many values
+  static private final int PARALLEL_CHUNK = 64 * 1024;  // smallest number of values for a parallel task
+
+  private interface RangeConverter {
+    void convert(int start, int end);
+  }
+
+  /**
+   * Convert in into dst, which is the float[] or double[] storage of the converted Array.
+   *
+   * @return false if not done, because in or dst are not one of the types handled here
+   */
+  private boolean convertScaleOffsetPrimitive(Array in, Object dst) {
+    if (!(dst instanceof double[]) && !(dst instanceof float[])) return false;
+    Class elemType = in.getElementType();
+    boolean unsigned = isUnsigned || in.isUnsigned();
+    if (elemType == long.class && unsigned) return false;
+    if (elemType != byte.class && elemType != short.class && elemType != int.class && elemType != long.class &&
+        elemType != float.class && elemType != double.class) return false;
+
+    int n = (int) in.getSize();
+    Object src = in.get1DJavaArray(in.getDataType()); // the storage itself, unless its a view in a different order
+    MissingTest missing = (useNaNs && hasMissing()) ? new MissingTest() : null;
+    double[] dd = (dst instanceof double[]) ? (double[]) dst : null;
+    float[] ff = (dst instanceof float[]) ? (float[]) dst : null;
+    RangeConverter conv;
+
+    if (elemType == byte.class || (elemType == short.class && n >= SHORT_TABLE_MIN)) {
+      boolean isByte = (elemType == byte.class);
+      double[] table = new double[isByte ? 256 : 65536];
+      for (int i = 0; i < table.length; i++) {
+        int raw = isByte ? (unsigned ? i : (byte) i) : (unsigned ? i : (short) i);
+        table[i] = convert(raw, missing);
+      }
+      if (isByte) {
+        byte[] b = (byte[]) src;
+        conv = (dd != null) ? (start, end) -> {
+          for (int i = start; i < end; i++) dd[i] = table[b[i] & 0xff];
+        } : (start, end) -> {
+          for (int i = start; i < end; i++) ff[i] = (float) table[b[i] & 0xff];
+        };
+      } else {
+        short[] s = (short[]) src;
+        conv = (dd != null) ? (start, end) -> {
+          for (int i = start; i < end; i++) dd[i] = table[s[i] & 0xffff];
+        } : (start, end) -> {
+          for (int i = start; i < end; i++) ff[i] = (float) table[s[i] & 0xffff];
+        };
+      }
+
+    } else if (elemType == short.class) {
+      short[] s = (short[]) src;
+      int mask = unsigned ? 0xffff : -1;
+      conv = (dd != null) ? (start, end) -> {
+        for (int i = start; i < end; i++) dd[i] = convert(s[i] & mask, missing);
+      } : (start, end) -> {
+        for (int i = start; i < end; i++) ff[i] = (float) convert(s[i] & mask, missing);
+      };
+
+    } else if (elemType == int.class) {
+      int[] v = (int[]) src;
+      long mask = unsigned ? 0xffffffffL : -1L;
+      conv = (dd != null) ? (start, end) -> {
+        for (int i = start; i < end; i++) dd[i] = convert(v[i] & mask, missing);
+      } : (start, end) -> {
+        for (int i = start; i < end; i++) ff[i] = (float) convert(v[i] & mask, missing);
+      };
+
+    } else if (elemType == long.class) {
+      long[] v = (long[]) src;
+      conv = (dd != null) ? (start, end) -> {
+        for (int i = start; i < end; i++) dd[i] = convert(v[i], missing);
+      } : (start, end) -> {
+        for (int i = start; i < end; i++) ff[i] = (float) convert(v[i], missing);
+      };
+
+    } else if (elemType == float.class) {
+      float[] v = (float[]) src;
+      conv = (dd != null) ? (start, end) -> {
+        for (int i = start; i < end; i++) dd[i] = convert(v[i], missing);
+      } : (start, end) -> {
+        for (int i = start; i < end; i++) ff[i] = (float) convert(v[i], missing);
+      };
+
+    } else {
+      double[] v = (double[]) src;
+      conv = (dd != null) ? (start, end) -> {
+        for (int i = start; i < end; i++) dd[i] = convert(v[i], missing);
+      } : (start, end) -> {
+        for (int i = start; i < end; i++) ff[i] = (float) convert(v[i], missing);
+      };
+    }
+
+    run(conv, n);
+    return true;
+  }
+
+  // scale and offset a packed value, missing is null if missing values are not made NaN
+  private double convert(double raw, MissingTest missing) {
+    double val = scale * raw + offset;
+    return (missing != null && missing.isMissing(val)) ? Double.NaN : val;
+  }
+
+  // in the common ForkJoinPool if there are at least NetcdfDataset.getParallelConvertThreshold() values
+  static private void run(RangeConverter conv, int n) {
+    int threshold = NetcdfDataset.getParallelConvertThreshold();
+    if (threshold <= 0 || n < threshold || n < 2 * PARALLEL_CHUNK) {
+      conv.convert(0, n);
+      return;
+    }
+    int chunk = Math.max(PARALLEL_CHUNK, n / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+    int nchunks = (n + chunk - 1) / chunk;
+    IntStream.range(0, nchunks).parallel().forEach(c -> conv.convert(c * chunk, Math.min(n, (c + 1) * chunk)));
+  }
+
+  /**
+   * The same test as isMissing_(), with the settings looked up once.
+   */
+  private class MissingTest {
+    private final double[] missing; // missing_value, empty if not used
+    private final double fill;      // _FillValue, NaN if not used
+    private final double min, max;  // valid range, infinite if not used
+
+    MissingTest() {
+      missing = (missingDataIsMissing && hasMissingValue) ? missingValue : new double[0];
+      fill = (fillValueIsMissing && hasFillValue) ? fillValue : Double.NaN;
+      boolean useMin = invalidDataIsMissing && (hasValidRange || hasValidMin);
+      boolean useMax = invalidDataIsMissing && (hasValidRange || (!hasValidMin && hasValidMax));
+      min = useMin ? valid_min : Double.NEGATIVE_INFINITY;
+      max = useMax ? valid_max : Double.POSITIVE_INFINITY;
+    }
+
+    boolean isMissing(double val) {
+      if (val < min || val > max || val == fill)
+        return true;
+      for (double aMissingValue : missing)
+        if (Misc.closeEnough(val, aMissingValue))
+          return true;
+      return false;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
   /**
    * Translate missing data to NaNs. Data must be DOUBLE or FLOAT
    *
    * @param in convert this array
-   * @return same array, with missing values replaced by NaNs
+   * @return same array, with missing values replaced by NaNs.
+   * A copy in canonical order if in was a view in a different order.
    */
   private Array convertMissing(Array in) {
     if (debugRead) System.out.println("convertMissing ");
 
-    IndexIterator iterIn = in.getIndexIterator();
+    MissingTest missing = new MissingTest();
     if (in.getElementType() == double.class) {
-      while (iterIn.hasNext()) {
-        double val = iterIn.getDoubleNext();
-        if (isMissing_(val))
-          iterIn.setDoubleCurrent(Double.NaN);
-      }
+      double[] v = (double[]) in.get1DJavaArray(in.getDataType());
+      run((start, end) -> {
+        for (int i = start; i < end; i++)
+          if (missing.isMissing(v[i])) v[i] = Double.NaN;
+      }, (int) in.getSize());
+      return (v == in.getStorage()) ? in : Array.factory(in.getDataType(), in.getShape(), v);
+
     } else if (in.getElementType() == float.class) {
-      while (iterIn.hasNext()) {
-        float val = iterIn.getFloatNext();
-        if (isMissing_(val))
-          iterIn.setFloatCurrent(Float.NaN);
-      }
+      float[] v = (float[]) in.get1DJavaArray(in.getDataType());
+      run((start, end) -> {
+        for (int i = start; i < end; i++)
+          if (missing.isMissing(v[i])) v[i] = Float.NaN;
+      }, (int) in.getSize());
+      return (v == in.getStorage()) ? in : Array.factory(in.getDataType(), in.getShape(), v);
     }
     return in;
   }
@@ -745,8 +902,9 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
    */
   public float[] setMissingToNaN(float[] values) {
     if (!hasMissing()) return values;
+    MissingTest missing = new MissingTest();
     for (int i = 0; i < values.length; i++) {
-      if (isMissing_(values[i]))
+      if (missing.isMissing(values[i]))
         values[i] = Float.NaN;
     }
     return values;
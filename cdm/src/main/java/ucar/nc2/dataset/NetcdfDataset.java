@@ -259,6 +259,26 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
     return missingDataIsMissing;
   }
 
+  static private int parallelConvertThreshold = 0;
+
+  /**
+   * Set the size of Arrays that are unpacked (scale/offset/missing) on the threads of the common ForkJoinPool.
+   *
+   * @param n minimum number of values; 0 (default) to always unpack on the calling thread
+   */
+  static public void setParallelConvertThreshold(int n) {
+    parallelConvertThreshold = n;
+  }
+
+  /**
+   * Get the size of Arrays that are unpacked (scale/offset/missing) on the threads of the common ForkJoinPool.
+   *
+   * @return minimum number of values, 0 if not done in parallel
+   */
+  static public int getParallelConvertThreshold() {
+    return parallelConvertThreshold;
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////
   // NetcdfFile caching
 
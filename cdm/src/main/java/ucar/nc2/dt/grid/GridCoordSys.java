@@ -1211,40 +1211,25 @@ public class GridCoordSys extends CoordinateSystem implements ucar.nc2.dt.GridCo
     } else if ((xaxis instanceof CoordinateAxis2D) && (yaxis instanceof CoordinateAxis2D) && isLatLon()) {
       CoordinateAxis2D lon_axis = (CoordinateAxis2D) xaxis;
       CoordinateAxis2D lat_axis = (CoordinateAxis2D) yaxis;
-      int shape[] = lon_axis.getShape();
-      int nj = shape[0];
-      int ni = shape[1];
-
-      int mini = Integer.MAX_VALUE, minj = Integer.MAX_VALUE;
-      int maxi = -1, maxj = -1;
 
       // margolis 2/18/2010
       //minx = LatLonPointImpl.lonNormal( minx ); // <-- THIS IS NEW
       //maxx = LatLonPointImpl.lonNormal( maxx ); // <-- THIS IS NEW
 
-      // brute force, examine every point LOOK BAD
-      for (int j = 0; j < nj; j++) {
-        for (int i = 0; i < ni; i++) {
-          double lat = lat_axis.getCoordValue(j, i);
-          double lon = lon_axis.getCoordValue(j, i);
-          //lon = LatLonPointImpl.lonNormal( lon ); // <-- THIS IS NEW      
-
-          if ((lat >= miny) && (lat <= maxy) && (lon >= minx) && (lon <= maxx)) {
-            if (i > maxi) maxi = i;
-            if (i < mini) mini = i;
-            if (j > maxj) maxj = j;
-            if (j < minj) minj = j;
-            //System.out.println(j+" "+i+" lat="+lat+" lon="+lon);
-          }
-        }
+      // the coordinate points inside the box, using the spatial index
+      synchronized (this) {
+        if (g2d == null)
+          g2d = new GridCoordinate2D(lat_axis, lon_axis);
       }
-
-      // this is the case where no points are included
-      if ((mini > maxi) || (minj > maxj)) {
-        mini = 0;
-        minj = 0;
-        maxi = -1;
-        maxj = -1;
+      int[] bounds = g2d.findIndexRange(miny, maxy, minx, maxx);
+
+      int mini = 0, minj = 0;
+      int maxi = -1, maxj = -1; // this is the case where no points are included
+      if (bounds != null) {
+        minj = bounds[0];
+        maxj = bounds[1];
+        mini = bounds[2];
+        maxi = bounds[3];
       }
 
       ArrayList<Range> list = new ArrayList<>();
@@ -38,6 +38,7 @@ import ucar.nc2.dataset.CoordinateAxis;
 import ucar.nc2.dt.GridCoordSystem;
 import ucar.ma2.ArrayDouble;
 import ucar.ma2.MAMath;
+import ucar.nc2.util.CurvilinearGridIndex;
 
 import java.io.IOException;
 
@@ -45,7 +46,8 @@ import java.io.IOException;
  * 2D Coordinate System has lat(x,y) and lon(x,y).
  * This class implements finding the index (i,j) from (lat, lon) coord.
  * This is for "one-off" computation, not a systematic lookup table for all points in a pixel array.
- * Hueristic search of the 2D space for the cell that contains the point.
+ * Hueristic search of the 2D space for the cell that contains the point, backed by a spatial index of the cells
+ * when the search fails.
  *
  * @author caron
  * @since Jul 10, 2009
@@ -61,6 +63,7 @@ public class GridCoordinate2D {
   private final int nrows, ncols;
   private ArrayDouble.D2 latEdge, lonEdge;
   private MAMath.MinMax latMinMax, lonMinMax;
+  private CurvilinearGridIndex edgeIndex, coordIndex;
 
   GridCoordinate2D(CoordinateAxis2D latCoord, CoordinateAxis2D lonCoord) {
     this.latCoord = latCoord;
@@ -74,7 +77,7 @@ public class GridCoordinate2D {
     ncols = shape[1];
   }
 
-  private void findBounds() {
+  private synchronized void findBounds() {
     if (lonMinMax != null) return;
 
     lonEdge = lonCoord.getEdges();
@@ -88,36 +91,39 @@ public class GridCoordinate2D {
       System.out.printf("Bounds (%d %d): lat= (%f,%f) lon = (%f,%f) %n", nrows, ncols, latMinMax.min, latMinMax.max, lonMinMax.min, lonMinMax.max);
   }
 
-  // brute force
-  public boolean findCoordElementForce(double wantLat, double wantLon, int[] rectIndex) {
+  private synchronized CurvilinearGridIndex getEdgeIndex() {
     findBounds();
-    if (wantLat < latMinMax.min) return false;
-    if (wantLat > latMinMax.max) return false;
-    if (wantLon < lonMinMax.min) return false;
-    if (wantLon > lonMinMax.max) return false;
+    if (edgeIndex == null)
+      edgeIndex = new CurvilinearGridIndex(latEdge, lonEdge);
+    return edgeIndex;
+  }
 
-    boolean saveDebug = debug;
-    debug = false;
-    for (int row=0; row<nrows; row++) {
-      for (int col=0; col<ncols; col++) {
+  // look in every cell, using the spatial index
+  public boolean findCoordElementForce(double wantLat, double wantLon, int[] rectIndex) {
+    return getEdgeIndex().findCell(wantLat, wantLon, rectIndex);
+  }
 
-        rectIndex[0] = row;
-        rectIndex[1] = col;
+  public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
+    if (findCoordElementNoForce(wantLat, wantLon, rectIndex))
+      return true;
+    // the search can get lost around missing values and the seam; the index cant. rectIndex keeps the best guess if not found
+    return findCoordElementForce(wantLat, wantLon, rectIndex);
+  }
 
-        if (contains(wantLat, wantLon, rectIndex)) {
-          debug = saveDebug;
-          return true;
-        }
-      }
+  /**
+   * Find the range of indices of the coordinate values (not the edges) that lie inside the lat/lon box.
+   *
+   * @return {minRow, maxRow, minCol, maxCol} (inclusive), or null if there are none.
+   */
+  public int[] findIndexRange(double minLat, double maxLat, double minLon, double maxLon) {
+    synchronized (this) {
+      if (coordIndex == null)
+        coordIndex = new CurvilinearGridIndex(latCoord.getCoordValuesArray(), lonCoord.getCoordValuesArray());
     }
-    //debug = saveDebug;
-    return false;
+    int[] result = new int[4];
+    return coordIndex.findBounds(minLat, maxLat, minLon, maxLon, result) ? result : null;
   }
 
-  public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
-    return findCoordElementNoForce(wantLat, wantLon,rectIndex);
-  }  
-
 
   /**
    * Find the best index for the given lat,lon point.
@@ -34,6 +34,7 @@
 package ucar.nc2.ft2.coverage;
 
 import ucar.ma2.*;
+import ucar.nc2.util.CurvilinearGridIndex;
 import ucar.nc2.util.Optional;
 import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonPointImpl;
@@ -163,13 +164,14 @@ public class HorizCoordSys2D extends HorizCoordSys {
     synchronized (this) {
       if (edges == null) edges = new Edges();
     }
-    return edges.computeBoundsExhaustive(llbb, horizStride);
+    return edges.computeBounds(llbb, horizStride);
   }
 
   // assume this class is instantiated when these edges are needed
   private class Edges {
     private ArrayDouble.D2 latEdge, lonEdge;
     private MAMath.MinMax latMinMax, lonMinMax;
+    private CurvilinearGridIndex index; // built the first time the search fails or a bbox is wanted
 
     Edges() {
       latEdge = (ArrayDouble.D2) lataxis2D.getCoordBoundsAsArray();
@@ -200,7 +202,16 @@ public class HorizCoordSys2D extends HorizCoordSys {
      */
     public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
       double wantLonNormal = LatLonPointImpl.lonNormalFrom(wantLon, lonMinMax.min);
-      return findCoordElementNoForce(wantLat, wantLonNormal, rectIndex);
+      if (findCoordElementNoForce(wantLat, wantLonNormal, rectIndex))
+        return true;
+      // the search can get lost around missing values and the seam; the index cant
+      return getIndex().findCell(wantLat, wantLonNormal, rectIndex);
+    }
+
+    private synchronized CurvilinearGridIndex getIndex() {
+      if (index == null)
+        index = new CurvilinearGridIndex(latEdge, lonEdge);
+      return index;
     }
 
     private boolean findCoordElementNoForce(double wantLat, double wantLon, int[] rectIndex) {
@@ -474,7 +485,7 @@ public class HorizCoordSys2D extends HorizCoordSys {
     }
 
     // return y, x ranges
-    Optional<List<RangeIterator>> computeBoundsExhaustive(LatLonRect rect, int horizStride) {
+    Optional<List<RangeIterator>> computeBounds(LatLonRect rect, int horizStride) {
       LatLonPointImpl llpt = rect.getLowerLeftPoint();
       LatLonPointImpl urpt = rect.getUpperRightPoint();
 
@@ -518,19 +529,13 @@ public class HorizCoordSys2D extends HorizCoordSys {
         maxRow = ny;
       }
 
-      // brute force, examine every point LOOK BAD
-      for (int row = 0; row <= ny; row++) {
-        for (int col = 0; col <= nx; col++) {
-          double lat = latEdge.get(row, col);
-          double lon = lonEdge.get(row, col);
-
-          if ((lat >= miny) && (lat <= maxy) && (lon >= minx) && (lon <= maxx)) {
-            if (col > maxCol) maxCol = col;
-            if (col < minCol) minCol = col;
-            if (row > maxRow) maxRow = row;
-            if (row < minRow) minRow = row;
-          }
-        }
+      // the edge points inside the box
+      int[] bounds = new int[4];
+      if (getIndex().findBounds(miny, maxy, minx, maxx, bounds)) {
+        minRow = Math.min(minRow, bounds[0]);
+        maxRow = Math.max(maxRow, bounds[1]);
+        minCol = Math.min(minCol, bounds[2]);
+        maxCol = Math.max(maxCol, bounds[3]);
       }
 
       try {
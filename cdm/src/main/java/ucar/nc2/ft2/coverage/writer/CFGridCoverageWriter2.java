@@ -33,18 +33,25 @@
  */
 package ucar.nc2.ft2.coverage.writer;
 
+import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import ucar.nc2.*;
 import ucar.nc2.constants.*;
 import ucar.nc2.ft2.coverage.*;
+import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.iosp.netcdf3.N3outputStreamWriter;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.util.Misc;
 import ucar.nc2.util.Optional;
 import ucar.unidata.geoloc.*;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.List;
@@ -90,6 +97,29 @@ public class CFGridCoverageWriter2 {
     return writer2.writeFile(gdsOrg, gridNames, subset, addLatLon, testSizeOnly, writer);
   }
 
+  /**
+   * Write a netcdf-3/CF file from a CoverageDataset directly to a stream, without making a file first.
+   * The header is computed from the subsetted metadata and written first, then the data one variable at a time,
+   * so the client starts receiving bytes right away.
+   *
+   * @param gdsOrg    the CoverageDataset
+   * @param gridNames the list of coverage names to be written, or null for all
+   * @param subset    defines the requested subset
+   * @param addLatLon add 2D lat/lon coordinates if needed
+   * @param out       write to this stream, which is flushed but not closed
+   * @return total bytes of coverage data written, or the error message if nothing was written
+   * @throws IOException
+   * @throws InvalidRangeException
+   */
+  public static ucar.nc2.util.Optional<Long> writeNetcdf3Stream(CoverageCollection gdsOrg, List<String> gridNames,
+                               SubsetParams subset,
+                               boolean addLatLon,
+                               OutputStream out) throws IOException, InvalidRangeException {
+
+    CFGridCoverageWriter2 writer2 = new CFGridCoverageWriter2();
+    return writer2.writeStream(gdsOrg, gridNames, subset, addLatLon, out);
+  }
+
   private ucar.nc2.util.Optional<Long> writeFile(CoverageCollection gdsOrg, List<String> gridNames, SubsetParams subsetParams, boolean addLatLon, boolean testSizeOnly,
                                NetcdfFileWriter writer) throws IOException, InvalidRangeException {
 
@@ -114,19 +144,129 @@ public class CFGridCoverageWriter2 {
     boolean isLargeFile = isLargeFile(total_size);
     writer.setLargeFile(isLargeFile);
 
+    addMetadata(subsetDataset, new WriterTarget(writer), addLatLon);
+
+    // finish define mode
+    writer.create();
+
+    // write the coordinate data
+    for (CoverageCoordAxis axis : subsetDataset.getCoordAxes()) {
+      Variable v = writer.findVariable(axis.getName());
+      if (v != null) {
+        if (show) System.out.printf("CFGridCoverageWriter2 write axis %s%n", v.getNameAndDimensions());
+        writer.write(v, axis.getCoordsAsArray());
+      } else {
+        logger.error("CFGridCoverageWriter2 No variable for %s%n", axis.getName());
+      }
+
+      if (axis.isInterval()) {
+        Variable vb = writer.findVariable(axis.getName() + BOUNDS);
+        writer.write(vb, axis.getCoordBoundsAsArray());
+      }
+    }
+
+    // write the grid data
+    for (Coverage grid : subsetDataset.getCoverages()) {
+      Variable v = writer.findVariable(grid.getName());
+      if (show) System.out.printf("CFGridCoverageWriter2 write grid %s%n", v.getNameAndDimensions());
+      writer.write(v, readGridData(gdsOrg, grid, subsetParams));
+    }
+
+    writer.close();
+
+    return Optional.of(total_size);
+  }
+
+  private ucar.nc2.util.Optional<Long> writeStream(CoverageCollection gdsOrg, List<String> gridNames, SubsetParams subsetParams,
+                                                   boolean addLatLon, OutputStream out) throws IOException, InvalidRangeException {
+
+    Optional<CoverageCollection> opt = CoverageSubsetter2.makeCoverageDatasetSubset(gdsOrg, gridNames, subsetParams);
+    if (!opt.isPresent())
+      return ucar.nc2.util.Optional.empty(opt.getErrorMessage());
+
+    CoverageCollection subsetDataset = opt.get();
+
+    long total_size = 0;
+    for (Coverage grid : subsetDataset.getCoverages()) {
+      total_size += grid.getSizeInBytes();
+    }
+
+    NetcdfFile ncfile = new NetcdfFileSubclass();
+    addMetadata(subsetDataset, new NetcdfFileTarget(ncfile), addLatLon);
+    ncfile.finish();
+
+    // the data sources, by variable name
+    Map<String, Coverage> grids = new HashMap<>();
+    for (Coverage grid : subsetDataset.getCoverages())
+      grids.put(N3iosp.makeValidNetcdfObjectName(grid.getName()), grid);
+    Map<String, CoverageCoordAxis> axes = new HashMap<>();
+    Map<String, CoverageCoordAxis> bounds = new HashMap<>();
+    for (CoverageCoordAxis axis : subsetDataset.getCoordAxes()) {
+      axes.put(N3iosp.makeValidNetcdfObjectName(axis.getName()), axis);
+      if (axis.isInterval())
+        bounds.put(N3iosp.makeValidNetcdfObjectName(axis.getName() + BOUNDS), axis);
+    }
+
+    N3outputStreamWriter n3writer = new N3outputStreamWriter(ncfile);
+    n3writer.setLargeFile(isLargeFile(total_size));
+    DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(out, 64 * 1000));
+    n3writer.writeHeader(stream, 0);
+
+    // data must be written in the same order as the header
+    for (Variable v : ncfile.getVariables()) {
+      Array data;
+      Coverage grid = grids.get(v.getShortName());
+      if (grid != null) {
+        if (show) System.out.printf("CFGridCoverageWriter2 stream grid %s%n", v.getNameAndDimensions());
+        data = readGridData(gdsOrg, grid, subsetParams);
+      } else if (axes.containsKey(v.getShortName())) {
+        data = axes.get(v.getShortName()).getCoordsAsArray();
+      } else if (bounds.containsKey(v.getShortName())) {
+        data = bounds.get(v.getShortName()).getCoordBoundsAsArray();
+      } else { // coordinate transform variables have no data
+        data = Array.factory(v.getDataType(), v.getShape(),
+                IospHelper.makePrimitiveArray((int) v.getSize(), v.getDataType(), N3iosp.getFillValueDefault(v.getDataType())));
+      }
+      writeData(n3writer, stream, v, data);
+    }
+
+    stream.flush();
+    return Optional.of(total_size);
+  }
+
+  // the sizes in the header have already been sent, so fail at the first variable whose data does not match them
+  static void writeData(N3outputStreamWriter n3writer, DataOutputStream stream, Variable v, Array data) throws IOException {
+    if (data.getSize() != v.getSize())
+      throw new IOException("CFGridCoverageWriter2: data for " + v.getFullName() + " has " + data.getSize() +
+              " values, the header has " + v.getSize());
+    n3writer.writeNonRecordData(v, stream, data);
+  }
+
+  // read the data from the original, and check it conforms to the subsetted metadata
+  private Array readGridData(CoverageCollection gdsOrg, Coverage grid, SubsetParams subsetParams) throws IOException, InvalidRangeException {
+    Coverage gridOrg = gdsOrg.findCoverage(grid.getName());
+    GeoReferencedArray array = gridOrg.readData(subsetParams);
+
+    // test conform to whatever axis.getCoordsAsArray() returns
+    checkConformance(gridOrg, grid, array, gdsOrg.getName());
+    return array.getData();
+  }
+
+  // add the dimensions, variables and attributes for the subsetted dataset
+  private void addMetadata(CoverageCollection subsetDataset, Target writer, boolean addLatLon) {
     addGlobalAttributes(subsetDataset, writer);
 
     // each independent coordinate is a dimension
     Map<String, Dimension> dimHash = new HashMap<>();
     for (CoverageCoordAxis axis : subsetDataset.getCoordAxes()) {
       if (axis.getDependenceType() == CoverageCoordAxis.DependenceType.independent) {
-        Dimension d = writer.addDimension(null, axis.getName(), axis.getNcoords());
+        Dimension d = writer.addDimension(axis.getName(), axis.getNcoords());
         dimHash.put(axis.getName(), d);
       }
 
       if (axis.isInterval()) {
         if (null == dimHash.get(BOUNDS_DIM)) {
-          Dimension d = writer.addDimension(null, BOUNDS_DIM, 2);
+          Dimension d = writer.addDimension(BOUNDS_DIM, 2);
           dimHash.put(BOUNDS_DIM, d);
         }
       }
@@ -148,12 +288,12 @@ public class CFGridCoverageWriter2 {
 
       boolean hasBounds = false;
       if (axis.isInterval()) {
-        Variable vb = writer.addVariable(null, axis.getName()+BOUNDS, axis.getDataType(), dims+" "+BOUNDS_DIM);
+        Variable vb = writer.addVariable(axis.getName()+BOUNDS, axis.getDataType(), dims+" "+BOUNDS_DIM);
         vb.addAttribute(new Attribute(CDM.UNITS, axis.getUnits()));
         hasBounds = true;
       }
 
-      Variable v = writer.addVariable(null, axis.getName(), axis.getDataType(), dims);
+      Variable v = writer.addVariable(axis.getName(), axis.getDataType(), dims);
       addVariableAttributes(v, axis.getAttributes());
       v.addAttribute(new Attribute(CDM.UNITS, axis.getUnits())); // override what was in att list
       if (hasBounds)
@@ -165,55 +305,18 @@ public class CFGridCoverageWriter2 {
 
     // add grids
     for (Coverage grid : subsetDataset.getCoverages()) {
-      Variable v = writer.addVariable(null, grid.getName(), grid.getDataType(), grid.getIndependentAxisNamesOrdered());
+      Variable v = writer.addVariable(grid.getName(), grid.getDataType(), grid.getIndependentAxisNamesOrdered());
       addVariableAttributes(v, grid.getAttributes());
     }
 
     // coordTransforms
     for (CoverageTransform ct : subsetDataset.getCoordTransforms()) {
-      Variable ctv = writer.addVariable(null, ct.getName(), DataType.INT, ""); // scalar coordinate transform variable - container for transform info
+      Variable ctv = writer.addVariable(ct.getName(), DataType.INT, ""); // scalar coordinate transform variable - container for transform info
       for (Attribute att : ct.getAttributes())
         ctv.addAttribute(att);
     }
 
     addCFAnnotations(subsetDataset, writer, addLatLon);
-
-    // finish define mode
-    writer.create();
-
-    // write the coordinate data
-    for (CoverageCoordAxis axis : subsetDataset.getCoordAxes()) {
-      Variable v = writer.findVariable(axis.getName());
-      if (v != null) {
-        if (show) System.out.printf("CFGridCoverageWriter2 write axis %s%n", v.getNameAndDimensions());
-        writer.write(v, axis.getCoordsAsArray());
-      } else {
-        logger.error("CFGridCoverageWriter2 No variable for %s%n", axis.getName());
-      }
-
-      if (axis.isInterval()) {
-        Variable vb = writer.findVariable(axis.getName() + BOUNDS);
-        writer.write(vb, axis.getCoordBoundsAsArray());
-      }
-    }
-
-    // write the grid data
-    for (Coverage grid : subsetDataset.getCoverages()) {
-      // we need to call readData on the original
-      Coverage gridOrg = gdsOrg.findCoverage(grid.getName());
-      GeoReferencedArray array = gridOrg.readData(subsetParams);
-
-      // test conform to whatever axis.getCoordsAsArray() returns
-      checkConformance(gridOrg, grid, array, gdsOrg.getName());
-
-      Variable v = writer.findVariable(grid.getName());
-      if (show) System.out.printf("CFGridCoverageWriter2 write grid %s%n", v.getNameAndDimensions());
-      writer.write(v, array.getData());
-    }
-
-    writer.close();
-
-    return Optional.of(total_size);
   }
 
   private boolean isLargeFile(long total_size) {
@@ -226,19 +329,19 @@ public class CFGridCoverageWriter2 {
     return isLargeFile;
   }
 
-  private void addGlobalAttributes(CoverageCollection gds, NetcdfFileWriter writer) {
+  private void addGlobalAttributes(CoverageCollection gds, Target writer) {
     // global attributes
     for (Attribute att : gds.getGlobalAttributes()) {
       if (att.getShortName().equals(CDM.FILE_FORMAT)) continue;
       if (att.getShortName().equals(_Coordinate._CoordSysBuilder)) continue;
-      writer.addGroupAttribute(null, att);
+      writer.addGroupAttribute(att);
     }
 
     Attribute att = gds.findAttributeIgnoreCase(CDM.CONVENTIONS);
     if (att == null || !att.getStringValue().startsWith("CF-"))  // preserve previous version of CF Convention if it exists
-      writer.addGroupAttribute(null, new Attribute(CDM.CONVENTIONS, "CF-1.0"));
+      writer.addGroupAttribute(new Attribute(CDM.CONVENTIONS, "CF-1.0"));
 
-    writer.addGroupAttribute(null, new Attribute("History",
+    writer.addGroupAttribute(new Attribute("History",
             "Translated to CF-1.0 Conventions by Netcdf-Java CDM (CFGridCoverageWriter)\n" +
                     "Original Dataset = " + gds.getName() + "; Translation Date = " + CalendarDate.present()));
 
@@ -246,10 +349,10 @@ public class CFGridCoverageWriter2 {
     LatLonRect llbb = gds.getLatlonBoundingBox();
     if (llbb != null) {
       // this will replace any existing
-      writer.addGroupAttribute(null, new Attribute(ACDD.LAT_MIN, llbb.getLatMin()));
-      writer.addGroupAttribute(null, new Attribute(ACDD.LAT_MAX, llbb.getLatMax()));
-      writer.addGroupAttribute(null, new Attribute(ACDD.LON_MIN, llbb.getLonMin()));
-      writer.addGroupAttribute(null, new Attribute(ACDD.LON_MAX, llbb.getLonMax()));
+      writer.addGroupAttribute(new Attribute(ACDD.LAT_MIN, llbb.getLatMin()));
+      writer.addGroupAttribute(new Attribute(ACDD.LAT_MAX, llbb.getLatMax()));
+      writer.addGroupAttribute(new Attribute(ACDD.LON_MIN, llbb.getLonMin()));
+      writer.addGroupAttribute(new Attribute(ACDD.LON_MAX, llbb.getLonMax()));
     }
   }
 
@@ -261,7 +364,7 @@ public class CFGridCoverageWriter2 {
     }
   }
 
-  private void addCFAnnotations(CoverageCollection gds, NetcdfFileWriter writer, boolean addLatLon) {
+  private void addCFAnnotations(CoverageCollection gds, Target writer, boolean addLatLon) {
 
     for (Coverage grid : gds.getCoverages()) {
       CoverageCoordSys gcs = grid.getCoordSys();
@@ -340,5 +443,69 @@ public class CFGridCoverageWriter2 {
 
   }
 
-}
+  ////////////////////////////////////////////////////////////////////
+
+  // where the metadata goes: a NetcdfFileWriter in define mode, or a NetcdfFile that will be streamed
+  private interface Target {
+    Dimension addDimension(String dimName, int length);
+    Variable addVariable(String shortName, DataType dataType, String dimString);
+    Attribute addGroupAttribute(Attribute att);
+    Variable findVariable(String fullNameEscaped);
+  }
+
+  private static class WriterTarget implements Target {
+    private final NetcdfFileWriter writer;
+
+    WriterTarget(NetcdfFileWriter writer) {
+      this.writer = writer;
+    }
+
+    public Dimension addDimension(String dimName, int length) {
+      return writer.addDimension(null, dimName, length);
+    }
+
+    public Variable addVariable(String shortName, DataType dataType, String dimString) {
+      return writer.addVariable(null, shortName, dataType, dimString);
+    }
+
+    public Attribute addGroupAttribute(Attribute att) {
+      return writer.addGroupAttribute(null, att);
+    }
 
+    public Variable findVariable(String fullNameEscaped) {
+      return writer.findVariable(fullNameEscaped);
+    }
+  }
+
+  // same rules as NetcdfFileWriter uses for netcdf-3
+  private static class NetcdfFileTarget implements Target {
+    private final NetcdfFile ncfile;
+
+    NetcdfFileTarget(NetcdfFile ncfile) {
+      this.ncfile = ncfile;
+    }
+
+    public Dimension addDimension(String dimName, int length) {
+      return ncfile.addDimension(null, new Dimension(N3iosp.makeValidNetcdfObjectName(dimName), length));
+    }
+
+    public Variable addVariable(String shortName, DataType dataType, String dimString) {
+      DataType writeType = dataType.withSign(false); // use signed type for netcdf3
+      Variable v = ncfile.addVariable(null, N3iosp.makeValidNetcdfObjectName(shortName), writeType, dimString);
+      if (writeType != dataType)
+        v.addAttribute(new Attribute(CDM.UNSIGNED, "true"));
+      return v;
+    }
+
+    public Attribute addGroupAttribute(Attribute att) {
+      if (!N3iosp.isValidNetcdfObjectName(att.getShortName()))
+        att = new Attribute(N3iosp.makeValidNetcdfObjectName(att.getShortName()), att.getValues());
+      return ncfile.addAttribute(null, att);
+    }
+
+    public Variable findVariable(String fullNameEscaped) {
+      return ncfile.findVariable(fullNameEscaped);
+    }
+  }
+
+}
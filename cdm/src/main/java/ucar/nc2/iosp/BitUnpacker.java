@@ -0,0 +1,288 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp;
+
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Helper for reading data that has been bit packed, like BitReader, but much faster on large arrays of packed values.
+ * The packed bytes are read into memory once, and values are taken out of 64 bit words, not a bit or a byte at a time.
+ * unpack() decodes many consecutive values in one call, with special loops for byte aligned 8, 12, 16 and 24 bit values.
+ * <pre>
+ * BitUnpacker reader = new BitUnpacker(raf, startPos, BitUnpacker.nbytes(nb, npts));
+ * int[] values = new int[npts];
+ * reader.unpack(nb, values, 0, npts);
+ * </pre>
+ * Reading past the given number of bytes is allowed, and reads more of the file, as BitReader does.
+ *
+ * @see BitReader
+ * @since 5.0
+ */
+public class BitUnpacker {
+
+  /**
+   * Number of bytes needed to hold n values of nb bits each.
+   *
+   * @param nb number of bits in each value
+   * @param n  number of values
+   * @return number of bytes
+   */
+  static public int nbytes(int nb, int n) {
+    return (int) (((long) nb * n + 7) / 8);
+  }
+
+  private final RandomAccessFile raf; // null if reading from a byte array
+  private final long startPos;
+  private byte[] data;
+  private long nbits;  // number of bits in data
+  private long bitPos; // next bit to read, from the start of data
+
+  /**
+   * Read from a byte array.
+   *
+   * @param data the packed data
+   */
+  public BitUnpacker(byte[] data) {
+    this.raf = null;
+    this.startPos = 0;
+    this.data = data;
+    this.nbits = 8L * data.length;
+  }
+
+  /**
+   * Read nbytes starting at startPos in the file.
+   *
+   * @param raf      the RandomAccessFile
+   * @param startPos points to start of data in data section, in bytes
+   * @param nbytes   expected number of bytes of packed data; more are read from the file if needed
+   * @throws IOException on read error
+   */
+  public BitUnpacker(RandomAccessFile raf, long startPos, int nbytes) throws IOException {
+    this.raf = raf;
+    this.startPos = startPos;
+    nbytes = (int) Math.max(0, Math.min(nbytes, raf.length() - startPos));
+    this.data = new byte[nbytes];
+    raf.seek(startPos);
+    raf.readFully(data);
+    this.nbits = 8L * nbytes;
+  }
+
+  /**
+   * Go to the next byte in the stream, unless already at the start of a byte
+   */
+  public void incrByte() {
+    bitPos = (bitPos + 7) & ~7L;
+  }
+
+  /**
+   * Position at bitOffset from startPos
+   *
+   * @param bitOffset bit offset from starting position
+   */
+  public void setBitOffset(int bitOffset) {
+    bitPos = bitOffset;
+  }
+
+  /**
+   * Position of the next unread byte, ie past a partially read one, in the file or in the byte array.
+   *
+   * @return byte position
+   */
+  public long getPos() {
+    return startPos + ((bitPos + 7) >>> 3);
+  }
+
+  /**
+   * Read the next nb bits and return an Unsigned Long .
+   *
+   * @param nb the number of bits to convert to int, must be 0 <= nb <= 64.
+   * @return result
+   * @throws java.io.IOException on read error
+   */
+  public long bits2UInt(int nb) throws IOException {
+    if (nb == 0) return 0;
+    long end = bitPos + nb;
+    if (end > nbits) extend(end);
+    long result = get(bitPos, nb);
+    bitPos = end;
+    return result;
+  }
+
+  /**
+   * Read the next nb bits and return an Signed Long, in the same way as BitReader.bits2SInt().
+   *
+   * @param nb the number of bits to convert to int, must be <= 64.
+   * @return result
+   * @throws java.io.IOException on read error
+   */
+  public long bits2SInt(int nb) throws IOException {
+    long result = bits2UInt(nb);
+    if (BitReader.getBit(result, nb)) {
+      result = BitReader.setBit(result, nb, false);
+      result = ~result & Long.MAX_VALUE;
+      result = result + 1;
+    }
+    return result;
+  }
+
+  /**
+   * Unpack the next n values of nb bits each.
+   *
+   * @param nb     number of bits in each value, 0 <= nb <= 32. 32 bit values greater than Integer.MAX_VALUE are negative.
+   * @param result put values here
+   * @param off    starting at this index
+   * @param n      number of values
+   * @throws IOException on read error
+   */
+  public void unpack(int nb, int[] result, int off, int n) throws IOException {
+    if (nb < 0 || nb > 32) throw new IllegalArgumentException("number of bits must be 0 to 32: " + nb);
+    if (nb == 0) {
+      Arrays.fill(result, off, off + n, 0);
+      return;
+    }
+    if (n == 0) return; // may be at the end of the data
+    long end = bitPos + (long) nb * n;
+    if (end > nbits) extend(end);
+
+    byte[] b = data;
+    if ((bitPos & 7) == 0) { // byte aligned
+      int p = (int) (bitPos >>> 3);
+      switch (nb) {
+        case 8:
+          for (int i = off; i < off + n; i++)
+            result[i] = b[p++] & 0xff;
+          bitPos = end;
+          return;
+
+        case 12: { // 2 values in 3 bytes
+          int i = off;
+          for (; i + 1 < off + n; i += 2, p += 3) {
+            int b1 = b[p + 1] & 0xff;
+            result[i] = ((b[p] & 0xff) << 4) | (b1 >>> 4);
+            result[i + 1] = ((b1 & 0x0f) << 8) | (b[p + 2] & 0xff);
+          }
+          if (i < off + n)
+            result[i] = ((b[p] & 0xff) << 4) | ((b[p + 1] & 0xff) >>> 4);
+          bitPos = end;
+          return;
+        }
+
+        case 16:
+          for (int i = off; i < off + n; i++, p += 2)
+            result[i] = ((b[p] & 0xff) << 8) | (b[p + 1] & 0xff);
+          bitPos = end;
+          return;
+
+        case 24:
+          for (int i = off; i < off + n; i++, p += 3)
+            result[i] = ((b[p] & 0xff) << 16) | ((b[p + 1] & 0xff) << 8) | (b[p + 2] & 0xff);
+          bitPos = end;
+          return;
+      }
+    }
+
+    // keep the unread bits in a 64 bit word, and add whole bytes to it as needed
+    int p = (int) (bitPos >>> 3);
+    int accBits = 8 - (int) (bitPos & 7);
+    long acc = b[p++] & (0xff >>> (8 - accBits));
+    for (int i = off; i < off + n; i++) {
+      while (accBits < nb) {
+        acc = (acc << 8) | (b[p++] & 0xff);
+        accBits += 8;
+      }
+      accBits -= nb;
+      result[i] = (int) (acc >>> accBits);
+      acc &= (1L << accBits) - 1;
+    }
+    bitPos = end;
+  }
+
+  /**
+   * Unpack the next n values of nb bits each.
+   *
+   * @param nb     number of bits in each value, 0 <= nb <= 64
+   * @param result put values here
+   * @param off    starting at this index
+   * @param n      number of values
+   * @throws IOException on read error
+   */
+  public void unpack(int nb, long[] result, int off, int n) throws IOException {
+    if (nb < 0 || nb > 64) throw new IllegalArgumentException("number of bits must be 0 to 64: " + nb);
+    if (nb == 0) {
+      Arrays.fill(result, off, off + n, 0);
+      return;
+    }
+    if (n == 0) return; // may be at the end of the data
+    long end = bitPos + (long) nb * n;
+    if (end > nbits) extend(end);
+
+    long pos = bitPos;
+    for (int i = off; i < off + n; i++, pos += nb)
+      result[i] = get(pos, nb);
+    bitPos = end;
+  }
+
+  /**
+   * Unpack the next n values of nb bits each, and scale them: result = ref + scale * value.
+   *
+   * @param nb     number of bits in each value, 0 <= nb <= 64
+   * @param ref    add this
+   * @param scale  multiply the value by this
+   * @param result put scaled values here
+   * @param off    starting at this index
+   * @param n      number of values
+   * @throws IOException on read error
+   */
+  public void unpack(int nb, float ref, float scale, float[] result, int off, int n) throws IOException {
+    if (nb > 32) {
+      for (int i = off; i < off + n; i++)
+        result[i] = ref + scale * bits2UInt(nb);
+      return;
+    }
+    int[] chunk = new int[Math.min(n, 4096)];
+    for (int done = 0; done < n; done += chunk.length) {
+      int count = Math.min(chunk.length, n - done);
+      unpack(nb, chunk, 0, count);
+      int k = off + done;
+      for (int i = 0; i < count; i++)
+        result[k++] = ref + scale * (chunk[i] & 0xffffffffL);
+    }
+  }
+
+  // nb bits starting at bit pos, 0 < nb <= 64, all within data
+  private long get(long pos, int nb) {
+    int shift = (int) (pos & 7);
+    if (shift + nb <= 64)
+      return (word((int) (pos >>> 3)) << shift) >>> (64 - nb);
+    long hi = get(pos, 32);
+    return (hi << (nb - 32)) | get(pos + 32, nb - 32);
+  }
+
+  // 8 bytes starting at i, big endian; 0 past the end of data
+  private long word(int i) {
+    byte[] b = data;
+    if (i + 8 <= b.length)
+      return ((b[i] & 0xffL) << 56) | ((b[i + 1] & 0xffL) << 48) | ((b[i + 2] & 0xffL) << 40) | ((b[i + 3] & 0xffL) << 32) |
+              ((b[i + 4] & 0xffL) << 24) | ((b[i + 5] & 0xffL) << 16) | ((b[i + 6] & 0xffL) << 8) | (b[i + 7] & 0xffL);
+    long w = 0;
+    for (int k = i; k < i + 8; k++)
+      w = (w << 8) | ((k < b.length) ? (b[k] & 0xffL) : 0);
+    return w;
+  }
+
+  // read more of the file, so that data holds the bits up to bitEnd
+  private void extend(long bitEnd) throws IOException {
+    int need = (int) ((bitEnd + 7) >>> 3);
+    if (raf == null || startPos + need > raf.length())
+      throw new EOFException();
+    byte[] more = new byte[need];
+    System.arraycopy(data, 0, more, 0, data.length);
+    raf.seek(startPos + data.length);
+    raf.readFully(more, data.length, need - data.length);
+    data = more;
+    nbits = 8L * need;
+  }
+}
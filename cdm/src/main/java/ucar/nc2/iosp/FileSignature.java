@@ -0,0 +1,125 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The magic bytes that a file format must have at a known offset, declared by an IOServiceProvider
+ * with getFileSignature(). A file without them is not offered to that IOSP's isValidFile(); a file with them is.
+ * So a signature must never reject a file that isValidFile() would accept.
+ *
+ * @see IOServiceProvider#getFileSignature()
+ * @since 5.0
+ */
+public class FileSignature {
+
+  /** Result of matching the start of a file against a signature */
+  public enum Match {
+    /** the magic bytes are there */
+    yes,
+    /** the magic bytes are not anywhere they could be */
+    no,
+    /** the magic bytes may be past the part of the file that was read */
+    maybe
+  }
+
+  /**
+   * The file starts with one of these magic strings, at the given offset.
+   *
+   * @param offset byte offset in the file
+   * @param magics one or more ASCII strings
+   * @return the signature
+   */
+  static public FileSignature of(long offset, String... magics) {
+    byte[][] b = new byte[magics.length][];
+    for (int i = 0; i < magics.length; i++)
+      b[i] = magics[i].getBytes(StandardCharsets.US_ASCII);
+    return new FileSignature(new long[]{offset}, b);
+  }
+
+  /**
+   * The file has one of these magic byte sequences at the given offset.
+   *
+   * @param offset byte offset in the file
+   * @param magics one or more byte sequences
+   * @return the signature
+   */
+  static public FileSignature of(long offset, byte[]... magics) {
+    return new FileSignature(new long[]{offset}, magics);
+  }
+
+  /**
+   * The magic bytes are at offset 0, first, 2*first, 4*first ... less than max, as for HDF4 and HDF5,
+   * which allow user data in front of the file.
+   *
+   * @param magic  byte sequence
+   * @param first  second offset to look at
+   * @param max    dont look at this offset or beyond
+   * @return the signature
+   */
+  static public FileSignature searched(byte[] magic, long first, long max) {
+    List<Long> offsets = new ArrayList<>();
+    for (long pos = 0; pos < max; pos = (pos == 0) ? first : 2 * pos)
+      offsets.add(pos);
+    long[] result = new long[offsets.size()];
+    for (int i = 0; i < result.length; i++)
+      result[i] = offsets.get(i);
+    return new FileSignature(result, new byte[][]{magic});
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final long[] offsets;
+  private final byte[][] magics;
+
+  private FileSignature(long[] offsets, byte[][] magics) {
+    this.offsets = offsets;
+    this.magics = magics;
+  }
+
+  /**
+   * Match the start of a file against this signature.
+   *
+   * @param header     first bytes of the file
+   * @param nbytes     number of valid bytes in header
+   * @param fileLength length of the file
+   * @return yes, no, or maybe if the answer is in a part of the file not in header
+   */
+  public Match match(byte[] header, int nbytes, long fileLength) {
+    boolean maybe = false;
+    for (long offset : offsets) {
+      for (byte[] magic : magics) {
+        long end = offset + magic.length;
+        if (end <= nbytes) {
+          if (matchAt(header, (int) offset, magic)) return Match.yes;
+        } else if (end <= fileLength) {
+          maybe = true; // not read
+        }
+      }
+    }
+    return maybe ? Match.maybe : Match.no;
+  }
+
+  private boolean matchAt(byte[] header, int offset, byte[] magic) {
+    for (int i = 0; i < magic.length; i++)
+      if (header[offset + i] != magic[i]) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("FileSignature{offsets=");
+    sb.append(Arrays.toString(offsets)).append(", magics=");
+    for (byte[] magic : magics) {
+      for (byte b : magic) {
+        if (b >= 0x20 && b < 0x7f) sb.append((char) b);
+        else sb.append(String.format("\\x%02x", b & 0xff));
+      }
+      sb.append(' ');
+    }
+    return sb.append('}').toString();
+  }
+}
@@ -70,6 +70,17 @@ public interface IOServiceProvider {
     */
   boolean isValidFile( ucar.unidata.io.RandomAccessFile raf) throws IOException;
 
+  /**
+   * The magic bytes that every file of this format has. NetcdfFile.open() only calls isValidFile() on files
+   * that match it, so it must not reject any file that isValidFile() accepts.
+   *
+   * @return signature, or null if there is none, and isValidFile() must always be called
+   * @see IospProbe
+   */
+  default FileSignature getFileSignature() {
+    return null;
+  }
+
   /**
    * Open existing file, and populate ncfile with it. This method is only called by the
    * NetcdfFile constructor on itself. The provided NetcdfFile object will be empty
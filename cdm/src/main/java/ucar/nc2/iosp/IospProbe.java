@@ -0,0 +1,109 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp;
+
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds out which IOServiceProvider can open a file. The start of the file is read once; an IOSP that declares a
+ * FileSignature is asked isValidFile() only if the file matches it. IOSPs without a signature are always asked.
+ * The time spent in isValidFile() is kept for each IOSP class, see showStats().
+ * <pre>
+ * IospProbe probe = new IospProbe(raf);
+ * for (IOServiceProvider spi : providers)
+ *   if (probe.isValidFile(spi)) ...
+ * </pre>
+ *
+ * @since 5.0
+ */
+public class IospProbe {
+  static public final int HEADER_SIZE = 8 * 1024;
+
+  static private class Stats {
+    final AtomicLong probes = new AtomicLong(); // isValidFile() was called
+    final AtomicLong skips = new AtomicLong();  // the signature did not match
+    final AtomicLong hits = new AtomicLong();   // isValidFile() returned true
+    final AtomicLong nanos = new AtomicLong();  // time in isValidFile()
+  }
+
+  static private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+  static private Stats getStats(IOServiceProvider spi) {
+    return stats.computeIfAbsent(spi.getClass().getName(), k -> new Stats());
+  }
+
+  /**
+   * Show the number of calls to, and the time spent in, isValidFile() for each IOSP class.
+   *
+   * @param f write to this
+   */
+  static public void showStats(Formatter f) {
+    List<String> names = new ArrayList<>(stats.keySet());
+    Collections.sort(names);
+    f.format("IOSP probes:%n");
+    f.format(" %-60s %8s %8s %8s %10s%n", "iosp", "probes", "skips", "hits", "msecs");
+    for (String name : names) {
+      Stats s = stats.get(name);
+      f.format(" %-60s %8d %8d %8d %10.3f%n", name, s.probes.get(), s.skips.get(), s.hits.get(), s.nanos.get() * 1.0e-6);
+    }
+  }
+
+  static public void resetStats() {
+    stats.clear();
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final RandomAccessFile raf;
+  private final byte[] header;
+  private final int nbytes;
+  private final long fileLength;
+
+  /**
+   * Read the start of the file.
+   *
+   * @param raf the file to probe
+   * @throws IOException on read error
+   */
+  public IospProbe(RandomAccessFile raf) throws IOException {
+    this.raf = raf;
+    this.fileLength = raf.length();
+    this.nbytes = (int) Math.min(HEADER_SIZE, fileLength);
+    this.header = new byte[nbytes];
+    raf.seek(0);
+    raf.readFully(header);
+  }
+
+  /**
+   * Check if spi can open the file, using its FileSignature if it has one.
+   *
+   * @param spi the IOServiceProvider
+   * @return true if spi.isValidFile() is true
+   * @throws IOException on read error
+   */
+  public boolean isValidFile(IOServiceProvider spi) throws IOException {
+    Stats s = getStats(spi);
+    FileSignature sig = spi.getFileSignature();
+    if (sig != null && sig.match(header, nbytes, fileLength) == FileSignature.Match.no) {
+      s.skips.incrementAndGet();
+      return false;
+    }
+
+    long start = System.nanoTime();
+    try {
+      boolean ok = spi.isValidFile(raf);
+      if (ok) s.hits.incrementAndGet();
+      return ok;
+    } finally {
+      s.probes.incrementAndGet();
+      s.nanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+}
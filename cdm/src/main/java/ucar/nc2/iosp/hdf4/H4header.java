@@ -33,6 +33,7 @@
 package ucar.nc2.iosp.hdf4;
 
 import ucar.nc2.constants.CDM;
+import ucar.nc2.iosp.FileSignature;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.nc2.*;
 import ucar.ma2.*;
@@ -55,6 +56,7 @@ public class H4header {
   static private final byte[] head = {0x0e, 0x03, 0x13, 0x01};
   static private final String shead = new String(head, CDM.utf8Charset);
   static private final long maxHeaderPos = 500000; // header's gotta be within this
+  static final FileSignature signature = FileSignature.searched(head, 512, maxHeaderPos); // same search as isValidFile
 
   static boolean isValidFile(ucar.unidata.io.RandomAccessFile raf) throws IOException {
     long pos = 0;
@@ -64,6 +64,11 @@ public class H4iosp extends AbstractIOServiceProvider {
     return H4header.isValidFile(raf);
   }
 
+  @Override
+  public FileSignature getFileSignature() {
+    return H4header.signature;
+  }
+
     public String getFileTypeId() {
       if (header.isEos()) return "HDF4-EOS";
       return DataFormatType.HDF4.getDescription();
@@ -41,7 +41,11 @@ import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This holds the chunked data storage.
@@ -65,6 +69,28 @@ public class DataBTree {
   private static final boolean debugChunkOrder = false;
   private static java.io.PrintStream debugOut = System.out;
 
+  // parsed nodes may be kept for each variable, so that each read doesnt reread the interior nodes from disk
+  private static int maxCachedNodes = 0;
+  private static final AtomicLong totalNodeReads = new AtomicLong();
+  private static final AtomicLong totalNodeHits = new AtomicLong();
+
+  /**
+   * Set the max number of parsed btree nodes kept for each chunked variable, of every open file.
+   * Default 0 = dont cache. Set before opening files that are read many times, eg 1000.
+   * @param n max number of nodes for each variable
+   */
+  static public void setMaxCachedNodes(int n) {
+    maxCachedNodes = n;
+  }
+
+  /**
+   * Show counts of btree nodes read from disk and found in the node caches, over all variables.
+   * @param f show here
+   */
+  static public void showNodeCounts(Formatter f) {
+    f.format("DataBTree nodes read=%d cached=%d%n", totalNodeReads.get(), totalNodeHits.get());
+  }
+
   private final H5header h5;
   private final MemTracker memTracker;
 
@@ -74,6 +100,14 @@ public class DataBTree {
 
   private Variable owner;
 
+  private final Map<Long, NodeData> nodeCache = new LinkedHashMap<Long, NodeData>(16, .75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, NodeData> eldest) {
+      return size() > maxCachedNodes;
+    }
+  };
+  private int nodeReads, nodeHits;
+
   DataBTree(H5header h5, long rootNodeAddress, int[] varShape, int[] storageSize, MemTracker memTracker) throws IOException {
     this.h5 = h5;
     this.rootNodeAddress = rootNodeAddress;
@@ -88,6 +122,36 @@ public class DataBTree {
     this.owner = owner;
   }
 
+  /** @return number of btree nodes of this variable read from disk */
+  public synchronized int getNodeReads() {
+    return nodeReads;
+  }
+
+  /** @return number of btree nodes of this variable found in the node cache */
+  public synchronized int getNodeHits() {
+    return nodeHits;
+  }
+
+  // get the parsed node at this address, from the cache if possible
+  private NodeData getNodeData(long address, long parent) throws IOException {
+    synchronized (this) {
+      NodeData data = nodeCache.get(address);
+      if (data != null) {
+        nodeHits++;
+        totalNodeHits.incrementAndGet();
+        return data;
+      }
+    }
+
+    NodeData data = new NodeData(address, parent);
+    synchronized (this) {
+      nodeReads++;
+      totalNodeReads.incrementAndGet();
+      if (maxCachedNodes > 0) nodeCache.put(address, data);
+    }
+    return data;
+  }
+
   // used by H5tiledLayoutBB
   DataChunkIterator getDataChunkIteratorFilter(Section want) throws IOException {
     return new DataChunkIterator(want);
@@ -128,7 +192,7 @@ public class DataBTree {
      */
     DataChunkIteratorNoFilter(Section want, int nChunkDim) throws IOException {
       this.nChunkDim = nChunkDim;
-      root = new Node(rootNodeAddress, -1); // should we cache the nodes ???
+      root = new Node(rootNodeAddress, -1); // parsed nodes are cached
       int[] wantOrigin = (want != null) ? want.getOrigin() : null;
       root.first(wantOrigin);
     }
@@ -164,7 +228,7 @@ public class DataBTree {
      * @throws IOException on error
      */
     DataChunkIterator(Section want) throws IOException {
-      root = new Node(rootNodeAddress, -1); // should we cache the nodes ???
+      root = new Node(rootNodeAddress, -1); // parsed nodes are cached
       wantOrigin = (want != null) ? want.getOrigin() : null;
       root.first(wantOrigin);
     }
@@ -178,11 +242,10 @@ public class DataBTree {
     }
   }
 
-  // Btree nodes
-  class Node {
+  // the parsed content of a Btree node; immutable once read, so can be shared by all iterators
+  private class NodeData {
     private long address;
     private int level, nentries;
-    private Node currentNode;
 
     // level 0 only
     private List<DataChunk> myEntries;
@@ -192,9 +255,7 @@ public class DataBTree {
     // "For raw data chunk nodes, the child pointer is the address of a single raw data chunk"
     private long[] childPointer; // long[nentries];
 
-    private int currentEntry; // track iteration; LOOK this seems fishy - why not an iterator ??
-
-    Node(long address, long parent) throws IOException {
+    NodeData(long address, long parent) throws IOException {
       if (debugDataBtree) debugOut.println("\n--> DataBTree read tree at address=" + address + " parent= " + parent +
               " owner= " + owner.getNameAndDimensions());
 
@@ -248,6 +309,33 @@ public class DataBTree {
         }
       }
     }
+  }
+
+  // Btree nodes, with the iteration state
+  class Node {
+    private final long address;
+    private final int level, nentries;
+    private Node currentNode;
+
+    // level 0 only
+    private final List<DataChunk> myEntries;
+    // level > 0 only
+    private final int[][] offset; // int[nentries][ndim]; // other levels
+
+    // "For raw data chunk nodes, the child pointer is the address of a single raw data chunk"
+    private final long[] childPointer; // long[nentries];
+
+    private int currentEntry; // track iteration; LOOK this seems fishy - why not an iterator ??
+
+    Node(long address, long parent) throws IOException {
+      NodeData data = getNodeData(address, parent);
+      this.address = data.address;
+      this.level = data.level;
+      this.nentries = data.nentries;
+      this.myEntries = data.myEntries;
+      this.offset = data.offset;
+      this.childPointer = data.childPointer;
+    }
 
     // this finds the first entry we dont want to skip.
     // entry i goes from [offset(i),offset(i+1))
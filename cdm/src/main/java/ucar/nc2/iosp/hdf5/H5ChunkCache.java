@@ -0,0 +1,98 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of uncompressed (filtered) HDF5 data chunks for one file, keyed by the file position of the chunk.
+ * Size bounded in bytes, least recently used chunks are discarded first. Chunks bigger than the cache are not kept.
+ * Same idea as the libhdf5 raw data chunk cache (rdcc_nbytes), but per file rather than per dataset.
+ * The cached arrays are shared, and must not be modified.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+class H5ChunkCache {
+  private final long maxBytes;
+  private final LinkedHashMap<Long, byte[]> map = new LinkedHashMap<>(64, .75f, true); // access order
+  private long bytes;
+  private int hits, misses;
+
+  H5ChunkCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  synchronized byte[] get(long filePos) {
+    byte[] data = map.get(filePos);
+    if (data == null) misses++;
+    else hits++;
+    return data;
+  }
+
+  synchronized void put(long filePos, byte[] data) {
+    if (data.length > maxBytes) return;
+    byte[] prev = map.put(filePos, data);
+    if (prev != null) bytes -= prev.length;
+    bytes += data.length;
+
+    Iterator<Map.Entry<Long, byte[]>> iter = map.entrySet().iterator();
+    while (bytes > maxBytes && iter.hasNext()) {
+      Map.Entry<Long, byte[]> eldest = iter.next();
+      bytes -= eldest.getValue().length;
+      iter.remove();
+    }
+  }
+
+  synchronized int getHits() {
+    return hits;
+  }
+
+  synchronized int getMisses() {
+    return misses;
+  }
+
+  synchronized void clear() {
+    map.clear();
+    bytes = 0;
+  }
+
+  synchronized void showCache(Formatter f) {
+    f.format("H5ChunkCache nchunks=%d bytes=%d max=%d hits=%d misses=%d%n", map.size(), bytes, maxBytes, hits, misses);
+  }
+}
@@ -40,6 +40,7 @@ import ucar.nc2.*;
 import ucar.nc2.EnumTypedef;
 import ucar.nc2.iosp.netcdf4.Nc4;
 import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.iosp.FileSignature;
 import ucar.nc2.iosp.Layout;
 import ucar.nc2.iosp.LayoutRegular;
 import ucar.ma2.*;
@@ -113,6 +114,7 @@ public class H5header {
   static private final byte[] head = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
   static private final String hdf5magic = new String(head, CDM.utf8Charset);
   static private final long maxHeaderPos = 50000; // header's gotta be within this
+  static final FileSignature signature = FileSignature.searched(head, 512, maxHeaderPos); // same search as isValidFile
   static private final boolean transformReference = true;
 
   static public boolean isValidFile(ucar.unidata.io.RandomAccessFile raf) throws IOException {
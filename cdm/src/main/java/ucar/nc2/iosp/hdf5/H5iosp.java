@@ -91,6 +91,11 @@ public class H5iosp extends AbstractIOServiceProvider {
     return H5header.isValidFile(raf);
   }
 
+  @Override
+  public FileSignature getFileSignature() {
+    return H5header.signature;
+  }
+
   public String getFileTypeId() {
     if (isEos) return "HDF5-EOS";
     if (headerParser.isNetcdf4()) return DataFormatType.NETCDF4.getDescription();
@@ -115,10 +120,33 @@ public class H5iosp extends AbstractIOServiceProvider {
     useHdfEos = val;
   }
 
+  static private long chunkCacheSize = 0;
+
+  /**
+   * Set the size of the cache of uncompressed chunks, for each open file. Like the libhdf5 rdcc_nbytes setting.
+   * Applies to files opened after this call.
+   *
+   * @param nbytes max size in bytes of the chunk cache of each file, or 0 for no caching (default).
+   */
+  public static void setChunkCacheSize(long nbytes) {
+    chunkCacheSize = nbytes;
+  }
+
+  /**
+   * Inflate the chunks of one read in parallel, using this executor.
+   *
+   * @param exec       use this executor, or null to inflate on the reading thread (default).
+   * @param nreadAhead max number of chunks of one read being inflated at one time.
+   */
+  public static void setChunkInflateExecutor(java.util.concurrent.ExecutorService exec, int nreadAhead) {
+    H5tiledLayoutBB.setInflateExecutor(exec, nreadAhead);
+  }
+
   //////////////////////////////////////////////////////////////////////////////////
 
   //private RandomAccessFile raf;
   private H5header headerParser;
+  private H5ChunkCache chunkCache;
   private boolean isEos;
   boolean includeOriginalAttributes = false;
 
@@ -129,6 +157,8 @@ public class H5iosp extends AbstractIOServiceProvider {
     super.open(raf, ncfile, cancelTask);
     headerParser = new H5header(this.raf, ncfile, this);
     headerParser.read(null);
+    if (chunkCacheSize > 0)
+      chunkCache = new H5ChunkCache(chunkCacheSize);
 
     // check if its an HDF5-EOS file
     Group eosInfo = ncfile.getRootGroup().findGroup(HdfEos.HDF5_GROUP);
@@ -163,11 +193,16 @@ public class H5iosp extends AbstractIOServiceProvider {
       if (debugFilter) System.out.println("read variable filtered " + v2.getFullName() + " vinfo = " + vinfo);
       assert vinfo.isChunked;
       ByteOrder bo = (vinfo.typeInfo.endian == 0) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
-      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo);
-      if (vinfo.typeInfo.isVString) {
-        data = readFilteredStringData((LayoutBB) layout);
-      } else{
-        data = IospHelper.readDataFill((LayoutBB) layout, v2.getDataType(), vinfo.getFillValue());
+      H5tiledLayoutBB tiledLayout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo, chunkCache);
+      layout = tiledLayout;
+      try {
+        if (vinfo.typeInfo.isVString) {
+          data = readFilteredStringData(tiledLayout);
+        } else{
+          data = IospHelper.readDataFill(tiledLayout, v2.getDataType(), vinfo.getFillValue());
+        }
+      } finally {
+        tiledLayout.cancel(); // dont leave read ahead chunks inflating if the read failed
       }
 
     } else { // normal case
@@ -577,6 +612,11 @@ public class H5iosp extends AbstractIOServiceProvider {
     return sdata;
   }
 
+  // the cache of uncompressed chunks of this file, or null if not caching
+  H5ChunkCache getChunkCache() {
+    return chunkCache;
+  }
+
   //////////////////////////////////////////////////////////////////////////
   // override base class
 
@@ -584,6 +624,7 @@ public class H5iosp extends AbstractIOServiceProvider {
   public void close() throws IOException {
     super.close();
     headerParser.close();
+    if (chunkCache != null) chunkCache.clear();
   }
 
   @Override
@@ -613,6 +654,8 @@ public class H5iosp extends AbstractIOServiceProvider {
       H5header detailParser = new H5header(raf, ncfile, this);
       detailParser.read(pw);
       f.format("%s", super.getDetailInfo());
+      if (chunkCache != null) chunkCache.showCache(f);
+      DataBTree.showNodeCounts(f);
       f.format("%s", os.toString(CDM.UTF8));
 
     } catch (IOException e) {
@@ -0,0 +1,1264 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp.hdf5;
+
+import ucar.ma2.*;
+import ucar.nc2.*;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.constants.DataFormatType;
+import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IOServiceProviderWriter;
+import ucar.nc2.iosp.Layout;
+import ucar.nc2.iosp.LayoutRegular;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.iosp.netcdf4.Nc4;
+import ucar.nc2.util.CancelTask;
+import ucar.nc2.write.Nc4Chunking;
+import ucar.nc2.write.Nc4ChunkingDefault;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Writes netCDF-4 files in pure Java, without the netCDF-C library, so writes are not serialized on its global lock.
+ * Handles the classic data model in the root group: the netCDF-3 data types plus the unsigned and 64 bit integers,
+ * shared dimensions, and single valued String attributes. Chunking, deflate and shuffle are taken from the Nc4Chunking.
+ * <p>
+ * Contiguous variables are allocated in create(). Chunks are kept in memory until all of their values have been written,
+ * then shuffled and deflated, in parallel if setChunkDeflateExecutor() was called, and appended to the file.
+ * Partly written chunks are padded with the fill value and written in close(), which then writes all of the metadata:
+ * a version 2 superblock, version 2 object headers, version 1 chunk B-trees and a global heap for DIMENSION_LIST,
+ * as the netCDF-C library does. Use isSupported() to check a file before create().
+ *
+ * @see ucar.nc2.NetcdfFileWriter#setJavaNetcdf4Writer
+ * @since 5.0
+ */
+public class H5iospWriter extends AbstractIOServiceProvider implements IOServiceProviderWriter {
+  static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(H5iospWriter.class);
+
+  static private final byte[] magic = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+  static private final long UNDEF = -1; // undefined address, all bits set
+  static private final int SUPERBLOCK_SIZE = 48;
+  static private final int BTREE_ENTRIES = 64;  // 2K, with the default K = 32 for chunk B-trees
+  static private final int GLOBAL_HEAP_MIN = 4096;
+  static private final int GLOBAL_HEAP_MAX_OBJECTS = 4000;
+  static private final int MAX_MESSAGE_SIZE = 65535;
+  static private final String DIMENSION_NOT_VARIABLE = "This is a netCDF dimension but not a netCDF variable.";
+
+  static private final Set<DataType> validTypes = EnumSet.of(DataType.BYTE, DataType.UBYTE, DataType.CHAR,
+          DataType.SHORT, DataType.USHORT, DataType.INT, DataType.UINT, DataType.LONG, DataType.ULONG,
+          DataType.FLOAT, DataType.DOUBLE);
+
+  // attributes that describe the file structure, which is written here
+  static private final Set<String> internalAttributes = new HashSet<>(Arrays.asList(H5header.HDF5_CLASS,
+          H5header.HDF5_DIMENSION_LIST, H5header.HDF5_DIMENSION_SCALE, H5header.HDF5_DIMENSION_LABELS,
+          H5header.HDF5_DIMENSION_NAME, H5header.HDF5_REFERENCE_LIST, Nc4.NETCDF4_COORDINATES, Nc4.NETCDF4_DIMID,
+          Nc4.NETCDF4_STRICT, CDM.CHUNK_SIZES, CDM.COMPRESS));
+
+  static private ExecutorService deflateExecutor;
+  static private int maxInFlight = 1;
+
+  /**
+   * Deflate chunks in parallel, using this executor.
+   *
+   * @param exec        use this executor, or null to deflate on the writing thread (default).
+   * @param maxInFlight max number of chunks of one file being deflated at one time.
+   */
+  public static synchronized void setChunkDeflateExecutor(ExecutorService exec, int maxInFlight) {
+    deflateExecutor = exec;
+    H5iospWriter.maxInFlight = Math.max(maxInFlight, 1);
+  }
+
+  /**
+   * Check if this writer can write the objects in ncfile.
+   *
+   * @param ncfile the file to be written
+   * @param errlog the reasons it cant, may be null
+   * @return true if it can
+   */
+  public static boolean isSupported(NetcdfFile ncfile, Formatter errlog) {
+    if (errlog == null) errlog = new Formatter();
+    boolean ok = true;
+    Group root = ncfile.getRootGroup();
+    if (!root.getGroups().isEmpty()) {
+      errlog.format("nested groups are not supported%n");
+      ok = false;
+    }
+    if (!root.getEnumTypedefs().isEmpty()) {
+      errlog.format("enum typedefs are not supported%n");
+      ok = false;
+    }
+    for (Dimension d : root.getDimensions()) {
+      if (d.isVariableLength()) {
+        errlog.format("variable length dimension %s is not supported%n", d.getShortName());
+        ok = false;
+      }
+    }
+    ok &= isSupported(null, root.getAttributes(), errlog);
+
+    for (Variable v : ncfile.getVariables()) {
+      if (!validTypes.contains(v.getDataType())) {
+        errlog.format("variable %s has unsupported type %s%n", v.getFullName(), v.getDataType());
+        ok = false;
+      }
+      for (Dimension d : v.getDimensions()) {
+        if (!d.isShared() || d.isVariableLength()) {
+          errlog.format("variable %s has an anonymous dimension%n", v.getFullName());
+          ok = false;
+        }
+      }
+      ok &= isSupported(v, v.getAttributes(), errlog);
+    }
+    return ok;
+  }
+
+  private static boolean isSupported(Variable v, List<Attribute> atts, Formatter errlog) {
+    boolean ok = true;
+    String who = (v == null) ? "global" : v.getFullName();
+    for (Attribute att : atts) {
+      if (internalAttributes.contains(att.getShortName())) continue;
+      DataType dt = att.getDataType();
+      if (dt == DataType.STRING) {
+        if (att.getLength() > 1) {
+          errlog.format("%s attribute %s has %d String values%n", who, att.getShortName(), att.getLength());
+          ok = false;
+        } else if (att.getStringValue() != null && att.getStringValue().length() > MAX_MESSAGE_SIZE / 4) {
+          errlog.format("%s attribute %s is too long%n", who, att.getShortName());
+          ok = false;
+        }
+      } else if (!validTypes.contains(dt)) {
+        errlog.format("%s attribute %s has unsupported type %s%n", who, att.getShortName(), dt);
+        ok = false;
+      } else if ((long) att.getLength() * dt.getSize() > MAX_MESSAGE_SIZE / 2) {
+        errlog.format("%s attribute %s is too long%n", who, att.getShortName());
+        ok = false;
+      }
+    }
+    return ok;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////
+
+  private final boolean isClassic;
+  private Nc4Chunking chunker = new Nc4ChunkingDefault();
+  private boolean fill = true;
+  private long eof; // the file is written up to here
+
+  private final List<Vinfo> vinfos = new ArrayList<>();
+  private ExecutorService executor;
+  private int maxPending;
+  private final ArrayDeque<PendingChunk> pending = new ArrayDeque<>();
+
+  public H5iospWriter(NetcdfFileWriter.Version version) {
+    this.isClassic = (version == NetcdfFileWriter.Version.netcdf4_classic);
+  }
+
+  public void setChunker(Nc4Chunking chunker) {
+    if (chunker != null)
+      this.chunker = chunker;
+  }
+
+  @Override
+  public void create(String filename, NetcdfFile ncfile, int extra, long preallocateSize, boolean largeFile) throws IOException {
+    Formatter errlog = new Formatter();
+    if (!isSupported(ncfile, errlog))
+      throw new IllegalArgumentException("H5iospWriter cant write " + filename + ": " + errlog);
+
+    this.ncfile = ncfile;
+    this.location = filename;
+    synchronized (H5iospWriter.class) {
+      this.executor = deflateExecutor;
+      this.maxPending = maxInFlight;
+    }
+
+    raf = new RandomAccessFile(filename, "rw");
+    raf.order(RandomAccessFile.LITTLE_ENDIAN);
+    raf.getRandomAccessFile().setLength(preallocateSize > 0 ? preallocateSize : 0);
+    eof = SUPERBLOCK_SIZE; // superblock is written in close()
+
+    Set<String> dimNames = new HashSet<>();
+    for (Dimension d : ncfile.getDimensions())
+      dimNames.add(d.getShortName());
+
+    for (Variable v : ncfile.getVariables()) {
+      String linkName = v.getShortName();
+      if (dimNames.contains(linkName) && !isDimensionScale(v))
+        linkName = Nc4.NETCDF4_NON_COORD + linkName;  // the dimension gets its own dataset
+      Vinfo vinfo = new Vinfo(v, linkName);
+      v.setSPobject(vinfo);
+      vinfos.add(vinfo);
+
+      if (!vinfo.isChunked) { // allocate the contiguous storage now
+        vinfo.dataAddress = eof;
+        vinfo.dataSize = v.getSize() * vinfo.elemSize;
+        eof += vinfo.dataSize;
+        if (fill) fillContiguous(vinfo);
+      }
+    }
+    if (raf.length() < eof)
+      raf.setMinLength(eof);
+  }
+
+  // a 1D variable with the same name as its dimension is the HDF5 dimension scale for it
+  private static boolean isDimensionScale(Variable v) {
+    return v.getRank() == 1 && v.getShortName().equals(v.getDimension(0).getShortName());
+  }
+
+  private void fillContiguous(Vinfo vinfo) throws IOException {
+    byte[] block = new byte[(int) Math.min(vinfo.dataSize, 64 * 1000 - (64 * 1000) % vinfo.elemSize)];
+    fillBytes(block, vinfo.fillValue);
+    raf.seek(vinfo.dataAddress);
+    for (long done = 0; done < vinfo.dataSize; done += block.length)
+      raf.write(block, 0, (int) Math.min(block.length, vinfo.dataSize - done));
+  }
+
+  @Override
+  public void setFill(boolean fill) {
+    this.fill = fill;
+  }
+
+  @Override
+  public void writeData(Variable v2, Section section, Array values) throws IOException, InvalidRangeException {
+    Vinfo vinfo = (Vinfo) v2.getSPobject();
+    for (Range r : section.getRanges()) {
+      if (r != null && r.stride() != 1)
+        throw new InvalidRangeException("H5iospWriter does not write strided sections " + section);
+    }
+    if (values.getSize() == 0) return;
+
+    int[] origin = section.getOrigin();
+    int[] shape = section.getShape();
+    if (v2.isUnlimited())
+      extendUnlimited(v2, origin, shape);
+
+    byte[] data = toBytes(values, vinfo.dataType);
+    if (vinfo.isChunked)
+      writeChunked(vinfo, origin, shape, data);
+    else
+      writeContiguous(vinfo, section, data);
+  }
+
+  // like netCDF-3, the unlimited dimensions grow to the largest index written in any variable
+  private void extendUnlimited(Variable v2, int[] origin, int[] shape) {
+    boolean changed = false;
+    for (int i = 0; i < v2.getRank(); i++) {
+      Dimension d = v2.getDimension(i);
+      int need = origin[i] + shape[i];
+      if (d.isUnlimited() && need > d.getLength()) {
+        d.setLength(need);
+        changed = true;
+      }
+    }
+    if (!changed) return;
+
+    for (Variable v : ncfile.getVariables()) {
+      if (v.isUnlimited()) {
+        v.resetShape();
+        v.setCachedData(null, false);
+      }
+    }
+  }
+
+  private void writeContiguous(Vinfo vinfo, Section section, byte[] data) throws IOException, InvalidRangeException {
+    Layout layout = new LayoutRegular(vinfo.dataAddress, vinfo.elemSize, vinfo.v.getShape(), section);
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next();
+      raf.seek(chunk.getSrcPos());
+      raf.write(data, (int) chunk.getDestElem() * vinfo.elemSize, chunk.getNelems() * vinfo.elemSize);
+    }
+  }
+
+  // copy the data into each chunk it touches, start deflating the chunks that are complete
+  private void writeChunked(Vinfo vinfo, int[] origin, int[] shape, byte[] data) throws IOException {
+    int rank = origin.length;
+    int[] chunkShape = vinfo.chunkShape;
+    int[] first = new int[rank];
+    int[] last = new int[rank];
+    for (int i = 0; i < rank; i++) {
+      first[i] = origin[i] / chunkShape[i];
+      last[i] = (origin[i] + shape[i] - 1) / chunkShape[i];
+    }
+
+    int[] index = first.clone();
+    while (true) {
+      int[] chunkOrigin = new int[rank];
+      for (int i = 0; i < rank; i++)
+        chunkOrigin[i] = index[i] * chunkShape[i];
+      ChunkBuffer buffer = getChunkBuffer(vinfo, new ChunkKey(chunkOrigin));
+      buffer.written += copyToChunk(vinfo, origin, shape, data, chunkOrigin, buffer.data);
+      if (!buffer.reopened && buffer.written >= buffer.needed) {
+        vinfo.open.remove(buffer.key);
+        submit(vinfo, buffer);
+      }
+
+      // next chunk, last index varies fastest
+      int k = rank - 1;
+      while (k >= 0 && index[k] == last[k]) {
+        index[k] = first[k];
+        k--;
+      }
+      if (k < 0) break;
+      index[k]++;
+    }
+  }
+
+  // copy the part of the section that is in this chunk, one row at a time; return number of elements copied
+  private long copyToChunk(Vinfo vinfo, int[] origin, int[] shape, byte[] src, int[] chunkOrigin, byte[] dest) {
+    int rank = origin.length;
+    int[] chunkShape = vinfo.chunkShape;
+    int elemSize = vinfo.elemSize;
+    int[] lo = new int[rank];
+    int[] hi = new int[rank];
+    long count = 1;
+    for (int i = 0; i < rank; i++) {
+      lo[i] = Math.max(origin[i], chunkOrigin[i]);
+      hi[i] = Math.min(origin[i] + shape[i], chunkOrigin[i] + chunkShape[i]);
+      count *= hi[i] - lo[i];
+    }
+    int rowBytes = (hi[rank - 1] - lo[rank - 1]) * elemSize;
+
+    int[] p = lo.clone();
+    while (true) {
+      long srcOffset = 0, destOffset = 0;
+      for (int i = 0; i < rank; i++) {
+        srcOffset = srcOffset * shape[i] + (p[i] - origin[i]);
+        destOffset = destOffset * chunkShape[i] + (p[i] - chunkOrigin[i]);
+      }
+      System.arraycopy(src, (int) srcOffset * elemSize, dest, (int) destOffset * elemSize, rowBytes);
+
+      int k = rank - 2;
+      while (k >= 0 && p[k] == hi[k] - 1) {
+        p[k] = lo[k];
+        k--;
+      }
+      if (k < 0) break;
+      p[k]++;
+    }
+    return count;
+  }
+
+  private ChunkBuffer getChunkBuffer(Vinfo vinfo, ChunkKey key) throws IOException {
+    ChunkBuffer buffer = vinfo.open.get(key);
+    if (buffer != null) return buffer;
+
+    buffer = new ChunkBuffer(key, new byte[vinfo.chunkElems * vinfo.elemSize], vinfo.chunkValuesNeeded(key.origin));
+    StoredChunk stored = vinfo.stored.get(key);
+    if (stored == null && !pending.isEmpty()) {
+      drainPending(0); // it might be on its way
+      stored = vinfo.stored.get(key);
+    }
+    if (stored != null) { // already written: read it back, and write it again in close()
+      readStoredChunk(vinfo, stored, buffer.data);
+      vinfo.stored.remove(key);
+      buffer.reopened = true;
+    } else {
+      fillBytes(buffer.data, vinfo.fillValue);
+    }
+    vinfo.open.put(key, buffer);
+    return buffer;
+  }
+
+  private void readStoredChunk(Vinfo vinfo, StoredChunk stored, byte[] dest) throws IOException {
+    byte[] raw = new byte[stored.size];
+    raf.seek(stored.address);
+    raf.readFully(raw);
+    if (vinfo.deflateLevel > 0) {
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(raw);
+        int n = 0;
+        while (n < dest.length && !inflater.finished())
+          n += inflater.inflate(dest, n, dest.length - n);
+      } catch (DataFormatException e) {
+        throw new IOException(e);
+      } finally {
+        inflater.end();
+      }
+    } else {
+      System.arraycopy(raw, 0, dest, 0, dest.length);
+    }
+    if (vinfo.shuffle)
+      System.arraycopy(unshuffle(dest, vinfo.elemSize), 0, dest, 0, dest.length);
+  }
+
+  ////////////////////////////////////////////////////////////////////
+  // filters, run on the deflate executor
+
+  private void submit(Vinfo vinfo, ChunkBuffer buffer) throws IOException {
+    PendingChunk p = new PendingChunk(vinfo, buffer.key);
+    final int level = vinfo.deflateLevel;
+    final int elemSize = vinfo.shuffle ? vinfo.elemSize : 1;
+    final byte[] data = buffer.data;
+    if (executor == null) {
+      p.result = filter(data, elemSize, level);
+    } else {
+      drainPending(maxPending - 1);
+      p.future = executor.submit(() -> filter(data, elemSize, level));
+    }
+    pending.add(p);
+    if (executor == null)
+      drainPending(0);
+  }
+
+  static private byte[] filter(byte[] data, int shuffleSize, int level) {
+    if (shuffleSize > 1)
+      data = shuffle(data, shuffleSize);
+    return (level > 0) ? deflate(data, level) : data;
+  }
+
+  static private byte[] deflate(byte[] data, int level) {
+    Deflater deflater = new Deflater(level);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      byte[] out = new byte[Math.max(64, data.length / 4)];
+      int n = 0;
+      while (!deflater.finished()) {
+        if (n == out.length) out = Arrays.copyOf(out, 2 * out.length);
+        n += deflater.deflate(out, n, out.length - n);
+      }
+      return Arrays.copyOf(out, n);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  // all the first bytes of each element, then all the second bytes, etc
+  static byte[] shuffle(byte[] data, int elemSize) {
+    int n = data.length / elemSize;
+    byte[] out = new byte[data.length];
+    for (int j = 0; j < elemSize; j++) {
+      int dest = j * n;
+      for (int i = 0, src = j; i < n; i++, src += elemSize)
+        out[dest + i] = data[src];
+    }
+    System.arraycopy(data, n * elemSize, out, n * elemSize, data.length - n * elemSize);
+    return out;
+  }
+
+  static byte[] unshuffle(byte[] data, int elemSize) {
+    int n = data.length / elemSize;
+    byte[] out = new byte[data.length];
+    for (int j = 0; j < elemSize; j++) {
+      int src = j * n;
+      for (int i = 0, dest = j; i < n; i++, dest += elemSize)
+        out[dest] = data[src + i];
+    }
+    System.arraycopy(data, n * elemSize, out, n * elemSize, data.length - n * elemSize);
+    return out;
+  }
+
+  // append filtered chunks to the file, in the order they were submitted, until no more than max are pending
+  private void drainPending(int max) throws IOException {
+    while (pending.size() > max) {
+      PendingChunk p = pending.remove();
+      byte[] result = p.result;
+      if (result == null) {
+        try {
+          result = p.future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("interrupted writing " + location, e);
+        } catch (ExecutionException e) {
+          throw new IOException(e.getCause());
+        }
+      }
+      raf.seek(eof);
+      raf.write(result);
+      p.vinfo.stored.put(p.key, new StoredChunk(eof, result.length));
+      eof += result.length;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////
+
+  @Override
+  public void flush() throws IOException {
+    if (raf == null) return;
+    drainPending(0);
+    raf.flush();
+  }
+
+  /**
+   * Write the partly filled chunks and all of the metadata, then close the file.
+   */
+  @Override
+  public void close() throws IOException {
+    if (raf == null) return;
+    try {
+      for (Vinfo vinfo : vinfos) {
+        List<ChunkBuffer> buffers = new ArrayList<>(vinfo.open.values());
+        Collections.sort(buffers, (b1, b2) -> b1.key.compareTo(b2.key));
+        vinfo.open.clear();
+        for (ChunkBuffer buffer : buffers)
+          submit(vinfo, buffer);
+      }
+      drainPending(0);
+      writeMetadata();
+      raf.setMinLength(eof); // else RandomAccessFile.close() truncates to the length set in create()
+      raf.flush();
+
+    } finally {
+      for (PendingChunk p : pending)
+        if (p.future != null) p.future.cancel(true);
+      pending.clear();
+      raf.close();
+      raf = null;
+    }
+  }
+
+  private void writeMetadata() throws IOException {
+    List<Dimension> dims = ncfile.getDimensions();
+    List<Link> links = new ArrayList<>();
+
+    // 1. dimension scales: coordinate variables, and a dataset without data for the other dimensions.
+    // they are linked first, in dimension order, so that readers see the dimensions in the order they were defined
+    Map<Dimension, Long> dimScales = new HashMap<>();
+    for (int dimid = 0; dimid < dims.size(); dimid++) {
+      Dimension d = dims.get(dimid);
+      Vinfo coord = findCoordinate(d);
+      if (coord != null) {
+        coord.headerAddress = writeVariable(coord, dimid, null);
+        dimScales.put(d, coord.headerAddress);
+        links.add(new Link(coord.linkName, coord.headerAddress));
+      } else {
+        long address = writeDimension(d, dimid);
+        dimScales.put(d, address);
+        links.add(new Link(d.getShortName(), address));
+      }
+    }
+
+    // 2. the global heap holds the DIMENSION_LIST references of the other variables
+    List<Vinfo> dataVars = new ArrayList<>();
+    List<byte[]> refs = new ArrayList<>();
+    for (Vinfo vinfo : vinfos) {
+      if (vinfo.headerAddress != UNDEF || vinfo.v.getRank() == 0) continue;
+      dataVars.add(vinfo);
+      for (Dimension d : vinfo.v.getDimensions())
+        refs.add(le(8).putLong(dimScales.get(d)).array());
+    }
+    long[] heapIds = writeGlobalHeap(refs); // collection address and index, for each reference
+
+    // 3. the other variables
+    int count = 0;
+    for (Vinfo vinfo : dataVars) {
+      int rank = vinfo.v.getRank();
+      ByteBuffer dimList = le(16 * rank);
+      for (int i = 0; i < rank; i++, count++)
+        dimList.putInt(1).putLong(heapIds[2 * count]).putInt((int) heapIds[2 * count + 1]);
+      vinfo.headerAddress = writeVariable(vinfo, -1, dimList.array());
+      links.add(new Link(vinfo.linkName, vinfo.headerAddress));
+    }
+    for (Vinfo vinfo : vinfos) {
+      if (vinfo.headerAddress != UNDEF) continue;
+      vinfo.headerAddress = writeVariable(vinfo, -1, null); // scalars
+      links.add(new Link(vinfo.linkName, vinfo.headerAddress));
+    }
+
+    // 4. the root group and the superblock
+    long rootAddress = writeRootGroup(links);
+    writeSuperblock(rootAddress);
+  }
+
+  private Vinfo findCoordinate(Dimension d) {
+    for (Vinfo vinfo : vinfos)
+      if (isDimensionScale(vinfo.v) && vinfo.v.getDimension(0) == d) return vinfo;
+    return null;
+  }
+
+  // dimid >= 0 for a dimension scale
+  private long writeVariable(Vinfo vinfo, int dimid, byte[] dimList) throws IOException {
+    Variable v = vinfo.v;
+    ObjectHeader oh = new ObjectHeader();
+    oh.add(0x01, 0, dataspace(v.getShape(), maxShape(v)));
+    oh.add(0x03, 1, datatype(vinfo.dataType, 0));
+    oh.add(0x05, 1, le(6 + vinfo.elemSize).put((byte) 3).put((byte) 0x2a).putInt(vinfo.elemSize).put(vinfo.fillValue).array());
+
+    if (vinfo.isChunked) {
+      long btree = writeChunkBTree(vinfo);
+      int rank = vinfo.chunkShape.length;
+      ByteBuffer layout = le(3 + 8 + 4 * (rank + 1)).put((byte) 3).put((byte) 2).put((byte) (rank + 1)).putLong(btree);
+      for (int len : vinfo.chunkShape) layout.putInt(len);
+      oh.add(0x08, 0, layout.putInt(vinfo.elemSize).array());
+      if (vinfo.shuffle || vinfo.deflateLevel > 0)
+        oh.add(0x0b, 0, filterPipeline(vinfo));
+    } else {
+      oh.add(0x08, 0, le(18).put((byte) 3).put((byte) 1).putLong(vinfo.dataAddress).putLong(vinfo.dataSize).array());
+    }
+
+    if (dimid >= 0) {
+      oh.addAttribute(H5header.HDF5_CLASS, stringAttribute(H5header.HDF5_DIMENSION_SCALE, true));
+      oh.addAttribute(Nc4.NETCDF4_DIMID, intAttribute(dimid));
+    }
+    if (dimList != null) {
+      byte[] type = concat(new byte[]{0x19, 0, 0, 0, 16, 0, 0, 0}, new byte[]{0x17, 0, 0, 0, 8, 0, 0, 0}); // vlen of object reference
+      oh.addAttribute(H5header.HDF5_DIMENSION_LIST, new byte[][]{type, dataspace(new int[]{v.getRank()}, null), dimList});
+    }
+    for (Attribute att : v.getAttributes())
+      addAttribute(oh, att, vinfo.dataType);
+    return writeObjectHeader(oh);
+  }
+
+  private long[] maxShape(Variable v) {
+    long[] result = new long[v.getRank()];
+    for (int i = 0; i < v.getRank(); i++)
+      result[i] = v.getDimension(i).isUnlimited() ? UNDEF : v.getShape(i);
+    return result;
+  }
+
+  // a dataset without data, that only gives the length of a dimension
+  private long writeDimension(Dimension d, int dimid) throws IOException {
+    int len = d.getLength();
+    ObjectHeader oh = new ObjectHeader();
+    oh.add(0x01, 0, dataspace(new int[]{len}, new long[]{d.isUnlimited() ? UNDEF : len}));
+    oh.add(0x03, 1, datatype(DataType.FLOAT, 0));
+    oh.add(0x05, 1, new byte[]{3, 0x0a});
+    if (d.isUnlimited()) // extendible datasets must be chunked
+      oh.add(0x08, 0, le(3 + 8 + 8).put((byte) 3).put((byte) 2).put((byte) 2).putLong(UNDEF).putInt(1).putInt(4).array());
+    else
+      oh.add(0x08, 0, le(18).put((byte) 3).put((byte) 1).putLong(UNDEF).putLong(4L * len).array());
+
+    oh.addAttribute(H5header.HDF5_CLASS, stringAttribute(H5header.HDF5_DIMENSION_SCALE, true));
+    oh.addAttribute(H5header.HDF5_DIMENSION_NAME, stringAttribute(String.format("%s%10d", DIMENSION_NOT_VARIABLE, len), true));
+    oh.addAttribute(Nc4.NETCDF4_DIMID, intAttribute(dimid));
+    return writeObjectHeader(oh);
+  }
+
+  private long writeRootGroup(List<Link> links) throws IOException {
+    ObjectHeader oh = new ObjectHeader();
+    oh.add(0x02, 0, le(34).put((byte) 0).put((byte) 3).putLong(links.size()).putLong(UNDEF).putLong(UNDEF).putLong(UNDEF).array());
+    oh.add(0x0a, 1, new byte[]{0, 0});
+    int corder = 0;
+    for (Link link : links) {
+      byte[] name = link.name.getBytes(StandardCharsets.UTF_8);
+      boolean longName = name.length > 255;
+      ByteBuffer bb = le(2 + 8 + (longName ? 2 : 1) + name.length + 8 + 1);
+      bb.put((byte) 1).put((byte) (0x04 | 0x10 | (longName ? 1 : 0))).putLong(corder++);
+      bb.put((byte) 1); // UTF-8
+      if (longName) bb.putShort((short) name.length);
+      else bb.put((byte) name.length);
+      oh.add(0x06, 0, bb.put(name).putLong(link.address).array());
+    }
+
+    if (isClassic)
+      oh.addAttribute(Nc4.NETCDF4_STRICT, intAttribute(1));
+    for (Attribute att : ncfile.getGlobalAttributes())
+      addAttribute(oh, att, null);
+    return writeObjectHeader(oh);
+  }
+
+  private void writeSuperblock(long rootAddress) throws IOException {
+    ByteBuffer bb = le(SUPERBLOCK_SIZE);
+    bb.put(magic).put((byte) 2).put((byte) 8).put((byte) 8).put((byte) 0);
+    bb.putLong(0).putLong(UNDEF).putLong(eof).putLong(rootAddress);
+    bb.putInt(checksum(bb.array(), 0, SUPERBLOCK_SIZE - 4));
+    raf.seek(0);
+    raf.write(bb.array());
+  }
+
+  ////////////////////////////////////////////////////////////////////
+  // object headers and messages
+
+  private class ObjectHeader {
+    final List<Message> messages = new ArrayList<>();
+    final List<byte[][]> attributes = new ArrayList<>(); // name, datatype, dataspace, data
+    final List<String> attNames = new ArrayList<>();
+
+    void add(int type, int flags, byte[] data) {
+      messages.add(new Message(type, flags, 0, data));
+    }
+
+    void addAttribute(String name, byte[][] typeSpaceData) {
+      attNames.add(name);
+      attributes.add(typeSpaceData);
+    }
+  }
+
+  private static class Message {
+    final int type, flags, corder;
+    final byte[] data;
+
+    Message(int type, int flags, int corder, byte[] data) {
+      this.type = type;
+      this.flags = flags;
+      this.corder = corder;
+      this.data = data;
+    }
+  }
+
+  // version 2 object header in one chunk, attributes are stored in the header, with their creation order
+  private long writeObjectHeader(ObjectHeader oh) throws IOException {
+    List<Message> messages = new ArrayList<>(oh.messages);
+    int natts = oh.attributes.size();
+    messages.add(new Message(0x15, 0x04, 0, le(28).put((byte) 0).put((byte) 3).putShort((short) natts)
+            .putLong(UNDEF).putLong(UNDEF).putLong(UNDEF).array()));
+    for (int i = 0; i < natts; i++) {
+      byte[] name = (oh.attNames.get(i) + "\0").getBytes(StandardCharsets.UTF_8);
+      byte[][] tsd = oh.attributes.get(i);
+      ByteBuffer bb = le(9 + name.length + tsd[0].length + tsd[1].length + tsd[2].length);
+      bb.put((byte) 3).put((byte) 0).putShort((short) name.length).putShort((short) tsd[0].length).putShort((short) tsd[1].length);
+      bb.put((byte) 1); // UTF-8
+      bb.put(name).put(tsd[0]).put(tsd[1]).put(tsd[2]);
+      messages.add(new Message(0x0c, 0, i, bb.array()));
+    }
+
+    long size = 0;
+    for (Message m : messages) {
+      if (m.data.length > MAX_MESSAGE_SIZE)
+        throw new IllegalArgumentException("H5iospWriter header message too large " + m.data.length);
+      size += 6 + m.data.length;
+    }
+    int sizeFlags = (size < 256) ? 0 : (size < 65536) ? 1 : 2;
+    int sizeLen = 1 << sizeFlags;
+
+    ByteBuffer bb = le((int) (6 + sizeLen + size + 4));
+    bb.put("OHDR".getBytes(StandardCharsets.US_ASCII)).put((byte) 2).put((byte) (sizeFlags | 0x04 | 0x08));
+    if (sizeLen == 1) bb.put((byte) size);
+    else if (sizeLen == 2) bb.putShort((short) size);
+    else bb.putInt((int) size);
+    for (Message m : messages) {
+      bb.put((byte) m.type).putShort((short) m.data.length).put((byte) m.flags).putShort((short) m.corder);
+      bb.put(m.data);
+    }
+    bb.putInt(checksum(bb.array(), 0, bb.position()));
+    return append(bb.array());
+  }
+
+  private long append(byte[] b) throws IOException {
+    long address = eof;
+    raf.seek(eof);
+    raf.write(b);
+    eof += b.length;
+    return address;
+  }
+
+  // version 2 dataspace; maxShape may be null
+  private static byte[] dataspace(int[] shape, long[] maxShape) {
+    int rank = shape.length;
+    ByteBuffer bb = le(4 + 8 * rank * ((maxShape == null) ? 1 : 2));
+    bb.put((byte) 2).put((byte) rank).put((byte) ((maxShape == null) ? 0 : 1)).put((byte) (rank == 0 ? 0 : 1));
+    for (int len : shape) bb.putLong(len);
+    if (maxShape != null)
+      for (long len : maxShape) bb.putLong(len);
+    return bb.array();
+  }
+
+  private static byte[] scalarDataspace() {
+    return new byte[]{2, 0, 0, 0};
+  }
+
+  private static byte[] nullDataspace() {
+    return new byte[]{2, 0, 0, 2};
+  }
+
+  // little endian datatypes; strlen is for fixed length strings
+  private static byte[] datatype(DataType dt, int strlen) {
+    switch (dt) {
+      case BYTE:
+      case UBYTE:
+      case SHORT:
+      case USHORT:
+      case INT:
+      case UINT:
+      case LONG:
+      case ULONG:
+        int size = dt.getSize();
+        return le(12).put((byte) 0x10).put((byte) (dt.isUnsigned() ? 0 : 0x08)).putShort((short) 0)
+                .putInt(size).putShort((short) 0).putShort((short) (8 * size)).array();
+      case FLOAT:
+        return le(20).put((byte) 0x11).put((byte) 0x20).put((byte) 31).put((byte) 0).putInt(4)
+                .putShort((short) 0).putShort((short) 32).put((byte) 23).put((byte) 8).put((byte) 0).put((byte) 23).putInt(127).array();
+      case DOUBLE:
+        return le(20).put((byte) 0x11).put((byte) 0x20).put((byte) 63).put((byte) 0).putInt(8)
+                .putShort((short) 0).putShort((short) 64).put((byte) 52).put((byte) 11).put((byte) 0).put((byte) 52).putInt(1023).array();
+      case CHAR:
+        return le(8).put((byte) 0x13).put((byte) 0).putShort((short) 0).putInt(1).array();
+      case STRING: // null terminated UTF-8
+        return le(8).put((byte) 0x13).put((byte) 0x10).putShort((short) 0).putInt(strlen).array();
+      default:
+        throw new IllegalArgumentException("H5iospWriter does not write " + dt);
+    }
+  }
+
+  private byte[] filterPipeline(Vinfo vinfo) {
+    ByteBuffer bb = le(2 + (vinfo.shuffle ? 10 : 0) + (vinfo.deflateLevel > 0 ? 10 : 0));
+    bb.put((byte) 2).put((byte) ((vinfo.shuffle ? 1 : 0) + (vinfo.deflateLevel > 0 ? 1 : 0)));
+    if (vinfo.shuffle)
+      bb.putShort((short) 2).putShort((short) 1).putShort((short) 1).putInt(vinfo.elemSize);
+    if (vinfo.deflateLevel > 0)
+      bb.putShort((short) 1).putShort((short) 1).putShort((short) 1).putInt(vinfo.deflateLevel);
+    return bb.array();
+  }
+
+  // attributes as {datatype, dataspace, data}
+  private static byte[][] stringAttribute(String s, boolean nullTerminate) {
+    byte[] b = (nullTerminate ? s + "\0" : s).getBytes(StandardCharsets.UTF_8);
+    if (b.length == 0)
+      return new byte[][]{datatype(DataType.STRING, 1), nullDataspace(), new byte[0]};
+    return new byte[][]{datatype(DataType.STRING, b.length), scalarDataspace(), b};
+  }
+
+  private static byte[][] intAttribute(int val) {
+    return new byte[][]{datatype(DataType.INT, 0), scalarDataspace(), le(4).putInt(val).array()};
+  }
+
+  // varType is the type of the variable, null for global attributes
+  private void addAttribute(ObjectHeader oh, Attribute att, DataType varType) {
+    String name = att.getShortName();
+    if (internalAttributes.contains(name)) return;
+    DataType dt = att.getDataType();
+
+    if (varType != null && name.equals(CDM.FILL_VALUE) && dt != varType) {
+      log.warn("_FillValue type {} must agree with variable type {}", dt, varType);
+      return;
+    }
+
+    if (dt == DataType.STRING) {
+      if (att.getLength() > 1) // isSupported() sends these files to the C library, never drop the other values
+        throw new IllegalArgumentException("H5iospWriter cant write attribute " + name + " with " + att.getLength() + " String values");
+      String s = att.getStringValue();
+      oh.addAttribute(name, stringAttribute(s == null ? "" : s, false));
+    } else if (att.getLength() == 0) {
+      oh.addAttribute(name, new byte[][]{datatype(dt, 0), nullDataspace(), new byte[0]});
+    } else {
+      byte[] data = toBytes(att.getValues(), dt);
+      oh.addAttribute(name, new byte[][]{datatype(dt, 0), dataspace(new int[]{att.getLength()}, null), data});
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////
+  // chunk B-tree and global heap
+
+  // version 1 B-tree of the stored chunks, returns address of the root node
+  private long writeChunkBTree(Vinfo vinfo) throws IOException {
+    List<ChunkKey> keys = new ArrayList<>(vinfo.stored.keySet());
+    if (keys.isEmpty()) return UNDEF;
+    Collections.sort(keys);
+
+    int rank = vinfo.chunkShape.length;
+    int keySize = 8 + 8 * (rank + 1);
+    int nodeSize = 24 + 8 * BTREE_ENTRIES + keySize * (BTREE_ENTRIES + 1);
+
+    // level 0: the chunks, then the nodes of the level below
+    int n = keys.size();
+    List<byte[]> nodeKeys = new ArrayList<>(n + 1);
+    long[] children = new long[n];
+    for (int i = 0; i < n; i++) {
+      ChunkKey key = keys.get(i);
+      StoredChunk stored = vinfo.stored.get(key);
+      nodeKeys.add(chunkKey(stored.size, key.origin));
+      children[i] = stored.address;
+    }
+    int[] end = keys.get(n - 1).origin.clone(); // the right key of the last chunk
+    for (int i = 0; i < rank; i++) end[i] += vinfo.chunkShape[i];
+    nodeKeys.add(chunkKey(0, end));
+
+    int level = 0;
+    while (true) {
+      int nnodes = (n + BTREE_ENTRIES - 1) / BTREE_ENTRIES;
+      long base = eof;
+      List<byte[]> parentKeys = new ArrayList<>(nnodes + 1);
+      long[] parents = new long[nnodes];
+      for (int j = 0; j < nnodes; j++) {
+        int from = j * BTREE_ENTRIES;
+        int to = Math.min(n, from + BTREE_ENTRIES);
+        ByteBuffer bb = le(nodeSize);
+        bb.put("TREE".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put((byte) level).putShort((short) (to - from));
+        bb.putLong(j > 0 ? base + (j - 1) * (long) nodeSize : UNDEF);
+        bb.putLong(j < nnodes - 1 ? base + (j + 1) * (long) nodeSize : UNDEF);
+        for (int i = from; i < to; i++)
+          bb.put(nodeKeys.get(i)).putLong(children[i]);
+        bb.put(nodeKeys.get(to));
+        parents[j] = append(bb.array());
+        parentKeys.add(nodeKeys.get(from));
+      }
+      if (nnodes == 1) return parents[0];
+      parentKeys.add(nodeKeys.get(n));
+      nodeKeys = parentKeys;
+      children = parents;
+      n = nnodes;
+      level++;
+    }
+  }
+
+  private static byte[] chunkKey(int size, int[] origin) {
+    ByteBuffer bb = le(8 + 8 * (origin.length + 1)).putInt(size).putInt(0);
+    for (int o : origin) bb.putLong(o);
+    return bb.putLong(0).array();
+  }
+
+  // write the objects into global heap collections; return collection address and object index for each
+  private long[] writeGlobalHeap(List<byte[]> objects) throws IOException {
+    long[] result = new long[2 * objects.size()];
+    for (int start = 0; start < objects.size(); start += GLOBAL_HEAP_MAX_OBJECTS) {
+      int end = Math.min(objects.size(), start + GLOBAL_HEAP_MAX_OBJECTS);
+      int size = 16;
+      for (int i = start; i < end; i++)
+        size += 16 + pad8(objects.get(i).length);
+      int total = Math.max(GLOBAL_HEAP_MIN, size + 16);
+
+      ByteBuffer bb = le(total);
+      bb.put("GCOL".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put(new byte[3]).putLong(total);
+      long address = eof;
+      for (int i = start; i < end; i++) {
+        byte[] obj = objects.get(i);
+        int index = i - start + 1;
+        bb.putShort((short) index).putShort((short) 1).putInt(0).putLong(obj.length).put(obj);
+        bb.position(bb.position() + pad8(obj.length) - obj.length);
+        result[2 * i] = address;
+        result[2 * i + 1] = index;
+      }
+      bb.putShort((short) 0).putShort((short) 0).putInt(0).putLong(total - size); // free space
+      append(bb.array());
+    }
+    return result;
+  }
+
+  private static int pad8(int n) {
+    return (n + 7) & ~7;
+  }
+
+  ////////////////////////////////////////////////////////////////////
+  // utilities
+
+  static private ByteBuffer le(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  static private byte[] concat(byte[] a, byte[] b) {
+    byte[] result = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, result, a.length, b.length);
+    return result;
+  }
+
+  static private void fillBytes(byte[] dest, byte[] pattern) {
+    boolean zero = true;
+    for (byte b : pattern) zero &= (b == 0);
+    if (zero) return;
+    for (int i = 0; i + pattern.length <= dest.length; i += pattern.length)
+      System.arraycopy(pattern, 0, dest, i, pattern.length);
+  }
+
+  // the values in canonical order, little endian
+  static private byte[] toBytes(Array values, DataType dt) {
+    int n = (int) values.getSize();
+    ByteBuffer bb = le(n * dt.getSize());
+    IndexIterator ii = values.getIndexIterator();
+    switch (dt) {
+      case BYTE:
+      case UBYTE:
+        while (ii.hasNext()) bb.put(ii.getByteNext());
+        break;
+      case CHAR:
+        while (ii.hasNext()) bb.put((byte) ii.getCharNext());
+        break;
+      case SHORT:
+      case USHORT:
+        while (ii.hasNext()) bb.putShort(ii.getShortNext());
+        break;
+      case INT:
+      case UINT:
+        while (ii.hasNext()) bb.putInt(ii.getIntNext());
+        break;
+      case LONG:
+      case ULONG:
+        while (ii.hasNext()) bb.putLong(ii.getLongNext());
+        break;
+      case FLOAT:
+        while (ii.hasNext()) bb.putFloat(ii.getFloatNext());
+        break;
+      case DOUBLE:
+        while (ii.hasNext()) bb.putDouble(ii.getDoubleNext());
+        break;
+      default:
+        throw new IllegalArgumentException("H5iospWriter does not write " + dt);
+    }
+    return bb.array();
+  }
+
+  /**
+   * Jenkins lookup3 hashlittle(), used by HDF5 for the checksums of the superblock and object headers.
+   *
+   * @param b      the bytes
+   * @param off    starting here
+   * @param length this many bytes
+   * @return checksum, with initial value 0
+   */
+  static int checksum(byte[] b, int off, int length) {
+    int a, bb, c;
+    a = bb = c = 0xdeadbeef + length;
+    int i = off;
+    while (length > 12) {
+      a += (b[i] & 0xff) + ((b[i + 1] & 0xff) << 8) + ((b[i + 2] & 0xff) << 16) + ((b[i + 3] & 0xff) << 24);
+      bb += (b[i + 4] & 0xff) + ((b[i + 5] & 0xff) << 8) + ((b[i + 6] & 0xff) << 16) + ((b[i + 7] & 0xff) << 24);
+      c += (b[i + 8] & 0xff) + ((b[i + 9] & 0xff) << 8) + ((b[i + 10] & 0xff) << 16) + ((b[i + 11] & 0xff) << 24);
+      a -= c; a ^= Integer.rotateLeft(c, 4); c += bb;
+      bb -= a; bb ^= Integer.rotateLeft(a, 6); a += c;
+      c -= bb; c ^= Integer.rotateLeft(bb, 8); bb += a;
+      a -= c; a ^= Integer.rotateLeft(c, 16); c += bb;
+      bb -= a; bb ^= Integer.rotateLeft(a, 19); a += c;
+      c -= bb; c ^= Integer.rotateLeft(bb, 4); bb += a;
+      length -= 12;
+      i += 12;
+    }
+
+    switch (length) { // all cases fall through
+      case 12: c += (b[i + 11] & 0xff) << 24;
+      case 11: c += (b[i + 10] & 0xff) << 16;
+      case 10: c += (b[i + 9] & 0xff) << 8;
+      case 9: c += (b[i + 8] & 0xff);
+      case 8: bb += (b[i + 7] & 0xff) << 24;
+      case 7: bb += (b[i + 6] & 0xff) << 16;
+      case 6: bb += (b[i + 5] & 0xff) << 8;
+      case 5: bb += (b[i + 4] & 0xff);
+      case 4: a += (b[i + 3] & 0xff) << 24;
+      case 3: a += (b[i + 2] & 0xff) << 16;
+      case 2: a += (b[i + 1] & 0xff) << 8;
+      case 1: a += (b[i] & 0xff);
+        break;
+      case 0:
+        return c;
+    }
+
+    c ^= bb; c -= Integer.rotateLeft(bb, 14);
+    a ^= c; a -= Integer.rotateLeft(c, 11);
+    bb ^= a; bb -= Integer.rotateLeft(a, 25);
+    c ^= bb; c -= Integer.rotateLeft(bb, 16);
+    a ^= c; a -= Integer.rotateLeft(c, 4);
+    bb ^= a; bb -= Integer.rotateLeft(a, 14);
+    c ^= bb; c -= Integer.rotateLeft(bb, 24);
+    return c;
+  }
+
+  ////////////////////////////////////////////////////////////////////
+
+  private class Vinfo {
+    final Variable v;
+    final String linkName;
+    final DataType dataType;
+    final int elemSize;
+    final byte[] fillValue;  // one value, little endian
+    final boolean isChunked;
+    final int[] chunkShape;
+    final int chunkElems;
+    final int deflateLevel;
+    final boolean shuffle;
+
+    long dataAddress = UNDEF, dataSize; // contiguous
+    final Map<ChunkKey, ChunkBuffer> open = new HashMap<>();   // chunks being written
+    final Map<ChunkKey, StoredChunk> stored = new HashMap<>(); // chunks in the file
+    long headerAddress = UNDEF;
+
+    Vinfo(Variable v, String linkName) {
+      this.v = v;
+      this.linkName = linkName;
+      this.dataType = v.getDataType();
+      this.elemSize = dataType.getSize();
+      this.fillValue = makeFillValue(v);
+
+      // extendible datasets must be chunked, scalars cant be
+      this.isChunked = v.getRank() > 0 && (v.isUnlimited() || chunker.isChunked(v));
+      if (isChunked) {
+        long[] lchunks = chunker.computeChunking(v);
+        chunkShape = new int[v.getRank()];
+        long n = 1;
+        for (int i = 0; i < chunkShape.length; i++) {
+          Dimension d = v.getDimension(i);
+          long len = (i < lchunks.length) ? lchunks[i] : 1;
+          if (!d.isUnlimited()) len = Math.min(len, d.getLength());
+          chunkShape[i] = (int) Math.max(len, 1);
+          n *= chunkShape[i];
+        }
+        if (n * elemSize > Integer.MAX_VALUE / 2)
+          throw new IllegalArgumentException("chunk too large for " + v.getFullName() + " " + Arrays.toString(chunkShape));
+        chunkElems = (int) n;
+        deflateLevel = chunker.getDeflateLevel(v);
+        shuffle = deflateLevel > 0 && chunker.isShuffle(v) && elemSize > 1;
+      } else {
+        chunkShape = null;
+        chunkElems = 0;
+        deflateLevel = 0;
+        shuffle = false;
+      }
+    }
+
+    // number of values in this chunk that are inside the variable; the unlimited dimensions count as full
+    long chunkValuesNeeded(int[] chunkOrigin) {
+      long n = 1;
+      for (int i = 0; i < chunkShape.length; i++) {
+        Dimension d = v.getDimension(i);
+        n *= d.isUnlimited() ? chunkShape[i] : Math.min(chunkShape[i], d.getLength() - chunkOrigin[i]);
+      }
+      return n;
+    }
+
+    private byte[] makeFillValue(Variable v) {
+      Number val = null;
+      Attribute att = v.findAttribute(CDM.FILL_VALUE);
+      if (att != null && att.getLength() == 1 && att.getDataType() == dataType)
+        val = att.getNumericValue();
+      if (val == null)
+        val = N3iosp.getFillValueDefault(dataType);
+
+      ByteBuffer bb = le(elemSize);
+      switch (dataType) {
+        case BYTE:
+        case UBYTE:
+        case CHAR:
+          bb.put(val.byteValue());
+          break;
+        case SHORT:
+        case USHORT:
+          bb.putShort(val.shortValue());
+          break;
+        case INT:
+        case UINT:
+          bb.putInt(val.intValue());
+          break;
+        case LONG:
+        case ULONG:
+          bb.putLong(val.longValue());
+          break;
+        case FLOAT:
+          bb.putFloat(val.floatValue());
+          break;
+        case DOUBLE:
+          bb.putDouble(val.doubleValue());
+          break;
+      }
+      return bb.array();
+    }
+  }
+
+  private static class ChunkKey implements Comparable<ChunkKey> {
+    final int[] origin;
+
+    ChunkKey(int[] origin) {
+      this.origin = origin;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof ChunkKey) && Arrays.equals(origin, ((ChunkKey) o).origin);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(origin);
+    }
+
+    @Override
+    public int compareTo(ChunkKey o) {  // row major order, as the B-tree needs
+      for (int i = 0; i < origin.length; i++)
+        if (origin[i] != o.origin[i]) return Integer.compare(origin[i], o.origin[i]);
+      return 0;
+    }
+  }
+
+  private static class ChunkBuffer {
+    final ChunkKey key;
+    final byte[] data;
+    final long needed;
+    long written;
+    boolean reopened; // was already written, so cant know when it is complete
+
+    ChunkBuffer(ChunkKey key, byte[] data, long needed) {
+      this.key = key;
+      this.data = data;
+      this.needed = needed;
+    }
+  }
+
+  private static class StoredChunk {
+    final long address;
+    final int size;
+
+    StoredChunk(long address, int size) {
+      this.address = address;
+      this.size = size;
+    }
+  }
+
+  private static class PendingChunk {
+    final Vinfo vinfo;
+    final ChunkKey key;
+    Future<byte[]> future;
+    byte[] result;
+
+    PendingChunk(Vinfo vinfo, ChunkKey key) {
+      this.vinfo = vinfo;
+      this.key = key;
+    }
+  }
+
+  private static class Link {
+    final String name;
+    final long address;
+
+    Link(String name, long address) {
+      this.name = name;
+      this.address = address;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////
+  // not used for writing
+
+  @Override
+  public boolean isValidFile(RandomAccessFile raf) throws IOException {
+    return false;
+  }
+
+  @Override
+  public void open(RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) throws IOException {
+    throw new UnsupportedOperationException("H5iospWriter only writes new files");
+  }
+
+  @Override
+  public void openForWriting(RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) throws IOException {
+    throw new UnsupportedOperationException("H5iospWriter only writes new files");
+  }
+
+  @Override
+  public Array readData(Variable v2, Section section) throws IOException, InvalidRangeException {
+    throw new UnsupportedOperationException("H5iospWriter cant read; close the file and open it with NetcdfFile");
+  }
+
+  @Override
+  public int appendStructureData(Structure s, StructureData sdata) throws IOException, InvalidRangeException {
+    throw new UnsupportedOperationException("H5iospWriter does not write Structures");
+  }
+
+  @Override
+  public boolean rewriteHeader(boolean largeFile) throws IOException {
+    for (Variable v : ncfile.getVariables()) {
+      if (!(v.getSPobject() instanceof Vinfo))
+        throw new UnsupportedOperationException("H5iospWriter cant add variable " + v.getFullName() + " after create()");
+    }
+    return true; // the header is written in close()
+  }
+
+  @Override
+  public void updateAttribute(Variable v2, Attribute att) throws IOException {
+    // the attributes are written in close()
+  }
+
+  @Override
+  public String getFileTypeId() {
+    return DataFormatType.NETCDF4.getDescription();
+  }
+
+  @Override
+  public String getFileTypeDescription() {
+    return "NetCDF-4 pure Java writer";
+  }
+}
@@ -40,14 +40,21 @@ import ucar.ma2.Section;
 import ucar.nc2.Variable;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
-import ucar.nc2.util.IO;
 import ucar.unidata.io.RandomAccessFile;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
  * Iterator to read/write subsets of an array.
@@ -58,6 +65,29 @@ import java.nio.ByteOrder;
  * @author caron
  */
 class H5tiledLayoutBB implements LayoutBB {
+  // Copied from ArrayList.
+  private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+
+  // pooled Inflaters, to avoid allocating native zlib state for every chunk
+  private static final int MAX_POOLED_INFLATERS = 32;
+  private static final ConcurrentLinkedQueue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+  // optionally inflate the chunks of one read in parallel
+  private static ExecutorService inflateExecutor;
+  private static int readAhead;
+
+  /**
+   * Inflate the chunks of a read in parallel, using this executor.
+   * Compressed chunks are read from the file by the calling thread, up to readAhead chunks ahead of the consumer.
+   *
+   * @param exec       use this executor, or null to inflate on the reading thread (default).
+   * @param nreadAhead max number of chunks being inflated ahead of the reader.
+   */
+  static synchronized void setInflateExecutor(ExecutorService exec, int nreadAhead) {
+    inflateExecutor = exec;
+    readAhead = Math.max(nreadAhead, 1);
+  }
+
   private LayoutBBTiled delegate;
 
   private RandomAccessFile raf;
@@ -68,6 +98,12 @@ class H5tiledLayoutBB implements LayoutBB {
   private int[] chunkSize; // from the StorageLayout message (exclude the elemSize)
   private int elemSize; // last dimension of the StorageLayout message
   private int nChunkDims;
+  private int chunkBytes; // size of a full uncompressed chunk
+
+  private H5ChunkCache chunkCache; // may be null
+  private DataChunkIterator chunkIterator;
+  private ExecutorService executor; // may be null
+  private int nreadAhead;
 
   private boolean debug = false;
 
@@ -79,10 +115,13 @@ class H5tiledLayoutBB implements LayoutBB {
    * @param wantSection the wanted section of data, contains a List of Range objects. must be complete
    * @param raf the RandomAccessFile
    * @param filters set of filters that have been applied to the data
+   * @param byteOrder byte order of the data
+   * @param chunkCache cache of uncompressed chunks for this file, may be null
    * @throws InvalidRangeException if section invalid for this variable
    * @throws java.io.IOException   on io error
    */
-  H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5header.Filter[] filters, ByteOrder byteOrder) throws InvalidRangeException, IOException {
+  H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5header.Filter[] filters, ByteOrder byteOrder,
+                  H5ChunkCache chunkCache) throws InvalidRangeException, IOException {
     wantSection = Section.fill(wantSection, v2.getShape());
 
     H5header.Vinfo vinfo = (H5header.Vinfo) v2.getSPobject();
@@ -92,6 +131,11 @@ class H5tiledLayoutBB implements LayoutBB {
     this.raf = raf;
     this.filters = filters;
     this.byteOrder = byteOrder;
+    this.chunkCache = chunkCache;
+    synchronized (H5tiledLayoutBB.class) {
+      this.executor = inflateExecutor;
+      this.nreadAhead = readAhead;
+    }
 
     // we have to translate the want section into the same rank as the storageSize, in order to be able to call
     // Section.intersect(). It appears that storageSize (actually msl.chunkSize) may have an extra dimension, reletive
@@ -107,11 +151,19 @@ class H5tiledLayoutBB implements LayoutBB {
     this.chunkSize = new int[nChunkDims];
     System.arraycopy(vinfo.storageSize, 0, chunkSize, 0, nChunkDims);
     this.elemSize = vinfo.storageSize[vinfo.storageSize.length - 1]; // last one is always the elements size
+    long nbytes = elemSize;
+    for (int size : chunkSize) nbytes *= size;
+    this.chunkBytes = (int) Math.min(nbytes, MAX_ARRAY_LEN);
 
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
-    DataChunkIterator dcIter = new DataChunkIterator(iter);
-    delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want);
+    chunkIterator = new DataChunkIterator(iter);
+    try {
+      delegate = new LayoutBBTiled(chunkIterator, chunkSize, elemSize, this.want);
+    } catch (IOException | InvalidRangeException | RuntimeException e) {
+      cancel();
+      throw e;
+    }
     
     if (debug) System.out.println(" H5tiledLayout: " + this);
   }
@@ -147,25 +199,46 @@ class H5tiledLayoutBB implements LayoutBB {
 
   private class DataChunkIterator implements LayoutBBTiled.DataChunkIterator {
     DataBTree.DataChunkIterator delegate;
+    LinkedList<DataChunk> ahead = new LinkedList<>(); // already started inflating, when there is an executor
 
     DataChunkIterator(DataBTree.DataChunkIterator delegate) {
       this.delegate = delegate;
     }
 
     public boolean hasNext() {
-      return delegate.hasNext();
+      return !ahead.isEmpty() || delegate.hasNext();
     }
 
     public LayoutBBTiled.DataChunk next() throws IOException {
-      return new DataChunk(delegate.next());
+      if (executor == null)
+        return new DataChunk(delegate.next());
+
+      while (ahead.size() < nreadAhead && delegate.hasNext()) {
+        DataChunk dc = new DataChunk(delegate.next());
+        dc.startInflate();
+        ahead.add(dc);
+      }
+      return ahead.removeFirst();
+    }
+
+    void cancel() {
+      for (DataChunk dc : ahead)
+        if (dc.pending != null) dc.pending.cancel(true);
+      ahead.clear();
     }
   }
 
-  private class DataChunk implements ucar.nc2.iosp.LayoutBBTiled.DataChunk {
-    // Copied from ArrayList.
-    private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+  /**
+   * Stop inflating chunks that were read ahead and not used, eg when the read failed.
+   */
+  void cancel() {
+    if (chunkIterator != null) chunkIterator.cancel();
+  }
 
+  private class DataChunk implements ucar.nc2.iosp.LayoutBBTiled.DataChunk {
     DataBTree.DataChunk delegate;
+    Future<byte[]> pending; // being inflated in the background
+    byte[] cached;          // found in the chunk cache by startInflate()
 
     DataChunk(DataBTree.DataChunk delegate) {
       this.delegate = delegate;
@@ -200,13 +273,73 @@ class H5tiledLayoutBB implements LayoutBB {
       return offset;
     }
 
+    // read the compressed data on this thread, inflate it on the executor; only if this chunk is wanted
+    void startInflate() throws IOException {
+      try {
+        if (!new Section(getOffset(), chunkSize).intersects(want)) return;
+      } catch (InvalidRangeException e) {
+        return; // let LayoutBBTiled deal with it
+      }
+      if (chunkCache != null) {
+        cached = chunkCache.get(delegate.filePos);
+        if (cached != null) return;
+      }
+
+      final byte[] raw = readRaw();
+      pending = executor.submit(new Callable<byte[]>() {
+        public byte[] call() throws Exception {
+          return filterAndCache(raw);
+        }
+      });
+    }
+
     public ByteBuffer getByteBuffer() throws IOException {
       try {
-        // read the data
-        byte[] data = new byte[delegate.size];
-        raf.seek(delegate.filePos);
-        raf.readFully(data);
+        byte[] data;
+        if (pending != null) {
+          data = getPending();
+        } else if (cached != null) {
+          data = cached;
+        } else {
+          data = (chunkCache == null) ? null : chunkCache.get(delegate.filePos);
+          if (data == null)
+            data = filterAndCache(readRaw());
+        }
 
+        ByteBuffer result = ByteBuffer.wrap(data);
+        result.order(byteOrder);
+        return result;
+      } catch (OutOfMemoryError e) {
+        Error oom =  new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the " +
+                "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
+        oom.initCause(e);  // OutOfMemoryError lacks a constructor with a cause parameter.
+        throw oom;
+      }
+    }
+
+    private byte[] getPending() throws IOException {
+      try {
+        return pending.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted inflating chunk " + delegate, e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) throw (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        throw new IOException(cause);
+      }
+    }
+
+    private byte[] readRaw() throws IOException {
+      byte[] data = new byte[delegate.size];
+      raf.seek(delegate.filePos);
+      raf.readFully(data);
+      return data;
+    }
+
+    private byte[] filterAndCache(byte[] data) throws IOException {
       // apply filters backwards
       for (int i = filters.length - 1; i >= 0; i--) {
         H5header.Filter f = filters[i];
@@ -226,15 +359,8 @@ class H5tiledLayoutBB implements LayoutBB {
           throw new RuntimeException("Unknown filter type="+f.id);
       }
 
-        ByteBuffer result = ByteBuffer.wrap(data);
-        result.order(byteOrder);
-        return result;
-      } catch (OutOfMemoryError e) {
-        Error oom =  new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the " +
-                "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
-        oom.initCause(e);  // OutOfMemoryError lacks a constructor with a cause parameter.
-        throw oom;
-      }
+      if (chunkCache != null) chunkCache.put(delegate.filePos, data);
+      return data;
     }
 
     /**
@@ -245,16 +371,36 @@ class H5tiledLayoutBB implements LayoutBB {
      * @throws IOException on I/O error
      */
     private byte[] inflate(byte[] compressed) throws IOException {
-      // run it through the Inflator
-      ByteArrayInputStream in = new ByteArrayInputStream(compressed);
-      java.util.zip.InflaterInputStream inflater = new java.util.zip.InflaterInputStream(in);
-      ByteArrayOutputStream out = new ByteArrayOutputStream(
-              Math.min(8 * compressed.length, MAX_ARRAY_LEN));  // Fixes KXL-349288
-      IO.copy(inflater, out);
-
-      byte[] uncomp = out.toByteArray();
-      if (debug) System.out.println(" inflate bytes in= " + compressed.length + " bytes out= " + uncomp.length);
-      return uncomp;
+      Inflater inflater = inflaters.poll();
+      if (inflater == null) inflater = new Inflater();
+      try {
+        inflater.setInput(compressed);
+        // a full chunk is the usual size, partial edge chunks are stored full size too
+        byte[] uncomp = new byte[chunkBytes > 0 ? chunkBytes : Math.min(8 * compressed.length, MAX_ARRAY_LEN)];
+        int n = 0;
+        while (!inflater.finished()) {
+          if (n == uncomp.length) {
+            if (n >= MAX_ARRAY_LEN) throw new IOException("Inflated chunk is bigger than " + MAX_ARRAY_LEN);
+            uncomp = Arrays.copyOf(uncomp, (int) Math.min(2L * n, MAX_ARRAY_LEN));
+          }
+          int count = inflater.inflate(uncomp, n, uncomp.length - n);
+          if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+            throw new EOFException("Unexpected end of ZLIB input stream");
+          n += count;
+        }
+        if (n < uncomp.length) uncomp = Arrays.copyOf(uncomp, n);
+
+        if (debug) System.out.println(" inflate bytes in= " + compressed.length + " bytes out= " + uncomp.length);
+        return uncomp;
+
+      } catch (DataFormatException e) {
+        throw new IOException(e.getMessage(), e);
+
+      } finally {
+        inflater.reset();
+        if (inflaters.size() < MAX_POOLED_INFLATERS) inflaters.offer(inflater);
+        else inflater.end();
+      }
     }
 
     /* private byte[] unbzip2(byte[] compressed) throws IOException {
@@ -57,15 +57,25 @@ public abstract class N3streamWriter {
   protected ucar.nc2.NetcdfFile ncfile;
   protected Map<Variable,Vinfo> vinfoMap = new HashMap<Variable,Vinfo>();
   protected List<Vinfo> vinfoList = new ArrayList<Vinfo>(); // output order of the variables
-  protected boolean debug=false, debugPos=true, debugWriteData = false;
-  protected int recStart, recSize;
+  protected boolean debug=false, debugPos=false, debugWriteData = false;
+  protected long recStart;
+  protected int recSize;
   protected boolean usePadding = true;
+  protected boolean isLargeFile = false;
   protected long filePos = 0;
 
   protected N3streamWriter(ucar.nc2.NetcdfFile ncfile) {
     this.ncfile = ncfile;
   }
 
+  /**
+   * Use the 64-bit offset format variant, needed when the file is bigger than 2 GB. Call before writeHeader.
+   * @param isLargeFile use 64-bit offsets
+   */
+  public void setLargeFile(boolean isLargeFile) {
+    this.isLargeFile = isLargeFile;
+  }
+
   /**
    * Write the header to a stream.
    *
@@ -79,7 +89,7 @@ public abstract class N3streamWriter {
     ncfile.finish();
 
     // magic number
-    stream.write(N3header.MAGIC);
+    stream.write(isLargeFile ? N3header.MAGIC_LONG : N3header.MAGIC);
     int count = N3header.MAGIC.length;
 
     // numrecs
@@ -146,7 +156,7 @@ public abstract class N3streamWriter {
 
     // now calculate where things go
     int dataStart = count; // data starts right after the header
-    int offset = dataStart; // track data offset
+    long offset = dataStart; // track data offset
     if (debug) System.out.println(" non-record vars start at "+dataStart);
 
     // do all non-record variables first
@@ -191,7 +201,7 @@ public abstract class N3streamWriter {
     if (debugPos) System.out.println("header written filePos= " + filePos+" recsize= "+recSize);
   }
 
-  private Vinfo writeVar(DataOutputStream stream, Variable var, int offset) throws IOException {
+  private Vinfo writeVar(DataOutputStream stream, Variable var, long offset) throws IOException {
     int hsize = 0;
     hsize += writeString(stream, N3iosp.makeValidNetcdfObjectName( var.getShortName()));
 
@@ -220,9 +230,12 @@ public abstract class N3streamWriter {
     if (null != stream) {
       stream.writeInt(type);
       stream.writeInt(vsize);
-      stream.writeInt(offset);
+      if (isLargeFile)
+        stream.writeLong(offset);
+      else
+        stream.writeInt((int) offset);
     }
-    hsize += 12;
+    hsize += isLargeFile ? 16 : 12;
 
     //if (debug) out.println(" name= "+name+" type="+type+" vsize="+vsize+" begin= "+begin+" isRecord="+isRecord+"\n");
     return new Vinfo(var, hsize, vsize, offset, pad, var.isUnlimited());
@@ -340,11 +353,11 @@ public abstract class N3streamWriter {
     Variable v;
     int hsize; // header size
     int vsize; // size of array in bytes. if isRecord, size per record. includes padding
-    int offset; // offset of start of data from start of file
+    long offset; // offset of start of data from start of file
     int pad; // number of padding bytes
     boolean isRecord; // is it a record variable?
 
-    Vinfo(Variable v, int hsize, int vsize, int offset, int pad, boolean isRecord) {
+    Vinfo(Variable v, int hsize, int vsize, long offset, int pad, boolean isRecord) {
       this.v = v;
       this.hsize = hsize;
       this.vsize = vsize;
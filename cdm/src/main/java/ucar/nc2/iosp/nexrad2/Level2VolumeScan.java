@@ -33,6 +33,7 @@
 
 package ucar.nc2.iosp.nexrad2;
 
+import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.DiskCache;
@@ -43,6 +44,10 @@ import java.io.*;
 import java.util.*;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ucar.unidata.io.bzip2.CBZip2InputStream;
 import ucar.unidata.io.bzip2.BZip2ReadException;
@@ -72,6 +77,46 @@ public class Level2VolumeScan {
   static public final String AR2V0007 = "AR2V0007";
 
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Level2VolumeScan.class);
+
+  // optional parallel decompression of the bzip2 blocks
+  static private int uncompressThreads = 0;
+  static private ExecutorService uncompressExecutor;
+  static private boolean useDiskCache = true;
+
+  /**
+   * Decompress the bzip2 blocks of a compressed volume on worker threads. Each block is compressed separately;
+   * the uncompressed blocks are still written in file order.
+   *
+   * @param nthreads number of decompressing threads; 0 (the default) decompresses on the caller's thread.
+   */
+  static public synchronized void setUncompressThreads(int nthreads) {
+    if (uncompressExecutor != null) uncompressExecutor.shutdown(); // running tasks complete
+    uncompressExecutor = null;
+    uncompressThreads = Math.max(0, nthreads);
+    if (uncompressThreads > 0)
+      uncompressExecutor = Executors.newFixedThreadPool(uncompressThreads, UncompressThread::new);
+  }
+
+  // a worker of the uncompress pool, with its own decoder, which holds about 5 MB of buffers
+  static private class UncompressThread extends Thread {
+    private final CBZip2InputStream decoder = new CBZip2InputStream();
+
+    UncompressThread(Runnable r) {
+      super(r, "Level2VolumeScan uncompress");
+      setDaemon(true);
+    }
+  }
+
+  /**
+   * Where to put the uncompressed copy of a compressed volume.
+   *
+   * @param b true (the default): write it to the DiskCache, where later opens of the same file will find it.
+   *          false: keep it in memory, and dont write anything to disk. Better for short-lived data.
+   */
+  static public void setUseDiskCache(boolean b) {
+    useDiskCache = b;
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////
 
   // Data file
@@ -151,9 +196,13 @@ public class Level2VolumeScan {
       String BZ = raf.readString(2);
       if (BZ.equals("BZ")) {
         RandomAccessFile uraf = null;
-        File uncompressedFile = DiskCache.getFileStandardPolicy(raf.getLocation() + ".uncompress");
+        File uncompressedFile = useDiskCache ? DiskCache.getFileStandardPolicy(raf.getLocation() + ".uncompress") : null;
+
+        if (uncompressedFile == null) {
+          // keep it in memory
+          uraf = new InMemoryRandomAccessFile(raf.getLocation(), uncompress(raf));
 
-        if (uncompressedFile.exists() && uncompressedFile.length() > 0) {
+        } else if (uncompressedFile.exists() && uncompressedFile.length() > 0) {
           // see if its locked - another thread is writing it
           try (FileInputStream fstream = new FileInputStream(uncompressedFile)) {
             //lock = fstream.getChannel().lock(0, 1, true); // wait till its unlocked
@@ -668,85 +717,7 @@ public class Level2VolumeScan {
     }
 
     try {
-        inputRaf.seek(0);
-        byte[] header = new byte[Level2Record.FILE_HEADER_SIZE];
-        int bytesRead = inputRaf.read(header);
-        if (bytesRead != header.length)
-        {
-            throw new IOException("Error reading NEXRAD2 header -- got " +
-                    bytesRead + " rather than" + header.length);
-        }
-        outputRaf.write(header);
-
-        boolean eof = false;
-        int numCompBytes;
-        byte[] ubuff = new byte[40000];
-        byte[] obuff = new byte[40000];
-
-        CBZip2InputStream cbzip2 = new CBZip2InputStream();
-        while (!eof) {
-            try {
-                numCompBytes = inputRaf.readInt();
-                if (numCompBytes == -1) {
-                    if (log.isDebugEnabled())
-                        log.debug("  done: numCompBytes=-1 ");
-                    break;
-                }
-            } catch (EOFException ee) {
-                log.debug("got EOFException");
-                break; // assume this is ok
-            }
-
-            if (log.isDebugEnabled()) {
-                log.debug("reading compressed bytes " + numCompBytes + " input starts at " + inputRaf.getFilePointer() + "; output starts at " + outputRaf.getFilePointer());
-
-            }
-          /*
-          * For some stupid reason, the last block seems to
-          * have the number of bytes negated.  So, we just
-          * assume that any negative number (other than -1)
-          * is the last block and go on our merry little way.
-          */
-            if (numCompBytes < 0) {
-                if (log.isDebugEnabled())
-                    log.debug("last block?" + numCompBytes);
-                numCompBytes = -numCompBytes;
-                eof = true;
-            }
-            byte[] buf = new byte[numCompBytes];
-            inputRaf.readFully(buf);
-            ByteArrayInputStream bis = new ByteArrayInputStream(buf, 2,
-                    numCompBytes - 2);
-
-            //CBZip2InputStream cbzip2 = new CBZip2InputStream(bis);
-            cbzip2.setStream(bis);
-            int total = 0;
-            int nread;
-          /*
-          while ((nread = cbzip2.read(ubuff)) != -1) {
-            dout2.write(ubuff, 0, nread);
-            total += nread;
-          }
-          */
-            try {
-                while ((nread = cbzip2.read(ubuff)) != -1) {
-                    if (total + nread > obuff.length) {
-                        byte[] temp = obuff;
-                        obuff = new byte[temp.length * 2];
-                        System.arraycopy(temp, 0, obuff, 0, temp.length);
-                    }
-                    System.arraycopy(ubuff, 0, obuff, total, nread);
-                    total += nread;
-                }
-                if (obuff.length >= 0) outputRaf.write(obuff, 0, total);
-            } catch (BZip2ReadException ioe) {
-                log.warn("Nexrad2IOSP.uncompress ", ioe);
-            }
-            float nrecords = (float) (total / 2432.0);
-            if (log.isDebugEnabled())
-                log.debug("  unpacked " + total + " num bytes " + nrecords + " records; ouput ends at " + outputRaf.getFilePointer());
-        }
-
+        uncompress(inputRaf, outputRaf::write);
         outputRaf.flush();
     } catch (IOException e) {
         if (outputRaf != null) outputRaf.close();
@@ -771,6 +742,144 @@ public class Level2VolumeScan {
     return outputRaf;
   }
 
+  /**
+   * Uncompress the file into memory.
+   *
+   * @param inputRaf file to uncompress
+   * @return equivilent uncompressed version of the file
+   * @throws IOException on read error
+   */
+  private byte[] uncompress(RandomAccessFile inputRaf) throws IOException {
+    List<byte[]> blocks = new ArrayList<>();
+    uncompress(inputRaf, blocks::add);
+
+    int size = 0;
+    for (byte[] block : blocks) size += block.length;
+    byte[] result = new byte[size];
+    int pos = 0;
+    for (byte[] block : blocks) {
+      System.arraycopy(block, 0, result, pos, block.length);
+      pos += block.length;
+    }
+    return result;
+  }
+
+  private interface BlockWriter {
+    void write(byte[] block) throws IOException;
+  }
+
+  /**
+   * Read the header and each compressed block, and hand the header and the uncompressed blocks to out, in file order.
+   * The blocks are uncompressed on the uncompress threads, if there are any, see setUncompressThreads().
+   */
+  private void uncompress(RandomAccessFile inputRaf, BlockWriter out) throws IOException {
+    inputRaf.seek(0);
+    byte[] header = new byte[Level2Record.FILE_HEADER_SIZE];
+    int bytesRead = inputRaf.read(header);
+    if (bytesRead != header.length) {
+      throw new IOException("Error reading NEXRAD2 header -- got " + bytesRead + " rather than" + header.length);
+    }
+    out.write(header);
+
+    ExecutorService executor;
+    int maxPending;
+    synchronized (Level2VolumeScan.class) {
+      executor = uncompressExecutor;
+      maxPending = 2 * uncompressThreads;
+    }
+    ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    CBZip2InputStream cbzip2 = (executor == null) ? new CBZip2InputStream() : null; // released when done, as before
+
+    try {
+      boolean eof = false;
+      while (!eof) {
+        int numCompBytes;
+        try {
+          numCompBytes = inputRaf.readInt();
+          if (numCompBytes == -1) {
+            if (log.isDebugEnabled())
+              log.debug("  done: numCompBytes=-1 ");
+            break;
+          }
+        } catch (EOFException ee) {
+          log.debug("got EOFException");
+          break; // assume this is ok
+        }
+
+        if (log.isDebugEnabled())
+          log.debug("reading compressed bytes " + numCompBytes + " input starts at " + inputRaf.getFilePointer());
+
+        /*
+        * For some stupid reason, the last block seems to
+        * have the number of bytes negated.  So, we just
+        * assume that any negative number (other than -1)
+        * is the last block and go on our merry little way.
+        */
+        if (numCompBytes < 0) {
+          if (log.isDebugEnabled())
+            log.debug("last block?" + numCompBytes);
+          numCompBytes = -numCompBytes;
+          eof = true;
+        }
+        byte[] buf = new byte[numCompBytes];
+        inputRaf.readFully(buf);
+
+        if (executor == null) {
+          out.write(uncompressBlock(buf, cbzip2));
+        } else {
+          pending.add(executor.submit(() -> uncompressBlock(buf, ((UncompressThread) Thread.currentThread()).decoder)));
+          if (pending.size() >= maxPending)
+            out.write(getBlock(pending.remove()));
+        }
+      }
+
+      while (!pending.isEmpty())
+        out.write(getBlock(pending.remove()));
+
+    } finally {
+      for (Future<byte[]> f : pending) f.cancel(true); // only if there was an error
+    }
+  }
+
+  private byte[] getBlock(Future<byte[]> f) throws IOException {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException(e.getMessage());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  // each block is a separate bzip2 stream, after 2 bytes
+  static private byte[] uncompressBlock(byte[] buf, CBZip2InputStream cbzip2) throws IOException {
+    cbzip2.setStream(new ByteArrayInputStream(buf, 2, buf.length - 2));
+
+    byte[] ubuff = new byte[40000];
+    byte[] obuff = new byte[40000];
+    int total = 0;
+    int nread;
+    try {
+      while ((nread = cbzip2.read(ubuff)) != -1) {
+        if (total + nread > obuff.length) {
+          byte[] temp = obuff;
+          obuff = new byte[temp.length * 2];
+          System.arraycopy(temp, 0, obuff, 0, temp.length);
+        }
+        System.arraycopy(ubuff, 0, obuff, total, nread);
+        total += nread;
+      }
+    } catch (BZip2ReadException ioe) {
+      log.warn("Nexrad2IOSP.uncompress ", ioe);
+    }
+    if (log.isDebugEnabled())
+      log.debug("  unpacked " + total + " num bytes " + (total / 2432.0) + " records");
+    return Arrays.copyOf(obuff, total);
+  }
+
   // check if compressed file seems ok
   static public long testValid(String ufilename) throws IOException {
     boolean lookForHeader = false;
@@ -37,9 +37,11 @@ import ucar.ma2.*;
 import ucar.nc2.*;
 import ucar.nc2.constants.*;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.FileSignature;
 import static ucar.nc2.iosp.nexrad2.Level2Record.*;
 import ucar.nc2.units.DateFormatter;
 import ucar.nc2.util.CancelTask;
+import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
@@ -56,6 +58,9 @@ public class Nexrad2IOServiceProvider extends AbstractIOServiceProvider {
   static private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Nexrad2IOServiceProvider.class);
   static private final int MISSING_INT = -9999;
   static private final float MISSING_FLOAT = Float.NaN;
+  static private final FileSignature signature = FileSignature.of(0, Level2VolumeScan.ARCHIVE2, Level2VolumeScan.AR2V0001,
+          Level2VolumeScan.AR2V0002, Level2VolumeScan.AR2V0003, Level2VolumeScan.AR2V0004, Level2VolumeScan.AR2V0006,
+          Level2VolumeScan.AR2V0007);
 
 
   public boolean isValidFile( RandomAccessFile raf) throws IOException {
@@ -71,6 +76,11 @@ public class Nexrad2IOServiceProvider extends AbstractIOServiceProvider {
     }
   }
 
+  @Override
+  public FileSignature getFileSignature() {
+    return signature;
+  }
+
  // private Dimension radialDim;
   private double radarRadius;
   private Variable v0, v1;
@@ -576,6 +586,19 @@ public class Nexrad2IOServiceProvider extends AbstractIOServiceProvider {
   /////////////////////////////////////////////////////////////////////
 
 
+  // an uncompressed volume kept in memory (see Level2VolumeScan.setUseDiskCache) cant be reacquired from its location
+  @Override
+  public void release() throws IOException {
+    if (raf instanceof InMemoryRandomAccessFile) return;
+    super.release();
+  }
+
+  @Override
+  public void reacquire() throws IOException {
+    if (raf instanceof InMemoryRandomAccessFile) return;
+    super.reacquire();
+  }
+
   public String getFileTypeId() {
     return DataFormatType.NEXRAD2.getDescription();
   }
@@ -0,0 +1,257 @@
+/* Copyright Unidata */
+package ucar.nc2.util;
+
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.DataType;
+
+/**
+ * A spatial index over the cells of a curvilinear lat/lon grid.
+ * The grid is given by its corner points lat(row, col), lon(row, col), of shape [nrows+1][ncols+1];
+ * cell (row, col) is the quadrilateral with corners (row, col), (row, col+1), (row+1, col+1), (row+1, col).
+ * <p>
+ * The lat/lon bounding box of the grid is divided into uniform buckets, and each cell is registered in every bucket
+ * its own bounding box overlaps, so a lookup only examines the cells in one bucket (or the buckets under a rectangle).
+ * Longitudes are used as given: the caller must normalize them consistently for the grid and the queries.
+ * Cells more than 180 degrees wide (ie that wrap around the longitude seam) are kept in a separate list that is always searched.
+ * <p>
+ * Immutable after construction, so may be shared across threads.
+ *
+ * @since 5.0
+ */
+public class CurvilinearGridIndex {
+  static private final int CELLS_PER_BUCKET = 8;
+  static private final double MAX_CELL_WIDTH = 180.0;
+
+  private final double[] lat, lon;  // corner points, row major
+  private final int npts;           // number of corner points in a row = ncols + 1
+  private final int nrows, ncols;   // number of cells
+  private final double latMin, latMax, lonMin, lonMax;
+  private final int nbucketY, nbucketX;
+  private final double bucketHeight, bucketWidth;
+  private final int[] bucketStart;  // cells in bucket b are bucketCells[bucketStart[b] .. bucketStart[b+1])
+  private final int[] bucketCells;  // row * ncols + col
+  private final int[] wideCells;
+
+  /**
+   * Build the index.
+   *
+   * @param latCorner lat of the cell corners, shape [nrows+1][ncols+1]. Missing values must be NaN.
+   * @param lonCorner lon of the cell corners, same shape.
+   */
+  public CurvilinearGridIndex(ArrayDouble.D2 latCorner, ArrayDouble.D2 lonCorner) {
+    int[] shape = latCorner.getShape();
+    this.lat = (double[]) latCorner.get1DJavaArray(DataType.DOUBLE);
+    this.lon = (double[]) lonCorner.get1DJavaArray(DataType.DOUBLE);
+    this.npts = shape[1];
+    this.nrows = Math.max(shape[0] - 1, 0);
+    this.ncols = Math.max(shape[1] - 1, 0);
+
+    double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+    double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+    for (int i = 0; i < lat.length; i++) {
+      if (Double.isNaN(lat[i]) || Double.isNaN(lon[i])) continue;
+      minLat = Math.min(minLat, lat[i]);
+      maxLat = Math.max(maxLat, lat[i]);
+      minLon = Math.min(minLon, lon[i]);
+      maxLon = Math.max(maxLon, lon[i]);
+    }
+    this.latMin = minLat;
+    this.latMax = maxLat;
+    this.lonMin = minLon;
+    this.lonMax = maxLon;
+
+    // choose the bucket grid to have about the same aspect ratio as the grid's bounding box
+    int ncells = nrows * ncols;
+    int nbuckets = Math.max(1, ncells / CELLS_PER_BUCKET);
+    double latRange = (maxLat > minLat) ? maxLat - minLat : 1.0;
+    double lonRange = (maxLon > minLon) ? maxLon - minLon : 1.0;
+    this.nbucketX = Math.max(1, Math.min(nbuckets, (int) Math.round(Math.sqrt(nbuckets * lonRange / latRange))));
+    this.nbucketY = Math.max(1, nbuckets / nbucketX);
+    this.bucketHeight = latRange / nbucketY;
+    this.bucketWidth = lonRange / nbucketX;
+
+    // first pass: count the cells in each bucket
+    int[] count = new int[nbucketY * nbucketX + 1];
+    int nwide = 0;
+    double[] bb = new double[4];
+    for (int cell = 0; cell < ncells; cell++) {
+      if (!cellBounds(cell, bb)) continue;
+      if (bb[3] - bb[2] > MAX_CELL_WIDTH) {
+        nwide++;
+        continue;
+      }
+      for (int by = bucketY(bb[0]); by <= bucketY(bb[1]); by++)
+        for (int bx = bucketX(bb[2]); bx <= bucketX(bb[3]); bx++)
+          count[by * nbucketX + bx + 1]++;
+    }
+
+    this.bucketStart = new int[count.length];
+    for (int b = 1; b < count.length; b++)
+      bucketStart[b] = bucketStart[b - 1] + count[b];
+
+    // second pass: fill them in
+    this.bucketCells = new int[bucketStart[count.length - 1]];
+    this.wideCells = new int[nwide];
+    int[] next = java.util.Arrays.copyOf(bucketStart, bucketStart.length - 1);
+    nwide = 0;
+    for (int cell = 0; cell < ncells; cell++) {
+      if (!cellBounds(cell, bb)) continue;
+      if (bb[3] - bb[2] > MAX_CELL_WIDTH) {
+        wideCells[nwide++] = cell;
+        continue;
+      }
+      for (int by = bucketY(bb[0]); by <= bucketY(bb[1]); by++)
+        for (int bx = bucketX(bb[2]); bx <= bucketX(bb[3]); bx++)
+          bucketCells[next[by * nbucketX + bx]++] = cell;
+    }
+  }
+
+  /**
+   * Find the cell containing the given point.
+   *
+   * @param wantLat   lat of point
+   * @param wantLon   lon of point, normalized the same way as the grid longitudes
+   * @param rectIndex return (row,col) index here if found, otherwise unchanged
+   * @return false if not in any cell.
+   */
+  public boolean findCell(double wantLat, double wantLon, int[] rectIndex) {
+    if (wantLat < latMin || wantLat > latMax || wantLon < lonMin || wantLon > lonMax)
+      return false;
+
+    int b = bucketY(wantLat) * nbucketX + bucketX(wantLon);
+    for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+      if (contains(bucketCells[k], wantLat, wantLon)) {
+        setIndex(bucketCells[k], rectIndex);
+        return true;
+      }
+    }
+    for (int cell : wideCells) {
+      if (contains(cell, wantLat, wantLon)) {
+        setIndex(cell, rectIndex);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find the range of corner point indices that lie inside the given lat/lon box, ie
+   * all (row, col) with minLat &lt;= lat(row, col) &lt;= maxLat and minLon &lt;= lon(row, col) &lt;= maxLon.
+   *
+   * @param result return {minRow, maxRow, minCol, maxCol} here (inclusive), if found.
+   * @return false if no corner points are inside the box.
+   */
+  public boolean findBounds(double minLat, double maxLat, double minLon, double maxLon, int[] result) {
+    int[] mm = {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1};
+    if (minLat > latMax || maxLat < latMin || minLon > lonMax || maxLon < lonMin || minLat > maxLat || minLon > maxLon)
+      return false;
+
+    if (nrows == 0 || ncols == 0) { // no cells, just look at the points
+      for (int pt = 0; pt < lat.length; pt++)
+        addIfInside(pt, minLat, maxLat, minLon, maxLon, mm);
+
+    } else {
+      int by0 = bucketY(Math.max(minLat, latMin)), by1 = bucketY(Math.min(maxLat, latMax));
+      int bx0 = bucketX(Math.max(minLon, lonMin)), bx1 = bucketX(Math.min(maxLon, lonMax));
+      for (int by = by0; by <= by1; by++) {
+        for (int bx = bx0; bx <= bx1; bx++) {
+          int b = by * nbucketX + bx;
+          for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++)
+            addCorners(bucketCells[k], minLat, maxLat, minLon, maxLon, mm);
+        }
+      }
+      for (int cell : wideCells)
+        addCorners(cell, minLat, maxLat, minLon, maxLon, mm);
+    }
+
+    if (mm[1] < 0) return false;
+    System.arraycopy(mm, 0, result, 0, 4);
+    return true;
+  }
+
+  /**
+   * Is the point (lat,lon) contained in the cell?
+   * The point is inside a convex quadrilateral if the triangles it makes with each pair of successive corners
+   * all have the same orientation, ie the same sign of their determinant.
+   */
+  private boolean contains(int cell, double wantLat, double wantLon) {
+    int p1 = corner(cell);
+    int p2 = p1 + 1;
+    int p3 = p2 + npts;
+    int p4 = p1 + npts;
+    if (Double.isNaN(lat[p1] + lat[p2] + lat[p3] + lat[p4] + lon[p1] + lon[p2] + lon[p3] + lon[p4]))
+      return false;
+
+    boolean sign = detIsPositive(p1, p2, wantLon, wantLat);
+    if (sign != detIsPositive(p2, p3, wantLon, wantLat)) return false;
+    if (sign != detIsPositive(p3, p4, wantLon, wantLat)) return false;
+    return sign == detIsPositive(p4, p1, wantLon, wantLat);
+  }
+
+  private boolean detIsPositive(int p0, int p1, double x2, double y2) {
+    double x0 = lon[p0], y0 = lat[p0];
+    double x1 = lon[p1], y1 = lat[p1];
+    return (x1 * y2 - y1 * x2 - x0 * y2 + y0 * x2 + x0 * y1 - y0 * x1) > 0;
+  }
+
+  // lat/lon bounding box {minLat, maxLat, minLon, maxLon} of the non-missing corners of the cell
+  private boolean cellBounds(int cell, double[] bb) {
+    int p1 = corner(cell);
+    bb[0] = bb[2] = Double.MAX_VALUE;
+    bb[1] = bb[3] = -Double.MAX_VALUE;
+    boolean ok = extend(p1, bb);
+    ok |= extend(p1 + 1, bb);
+    ok |= extend(p1 + npts, bb);
+    ok |= extend(p1 + npts + 1, bb);
+    return ok;
+  }
+
+  private boolean extend(int pt, double[] bb) {
+    if (Double.isNaN(lat[pt]) || Double.isNaN(lon[pt])) return false;
+    bb[0] = Math.min(bb[0], lat[pt]);
+    bb[1] = Math.max(bb[1], lat[pt]);
+    bb[2] = Math.min(bb[2], lon[pt]);
+    bb[3] = Math.max(bb[3], lon[pt]);
+    return true;
+  }
+
+  private void addCorners(int cell, double minLat, double maxLat, double minLon, double maxLon, int[] mm) {
+    int p1 = corner(cell);
+    addIfInside(p1, minLat, maxLat, minLon, maxLon, mm);
+    addIfInside(p1 + 1, minLat, maxLat, minLon, maxLon, mm);
+    addIfInside(p1 + npts, minLat, maxLat, minLon, maxLon, mm);
+    addIfInside(p1 + npts + 1, minLat, maxLat, minLon, maxLon, mm);
+  }
+
+  private void addIfInside(int pt, double minLat, double maxLat, double minLon, double maxLon, int[] mm) {
+    double y = lat[pt];
+    double x = lon[pt];
+    if ((y >= minLat) && (y <= maxLat) && (x >= minLon) && (x <= maxLon)) {
+      int row = pt / npts;
+      int col = pt % npts;
+      if (row < mm[0]) mm[0] = row;
+      if (row > mm[1]) mm[1] = row;
+      if (col < mm[2]) mm[2] = col;
+      if (col > mm[3]) mm[3] = col;
+    }
+  }
+
+  private int corner(int cell) {
+    return (cell / ncols) * npts + (cell % ncols);
+  }
+
+  private void setIndex(int cell, int[] rectIndex) {
+    rectIndex[0] = cell / ncols;
+    rectIndex[1] = cell % ncols;
+  }
+
+  private int bucketY(double y) {
+    int b = (int) ((y - latMin) / bucketHeight);
+    return Math.max(0, Math.min(b, nbucketY - 1));
+  }
+
+  private int bucketX(double x) {
+    int b = (int) ((x - lonMin) / bucketWidth);
+    return Math.max(0, Math.min(b, nbucketX - 1));
+  }
+}
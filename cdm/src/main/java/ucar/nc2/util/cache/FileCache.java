@@ -41,8 +41,10 @@ import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.Misc;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -61,6 +63,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <li>Make sure you call shutdown() when exiting the program, in order to shut down the cleanup thread.
  * </ol>
  * <p/>
+ * A FileCacheable is normally locked by the caller that acquires it, so concurrent callers each get their own copy.
+ * A FileCacheShareable is instead handed to all concurrent callers, and released when the last one closes it.
+ * When a file is not in the cache, only one caller opens it; concurrent callers for the same key wait for that open
+ * and then try the cache again.
+ * <p/>
  * Normal usage is through the NetcdfDataset interface:
  * <pre>
  * NetcdfDataset.initNetcdfFileCache(...); // on application startup
@@ -131,11 +138,13 @@ public class FileCache implements FileCacheIF {
 
   protected final ConcurrentHashMap<Object, CacheElement> cache; // unique files (by key, often = filename)
   protected final ConcurrentHashMap<FileCacheable, CacheElement.CacheFile> files; // list of all files in the cache
+  protected final ConcurrentHashMap<Object, CountDownLatch> opening = new ConcurrentHashMap<>(); // files being opened, by key
 
   // debugging and stats
   protected final AtomicInteger cleanups = new AtomicInteger();  // how many cleanups
   protected final AtomicInteger hits = new AtomicInteger();
   protected final AtomicInteger miss = new AtomicInteger();
+  protected final AtomicInteger waits = new AtomicInteger(); // waited for another thread to open the file
   protected ConcurrentHashMap<Object, Tracker> track;
   protected boolean trackAll = false;
 
@@ -269,11 +278,58 @@ public class FileCache implements FileCacheIF {
       if (t != null) t.hit++;
       return ncfile;
     }
-    miss.incrementAndGet();
-    if (t != null) t.miss++;
 
+    // only one thread opens a file; others wait for it, then try the cache again
+    CountDownLatch latch = null;
+    if (!disabled.get()) {
+      CountDownLatch myLatch = new CountDownLatch(1);
+      CountDownLatch other = opening.putIfAbsent(hashKey, myLatch);
+      if (other == null) {
+        latch = myLatch;
+
+      } else {
+        waits.incrementAndGet();
+        try {
+          other.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("FileCache " + name + " interrupted waiting for " + hashKey);
+        }
+        ncfile = acquireCacheOnly(hashKey); // shared, or already released by the other thread
+        if (ncfile != null) {
+          hits.incrementAndGet();
+          if (t != null) t.hit++;
+          return ncfile;
+        }
+      }
+    }
+
+    try {
+      if (latch != null) { // another thread may have just finished opening it
+        ncfile = acquireCacheOnly(hashKey);
+        if (ncfile != null) {
+          hits.incrementAndGet();
+          if (t != null) t.hit++;
+          return ncfile;
+        }
+      }
+
+      miss.incrementAndGet();
+      if (t != null) t.miss++;
+      return openAndCache(factory, hashKey, location, buffer_size, cancelTask, spiObject);
+
+    } finally {
+      if (latch != null) {
+        opening.remove(hashKey, latch);
+        latch.countDown();
+      }
+    }
+  }
+
+  private FileCacheable openAndCache(FileFactory factory, Object hashKey, DatasetUrl location,
+                                     int buffer_size, CancelTask cancelTask, Object spiObject) throws IOException {
     // open the file
-    ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+    FileCacheable ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
     if (cacheLog.isDebugEnabled())
       cacheLog.debug("FileCache " + name + " acquire " + hashKey + " " + ncfile.getLocation());
     if (debugPrint) System.out.println("  FileCache " + name + " acquire " + hashKey + " " + ncfile.getLocation());
@@ -351,7 +407,7 @@ public class FileCache implements FileCacheIF {
     CacheElement.CacheFile want = null;
     synchronized (wantCacheElem) { // synch in order to traverse the list
       for (CacheElement.CacheFile file : wantCacheElem.list) {
-        if (file.isLocked.compareAndSet(false, true)) {
+        if (file.lock()) {
           want = file;
           break;
         }
@@ -359,6 +415,19 @@ public class FileCache implements FileCacheIF {
     }
     if (want == null) return null; // no unlocked file in cache
 
+    synchronized (want) { // other threads sharing the file wait until it has been checked
+      if (!want.isReady) checkCacheFile(hashKey, want);
+      if (debugPrint && want.ncfile != null) {
+        System.out.printf("  FileCache %s found in cache %s (countLocks %d)%n", name, hashKey, countLocked());
+      }
+      return want.ncfile;
+    }
+  }
+
+  // the first user of a file in the cache checks that it hasnt changed, and rehydrates it
+  private void checkCacheFile(Object hashKey, CacheElement.CacheFile want) {
+    want.isReady = true;
+
     // check if modified, remove if so
     if (want.ncfile != null) {
       long lastModified = want.ncfile.getLastModified();
@@ -381,12 +450,6 @@ public class FileCache implements FileCacheIF {
         remove(want);  // failed
       }
     }
-
-    if (debugPrint && want.ncfile != null) {
-      System.out.printf("  FileCache %s found in cache %s (countLocks %d)%n", name, hashKey, countLocked());
-    }
-
-    return want.ncfile;
   }
 
   // LOOK should you remove the entire CacheElement ?
@@ -459,8 +522,7 @@ public class FileCache implements FileCacheIF {
       }
       file.lastAccessed = System.currentTimeMillis();
       file.countAccessed++;
-      file.isLocked.set(false);
-      file.ncfile.release();
+      file.unlock();
 
       if (cacheLog.isDebugEnabled()) cacheLog.debug("FileCache " + name + " release " + ncfile.getLocation()+"; hash= "+ncfile.hashCode());
       if (debugPrint) System.out.printf("  FileCache %s release %s lock=%s count=%d%n", name, ncfile.getLocation(), file.isLocked.get(), countLocked());
@@ -603,7 +665,7 @@ public class FileCache implements FileCacheIF {
    * @param format add to this
    */
   public void showStats(Formatter format) {
-    format.format("  hits= %d miss= %d nfiles= %d elems= %d%n", hits.get(), miss.get(), files.size(), cache.values().size());
+    format.format("  hits= %d miss= %d waits= %d nfiles= %d elems= %d%n", hits.get(), miss.get(), waits.get(), files.size(), cache.values().size());
   }
 
   public void showTracking(Formatter format) {
@@ -789,6 +851,10 @@ public class FileCache implements FileCacheIF {
     class CacheFile implements Comparable<CacheFile> {
       FileCacheable ncfile; // actually final, but we null it out for gc
       final AtomicBoolean isLocked = new AtomicBoolean(true);
+      @GuardedBy("this")
+      int countUsers = 1; // more than one only for a FileCacheShareable
+      @GuardedBy("this")
+      boolean isReady = true; // false until the first user has checked it
       int countAccessed = 0;
       long lastModified = 0;
       long lastAccessed = 0;
@@ -808,6 +874,32 @@ public class FileCache implements FileCacheIF {
         return ncfile.getLocation();
       }
 
+      /**
+       * Lock the file for a caller. A FileCacheShareable that is already locked is shared with the new caller.
+       * @return true if the caller may use the file
+       */
+      synchronized boolean lock() {
+        if (countUsers > 0 && ncfile instanceof FileCacheShareable) {
+          countUsers++;
+          return true;
+        }
+        if (!isLocked.compareAndSet(false, true)) return false; // in use, or being removed
+        countUsers = 1;
+        isReady = false;
+        return true;
+      }
+
+      // the last user to unlock the file releases its resources
+      synchronized void unlock() throws IOException {
+        if (countUsers > 1) {
+          countUsers--;
+          return;
+        }
+        countUsers = 0;
+        if (ncfile != null) ncfile.release();
+        isLocked.set(false);
+      }
+
       void remove() {
         synchronized (CacheElement.this) {
           if (!list.remove(this))
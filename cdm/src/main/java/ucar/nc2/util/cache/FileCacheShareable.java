@@ -0,0 +1,13 @@
+/* Copyright Unidata */
+package ucar.nc2.util.cache;
+
+/**
+ * A FileCacheable that may be used by several threads at the same time, typically because it is read-only
+ * and does all of its reading with positional reads.
+ * FileCache hands the same open object to concurrent callers instead of opening a copy for each one.
+ * Each caller must still call close() when done; the object is released when the last one does.
+ *
+ * @since 5.0
+ */
+public interface FileCacheShareable extends FileCacheable {
+}
@@ -39,6 +39,7 @@ import com.beust.jcommander.ParameterException;
 import ucar.nc2.FileWriter2;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.iosp.hdf5.H5iospWriter;
 import ucar.nc2.util.CancelTaskImpl;
 
 import java.io.File;
@@ -46,6 +47,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Utility to implement nccopy
@@ -82,6 +85,14 @@ public class Nccopy {
             "Only used in NetCDF 4. This option is ignored unless a non-zero deflate level is specified.")
     public boolean shuffle = true;
 
+    @Parameter(names = {"-jw", "--javaWriter"}, description = "Write NetCDF 4 in pure Java when possible, " +
+            "instead of with the netCDF-C library.")
+    public boolean javaWriter = false;
+
+    @Parameter(names = {"-dt", "--deflateThreads"}, description = "Number of threads compressing chunks in parallel. " +
+            "Only used with --javaWriter.")
+    public int deflateThreads = 0;
+
     @Parameter(names = {"-h", "--help"}, description = "Display this help and exit", help = true)
     public boolean help = false;
 
@@ -89,7 +100,8 @@ public class Nccopy {
     private static class ParameterDescriptionComparator implements Comparator<ParameterDescription> {
       // Display parameters in this order in the usage information.
       private final List<String> orderedParamNames = Arrays.asList(
-              "--input", "--output", "--format", "--isLargeFile", "--strategy", "--deflateLevel", "--shuffle", "--help");
+              "--input", "--output", "--format", "--isLargeFile", "--strategy", "--deflateLevel", "--shuffle", "--javaWriter",
+              "--deflateThreads", "--help");
 
       @Override
       public int compare(ParameterDescription p0, ParameterDescription p1) {
@@ -139,6 +151,13 @@ public class Nccopy {
       Formatter errlog = new Formatter();
       System.out.printf("NetcdfDatataset read from %s write %s to %s ", datasetIn, cmdLine.format, datasetOut);
 
+      NetcdfFileWriter.setJavaNetcdf4Writer(cmdLine.javaWriter);
+      ExecutorService deflateExecutor = null;
+      if (cmdLine.javaWriter && cmdLine.deflateThreads > 0) {
+        deflateExecutor = Executors.newFixedThreadPool(cmdLine.deflateThreads);
+        H5iospWriter.setChunkDeflateExecutor(deflateExecutor, 2 * cmdLine.deflateThreads);
+      }
+
       try ( NetcdfFile ncfileIn = ucar.nc2.dataset.NetcdfDataset.openFile(datasetIn, cancel)){
 
         FileWriter2 writer = new ucar.nc2.FileWriter2(ncfileIn, datasetOut, cmdLine.format, cmdLine.getNc4Chunking());
@@ -155,6 +174,11 @@ public class Nccopy {
         if (err.length() > 0)
           System.out.printf(" errlog=%s%n", err);
         // e.printStackTrace();
+      } finally {
+        if (deflateExecutor != null) {
+          H5iospWriter.setChunkDeflateExecutor(null, 1);
+          deflateExecutor.shutdownNow();
+        }
       }
 
     } catch (ParameterException e) {
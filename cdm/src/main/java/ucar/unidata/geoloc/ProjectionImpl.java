@@ -106,6 +106,51 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
    */
   public static final double PI_OVER_4 = Math.PI / 4.0;
 
+  ///////////////////////////////////////////////////////////////////////
+  // array-at-a-time transforms
+
+  /**
+   * Number of points handled by one task when an array transform is split across threads.
+   */
+  private static final int CHUNK_SIZE = 64 * 1000;
+
+  private static volatile int parallelThreshold = 0;
+
+  /**
+   * Array transforms with at least this many points are split into chunks and run on the
+   * common ForkJoinPool. Only subclasses whose array transforms are known to be thread safe do this.
+   *
+   * @param npts minimum number of points; 0 (the default) disables parallel transforms.
+   * @since 5.0
+   */
+  static public void setParallelThreshold(int npts) {
+    parallelThreshold = npts;
+  }
+
+  /**
+   * Process the indices [0, n) in contiguous ranges, in parallel if n >= parallelThreshold.
+   * The kernel must not touch shared mutable state.
+   */
+  protected static void forEachChunk(int n, IndexRange kernel) {
+    int threshold = parallelThreshold;
+    if (threshold <= 0 || n < threshold || n <= CHUNK_SIZE) {
+      kernel.apply(0, n);
+      return;
+    }
+    int nchunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    java.util.stream.IntStream.range(0, nchunks).parallel().forEach(chunk -> {
+      int start = chunk * CHUNK_SIZE;
+      kernel.apply(start, Math.min(n, start + CHUNK_SIZE));
+    });
+  }
+
+  /**
+   * A transform over the index range [start, end) of a from/to array pair.
+   */
+  protected interface IndexRange {
+    void apply(int start, int end);
+  }
+
   ///////////////////////////////////////////////////////////////////////
 
   /**
@@ -422,10 +467,14 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
               + "from array not same length as to array");
     }
 
+    ProjectionPointImpl ppi = new ProjectionPointImpl();
+    LatLonPointImpl llpi = new LatLonPointImpl();
+
     for (int i = 0; i < from[0].length; i++) {
-      LatLonPoint endL = projToLatLon(from[0][i], from[1][i]);
-      to[0][i] = endL.getLatitude();
-      to[1][i] = endL.getLongitude();
+      ppi.setLocation(from[0][i], from[1][i]);
+      projToLatLon(ppi, llpi);
+      to[0][i] = llpi.getLatitude();
+      to[1][i] = llpi.getLongitude();
     }
 
     return to;
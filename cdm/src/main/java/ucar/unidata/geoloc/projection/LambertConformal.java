@@ -595,28 +595,25 @@ public class LambertConformal extends ProjectionImpl {
    */
   public float[][] latLonToProj(float[][] from, float[][] to, int latIndex,
                                 int lonIndex) {
-    int cnt = from[0].length;
-    float[] fromLatA = from[latIndex];
-    float[] fromLonA = from[lonIndex];
-    float[] resultXA = to[INDEX_X];
-    float[] resultYA = to[INDEX_Y];
-    double toX, toY;
-
-    for (int i = 0; i < cnt; i++) {
-      double fromLat = fromLatA[i];
-      double fromLon = fromLonA[i];
-
-      fromLat = Math.toRadians(fromLat);
-      double dlon = LatLonPointImpl.lonNormal(fromLon - lon0Degrees);
-      double theta = n * Math.toRadians(dlon);
-      double tn = Math.pow(Math.tan(PI_OVER_4 + fromLat / 2), n);
-      double r = earthRadiusTimesF / tn;
-      toX = r * Math.sin(theta);
-      toY = rho - r * Math.cos(theta);
-
-      resultXA[i] = (float) (toX + falseEasting);
-      resultYA[i] = (float) (toY + falseNorthing);
-    }
+    final float[] fromLatA = from[latIndex];
+    final float[] fromLonA = from[lonIndex];
+    final float[] resultXA = to[INDEX_X];
+    final float[] resultYA = to[INDEX_Y];
+    final double n = this.n, rho = this.rho, radiusF = earthRadiusTimesF, lon0Degrees = this.lon0Degrees;
+    final double falseEasting = this.falseEasting, falseNorthing = this.falseNorthing;
+
+    forEachChunk(fromLatA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double fromLat = Math.toRadians(fromLatA[i]);
+        double dlon = LatLonPointImpl.lonNormal(fromLonA[i] - lon0Degrees);
+        double theta = n * Math.toRadians(dlon);
+        double tn = Math.pow(Math.tan(PI_OVER_4 + fromLat / 2), n);
+        double r = radiusF / tn;
+
+        resultXA[i] = (float) (r * Math.sin(theta) + falseEasting);
+        resultYA[i] = (float) (rho - r * Math.cos(theta) + falseNorthing);
+      }
+    });
     return to;
   }
 
@@ -632,44 +629,34 @@ public class LambertConformal extends ProjectionImpl {
    * @return the "to" array
    */
   public float[][] projToLatLon(float[][] from, float[][] to) {
-    int cnt = from[0].length;
-    float[] fromXA = from[INDEX_X];
-    float[] fromYA = from[INDEX_Y];
-    float[] toLatA = to[INDEX_LAT];
-    float[] toLonA = to[INDEX_LON];
-    double toLat, toLon;
-    for (int i = 0; i < cnt; i++) {
-      double fromX = fromXA[i] - falseEasting;
-      double fromY = fromYA[i] - falseNorthing;
-      double rhop = rho;
-
-      if (n < 0) {
-        rhop *= -1.0;
-        fromX *= -1.0;
-        fromY *= -1.0;
+    final float[] fromXA = from[INDEX_X];
+    final float[] fromYA = from[INDEX_Y];
+    final float[] toLatA = to[INDEX_LAT];
+    final float[] toLonA = to[INDEX_LON];
+    final double n = this.n, lon0 = this.lon0, invN = 1 / n, radiusF = earth_radius * F;
+    final double sign = (n < 0) ? -1.0 : 1.0;
+    final double rhop = sign * rho;
+    final double poleLat = (n < 0.0) ? -90.0 : 90.0;
+    final double falseEasting = this.falseEasting, falseNorthing = this.falseNorthing;
+
+    forEachChunk(fromXA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double fromX = sign * (fromXA[i] - falseEasting);
+        double fromY = sign * (fromYA[i] - falseNorthing);
+
+        double yd = (rhop - fromY);
+        double theta = Math.atan2(fromX, yd);
+        double r = sign * Math.sqrt(fromX * fromX + yd * yd);
+
+        toLonA[i] = (float) Math.toDegrees(theta * invN + lon0);
+        if (Math.abs(r) < TOLERANCE) {
+          toLatA[i] = (float) poleLat;
+        } else {
+          double rn = Math.pow(radiusF / r, invN);
+          toLatA[i] = (float) Math.toDegrees(2.0 * Math.atan(rn) - PI_OVER_2);
+        }
       }
-
-      double yd = (rhop - fromY);
-      double theta = Math.atan2(fromX, yd);
-      double r = Math.sqrt(fromX * fromX + yd * yd);
-      if (n < 0.0) {
-        r *= -1.0;
-      }
-
-      toLon = (Math.toDegrees(theta / n + lon0));
-
-      if (Math.abs(r) < TOLERANCE) {
-        toLat = ((n < 0.0)
-                ? -90.0
-                : 90.0);
-      } else {
-        double rn = Math.pow(earth_radius * F / r, 1 / n);
-        toLat = Math.toDegrees(2.0 * Math.atan(rn) - Math.PI / 2);
-      }
-
-      toLatA[i] = (float) toLat;
-      toLonA[i] = (float) toLon;
-    }
+    });
     return to;
   }
 
@@ -688,28 +675,25 @@ public class LambertConformal extends ProjectionImpl {
    */
   public double[][] latLonToProj(double[][] from, double[][] to,
                                  int latIndex, int lonIndex) {
-    int cnt = from[0].length;
-    double[] fromLatA = from[latIndex];
-    double[] fromLonA = from[lonIndex];
-    double[] resultXA = to[INDEX_X];
-    double[] resultYA = to[INDEX_Y];
-    double toX, toY;
-
-    for (int i = 0; i < cnt; i++) {
-      double fromLat = fromLatA[i];
-      double fromLon = fromLonA[i];
-
-      fromLat = Math.toRadians(fromLat);
-      double dlon = LatLonPointImpl.lonNormal(fromLon - lon0Degrees);
-      double theta = n * Math.toRadians(dlon);
-      double tn = Math.pow(Math.tan(PI_OVER_4 + fromLat / 2), n);
-      double r = earthRadiusTimesF / tn;
-      toX = r * Math.sin(theta);
-      toY = rho - r * Math.cos(theta);
-
-      resultXA[i] = toX + falseEasting;
-      resultYA[i] = toY + falseNorthing;
-    }
+    final double[] fromLatA = from[latIndex];
+    final double[] fromLonA = from[lonIndex];
+    final double[] resultXA = to[INDEX_X];
+    final double[] resultYA = to[INDEX_Y];
+    final double n = this.n, rho = this.rho, radiusF = earthRadiusTimesF, lon0Degrees = this.lon0Degrees;
+    final double falseEasting = this.falseEasting, falseNorthing = this.falseNorthing;
+
+    forEachChunk(fromLatA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double fromLat = Math.toRadians(fromLatA[i]);
+        double dlon = LatLonPointImpl.lonNormal(fromLonA[i] - lon0Degrees);
+        double theta = n * Math.toRadians(dlon);
+        double tn = Math.pow(Math.tan(PI_OVER_4 + fromLat / 2), n);
+        double r = radiusF / tn;
+
+        resultXA[i] = (r * Math.sin(theta) + falseEasting);
+        resultYA[i] = (rho - r * Math.cos(theta) + falseNorthing);
+      }
+    });
     return to;
   }
 
@@ -725,44 +709,34 @@ public class LambertConformal extends ProjectionImpl {
    * @return the "to" array
    */
   public double[][] projToLatLon(double[][] from, double[][] to) {
-    int cnt = from[0].length;
-    double[] fromXA = from[INDEX_X];
-    double[] fromYA = from[INDEX_Y];
-    double[] toLatA = to[INDEX_LAT];
-    double[] toLonA = to[INDEX_LON];
-    double toLat, toLon;
-    for (int i = 0; i < cnt; i++) {
-      double fromX = fromXA[i] - falseEasting;
-      double fromY = fromYA[i] - falseNorthing;
-      double rhop = rho;
-
-      if (n < 0) {
-        rhop *= -1.0;
-        fromX *= -1.0;
-        fromY *= -1.0;
+    final double[] fromXA = from[INDEX_X];
+    final double[] fromYA = from[INDEX_Y];
+    final double[] toLatA = to[INDEX_LAT];
+    final double[] toLonA = to[INDEX_LON];
+    final double n = this.n, lon0 = this.lon0, invN = 1 / n, radiusF = earth_radius * F;
+    final double sign = (n < 0) ? -1.0 : 1.0;
+    final double rhop = sign * rho;
+    final double poleLat = (n < 0.0) ? -90.0 : 90.0;
+    final double falseEasting = this.falseEasting, falseNorthing = this.falseNorthing;
+
+    forEachChunk(fromXA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double fromX = sign * (fromXA[i] - falseEasting);
+        double fromY = sign * (fromYA[i] - falseNorthing);
+
+        double yd = (rhop - fromY);
+        double theta = Math.atan2(fromX, yd);
+        double r = sign * Math.sqrt(fromX * fromX + yd * yd);
+
+        toLonA[i] = Math.toDegrees(theta * invN + lon0);
+        if (Math.abs(r) < TOLERANCE) {
+          toLatA[i] = poleLat;
+        } else {
+          double rn = Math.pow(radiusF / r, invN);
+          toLatA[i] = Math.toDegrees(2.0 * Math.atan(rn) - PI_OVER_2);
+        }
       }
-
-      double yd = (rhop - fromY);
-      double theta = Math.atan2(fromX, yd);
-      double r = Math.sqrt(fromX * fromX + yd * yd);
-      if (n < 0.0) {
-        r *= -1.0;
-      }
-
-      toLon = (Math.toDegrees(theta / n + lon0));
-
-      if (Math.abs(r) < TOLERANCE) {
-        toLat = ((n < 0.0)
-                ? -90.0
-                : 90.0);
-      } else {
-        double rn = Math.pow(earth_radius * F / r, 1 / n);
-        toLat = Math.toDegrees(2.0 * Math.atan(rn) - Math.PI / 2);
-      }
-
-      toLatA[i] = toLat;
-      toLonA[i] = toLon;
-    }
+    });
     return to;
   }
 
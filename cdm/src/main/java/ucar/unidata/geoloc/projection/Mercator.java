@@ -352,5 +352,89 @@ public class Mercator extends ProjectionImpl {
     return result;
   }
 
-}
+  /////////////////////////////////////////////////////////////////////////
+  // array-at-a-time versions
+
+  @Override
+  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
+    final double[] latA = from[latIndex];
+    final double[] lonA = from[lonIndex];
+    final double[] xA = to[INDEX_X];
+    final double[] yA = to[INDEX_Y];
+    final double a = A, lon0 = this.lon0, fe = falseEasting, fn = falseNorthing;
+
+    forEachChunk(latA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double fromLat = latA[i];
+        if ((Math.abs(90.0 - Math.abs(fromLat))) < TOLERANCE) {
+          xA[i] = Double.POSITIVE_INFINITY;
+          yA[i] = Double.POSITIVE_INFINITY;
+        } else {
+          xA[i] = (a * Math.toRadians(LatLonPointImpl.range180(lonA[i] - lon0)) + fe);
+          yA[i] = (a * SpecialMathFunction.atanh(Math.sin(Math.toRadians(fromLat))) + fn);
+        }
+      }
+    });
+    return to;
+  }
+
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    final double[] xA = from[INDEX_X];
+    final double[] yA = from[INDEX_Y];
+    final double[] latA = to[INDEX_LAT];
+    final double[] lonA = to[INDEX_LON];
+    final double a = A, lon0 = this.lon0, fe = falseEasting, fn = falseNorthing;
+
+    forEachChunk(xA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double e = Math.exp(-(yA[i] - fn) / a);
+        lonA[i] = LatLonPointImpl.lonNormal(Math.toDegrees((xA[i] - fe) / a) + lon0);
+        latA[i] = (Math.toDegrees(PI_OVER_2 - 2 * Math.atan(e)));
+      }
+    });
+    return to;
+  }
 
+  @Override
+  public float[][] latLonToProj(float[][] from, float[][] to, int latIndex, int lonIndex) {
+    final float[] latA = from[latIndex];
+    final float[] lonA = from[lonIndex];
+    final float[] xA = to[INDEX_X];
+    final float[] yA = to[INDEX_Y];
+    final double a = A, lon0 = this.lon0, fe = falseEasting, fn = falseNorthing;
+
+    forEachChunk(latA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double fromLat = latA[i];
+        if ((Math.abs(90.0 - Math.abs(fromLat))) < TOLERANCE) {
+          xA[i] = Float.POSITIVE_INFINITY;
+          yA[i] = Float.POSITIVE_INFINITY;
+        } else {
+          xA[i] = (float) (a * Math.toRadians(LatLonPointImpl.range180(lonA[i] - lon0)) + fe);
+          yA[i] = (float) (a * SpecialMathFunction.atanh(Math.sin(Math.toRadians(fromLat))) + fn);
+        }
+      }
+    });
+    return to;
+  }
+
+  @Override
+  public float[][] projToLatLon(float[][] from, float[][] to) {
+    final float[] xA = from[INDEX_X];
+    final float[] yA = from[INDEX_Y];
+    final float[] latA = to[INDEX_LAT];
+    final float[] lonA = to[INDEX_LON];
+    final double a = A, lon0 = this.lon0, fe = falseEasting, fn = falseNorthing;
+
+    forEachChunk(xA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double e = Math.exp(-(yA[i] - fn) / a);
+        lonA[i] = (float) LatLonPointImpl.lonNormal(Math.toDegrees((xA[i] - fe) / a) + lon0);
+        latA[i] = (float) (Math.toDegrees(PI_OVER_2 - 2 * Math.atan(e)));
+      }
+    });
+    return to;
+  }
+
+}
@@ -68,6 +68,9 @@ public class RotatedPole extends ProjectionImpl {
   /*	Z-axis rotation matrix. */
   private final double[][] rotZ = new double[3][3];
 
+  // rotY * rotZ, row major; its transpose is the inverse rotation
+  private final double[] rot = new double[9];
+
   /**
    * Default Constructor, needed for beans.
    */
@@ -132,6 +135,10 @@ public class RotatedPole extends ProjectionImpl {
     rotZ[2][0] = 0.;
     rotZ[2][1] = 0.;
     rotZ[2][2] = 1.;
+
+    for (int i = 0; i < 3; i++)
+      for (int j = 0; j < 3; j++)
+        rot[3 * i + j] = rotY[i][0] * rotZ[0][j] + rotY[i][1] * rotZ[1][j] + rotY[i][2] * rotZ[2][j];
   }
 
   public ProjectionPointImpl getNorthPole() {
@@ -232,6 +239,123 @@ public class RotatedPole extends ProjectionImpl {
     return destPoint;
   }
 
+  /////////////////////////////////////////////////////////////////////////
+  // array-at-a-time versions, using the combined rotation matrix
+
+  @Override
+  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
+    final double[] latA = from[latIndex];
+    final double[] lonA = from[lonIndex];
+    final double[] xA = to[INDEX_X];
+    final double[] yA = to[INDEX_Y];
+    final double[] m = rot;
+
+    forEachChunk(latA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double lat = latA[i] * RAD_PER_DEG;
+        double lon = lonA[i] * RAD_PER_DEG;
+        double coslat = Math.cos(lat);
+        double x = coslat * Math.cos(lon);
+        double y = coslat * Math.sin(lon);
+        double z = Math.sin(lat);
+
+        double px = m[0] * x + m[1] * y + m[2] * z;
+        double py = m[3] * x + m[4] * y + m[5] * z;
+        double pz = m[6] * x + m[7] * y + m[8] * z;
+
+        xA[i] = LatLonPointImpl.range180(Math.atan2(py, px) * DEG_PER_RAD);
+        yA[i] = (Math.asin(pz) * DEG_PER_RAD);
+      }
+    });
+    return to;
+  }
+
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    final double[] xA = from[INDEX_X];
+    final double[] yA = from[INDEX_Y];
+    final double[] latA = to[INDEX_LAT];
+    final double[] lonA = to[INDEX_LON];
+    final double[] m = rot;
+
+    forEachChunk(xA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double lonR = xA[i] * RAD_PER_DEG;
+        double latR = yA[i] * RAD_PER_DEG;
+        double coslat = Math.cos(latR);
+        double x = coslat * Math.cos(lonR);
+        double y = coslat * Math.sin(lonR);
+        double z = Math.sin(latR);
+
+        // transpose of rot
+        double px = m[0] * x + m[3] * y + m[6] * z;
+        double py = m[1] * x + m[4] * y + m[7] * z;
+        double pz = m[2] * x + m[5] * y + m[8] * z;
+
+        lonA[i] = (Math.atan2(py, px) * DEG_PER_RAD);
+        latA[i] = (Math.asin(pz) * DEG_PER_RAD);
+      }
+    });
+    return to;
+  }
+
+  @Override
+  public float[][] latLonToProj(float[][] from, float[][] to, int latIndex, int lonIndex) {
+    final float[] latA = from[latIndex];
+    final float[] lonA = from[lonIndex];
+    final float[] xA = to[INDEX_X];
+    final float[] yA = to[INDEX_Y];
+    final double[] m = rot;
+
+    forEachChunk(latA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double lat = latA[i] * RAD_PER_DEG;
+        double lon = lonA[i] * RAD_PER_DEG;
+        double coslat = Math.cos(lat);
+        double x = coslat * Math.cos(lon);
+        double y = coslat * Math.sin(lon);
+        double z = Math.sin(lat);
+
+        double px = m[0] * x + m[1] * y + m[2] * z;
+        double py = m[3] * x + m[4] * y + m[5] * z;
+        double pz = m[6] * x + m[7] * y + m[8] * z;
+
+        xA[i] = (float) LatLonPointImpl.range180(Math.atan2(py, px) * DEG_PER_RAD);
+        yA[i] = (float) (Math.asin(pz) * DEG_PER_RAD);
+      }
+    });
+    return to;
+  }
+
+  @Override
+  public float[][] projToLatLon(float[][] from, float[][] to) {
+    final float[] xA = from[INDEX_X];
+    final float[] yA = from[INDEX_Y];
+    final float[] latA = to[INDEX_LAT];
+    final float[] lonA = to[INDEX_LON];
+    final double[] m = rot;
+
+    forEachChunk(xA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double lonR = xA[i] * RAD_PER_DEG;
+        double latR = yA[i] * RAD_PER_DEG;
+        double coslat = Math.cos(latR);
+        double x = coslat * Math.cos(lonR);
+        double y = coslat * Math.sin(lonR);
+        double z = Math.sin(latR);
+
+        // transpose of rot
+        double px = m[0] * x + m[3] * y + m[6] * z;
+        double py = m[1] * x + m[4] * y + m[7] * z;
+        double pz = m[2] * x + m[5] * y + m[8] * z;
+
+        lonA[i] = (float) (Math.atan2(py, px) * DEG_PER_RAD);
+        latA[i] = (float) (Math.asin(pz) * DEG_PER_RAD);
+      }
+    });
+    return to;
+  }
+
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
      return Math.abs(pt1.getX() - pt2.getX()) > 270.0;
   }
@@ -552,37 +552,41 @@ public class Stereographic extends ProjectionImpl {
    * @return the "to" array
    */
   public float[][] latLonToProj(float[][] from, float[][] to, int latIndex, int lonIndex) {
-    int cnt = from[0].length;
-    float[] fromLatA = from[latIndex];
-    float[] fromLonA = from[lonIndex];
-    float[] resultXA = to[INDEX_X];
-    float[] resultYA = to[INDEX_Y];
-    double toX, toY;
-
-    for (int i = 0; i < cnt; i++) {
-      double fromLat = fromLatA[i];
-      double fromLon = fromLonA[i];
-
-      double lat = Math.toRadians(fromLat);
-      double lon = Math.toRadians(fromLon);
-      // keep away from the singular point
-      if ((Math.abs(lat + latt) <= TOLERANCE)) {
-        lat = -latt * (1.0 - TOLERANCE);
+    final float[] fromLatA = from[latIndex];
+    final float[] fromLonA = from[lonIndex];
+    final float[] resultXA = to[INDEX_X];
+    final float[] resultYA = to[INDEX_Y];
+
+    final double falseEasting = this.falseEasting, falseNorthing = this.falseNorthing, scale = this.scale;
+    final double latt = this.latt, lont = this.lont, sinlatt = this.sinlatt, coslatt = this.coslatt;
+
+    forEachChunk(fromLatA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double toX, toY;
+        double fromLat = fromLatA[i];
+        double fromLon = fromLonA[i];
+
+        double lat = Math.toRadians(fromLat);
+        double lon = Math.toRadians(fromLon);
+        // keep away from the singular point
+        if ((Math.abs(lat + latt) <= TOLERANCE)) {
+          lat = -latt * (1.0 - TOLERANCE);
+        }
+
+        double sdlon = Math.sin(lon - lont);
+        double cdlon = Math.cos(lon - lont);
+        double sinlat = Math.sin(lat);
+        double coslat = Math.cos(lat);
+
+        double k = 2.0 * scale
+                / (1.0 + sinlatt * sinlat + coslatt * coslat * cdlon);
+        toX = k * coslat * sdlon;
+        toY = k * (coslatt * sinlat - sinlatt * coslat * cdlon);
+
+        resultXA[i] = (float) (toX + falseEasting);
+        resultYA[i] = (float) (toY + falseNorthing);
       }
-
-      double sdlon = Math.sin(lon - lont);
-      double cdlon = Math.cos(lon - lont);
-      double sinlat = Math.sin(lat);
-      double coslat = Math.cos(lat);
-
-      double k = 2.0 * scale
-              / (1.0 + sinlatt * sinlat + coslatt * coslat * cdlon);
-      toX = k * coslat * sdlon;
-      toY = k * (coslatt * sinlat - sinlatt * coslat * cdlon);
-
-      resultXA[i] = (float) (toX + falseEasting);
-      resultYA[i] = (float) (toY + falseNorthing);
-    }
+    });
     return to;
   }
 
@@ -598,50 +602,54 @@ public class Stereographic extends ProjectionImpl {
    * @return the "to" array
    */
   public float[][] projToLatLon(float[][] from, float[][] to) {
-    int cnt = from[0].length;
-    float[] fromXA = from[INDEX_X];
-    float[] fromYA = from[INDEX_Y];
-    float[] toLatA = to[INDEX_LAT];
-    float[] toLonA = to[INDEX_LON];
-    double phi, lam;
-    double toLat, toLon;
-    for (int i = 0; i < cnt; i++) {
-      double fromX = fromXA[i] - falseEasting;
-      double fromY = fromYA[i] - falseNorthing;
-
-      double rho = Math.sqrt(fromX * fromX + fromY * fromY);
-      double c = 2.0 * Math.atan2(rho, 2.0 * scale);
-      double sinc = Math.sin(c);
-      double cosc = Math.cos(c);
-
-      if (Math.abs(rho) < TOLERANCE) {
-        phi = latt;
-      } else {
-        phi = Math.asin(cosc * sinlatt
-                + fromY * sinc * coslatt / rho);
-      }
-
-      toLat = Math.toDegrees(phi);
-
-      if ((Math.abs(fromX) < TOLERANCE)
-              && (Math.abs(fromY) < TOLERANCE)) {
-        lam = lont;
-      } else if (Math.abs(coslatt) < TOLERANCE) {
-        lam = lont + Math.atan2(fromX, ((latt > 0)
-                ? -fromY
-                : fromY));
-      } else {
-        lam = lont
-                + Math.atan2(fromX * sinc,
-                rho * coslatt * cosc
-                        - fromY * sinc * sinlatt);
+    final float[] fromXA = from[INDEX_X];
+    final float[] fromYA = from[INDEX_Y];
+    final float[] toLatA = to[INDEX_LAT];
+    final float[] toLonA = to[INDEX_LON];
+    final double falseEasting = this.falseEasting, falseNorthing = this.falseNorthing, scale = this.scale;
+    final double latt = this.latt, lont = this.lont, sinlatt = this.sinlatt, coslatt = this.coslatt;
+
+    forEachChunk(fromXA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double phi, lam;
+        double toLat, toLon;
+        double fromX = fromXA[i] - falseEasting;
+        double fromY = fromYA[i] - falseNorthing;
+
+        double rho = Math.sqrt(fromX * fromX + fromY * fromY);
+        double c = 2.0 * Math.atan2(rho, 2.0 * scale);
+        double sinc = Math.sin(c);
+        double cosc = Math.cos(c);
+
+        if (Math.abs(rho) < TOLERANCE) {
+          phi = latt;
+        } else {
+          phi = Math.asin(cosc * sinlatt
+                  + fromY * sinc * coslatt / rho);
+        }
+
+        toLat = Math.toDegrees(phi);
+
+        if ((Math.abs(fromX) < TOLERANCE)
+                && (Math.abs(fromY) < TOLERANCE)) {
+          lam = lont;
+        } else if (Math.abs(coslatt) < TOLERANCE) {
+          lam = lont + Math.atan2(fromX, ((latt > 0)
+                  ? -fromY
+                  : fromY));
+        } else {
+          lam = lont
+                  + Math.atan2(fromX * sinc,
+                  rho * coslatt * cosc
+                          - fromY * sinc * sinlatt);
+        }
+
+        toLon = Math.toDegrees(lam);
+
+        toLatA[i] = (float) toLat;
+        toLonA[i] = (float) toLon;
       }
-
-      toLon = Math.toDegrees(lam);
-
-      toLatA[i] = (float) toLat;
-      toLonA[i] = (float) toLon;
-    }
+    });
     return to;
   }
 
@@ -659,37 +667,41 @@ public class Stereographic extends ProjectionImpl {
    * @return the "to" array
    */
   public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
-    int cnt = from[0].length;
-    double[] fromLatA = from[latIndex];
-    double[] fromLonA = from[lonIndex];
-    double[] resultXA = to[INDEX_X];
-    double[] resultYA = to[INDEX_Y];
-    double toX, toY;
-
-    for (int i = 0; i < cnt; i++) {
-      double fromLat = fromLatA[i];
-      double fromLon = fromLonA[i];
-
-      double lat = Math.toRadians(fromLat);
-      double lon = Math.toRadians(fromLon);
-      // keep away from the singular point
-      if ((Math.abs(lat + latt) <= TOLERANCE)) {
-        lat = -latt * (1.0 - TOLERANCE);
+    final double[] fromLatA = from[latIndex];
+    final double[] fromLonA = from[lonIndex];
+    final double[] resultXA = to[INDEX_X];
+    final double[] resultYA = to[INDEX_Y];
+
+    final double falseEasting = this.falseEasting, falseNorthing = this.falseNorthing, scale = this.scale;
+    final double latt = this.latt, lont = this.lont, sinlatt = this.sinlatt, coslatt = this.coslatt;
+
+    forEachChunk(fromLatA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double toX, toY;
+        double fromLat = fromLatA[i];
+        double fromLon = fromLonA[i];
+
+        double lat = Math.toRadians(fromLat);
+        double lon = Math.toRadians(fromLon);
+        // keep away from the singular point
+        if ((Math.abs(lat + latt) <= TOLERANCE)) {
+          lat = -latt * (1.0 - TOLERANCE);
+        }
+
+        double sdlon = Math.sin(lon - lont);
+        double cdlon = Math.cos(lon - lont);
+        double sinlat = Math.sin(lat);
+        double coslat = Math.cos(lat);
+
+        double k = 2.0 * scale
+                / (1.0 + sinlatt * sinlat + coslatt * coslat * cdlon);
+        toX = k * coslat * sdlon;
+        toY = k * (coslatt * sinlat - sinlatt * coslat * cdlon);
+
+        resultXA[i] = toX + falseEasting;
+        resultYA[i] = toY + falseNorthing;
       }
-
-      double sdlon = Math.sin(lon - lont);
-      double cdlon = Math.cos(lon - lont);
-      double sinlat = Math.sin(lat);
-      double coslat = Math.cos(lat);
-
-      double k = 2.0 * scale
-              / (1.0 + sinlatt * sinlat + coslatt * coslat * cdlon);
-      toX = k * coslat * sdlon;
-      toY = k * (coslatt * sinlat - sinlatt * coslat * cdlon);
-
-      resultXA[i] = toX + falseEasting;
-      resultYA[i] = toY + falseNorthing;
-    }
+    });
     return to;
   }
 
@@ -705,50 +717,54 @@ public class Stereographic extends ProjectionImpl {
    * @return the "to" array
    */
   public double[][] projToLatLon(double[][] from, double[][] to) {
-    int cnt = from[0].length;
-    double[] fromXA = from[INDEX_X];
-    double[] fromYA = from[INDEX_Y];
-    double[] toLatA = to[INDEX_LAT];
-    double[] toLonA = to[INDEX_LON];
-    double phi, lam;
-    double toLat, toLon;
-    for (int i = 0; i < cnt; i++) {
-      double fromX = fromXA[i] - falseEasting;
-      double fromY = fromYA[i] - falseNorthing;
-
-      double rho = Math.sqrt(fromX * fromX + fromY * fromY);
-      double c = 2.0 * Math.atan2(rho, 2.0 * scale);
-      double sinc = Math.sin(c);
-      double cosc = Math.cos(c);
-
-      if (Math.abs(rho) < TOLERANCE) {
-        phi = latt;
-      } else {
-        phi = Math.asin(cosc * sinlatt
-                + fromY * sinc * coslatt / rho);
-      }
-
-      toLat = Math.toDegrees(phi);
-
-      if ((Math.abs(fromX) < TOLERANCE)
-              && (Math.abs(fromY) < TOLERANCE)) {
-        lam = lont;
-      } else if (Math.abs(coslatt) < TOLERANCE) {
-        lam = lont + Math.atan2(fromX, ((latt > 0)
-                ? -fromY
-                : fromY));
-      } else {
-        lam = lont
-                + Math.atan2(fromX * sinc,
-                rho * coslatt * cosc
-                        - fromY * sinc * sinlatt);
+    final double[] fromXA = from[INDEX_X];
+    final double[] fromYA = from[INDEX_Y];
+    final double[] toLatA = to[INDEX_LAT];
+    final double[] toLonA = to[INDEX_LON];
+    final double falseEasting = this.falseEasting, falseNorthing = this.falseNorthing, scale = this.scale;
+    final double latt = this.latt, lont = this.lont, sinlatt = this.sinlatt, coslatt = this.coslatt;
+
+    forEachChunk(fromXA.length, (start, end) -> {
+      for (int i = start; i < end; i++) {
+        double phi, lam;
+        double toLat, toLon;
+        double fromX = fromXA[i] - falseEasting;
+        double fromY = fromYA[i] - falseNorthing;
+
+        double rho = Math.sqrt(fromX * fromX + fromY * fromY);
+        double c = 2.0 * Math.atan2(rho, 2.0 * scale);
+        double sinc = Math.sin(c);
+        double cosc = Math.cos(c);
+
+        if (Math.abs(rho) < TOLERANCE) {
+          phi = latt;
+        } else {
+          phi = Math.asin(cosc * sinlatt
+                  + fromY * sinc * coslatt / rho);
+        }
+
+        toLat = Math.toDegrees(phi);
+
+        if ((Math.abs(fromX) < TOLERANCE)
+                && (Math.abs(fromY) < TOLERANCE)) {
+          lam = lont;
+        } else if (Math.abs(coslatt) < TOLERANCE) {
+          lam = lont + Math.atan2(fromX, ((latt > 0)
+                  ? -fromY
+                  : fromY));
+        } else {
+          lam = lont
+                  + Math.atan2(fromX * sinc,
+                  rho * coslatt * cosc
+                          - fromY * sinc * sinlatt);
+        }
+
+        toLon = Math.toDegrees(lam);
+
+        toLatA[i] = toLat;
+        toLonA[i] = toLon;
       }
-
-      toLon = Math.toDegrees(lam);
-
-      toLatA[i] = toLat;
-      toLonA[i] = toLon;
-    }
+    });
     return to;
   }
 
@@ -0,0 +1,175 @@
+/* Copyright Unidata */
+package ucar.unidata.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A read-only RandomAccessFile that reads with FileChannel positional reads, which do not move a shared file pointer.
+ * <p/>
+ * Like any RandomAccessFile, a PositionalRandomAccessFile has a file position and a read buffer, and so may only be
+ * used by one thread at a time. But it can make any number of views, which share its open file handle and have their own
+ * position and buffer. So one open file can serve many concurrent readers without locking:
+ * <pre>
+ * PositionalRandomAccessFile raf = new PositionalRandomAccessFile(location);
+ * ...
+ * // in each reading thread
+ * try (RandomAccessFile view = raf.view()) {
+ *   view.seek(pos);
+ *   view.readFully(data);
+ * }
+ * ...
+ * raf.close(); // after the views are done
+ * </pre>
+ * readAt() reads directly at a position, without using a buffer, and may be called from any thread.
+ * <p/>
+ * A thread that is interrupted during a read closes the FileChannel; the file is then reopened for the other readers.
+ *
+ * @since 5.0
+ */
+public class PositionalRandomAccessFile extends RandomAccessFile {
+  private final PositionalRandomAccessFile root; // owns the file handle; this, unless this is a view
+  private volatile FileChannel channel;          // only used in root
+  private boolean extend;
+
+  /**
+   * Open a file for reading, with the default buffer size.
+   *
+   * @param location location of the file
+   * @throws IOException on open error
+   */
+  public PositionalRandomAccessFile(String location) throws IOException {
+    this(location, defaultBufferSize);
+  }
+
+  /**
+   * Open a file for reading.
+   *
+   * @param location   location of the file
+   * @param bufferSize size of the read buffer, for this file and its views
+   * @throws IOException on open error
+   */
+  public PositionalRandomAccessFile(String location, int bufferSize) throws IOException {
+    super(location, "r", bufferSize);
+    this.root = this;
+    this.channel = file.getChannel();
+  }
+
+  private PositionalRandomAccessFile(PositionalRandomAccessFile root, int bufferSize) {
+    super(bufferSize);
+    this.root = root;
+    this.location = root.location;
+    this.bigEndian = root.bigEndian;
+    this.extend = root.extend;
+  }
+
+  /**
+   * Make a view of this file, with its own file position and read buffer, that shares the open file handle.
+   * A view is cheap to make, and should be used by only one thread at a time. Closing it does not close the file.
+   *
+   * @return a new view, positioned at the start of the file, with the same byte order as this
+   */
+  public PositionalRandomAccessFile view() {
+    return new PositionalRandomAccessFile(root, buffer.length);
+  }
+
+  /**
+   * Read up to len bytes starting at pos in the file, bypassing the buffer and the file position.
+   * Safe to call from any number of threads.
+   *
+   * @param pos start here in the file
+   * @param b   put data into this array
+   * @param off starting at this index
+   * @param len number of bytes to read
+   * @return number of bytes read, less than len only at the end of the file, or -1 if pos is past the end of the file
+   * @throws IOException on read error
+   */
+  public int readAt(long pos, byte[] b, int off, int len) throws IOException {
+    ByteBuffer dst = ByteBuffer.wrap(b, off, len);
+    while (dst.hasRemaining()) {
+      int n = root.readChannel(dst, pos + dst.position() - off);
+      if (n < 0) break;
+    }
+    int total = dst.position() - off;
+    return (total == 0 && len > 0) ? -1 : total;
+  }
+
+  private int readChannel(ByteBuffer dst, long pos) throws IOException {
+    FileChannel fc = channel;
+    if (fc == null)
+      throw new IOException("File is closed: " + location);
+    try {
+      return fc.read(dst, pos);
+    } catch (ClosedByInterruptException e) {
+      reopen(fc); // dont let one interrupted reader close the file for everyone
+      throw e;
+    }
+  }
+
+  private synchronized void reopen(FileChannel failed) throws IOException {
+    if (channel != failed || file == null) return; // already reopened, or closed
+    file = new java.io.RandomAccessFile(location, "r");
+    channel = file.getChannel();
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    int n = readAt(pos, b, offset, len);
+    if (extend && (n < len)) // see setExtendMode()
+      n = len;
+    return n;
+  }
+
+  @Override
+  public void setExtendMode() {
+    super.setExtendMode();
+    this.extend = true;
+  }
+
+  @Override
+  public long length() throws IOException {
+    FileChannel fc = root.channel;
+    return (fc == null) ? dataEnd : Math.max(fc.size(), dataEnd);
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    FileChannel fc = root.channel;
+    if (fc == null)
+      throw new IOException("File is closed: " + location);
+    long need = nbytes;
+    while (need > 0) {
+      long count = fc.transferTo(offset, need, dest);
+      if (count <= 0) break;
+      need -= count;
+      offset += count;
+    }
+    return nbytes - need;
+  }
+
+  @Override
+  public MappedByteBuffer map(long offset, long nbytes) throws IOException {
+    FileChannel fc = root.channel;
+    if (fc == null) return null;
+    return fc.map(FileChannel.MapMode.READ_ONLY, offset, nbytes);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (bufferModified)
+      throw new IOException("PositionalRandomAccessFile is read-only: " + location);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (root != this) return; // a view does not own the file handle
+
+    super.close();
+    if (file == null) // really closed, not just released to the cache
+      channel = null;
+  }
+}
@@ -747,6 +747,23 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     return nbytes - need;
   }
 
+  /**
+   * Map a region of the file into memory, read-only, bypassing all user buffers.
+   * The mapping stays valid after this file is closed.
+   * It is only released when the buffer is garbage collected; until then, on Windows the file cannot be rewritten or deleted.
+   *
+   * @param offset the offset in the file where the region starts.
+   * @param nbytes the size of the region.
+   * @return read-only MappedByteBuffer, or null if not backed by a local file (eg remote or in-memory).
+   * @throws IOException if an I/O error occurs.
+   */
+  public java.nio.MappedByteBuffer map(long offset, long nbytes) throws IOException {
+    if (file == null) return null;
+    if (fileChannel == null)
+      fileChannel = file.getChannel();
+    return fileChannel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, offset, nbytes);
+  }
+
 
   /**
    * Read directly from file, without going through the buffer.
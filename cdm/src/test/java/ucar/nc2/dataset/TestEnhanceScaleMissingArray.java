@@ -0,0 +1,99 @@
+/* Copyright Unidata */
+package ucar.nc2.dataset;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.*;
+import ucar.nc2.Attribute;
+import ucar.nc2.constants.CDM;
+
+import java.util.Random;
+
+/**
+ * Converting an Array with EnhanceScaleMissingImpl must give the same values as converting one value at a time.
+ */
+public class TestEnhanceScaleMissingArray {
+
+  @After
+  public void reset() {
+    NetcdfDataset.setParallelConvertThreshold(0);
+  }
+
+  @Test
+  public void testPackedTypes() {
+    for (DataType dt : new DataType[]{DataType.BYTE, DataType.SHORT, DataType.INT, DataType.LONG}) {
+      for (boolean unsigned : new boolean[]{false, true}) {
+        if (dt == DataType.LONG && unsigned) continue;
+        check(dt, unsigned, 1000, false);
+        check(dt, unsigned, 300 * 1000, false); // short uses a table
+      }
+    }
+    check(DataType.FLOAT, false, 1000, false);
+    check(DataType.DOUBLE, false, 1000, false);
+  }
+
+  @Test
+  public void testPackedTypesParallel() {
+    NetcdfDataset.setParallelConvertThreshold(1000);
+    for (DataType dt : new DataType[]{DataType.BYTE, DataType.SHORT, DataType.INT})
+      check(dt, true, 300 * 1000, false);
+  }
+
+  @Test
+  public void testView() {
+    check(DataType.SHORT, false, 1000, true);
+    check(DataType.INT, true, 1000, true);
+  }
+
+  @Test
+  public void testMissingOnly() {
+    NetcdfDataset ncd = new NetcdfDataset();
+    VariableDS var = new VariableDS(ncd, null, null, "data", DataType.FLOAT, "", null, null);
+    var.addAttribute(new Attribute(CDM.MISSING_VALUE, -999.0f));
+    var.addAttribute(new Attribute("valid_max", 100.0f));
+    EnhanceScaleMissingImpl impl = new EnhanceScaleMissingImpl(var, true, true, true, true);
+
+    Array data = Array.factory(DataType.FLOAT, new int[]{5}, new float[]{1.0f, -999.0f, 100.0f, 101.0f, -1.0e6f});
+    Array result = impl.convertScaleOffsetMissing(data);
+    float[] expect = {1.0f, Float.NaN, 100.0f, Float.NaN, -1.0e6f};
+    Assert.assertArrayEquals(expect, (float[]) result.getStorage(), 0.0f);
+  }
+
+  private void check(DataType dt, boolean unsigned, int n, boolean flip) {
+    NetcdfDataset ncd = new NetcdfDataset();
+    VariableDS var = new VariableDS(ncd, null, null, "packed", dt, "", null, null);
+    var.addAttribute(new Attribute(CDM.SCALE_FACTOR, 0.01));
+    var.addAttribute(new Attribute(CDM.ADD_OFFSET, 273.15f));
+    if (unsigned) var.addAttribute(new Attribute(CDM.UNSIGNED, "true"));
+    var.addAttribute(new Attribute(CDM.FILL_VALUE, (dt == DataType.BYTE) ? (Number) (byte) -127 : (Number) (short) -32767));
+    var.addAttribute(new Attribute(CDM.MISSING_VALUE, 7));
+    var.addAttribute(new Attribute("valid_min", (short) -20000));
+    EnhanceScaleMissingImpl impl = new EnhanceScaleMissingImpl(var, true, true, true, true);
+
+    Random r = new Random(n);
+    Array packed = Array.factory(dt, new int[]{n});
+    for (int i = 0; i < n; i++)
+      packed.setLong(i, (i % 10 == 0) ? 7 : r.nextLong());
+    if (flip) packed = packed.flip(0);
+
+    Array converted = impl.convertScaleOffsetMissing(packed);
+    Assert.assertEquals(impl.getConvertedDataType(), converted.getDataType());
+    IndexIterator iterIn = packed.getIndexIterator();
+    IndexIterator iterOut = converted.getIndexIterator();
+    while (iterIn.hasNext()) {
+      double expect;
+      switch (dt) {
+        case BYTE: expect = impl.convertScaleOffsetMissing(iterIn.getByteNext()); break;
+        case SHORT: expect = impl.convertScaleOffsetMissing(iterIn.getShortNext()); break;
+        case INT: expect = impl.convertScaleOffsetMissing(iterIn.getIntNext()); break;
+        case LONG: expect = impl.convertScaleOffsetMissing(iterIn.getLongNext()); break;
+        default: expect = impl.convertScaleOffsetMissing(iterIn.getDoubleNext());
+      }
+      if (converted.getDataType() == DataType.FLOAT)
+        Assert.assertEquals(dt + " " + iterIn, (float) expect, iterOut.getFloatNext(), 0.0f);
+      else
+        Assert.assertEquals(dt + " " + iterIn, expect, iterOut.getDoubleNext(), 0.0);
+    }
+  }
+}
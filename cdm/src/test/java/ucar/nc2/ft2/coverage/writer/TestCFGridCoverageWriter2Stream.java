@@ -0,0 +1,53 @@
+/* Copyright Unidata */
+package ucar.nc2.ft2.coverage.writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileSubclass;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.netcdf3.N3outputStreamWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A streamed netcdf-3 response fails at the first variable whose data does not match the header,
+ * before any of its bytes are sent.
+ */
+public class TestCFGridCoverageWriter2Stream {
+
+  @Test
+  public void testSizeMismatch() throws IOException {
+    NetcdfFile ncfile = new NetcdfFileSubclass();
+    ncfile.addDimension(null, new Dimension("x", 3));
+    ncfile.addVariable(null, new Variable(ncfile, null, null, "a", DataType.FLOAT, "x"));
+    ncfile.addVariable(null, new Variable(ncfile, null, null, "b", DataType.FLOAT, "x"));
+    ncfile.finish();
+
+    N3outputStreamWriter n3writer = new N3outputStreamWriter(ncfile);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream stream = new DataOutputStream(bytes);
+    n3writer.writeHeader(stream, 0);
+    stream.flush();
+    int headerSize = bytes.size();
+
+    CFGridCoverageWriter2.writeData(n3writer, stream, ncfile.findVariable("a"), Array.makeArray(DataType.FLOAT, 3, 0, 1));
+    stream.flush();
+    Assert.assertEquals(headerSize + 12, bytes.size());
+
+    // the last variable, which N3outputStreamWriter would not catch
+    try {
+      CFGridCoverageWriter2.writeData(n3writer, stream, ncfile.findVariable("b"), Array.makeArray(DataType.FLOAT, 2, 0, 1));
+      Assert.fail("wrote the wrong number of values");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("for b "));
+    }
+    stream.flush();
+    Assert.assertEquals(headerSize + 12, bytes.size());
+  }
+}
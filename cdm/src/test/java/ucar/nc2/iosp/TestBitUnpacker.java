@@ -0,0 +1,121 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compare BitUnpacker against BitReader, for all bit widths and starting bit offsets.
+ */
+public class TestBitUnpacker {
+  static private final int N = 1001; // odd, to test the last value of 12 bit data
+
+  private byte[] makeData() {
+    byte[] data = new byte[N * 8 + 16];
+    new Random(17).nextBytes(data);
+    return data;
+  }
+
+  @Test
+  public void testBits2UInt() throws IOException {
+    byte[] data = makeData();
+    for (int nb = 0; nb <= 32; nb++) {
+      BitReader want = new BitReader(data);
+      BitUnpacker have = new BitUnpacker(data);
+      for (int i = 0; i < N; i++) {
+        // BitReader sign extends 32 bit values
+        Assert.assertEquals("nb=" + nb + " i=" + i, want.bits2UInt(nb) & 0xffffffffL, have.bits2UInt(nb));
+      }
+    }
+  }
+
+  @Test
+  public void testUnpackInt() throws IOException {
+    byte[] data = makeData();
+    for (int skip = 0; skip < 8; skip++) {
+      for (int nb = 0; nb <= 32; nb++) {
+        BitReader want = new BitReader(data);
+        want.bits2UInt(skip);
+        BitUnpacker have = new BitUnpacker(data);
+        have.bits2UInt(skip);
+
+        int[] result = new int[N + 1];
+        have.unpack(nb, result, 1, N);
+        for (int i = 1; i <= N; i++)
+          Assert.assertEquals("skip=" + skip + " nb=" + nb + " i=" + i, (int) want.bits2UInt(nb), result[i]);
+
+        // positioned after the values
+        Assert.assertEquals(want.bits2UInt(7), have.bits2UInt(7));
+      }
+    }
+  }
+
+  @Test
+  public void testUnpackLong() throws IOException {
+    byte[] data = makeData();
+    for (int nb = 33; nb <= 64; nb++) {
+      BitUnpacker one = new BitUnpacker(data);
+      one.bits2UInt(3);
+      BitUnpacker bulk = new BitUnpacker(data);
+      bulk.bits2UInt(3);
+
+      long[] result = new long[N];
+      bulk.unpack(nb, result, 0, N);
+      for (int i = 0; i < N; i++) {
+        long expect = 0;  // the slow way
+        for (int k = 0; k < nb; k++) expect = (expect << 1) | one.bits2UInt(1);
+        Assert.assertEquals("nb=" + nb + " i=" + i, expect, result[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testUnpackFloat() throws IOException {
+    byte[] data = makeData();
+    float ref = -12.5f, scale = 0.01f;
+    for (int nb : new int[]{7, 8, 12, 16, 24, 32}) {
+      BitReader want = new BitReader(data);
+      BitUnpacker have = new BitUnpacker(data);
+      float[] result = new float[N];
+      have.unpack(nb, ref, scale, result, 0, N);
+      for (int i = 0; i < N; i++)
+        Assert.assertEquals(ref + scale * (want.bits2UInt(nb) & 0xffffffffL), result[i], 0.0);
+    }
+  }
+
+  @Test
+  public void testUnpackNoneAtEnd() throws IOException {
+    byte[] data = {(byte) 0xff, 0x12, 0x34};
+    for (int skip : new int[]{20, 24}) {
+      BitUnpacker have = new BitUnpacker(data);
+      have.bits2UInt(skip);
+      for (int nb = 0; nb <= 64; nb++) {
+        if (nb <= 32) have.unpack(nb, new int[0], 0, 0);
+        have.unpack(nb, new long[0], 0, 0);
+        have.unpack(nb, 1.0f, 1.0f, new float[0], 0, 0);
+      }
+      if (skip == 20) Assert.assertEquals(4, have.bits2UInt(4)); // still positioned at the last 4 bits
+      Assert.assertEquals(3, have.getPos());
+    }
+  }
+
+  @Test
+  public void testIncrByte() throws IOException {
+    byte[] data = {(byte) 0xff, 0x12, 0x34};
+    BitUnpacker have = new BitUnpacker(data);
+    Assert.assertEquals(7, have.bits2UInt(3));
+    have.incrByte();
+    Assert.assertEquals(0x12, have.bits2UInt(8));
+    have.incrByte(); // already at a byte boundary
+    Assert.assertEquals(0x34, have.bits2UInt(8));
+    try {
+      have.bits2UInt(1);
+      Assert.fail("read past the end");
+    } catch (java.io.EOFException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.util.CancelTask;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.util.Formatter;
+
+/**
+ * Check FileSignature matching, and that IospProbe only calls isValidFile() on files that match.
+ */
+public class TestIospProbe {
+  static private final byte[] magic = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+
+  static class CountingIosp extends AbstractIOServiceProvider {
+    final FileSignature sig;
+    int calls;
+
+    CountingIosp(FileSignature sig) {
+      this.sig = sig;
+    }
+
+    public boolean isValidFile(RandomAccessFile raf) throws IOException {
+      calls++;
+      return sig.match(readAll(raf), (int) raf.length(), raf.length()) == FileSignature.Match.yes;
+    }
+
+    public FileSignature getFileSignature() {
+      return sig;
+    }
+
+    public void open(RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) throws IOException {
+    }
+
+    public Array readData(Variable v2, Section section) {
+      return null;
+    }
+
+    public String getFileTypeId() {
+      return "counting";
+    }
+
+    public String getFileTypeDescription() {
+      return "counting";
+    }
+  }
+
+  static private byte[] readAll(RandomAccessFile raf) throws IOException {
+    byte[] b = new byte[(int) raf.length()];
+    raf.seek(0);
+    raf.readFully(b);
+    return b;
+  }
+
+  static private byte[] makeFile(int size, int magicPos) {
+    byte[] b = new byte[size];
+    if (magicPos >= 0)
+      System.arraycopy(magic, 0, b, magicPos, magic.length);
+    return b;
+  }
+
+  @Test
+  public void testMatch() {
+    FileSignature sig = FileSignature.searched(magic, 512, 50000);
+    byte[] b = makeFile(1024, 512);
+    Assert.assertEquals(FileSignature.Match.yes, sig.match(b, b.length, b.length));
+
+    b = makeFile(1024, -1);
+    Assert.assertEquals(FileSignature.Match.no, sig.match(b, b.length, b.length));
+
+    // only the first 8K was read, but the magic may be at 16K or 32K
+    b = makeFile(8192, -1);
+    Assert.assertEquals(FileSignature.Match.maybe, sig.match(b, b.length, 100 * 1000));
+
+    sig = FileSignature.of(0, "AR2V0006", "ARCHIVE2");
+    b = "ARCHIVE2 and more".getBytes();
+    Assert.assertEquals(FileSignature.Match.yes, sig.match(b, b.length, b.length));
+    Assert.assertEquals(FileSignature.Match.no, sig.match(b, 4, 4));
+  }
+
+  @Test
+  public void testProbe() throws IOException {
+    IospProbe.resetStats();
+    CountingIosp iosp = new CountingIosp(FileSignature.searched(magic, 512, 50000));
+
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("none", makeFile(4096, -1))) {
+      Assert.assertFalse(new IospProbe(raf).isValidFile(iosp));
+      Assert.assertEquals(0, iosp.calls); // rejected by the signature
+    }
+
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("at1024", makeFile(4096, 1024))) {
+      Assert.assertTrue(new IospProbe(raf).isValidFile(iosp));
+      Assert.assertEquals(1, iosp.calls);
+    }
+
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("at16K", makeFile(40000, 16384))) {
+      Assert.assertTrue(new IospProbe(raf).isValidFile(iosp));
+      Assert.assertEquals(2, iosp.calls); // past the part that was read, so isValidFile() decides
+    }
+
+    Formatter f = new Formatter();
+    IospProbe.showStats(f);
+    Assert.assertTrue(f.toString(), f.toString().contains(CountingIosp.class.getName()));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.IOException;
+
+/**
+ * Second read of a chunked variable finds its btree nodes in the node cache.
+ */
+public class TestDataBTreeCache {
+
+  @After
+  public void reset() {
+    DataBTree.setMaxCachedNodes(0);
+  }
+
+  @Test
+  public void testNodesCached() throws IOException {
+    DataBTree.setMaxCachedNodes(1000);
+    try (NetcdfFile ncfile = NetcdfFile.open(TestDir.cdmLocalTestDataDir + "chunked.h5")) {
+      int count = 0;
+      for (Variable v : ncfile.getVariables()) {
+        H5header.Vinfo vinfo = (H5header.Vinfo) v.getSPobject();
+        if (vinfo == null || vinfo.btree == null) continue;
+        v.setCaching(false); // read from the file each time
+
+        v.read();
+        int reads = vinfo.btree.getNodeReads();
+        int hits = vinfo.btree.getNodeHits();
+        Assert.assertTrue(v.getFullName(), reads > 0);
+
+        v.read();
+        Assert.assertEquals(v.getFullName(), reads, vinfo.btree.getNodeReads());
+        Assert.assertTrue(v.getFullName(), vinfo.btree.getNodeHits() > hits);
+        count++;
+      }
+      Assert.assertTrue("no chunked variables", count > 0);
+    }
+  }
+
+  @Test
+  public void testOffByDefault() throws IOException {
+    try (NetcdfFile ncfile = NetcdfFile.open(TestDir.cdmLocalTestDataDir + "chunked.h5")) {
+      for (Variable v : ncfile.getVariables()) {
+        H5header.Vinfo vinfo = (H5header.Vinfo) v.getSPobject();
+        if (vinfo == null || vinfo.btree == null) continue;
+        v.setCaching(false); // read from the file each time
+
+        v.read();
+        int reads = vinfo.btree.getNodeReads();
+        v.read();
+        Assert.assertEquals(v.getFullName(), 2 * reads, vinfo.btree.getNodeReads());
+        Assert.assertEquals(v.getFullName(), 0, vinfo.btree.getNodeHits());
+      }
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.nc2.write.Nc4ChunkingDefault;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reading through the chunk cache and with parallel inflation must give the same data as the plain path.
+ * The test file is deflated, none of the netCDF-4 files in the test data are.
+ */
+public class TestH5ChunkCache {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private String filename;
+  private ExecutorService exec;
+
+  @Before
+  public void makeFile() throws IOException, InvalidRangeException {
+    filename = tempFolder.newFile("testH5ChunkCache.nc4").getAbsolutePath();
+    Nc4ChunkingDefault chunker = new Nc4ChunkingDefault(5, true);
+    chunker.setDefaultChunkSize(200);
+    chunker.setMinChunksize(400);
+    chunker.setMinVariableSize(1000);
+
+    NetcdfFileWriter.setJavaNetcdf4Writer(true);
+    try {
+      NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf4, filename, chunker);
+      writer.addDimension(null, "time", 4);
+      writer.addDimension(null, "y", 100);
+      writer.addDimension(null, "x", 150);
+      Variable big = writer.addVariable(null, "big", DataType.SHORT, "y x");
+      Variable temp = writer.addVariable(null, "temp", DataType.FLOAT, "time y x");
+      writer.create();
+
+      Array bigData = Array.factory(DataType.SHORT, new int[]{100, 150});
+      for (int i = 0; i < bigData.getSize(); i++)
+        bigData.setShort(i, (short) (i % 3000));
+      writer.write(big, bigData);
+      Array tempData = Array.factory(DataType.FLOAT, new int[]{4, 100, 150});
+      for (int i = 0; i < tempData.getSize(); i++)
+        tempData.setFloat(i, (i % 777) * 0.5f);
+      writer.write(temp, tempData);
+      writer.close();
+    } finally {
+      NetcdfFileWriter.setJavaNetcdf4Writer(false);
+    }
+  }
+
+  @After
+  public void reset() {
+    H5iosp.setChunkCacheSize(0);
+    H5iosp.setChunkInflateExecutor(null, 1);
+    if (exec != null) exec.shutdownNow();
+  }
+
+  @Test
+  public void testCacheAndParallelInflate() throws IOException {
+    H5iosp.setChunkCacheSize(0);
+    Map<String, Array> want = readAll();
+
+    H5iosp.setChunkCacheSize(10 * 1000 * 1000);
+    exec = Executors.newFixedThreadPool(2);
+    H5iosp.setChunkInflateExecutor(exec, 4);
+
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      CompareNetcdf2 compare = new CompareNetcdf2();
+      for (int pass = 0; pass < 2; pass++) { // second pass reads from the chunk cache
+        for (Variable v : ncfile.getVariables()) {
+          if (!want.containsKey(v.getFullName())) continue;
+          Assert.assertTrue(v.getFullName(), compare.compareData(v.getFullName(), want.get(v.getFullName()), v.read()));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCountsEachLookupOnce() throws IOException {
+    H5iosp.setChunkCacheSize(10 * 1000 * 1000);
+    exec = Executors.newFixedThreadPool(2);
+    H5iosp.setChunkInflateExecutor(exec, 4);
+
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      H5ChunkCache cache = ((H5iosp) ncfile.getIosp()).getChunkCache();
+      readAll(ncfile);
+      int misses = cache.getMisses();
+      Assert.assertTrue(misses > 0);
+      Assert.assertEquals(0, cache.getHits());
+
+      readAll(ncfile); // every chunk is found in the cache, once
+      Assert.assertEquals(misses, cache.getMisses());
+      Assert.assertEquals(misses, cache.getHits());
+    }
+  }
+
+  private Map<String, Array> readAll() throws IOException {
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      return readAll(ncfile);
+    }
+  }
+
+  private Map<String, Array> readAll(NetcdfFile ncfile) throws IOException {
+    Map<String, Array> result = new HashMap<>();
+    for (Variable v : ncfile.getVariables()) {
+      if (v.getDataType().isNumeric())
+        result.put(v.getFullName(), v.read());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,214 @@
+/* Copyright Unidata */
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.*;
+import ucar.nc2.*;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.write.Nc4ChunkingDefault;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Write netCDF-4 files with H5iospWriter, and read them back with H5iosp.
+ */
+public class TestH5iospWriter {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void reset() {
+    NetcdfFileWriter.setJavaNetcdf4Writer(false);
+    H5iospWriter.setChunkDeflateExecutor(null, 1);
+  }
+
+  @Test
+  public void testChecksum() throws IOException {
+    // superblock of a file written by the netCDF-C library
+    try (RandomAccessFile raf = new RandomAccessFile(TestDir.cdmLocalTestDataDir + "testCFGridWriter.nc4", "r")) {
+      raf.order(RandomAccessFile.LITTLE_ENDIAN);
+      byte[] b = new byte[44];
+      raf.seek(0);
+      raf.readFully(b);
+      Assert.assertEquals(raf.readInt(), H5iospWriter.checksum(b, 0, b.length));
+    }
+  }
+
+  @Test
+  public void testShuffle() {
+    byte[] b = new byte[27];
+    for (int i = 0; i < b.length; i++) b[i] = (byte) i;
+    Assert.assertArrayEquals(b, H5iospWriter.unshuffle(H5iospWriter.shuffle(b, 4), 4));
+  }
+
+  @Test
+  public void testWrite() throws IOException, InvalidRangeException {
+    write();
+  }
+
+  @Test
+  public void testWriteParallel() throws IOException, InvalidRangeException {
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      H5iospWriter.setChunkDeflateExecutor(exec, 8);
+      write();
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testOnlyChunked() throws IOException, InvalidRangeException {
+    // no contiguous storage is allocated in create()
+    String filename = tempFolder.newFile("testOnlyChunked.nc4").getAbsolutePath();
+    Nc4ChunkingDefault chunker = new Nc4ChunkingDefault(5, true);
+    chunker.setMinVariableSize(1000);
+
+    NetcdfFileWriter.setJavaNetcdf4Writer(true);
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf4, filename, chunker);
+    writer.addDimension(null, "y", 100);
+    writer.addDimension(null, "x", 150);
+    Variable big = writer.addVariable(null, "big", DataType.SHORT, "y x");
+    writer.create();
+    Array bigData = Array.factory(DataType.SHORT, new int[]{100, 150});
+    for (int i = 0; i < bigData.getSize(); i++)
+      bigData.setShort(i, (short) (i % 3000));
+    writer.write(big, bigData);
+    writer.close();
+
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Assert.assertTrue(MAMath.equals(bigData, ncfile.findVariable("big").read()));
+    }
+  }
+
+  private void write() throws IOException, InvalidRangeException {
+    String filename = tempFolder.newFile("testH5iospWriter.nc4").getAbsolutePath();
+    Nc4ChunkingDefault chunker = new Nc4ChunkingDefault(5, true);
+    chunker.setDefaultChunkSize(200);
+    chunker.setMinChunksize(400);
+    chunker.setMinVariableSize(1000);
+
+    NetcdfFileWriter.setJavaNetcdf4Writer(true);
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf4, filename, chunker);
+    writer.addUnlimitedDimension("time");
+    writer.addDimension(null, "lat", 6);
+    writer.addDimension(null, "lon", 8);
+    writer.addDimension(null, "y", 100);
+    writer.addDimension(null, "x", 150);
+    writer.addDimension(null, "station", 3);
+    writer.addDimension(null, "strlen", 5);
+    writer.addGroupAttribute(null, new Attribute("title", "pure Java netCDF-4"));
+    writer.addGroupAttribute(null, new Attribute("empty", ""));
+
+    Variable lat = writer.addVariable(null, "lat", DataType.FLOAT, "lat");
+    lat.addAttribute(new Attribute(CDM.UNITS, "degrees_north"));
+    Variable time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+    Variable temp = writer.addVariable(null, "temp", DataType.FLOAT, "time lat lon");
+    temp.addAttribute(new Attribute(CDM.FILL_VALUE, -999.0f));
+    temp.addAttribute(new Attribute("valid_range", Array.factory(DataType.FLOAT, new int[]{2}, new float[]{-100f, 100f})));
+    Variable big = writer.addVariable(null, "big", DataType.SHORT, "y x");
+    Variable station = writer.addVariable(null, "station", DataType.CHAR, "station strlen");
+    Variable scalar = writer.addVariable(null, "scalar", DataType.INT, "");
+    Variable count = writer.addVariable(null, "count", DataType.LONG, "time");
+    writer.create();
+
+    Array latData = Array.makeArray(DataType.FLOAT, 6, 10, 5);
+    writer.write(lat, latData);
+    ArrayChar.D2 names = new ArrayChar.D2(3, 5);
+    names.setString(0, "abc");
+    names.setString(1, "de");
+    names.setString(2, "fghij");
+    writer.write(station, names);
+    writer.write(scalar, Array.factory(DataType.INT, new int[0], new int[]{42}));
+
+    // one record at a time, leave the last one of temp unwritten
+    int nrecs = 4;
+    Array tempData = Array.factory(DataType.FLOAT, new int[]{nrecs, 6, 8});
+    for (int i = 0; i < tempData.getSize(); i++)
+      tempData.setFloat(i, i < 3 * 48 ? i * 0.5f : -999.0f);
+    for (int rec = 0; rec < nrecs; rec++) {
+      writer.write(time, new int[]{rec}, Array.factory(DataType.DOUBLE, new int[]{1}, new double[]{rec * 6.0}));
+      writer.write(count, new int[]{rec}, Array.factory(DataType.LONG, new int[]{1}, new long[]{rec * 1000L * 1000 * 1000 * 1000}));
+      if (rec < 3)
+        writer.write(temp, new int[]{rec, 0, 0}, tempData.sectionNoReduce(new int[]{rec, 0, 0}, new int[]{1, 6, 8}, null));
+    }
+
+    // slabs that dont line up with the chunks, and one chunk written twice
+    Array bigData = Array.factory(DataType.SHORT, new int[]{100, 150});
+    for (int i = 0; i < bigData.getSize(); i++)
+      bigData.setShort(i, (short) (i % 3000));
+    for (int row = 0; row < 100; row += 7) {
+      int n = Math.min(7, 100 - row);
+      writer.write(big, new int[]{row, 0}, bigData.sectionNoReduce(new int[]{row, 0}, new int[]{n, 150}, null));
+    }
+    writer.write(big, new int[]{0, 0}, bigData.sectionNoReduce(new int[]{0, 0}, new int[]{1, 10}, null));
+    writer.close();
+
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Assert.assertEquals(nrecs, ncfile.findDimension("time").getLength());
+      Assert.assertTrue(ncfile.findDimension("time").isUnlimited());
+      Assert.assertEquals(5, ncfile.findDimension("strlen").getLength());
+      Assert.assertEquals("pure Java netCDF-4", ncfile.findGlobalAttribute("title").getStringValue());
+
+      Variable v = ncfile.findVariable("temp");
+      Assert.assertEquals("time lat lon", v.getDimensionsString());
+      Assert.assertEquals(-999.0f, v.findAttribute(CDM.FILL_VALUE).getNumericValue().floatValue(), 0.0f);
+      Assert.assertEquals(2, v.findAttribute("valid_range").getLength());
+      Assert.assertTrue(MAMath.equals(tempData, v.read()));
+
+      Assert.assertTrue(MAMath.equals(latData, ncfile.findVariable("lat").read()));
+      Assert.assertEquals("degrees_north", ncfile.findVariable("lat").findAttribute(CDM.UNITS).getStringValue());
+      Assert.assertTrue(MAMath.equals(bigData, ncfile.findVariable("big").read()));
+      Assert.assertEquals(18.0, ncfile.findVariable("time").read().getDouble(3), 0.0);
+      Assert.assertEquals(3000L * 1000 * 1000 * 1000, ncfile.findVariable("count").read().getLong(3));
+      Assert.assertEquals(42, ncfile.findVariable("scalar").readScalarInt());
+
+      Variable s = ncfile.findVariable("station");
+      Assert.assertEquals("station strlen", s.getDimensionsString());
+      Assert.assertEquals("fghij", ((ArrayChar) s.read()).getString(2));
+    }
+  }
+
+  @Test
+  public void testMultiValuedStringAttribute() throws IOException {
+    String filename = tempFolder.newFile("testStrings.nc4").getAbsolutePath();
+    NetcdfFile ncfile = new NetcdfFileSubclass();
+    ncfile.addDimension(null, new Dimension("x", 2));
+    Variable v = new Variable(ncfile, null, null, "v", DataType.INT, "x");
+    v.addAttribute(new Attribute("flag_meanings", Arrays.asList("low", "high")));
+    ncfile.addVariable(null, v);
+    ncfile.finish();
+
+    Formatter errlog = new Formatter();
+    Assert.assertFalse(H5iospWriter.isSupported(ncfile, errlog));
+    Assert.assertTrue(errlog.toString(), errlog.toString().contains("flag_meanings"));
+    try {
+      new H5iospWriter(NetcdfFileWriter.Version.netcdf4).create(filename, ncfile, 0, 0, false);
+      Assert.fail("wrote only some of the String values");
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("flag_meanings"));
+    }
+  }
+
+  @Test
+  public void testNotSupported() throws IOException {
+    try (NetcdfFile ncfile = NetcdfFile.open(TestDir.cdmLocalTestDataDir + "testWriteRecord.nc")) {
+      Formatter errlog = new Formatter();
+      Assert.assertTrue(errlog.toString(), H5iospWriter.isSupported(ncfile, errlog));
+
+      ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE);
+      Assert.assertFalse(H5iospWriter.isSupported(ncfile, errlog));
+      Assert.assertTrue(errlog.toString(), errlog.toString().contains("record"));
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/* Copyright Unidata */
+package ucar.nc2.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.ArrayDouble;
+
+import java.util.Random;
+
+/**
+ * Compare CurvilinearGridIndex with a brute force search, on a rotated and sheared grid with a hole of missing values.
+ */
+public class TestCurvilinearGridIndex {
+  private static final int NROWS = 60, NCOLS = 80;
+
+  private final ArrayDouble.D2 lat = new ArrayDouble.D2(NROWS + 1, NCOLS + 1);
+  private final ArrayDouble.D2 lon = new ArrayDouble.D2(NROWS + 1, NCOLS + 1);
+
+  public TestCurvilinearGridIndex() {
+    double angle = Math.toRadians(30);
+    for (int row = 0; row <= NROWS; row++) {
+      for (int col = 0; col <= NCOLS; col++) {
+        double y = row * 0.25, x = col * 0.25 + row * 0.05;
+        lat.set(row, col, 20.0 + y * Math.cos(angle) + x * Math.sin(angle));
+        lon.set(row, col, -80.0 + x * Math.cos(angle) - y * Math.sin(angle));
+      }
+    }
+    // land mask
+    for (int row = 20; row < 30; row++)
+      for (int col = 40; col < 55; col++) {
+        lat.set(row, col, Double.NaN);
+        lon.set(row, col, Double.NaN);
+      }
+  }
+
+  @Test
+  public void testFindCell() {
+    CurvilinearGridIndex index = new CurvilinearGridIndex(lat, lon);
+    Random r = new Random(1234);
+    int[] rectIndex = new int[2];
+    int nfound = 0;
+    for (int i = 0; i < 2000; i++) {
+      double wantLat = 10.0 + 30.0 * r.nextDouble();
+      double wantLon = -90.0 + 30.0 * r.nextDouble();
+      boolean found = index.findCell(wantLat, wantLon, rectIndex);
+      int[] expected = bruteForce(wantLat, wantLon);
+      Assert.assertEquals(wantLat + " " + wantLon, expected != null, found);
+      if (found) {
+        nfound++;
+        Assert.assertTrue(contains(rectIndex[0], rectIndex[1], wantLat, wantLon));
+      }
+    }
+    Assert.assertTrue(nfound > 100);
+  }
+
+  @Test
+  public void testFindBounds() {
+    CurvilinearGridIndex index = new CurvilinearGridIndex(lat, lon);
+    Random r = new Random(5678);
+    int[] result = new int[4];
+    for (int i = 0; i < 200; i++) {
+      double minLat = 10.0 + 30.0 * r.nextDouble();
+      double maxLat = minLat + 5.0 * r.nextDouble();
+      double minLon = -90.0 + 30.0 * r.nextDouble();
+      double maxLon = minLon + 5.0 * r.nextDouble();
+
+      int[] expected = {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1};
+      for (int row = 0; row <= NROWS; row++) {
+        for (int col = 0; col <= NCOLS; col++) {
+          double y = lat.get(row, col), x = lon.get(row, col);
+          if ((y >= minLat) && (y <= maxLat) && (x >= minLon) && (x <= maxLon)) {
+            expected[0] = Math.min(expected[0], row);
+            expected[1] = Math.max(expected[1], row);
+            expected[2] = Math.min(expected[2], col);
+            expected[3] = Math.max(expected[3], col);
+          }
+        }
+      }
+
+      boolean found = index.findBounds(minLat, maxLat, minLon, maxLon, result);
+      Assert.assertEquals(expected[1] >= 0, found);
+      if (found)
+        Assert.assertArrayEquals(expected, result);
+    }
+  }
+
+  private int[] bruteForce(double wantLat, double wantLon) {
+    for (int row = 0; row < NROWS; row++)
+      for (int col = 0; col < NCOLS; col++)
+        if (contains(row, col, wantLat, wantLon)) return new int[]{row, col};
+    return null;
+  }
+
+  private boolean contains(int row, int col, double wantLat, double wantLon) {
+    double[] x = {lon.get(row, col), lon.get(row, col + 1), lon.get(row + 1, col + 1), lon.get(row + 1, col)};
+    double[] y = {lat.get(row, col), lat.get(row, col + 1), lat.get(row + 1, col + 1), lat.get(row + 1, col)};
+    Boolean sign = null;
+    for (int k = 0; k < 4; k++) {
+      if (Double.isNaN(x[k]) || Double.isNaN(y[k])) return false;
+      int k1 = (k + 1) % 4;
+      boolean s = (x[k1] - x[k]) * (wantLat - y[k]) - (y[k1] - y[k]) * (wantLon - x[k]) > 0;
+      if (sign == null) sign = s;
+      else if (sign != s) return false;
+    }
+    return true;
+  }
+}
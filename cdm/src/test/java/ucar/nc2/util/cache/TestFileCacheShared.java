@@ -0,0 +1,148 @@
+/* Copyright Unidata */
+package ucar.nc2.util.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.CancelTask;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Check that concurrent acquires of a file not in the cache open it once,
+ * and that a FileCacheShareable is handed to all concurrent callers.
+ */
+public class TestFileCacheShared {
+  static private final int NTHREADS = 8;
+
+  static class MyFile implements FileCacheable {
+    final String location;
+    final AtomicInteger releases = new AtomicInteger();
+    final AtomicInteger reacquires = new AtomicInteger();
+    FileCacheIF cache;
+
+    MyFile(String location) {
+      this.location = location;
+    }
+
+    public String getLocation() {
+      return location;
+    }
+
+    public void close() throws IOException {
+      if (cache != null) cache.release(this);
+    }
+
+    public long getLastModified() {
+      return 0;
+    }
+
+    public void setFileCache(FileCacheIF fileCache) {
+      this.cache = fileCache;
+    }
+
+    public void release() throws IOException {
+      releases.incrementAndGet();
+    }
+
+    public void reacquire() throws IOException {
+      reacquires.incrementAndGet();
+    }
+  }
+
+  static class MySharedFile extends MyFile implements FileCacheShareable {
+    MySharedFile(String location) {
+      super(location);
+    }
+  }
+
+  static class SlowFactory implements FileFactory {
+    final boolean shared;
+    final AtomicInteger opens = new AtomicInteger();
+
+    SlowFactory(boolean shared) {
+      this.shared = shared;
+    }
+
+    public FileCacheable open(DatasetUrl location, int buffer_size, CancelTask cancelTask, Object iospMessage) throws IOException {
+      opens.incrementAndGet();
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      return shared ? new MySharedFile(location.trueurl) : new MyFile(location.trueurl);
+    }
+  }
+
+  // all threads acquire the file at once, and hold it until all have it
+  private List<FileCacheable> acquireAll(FileCache cache, FileFactory factory, String location) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(NTHREADS);
+    CyclicBarrier barrier = new CyclicBarrier(NTHREADS);
+    try {
+      List<Callable<FileCacheable>> tasks = new ArrayList<>();
+      for (int i = 0; i < NTHREADS; i++)
+        tasks.add(() -> {
+          barrier.await();
+          return cache.acquire(factory, new DatasetUrl(null, location));
+        });
+      List<FileCacheable> result = new ArrayList<>();
+      for (Future<FileCacheable> f : pool.invokeAll(tasks))
+        result.add(f.get());
+      return result;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testShared() throws Exception {
+    FileCache cache = new FileCache("testShared", 0, 100, -1, -1);
+    SlowFactory factory = new SlowFactory(true);
+
+    List<FileCacheable> files = acquireAll(cache, factory, "shared");
+    Assert.assertEquals(1, factory.opens.get());
+    for (FileCacheable f : files)
+      Assert.assertSame(files.get(0), f);
+
+    MyFile file = (MyFile) files.get(0);
+    for (FileCacheable f : files) {
+      Assert.assertEquals(0, file.releases.get()); // released only by the last user
+      f.close();
+    }
+    Assert.assertEquals(1, file.releases.get());
+
+    // reacquired from the cache
+    Assert.assertSame(file, cache.acquire(factory, new DatasetUrl(null, "shared")));
+    Assert.assertEquals(1, file.reacquires.get());
+    Assert.assertEquals(1, factory.opens.get());
+    file.close();
+    cache.clearCache(true);
+  }
+
+  @Test
+  public void testExclusive() throws Exception {
+    FileCache cache = new FileCache("testExclusive", 0, 100, -1, -1);
+    SlowFactory factory = new SlowFactory(false);
+
+    List<FileCacheable> files = acquireAll(cache, factory, "exclusive");
+    Assert.assertEquals(NTHREADS, factory.opens.get()); // each caller still gets its own copy
+    for (int i = 0; i < files.size(); i++)
+      for (int j = i + 1; j < files.size(); j++)
+        Assert.assertNotSame(files.get(i), files.get(j));
+    for (FileCacheable f : files)
+      f.close();
+
+    // all copies are now in the cache
+    Formatter f = new Formatter();
+    cache.showStats(f);
+    Assert.assertEquals(f.toString(), NTHREADS, cache.files.size());
+    Assert.assertEquals(f.toString(), NTHREADS - 1, cache.waits.get());
+    cache.clearCache(true);
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 1998-2009 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.unidata.geoloc.projection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.unidata.geoloc.*;
+
+/**
+ * Compare the array-at-a-time projection transforms with the single point ones.
+ */
+public class TestProjectionArrays {
+  private static final int NX = 300, NY = 300; // enough points to be split into chunks
+
+  private static final ProjectionImpl[] projections = {
+          new LambertConformal(25.0, 265.0, 25.0, 25.0),
+          new Stereographic(90.0, 255.0, 0.933),
+          new RotatedPole(37.0, -153.0),
+          new Mercator(-105.0, 20.0),
+  };
+
+  @Test
+  public void testSerial() {
+    for (ProjectionImpl proj : projections)
+      compare(proj);
+  }
+
+  @Test
+  public void testParallel() {
+    ProjectionImpl.setParallelThreshold(1);
+    try {
+      for (ProjectionImpl proj : projections)
+        compare(proj);
+    } finally {
+      ProjectionImpl.setParallelThreshold(0);
+    }
+  }
+
+  @Test
+  public void testDateline() {
+    // the longitudes computed from x go past 180
+    ProjectionImpl proj = new Mercator(170.0, 20.0);
+    compare(proj, 140.0);
+    ProjectionImpl.setParallelThreshold(1);
+    try {
+      compare(proj, 140.0);
+    } finally {
+      ProjectionImpl.setParallelThreshold(0);
+    }
+  }
+
+  @Test
+  public void testArrayLongitudesNotNormalized() {
+    // past the dateline east of lon0, as the array transforms always did
+    ProjectionImpl[] east = {new LambertConformal(25.0, 170.0, 25.0, 25.0), new Stereographic(90.0, 170.0, 0.933)};
+    for (ProjectionImpl proj : east) {
+      ProjectionPoint pt = proj.latLonToProj(new LatLonPointImpl(40.0, -170.0));
+      Assert.assertEquals(proj.getClassName(), -170.0, proj.projToLatLon(pt).getLongitude(), 1.0e-6);
+
+      double[][] latlon = proj.projToLatLon(new double[][]{{pt.getX()}, {pt.getY()}});
+      Assert.assertEquals(proj.getClassName(), 190.0, latlon[1][0], 1.0e-6);
+      float[][] latlonf = proj.projToLatLon(new float[][]{{(float) pt.getX()}, {(float) pt.getY()}});
+      Assert.assertEquals(proj.getClassName(), 190.0, latlonf[1][0], 1.0e-3);
+    }
+  }
+
+  private void compare(ProjectionImpl proj) {
+    compare(proj, -130.0);
+  }
+
+  // a grid of NX * NY points, spanning 70 degrees of longitude from lonStart
+  private void compare(ProjectionImpl proj, double lonStart) {
+    double[][] latlon = new double[2][NX * NY];
+    float[][] latlonf = new float[2][NX * NY];
+    for (int j = 0; j < NY; j++) {
+      for (int i = 0; i < NX; i++) {
+        int idx = j * NX + i;
+        latlon[0][idx] = latlonf[0][idx] = 20.0f + 40.0f * j / NY;
+        latlon[1][idx] = latlonf[1][idx] = (float) (lonStart + 70.0 * i / NX);
+      }
+    }
+
+    double[][] xy = proj.latLonToProj(latlon);
+    float[][] xyf = proj.latLonToProj(latlonf);
+    double[][] latlon2 = proj.projToLatLon(xy);
+    float[][] latlonf2 = proj.projToLatLon(xyf);
+
+    ProjectionPointImpl pt = new ProjectionPointImpl();
+    LatLonPointImpl llpt = new LatLonPointImpl();
+    for (int idx = 0; idx < NX * NY; idx++) {
+      llpt.set(latlon[0][idx], latlon[1][idx]);
+      proj.latLonToProj(llpt, pt);
+      check(proj, "x", pt.getX(), xy[0][idx], xyf[0][idx]);
+      check(proj, "y", pt.getY(), xy[1][idx], xyf[1][idx]);
+
+      proj.projToLatLon(pt, llpt);
+      check(proj, "lat", llpt.getLatitude(), latlon2[0][idx], latlonf2[0][idx]);
+      // the point transform normalizes the longitude, the array transforms of LambertConformal and Stereographic dont
+      double lon = llpt.getLongitude();
+      check(proj, "lon", lon, LatLonPointImpl.lonNormal(latlon2[1][idx], lon), (float) LatLonPointImpl.lonNormal(latlonf2[1][idx], lon));
+    }
+  }
+
+  private void check(ProjectionImpl proj, String what, double expected, double got, float gotf) {
+    double tol = 1.0e-9 * Math.max(1.0, Math.abs(expected));
+    Assert.assertEquals(proj.getClassName() + " " + what, expected, got, tol);
+    Assert.assertEquals(proj.getClassName() + " " + what + " (float)", expected, gotf, 1.0e-3 * Math.max(1.0, Math.abs(expected)));
+  }
+}
@@ -0,0 +1,107 @@
+/* Copyright Unidata */
+package ucar.unidata.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Check that views of one PositionalRandomAccessFile can be read concurrently.
+ */
+public class TestPositionalRandomAccessFile {
+  static private final int N = 100 * 1000; // ints in the file
+
+  private File makeFile() throws IOException {
+    File f = File.createTempFile("TestPositionalRandomAccessFile", ".dat");
+    f.deleteOnExit();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)))) {
+      for (int i = 0; i < N; i++) out.writeInt(i);
+    }
+    return f;
+  }
+
+  @Test
+  public void testConcurrentViews() throws Exception {
+    File f = makeFile();
+    try (PositionalRandomAccessFile raf = new PositionalRandomAccessFile(f.getPath(), 1000)) {
+      raf.order(RandomAccessFile.BIG_ENDIAN); // views have the same byte order
+      Assert.assertEquals(4L * N, raf.length());
+
+      ExecutorService pool = Executors.newFixedThreadPool(8);
+      try {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+          final int seed = t;
+          tasks.add(() -> {
+            Random r = new Random(seed);
+            int count = 0;
+            try (RandomAccessFile view = raf.view()) {
+              for (int i = 0; i < 2000; i++) {
+                int want = r.nextInt(N);
+                view.seek(4L * want);
+                Assert.assertEquals(want, view.readInt());
+                if (want + 1 < N) Assert.assertEquals(want + 1, view.readInt());
+                count++;
+              }
+            }
+            return count;
+          });
+        }
+        for (Future<Integer> result : pool.invokeAll(tasks))
+          Assert.assertEquals(2000, (int) result.get());
+      } finally {
+        pool.shutdown();
+      }
+
+      // the file is still open after the views are closed
+      raf.seek(4L * (N - 1));
+      Assert.assertEquals(N - 1, raf.readInt());
+    }
+  }
+
+  @Test
+  public void testReadAt() throws Exception {
+    File f = makeFile();
+    try (PositionalRandomAccessFile raf = new PositionalRandomAccessFile(f.getPath())) {
+      byte[] b = new byte[8];
+      Assert.assertEquals(8, raf.readAt(4L * 10, b, 0, 8));
+      Assert.assertEquals(10, b[3]);
+      Assert.assertEquals(11, b[7]);
+
+      Assert.assertEquals(4, raf.readAt(4L * N - 4, b, 0, 8)); // short read at end of file
+      Assert.assertEquals(-1, raf.readAt(4L * N, b, 0, 8));
+    }
+  }
+
+  @Test
+  public void testInterruptedReader() throws Exception {
+    File f = makeFile();
+    try (PositionalRandomAccessFile raf = new PositionalRandomAccessFile(f.getPath())) {
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      Thread.currentThread().interrupt();
+      try {
+        raf.readAt(0, new byte[4], 0, 4);
+        Assert.fail("should have been interrupted");
+      } catch (IOException e) {
+        // expected
+      } finally {
+        Thread.interrupted(); // clear it
+      }
+
+      // other readers can still use the file
+      try (RandomAccessFile view = raf.view()) {
+        view.seek(4L * 42);
+        Assert.assertEquals(42, view.readInt());
+      }
+    }
+  }
+}
@@ -1021,12 +1021,8 @@ public class CDMDSP extends AbstractDSP
             throw new DataException("Node has no cdm match: " + dap.getShortName());
         switch (dap.getSort()) {
         case ATOMICVARIABLE:
-            try {
-                Array array = cdmv.read();
-                dv = new CDMDataAtomic(this, (DapAtomicVariable) dap, array);
-            } catch (IOException ioe) {
-                throw new DataException(ioe);
-            }
+            // values are read when they are written out, one slab at a time
+            dv = new CDMDataAtomic(this, (DapAtomicVariable) dap, cdmv);
             break;
         case STRUCTURE:
             DapStructure ds = (DapStructure) dap;
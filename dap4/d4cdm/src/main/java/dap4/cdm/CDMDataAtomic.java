@@ -15,7 +15,13 @@ import dap4.dap4shared.AbstractDataVariable;
 import dap4.dap4shared.Dap4Util;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.nc2.Variable;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -35,6 +41,9 @@ public class CDMDataAtomic extends AbstractDataVariable
 
     protected Array data = null;
 
+    // If not null, values are read from this variable as they are asked for, and data is null
+    protected Variable cdmvar = null;
+
     //////////////////////////////////////////////////
     // Constructors
 
@@ -49,6 +58,17 @@ public class CDMDataAtomic extends AbstractDataVariable
         this.data = array;
     }
 
+    /**
+     * Read the values from the variable as they are asked for,
+     * rather than all of them up front.
+     */
+    public CDMDataAtomic(CDMDSP dsp, DapAtomicVariable template, Variable cdmvar)
+            throws DataException
+    {
+        this(dsp, template, (Array) null);
+        this.cdmvar = cdmvar;
+    }
+
     //////////////////////////////////////////////////
     // DataAtomic Interface
 
@@ -76,7 +96,6 @@ public class CDMDataAtomic extends AbstractDataVariable
         //read(long start, long count, Object data, long offset)
             throws DataException
     {
-        Array array = (Array) this.data;
         // If content.getDataType returns object, then we
         // really do not know its true datatype. So, as a rule,
         // we will rely on this.basetype.
@@ -86,17 +105,19 @@ public class CDMDataAtomic extends AbstractDataVariable
         Class elementclass = CDMUtil.cdmElementClass(datatype);
         if(elementclass == null)
             throw new DataException("Attempt to read non-atomic value of type: " + datatype);
-        Object content = array.get1DJavaArray(elementclass); // not very efficient
+        Array array;
         try {
-            Odometer odom = Odometer.factory(slices, ((DapVariable) this.getTemplate()).getDimensions(), false);
-            while(odom.hasNext()) {
-                long index = odom.next();
-                System.arraycopy(content, (int) index, data, (int) offset, 1);
-                offset++;
-            }
-        } catch (DapException de) {
-            throw new DataException(de);
+            List<Range> ranges = CDMUtil.createCDMRanges(slices);
+            if(this.cdmvar != null)
+                array = this.cdmvar.read(ranges); // only the constrained values
+            else
+                array = this.data.section(ranges);
+        } catch (IOException | InvalidRangeException e) {
+            throw new DataException(e);
         }
+        // copy the constrained values in canonical order all at once
+        Object content = array.get1DJavaArray(elementclass);
+        System.arraycopy(content, 0, data, (int) offset, (int) array.getSize());
 /*
     switch (datatype) {
         case BOOLEAN:
@@ -147,6 +168,19 @@ public class CDMDataAtomic extends AbstractDataVariable
         Object result;
         int i = (int) index;
         Array content = (Array) this.data;
+        if(content == null) { // read just this value
+            int[] shape = this.cdmvar.getShape();
+            Index ima = Index.factory(shape);
+            ima.setCurrentCounter(i);
+            int[] size = new int[shape.length];
+            Arrays.fill(size, 1);
+            try {
+                content = this.cdmvar.read(ima.getCurrentCounter(), size);
+            } catch (IOException | InvalidRangeException e) {
+                throw new DataException(e);
+            }
+            i = 0;
+        }
         DataType datatype = content.getDataType();
         long tmp = 0;
         switch (datatype) {
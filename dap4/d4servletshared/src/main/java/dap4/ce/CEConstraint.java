@@ -10,6 +10,7 @@ import dap4.core.util.*;
 import dap4.servlet.DapSerializer;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A Constraint is a structure
@@ -250,7 +251,8 @@ public class CEConstraint implements Constraint
     //////////////////////////////////////////////////
     // class variables and methods
 
-    static protected Map<DapDataset, CEConstraint> universals = new HashMap<>();
+    // accessed by concurrent requests, and by DapCache when it evicts a DSP
+    static protected Map<DapDataset, CEConstraint> universals = new ConcurrentHashMap<>();
 
 
     static public CEConstraint
@@ -270,7 +272,8 @@ public class CEConstraint implements Constraint
 
     static public void release(DapDataset dmr)
     {
-        universals.remove(dmr);
+        if(dmr != null)
+            universals.remove(dmr);
     }
 
     static protected Object
@@ -315,6 +315,12 @@ public class ChunkWriter extends OutputStream
         // go ahead and write the zero size chunk.
         if(chunk == null)
             chunk = ByteBuffer.allocate(maxbuffersize);
+        // The data is streamed out a chunk at a time,
+        // so the DMR must go out before the first data chunk.
+        if(dmr8 != null) {
+            sendDXR(dmr8);
+            dmr8 = null;
+        }
         int buffersize = chunk.position();
         chunkheader(buffersize, flags, header);
         // output the header followed by the data (if any)
@@ -377,7 +383,7 @@ public class ChunkWriter extends OutputStream
     {
         verifystate();
         if(writecount + len >= writelimit)
-            throw new DapException("Attempt to write too much data: limit=%d");
+            throw new DapException("Attempt to write too much data: limit=" + writelimit);
         if(chunk == null) chunk = ByteBuffer.allocate(maxbuffersize).order(getOrder());
         if(state == State.DMR) {
             chunk.clear(); // reset
@@ -396,7 +402,8 @@ public class ChunkWriter extends OutputStream
                     avail = chunk.remaining();
                 }
                 int towrite = (left < avail ? left : avail);
-                chunk.put(b, off, towrite);
+                chunk.put(b, offset, towrite);
+                offset += towrite;
                 left -= towrite;
                 avail -= towrite;
             } while(left > 0);
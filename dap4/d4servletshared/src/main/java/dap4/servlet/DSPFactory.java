@@ -8,8 +8,8 @@ import dap4.core.util.DapException;
 import dap4.dap4shared.DSP;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Provide a factory for DSP instances
@@ -23,8 +23,9 @@ abstract public class DSPFactory
 
     /**
      * Define a map of known DSP classes.
+     * Copy on write, so that create() can run concurrently.
      */
-    protected  List<Class> dspRegistry = new ArrayList<Class>();
+    protected  List<Class> dspRegistry = new CopyOnWriteArrayList<Class>();
 
     //////////////////////////////////////////////////
     // Constructor(s)
@@ -119,13 +120,12 @@ abstract public class DSPFactory
      * @return DSP object that can process this path
      * @throws DapException
      */
-    synchronized public DSP
+    public DSP
     create(String path)
         throws DapException
     {
-        for(int i = 0;i < dspRegistry.size();i++) {
+        for(Class testclass : dspRegistry) {
             try {
-                Class testclass = dspRegistry.get(i);
                 Method match = testclass.getMethod("match", String.class, DapContext.class);
                 boolean ismatch = (Boolean) match.invoke(null, path, (DapContext) null);
                 if(ismatch) {
@@ -3,22 +3,37 @@
 
 package dap4.servlet;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import dap4.ce.CEConstraint;
 import dap4.core.util.DapException;
 import dap4.dap4shared.DSP;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Formatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 /**
- * Provide an LRU cache of DSPs.
- * The cache key is assumed to be the DSP object.
- * The cache is synchronized to avoid race conditions.
- * Note that we do not have to release because Java
- * uses garbage collection and entries will be purged
- * if the LRU cache is full.
+ * Provide a cache of DSPs, keyed by path.
+ * The cache is concurrent: requests for different paths do not wait
+ * on each other, and concurrent requests for the same path share
+ * a single open of the DSP.
+ * Entries are evicted when the cache is full (least recently used first)
+ * or when they have not been used for a while; idle entries are removed
+ * by a background task.
+ * Each open() must be matched by a call to release() when the request is
+ * done with the DSP. An evicted DSP is closed when the last request using
+ * it releases it, or at once if none is.
  */
 
 abstract public class DapCache
@@ -29,13 +44,19 @@ abstract public class DapCache
 
     static final int MAXFILES = 100; // size of the cache
 
+    static final int IDLESECONDS = 600; // evict entries not used for this long
+
+    static final int CLEANUPSECONDS = 60; // how often to remove idle entries
+
     //////////////////////////////////////////////////
     // Instance variables
 
-    /**
-     * Define an lru cache of known DSP objects: oldest first.
-     */
-    static protected List<DSP> lru = new ArrayList<DSP>();
+    static protected Cache<String, Entry> cache = build(MAXFILES, IDLESECONDS);
+
+    // The entries of DSPs that are being used by a request, so that release() can find them
+    static protected final Map<DSP, Entry> inuse = new ConcurrentHashMap<>();
+
+    static protected ScheduledExecutorService cleanup = null;
 
     // This should be set by any subclass
     static protected DSPFactory factory = null;
@@ -50,44 +71,180 @@ abstract public class DapCache
         return factory;
     }
 
+    /**
+     * Change the size of the cache; existing entries are discarded.
+     *
+     * @param maxfiles    maximum number of DSPs to keep
+     * @param idleseconds evict DSPs not used for this many seconds
+     */
+    static public synchronized void setCacheSize(int maxfiles, int idleseconds)
+    {
+        Cache<String, Entry> old = cache;
+        cache = build(maxfiles, idleseconds);
+        old.invalidateAll();
+        old.cleanUp();
+    }
+
+    static protected Cache<String, Entry> build(int maxfiles, int idleseconds)
+    {
+        RemovalListener<String, Entry> onremove = new RemovalListener<String, Entry>()
+        {
+            public void onRemoval(RemovalNotification<String, Entry> notification)
+            {
+                Entry entry = notification.getValue();
+                if(entry != null)
+                    entry.evict();
+            }
+        };
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxfiles)
+                .expireAfterAccess(idleseconds, TimeUnit.SECONDS)
+                .removalListener(onremove)
+                .recordStats()
+                .build();
+    }
+
     //////////////////////////////////////////////////
 
-    static public synchronized DSP open(String path)
+    /**
+     * Get the DSP for a path, opening it if it is not in the cache.
+     * The caller must call release() when it is done with the DSP.
+     *
+     * @param path the path to open
+     * @return the DSP
+     */
+    static public DSP open(final String path)
             throws IOException
     {
-        int lrusize = lru.size();
-        for(int i = lrusize - 1; i >= 0; i--) {
-            DSP dsp = lru.get(i);
-            String dsppath = dsp.getPath();
-            if(dsppath.equals(path)) {
-                // move to the front of the queue to maintain LRU property
-                lru.remove(i);
-                lru.add(dsp);
-                return dsp;
+        startCleanup();
+        for(; ; ) {
+            Entry entry;
+            try {
+                entry = cache.get(path, () -> new Entry(factory.create(path)));
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                Throwable cause = e.getCause();
+                if(cause instanceof IOException)
+                    throw (IOException) cause;
+                if(cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                throw new IOException(cause);
             }
+            if(entry.acquire())
+                return entry.dsp;
+            // else it was evicted and closed since we got it, so try again
+        }
+    }
+
+    /**
+     * Note that a request is done with a DSP returned by open().
+     * If the DSP has been evicted and no other request is using it, it is closed.
+     *
+     * @param dsp the DSP returned by open(), may be null
+     */
+    static public void release(DSP dsp)
+    {
+        if(dsp == null)
+            return;
+        Entry entry = inuse.get(dsp);
+        if(entry != null)
+            entry.release();
+    }
+
+    /**
+     * A cached DSP, and the number of requests using it.
+     */
+    static protected class Entry
+    {
+        protected final DSP dsp;
+        protected int users = 0; // guarded by this
+        protected boolean evicted = false; // guarded by this
+
+        protected Entry(DSP dsp)
+        {
+            this.dsp = dsp;
         }
-        // No match found, create and initialize it.
-        // If cache is full, remove oldest entry
-        if(lrusize == MAXFILES) {
-            // make room
-            lru.remove(0);
-            CEConstraint.release(lru.get(0).getDMR());
+
+        // false if the DSP has been evicted and closed
+        protected synchronized boolean acquire()
+        {
+            if(evicted && users == 0)
+                return false;
+            if(users++ == 0)
+                inuse.put(dsp, this);
+            return true;
+        }
+
+        protected synchronized void release()
+        {
+            if(users == 0)
+                return;
+            if(--users > 0)
+                return;
+            inuse.remove(dsp);
+            if(evicted)
+                close();
+        }
+
+        protected synchronized void evict()
+        {
+            evicted = true;
+            if(users == 0)
+                close();
+        }
+
+        protected void close()
+        {
+            try {
+                CEConstraint.release(dsp.getDMR());
+            } catch (DapException de) {
+                // no DMR, so nothing to release
+            }
+            try {
+                dsp.close();
+            } catch (IOException ioe) {
+                // nothing more we can do
+            }
         }
-        // Find dsp that can process this path
-        DSP dsp = factory.create(path);
-        lru.add(dsp);
-        return dsp;
     }
 
-    static synchronized public void flush() // for testing
+    // Remove idle entries in the background, rather than waiting for the next access.
+    static protected synchronized void startCleanup()
+    {
+        if(cleanup != null)
+            return;
+        cleanup = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DapCache cleanup");
+            t.setDaemon(true);
+            return t;
+        });
+        cleanup.scheduleWithFixedDelay(() -> cache.cleanUp(),
+                CLEANUPSECONDS, CLEANUPSECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Show the number of hits and misses, and the average time to open a DSP.
+     *
+     * @param f write to this
+     */
+    static public void showStats(Formatter f)
+    {
+        CacheStats stats = cache.stats();
+        f.format("DapCache: size=%d hits=%d misses=%d opens=%d failed=%d avgOpen=%.3f msecs evictions=%d%n",
+                cache.size(), stats.hitCount(), stats.missCount(), stats.loadSuccessCount(),
+                stats.loadExceptionCount(), stats.averageLoadPenalty() / 1.0e6, stats.evictionCount());
+    }
+
+    static public CacheStats getStats()
+    {
+        return cache.stats();
+    }
+
+    static public synchronized void flush() // for testing
             throws Exception
     {
-        while(lru.size() > 0) {
-            DSP dsp = lru.get(0);
-            CEConstraint.release(dsp.getDMR());
-            dsp.close();
-            lru.remove(0);
-        }
+        // DSPs still in use are closed when they are released
+        cache.invalidateAll();
+        cache.cleanUp();
     }
 
 
@@ -284,34 +284,38 @@ abstract public class DapController extends HttpServlet
             throws IOException
     {
         DSP dsp = DapCache.open(drq.getResourcePath());
-        DapDataset dmr = dsp.getDMR();
-
-        // Process any constraint view
-        CEConstraint ce = null;
-        String sce = drq.queryLookup(DapProtocol.CONSTRAINTTAG);
-        ce = buildconstraint(drq, sce, dmr);
-
-        // Provide a PrintWriter for capturing the DMR.
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-
-        // Get the DMR as a string
-        DMRPrint dapprinter = new DMRPrint(pw);
-        dapprinter.printDMR(ce, dmr);
-        pw.close();
-        sw.close();
-
-        String sdmr = sw.toString();
-        if(DEBUG)
-            System.err.println("Sending: DMR:\n" + sdmr);
-
-        addCommonHeaders(drq);// Add relevant headers
-
-        // Wrap the outputstream with a Chunk writer
-        OutputStream out = drq.getOutputStream();
-        ChunkWriter cw = new ChunkWriter(out, RequestMode.DMR, this.byteorder);
-        cw.writeDMR(sdmr);
-        cw.close();
+        try {
+            DapDataset dmr = dsp.getDMR();
+
+            // Process any constraint view
+            CEConstraint ce = null;
+            String sce = drq.queryLookup(DapProtocol.CONSTRAINTTAG);
+            ce = buildconstraint(drq, sce, dmr);
+
+            // Provide a PrintWriter for capturing the DMR.
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+
+            // Get the DMR as a string
+            DMRPrint dapprinter = new DMRPrint(pw);
+            dapprinter.printDMR(ce, dmr);
+            pw.close();
+            sw.close();
+
+            String sdmr = sw.toString();
+            if(DEBUG)
+                System.err.println("Sending: DMR:\n" + sdmr);
+
+            addCommonHeaders(drq);// Add relevant headers
+
+            // Wrap the outputstream with a Chunk writer
+            OutputStream out = drq.getOutputStream();
+            ChunkWriter cw = new ChunkWriter(out, RequestMode.DMR, this.byteorder);
+            cw.writeDMR(sdmr);
+            cw.close();
+        } finally {
+            DapCache.release(dsp);
+        }
     }
 
     /**
@@ -331,40 +335,44 @@ abstract public class DapController extends HttpServlet
         DSP dsp = DapCache.open(drq.getResourcePath());
         if(dsp == null)
             throw new IOException("No such file: " + drq.getResourcePath());
-        DapDataset dmr = dsp.getDMR();
+        try {
+            DapDataset dmr = dsp.getDMR();
 
-        // Process any constraint
-        CEConstraint ce = null;
-        String sce = drq.queryLookup(DapProtocol.CONSTRAINTTAG);
-        ce = buildconstraint(drq, sce, dmr);
-
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-
-        // Get the DMR as a string
-        DMRPrint dapprinter = new DMRPrint(pw);
-        dapprinter.printDMR(ce, dmr);
-        pw.close();
-        sw.close();
-
-        String sdmr = sw.toString();
-        if(DEBUG)
-            System.err.println("Sending: Data DMR:\n" + sdmr);
-
-        // Wrap the outputstream with a Chunk writer
-        OutputStream out = drq.getOutputStream();
-        ChunkWriter cw = new ChunkWriter(out, RequestMode.DAP, this.byteorder);
-        cw.setWriteLimit(this.binarywritelimit);
-        cw.writeDMR(sdmr);
-        cw.flush();
-
-        addCommonHeaders(drq);
-
-        // Dump the databuffer part
-        DapSerializer writer = new DapSerializer(dsp, ce, cw, byteorder);
-        writer.write(dsp.getDMR());
-        cw.flush();
-        cw.close();
+            // Process any constraint
+            CEConstraint ce = null;
+            String sce = drq.queryLookup(DapProtocol.CONSTRAINTTAG);
+            ce = buildconstraint(drq, sce, dmr);
+
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+
+            // Get the DMR as a string
+            DMRPrint dapprinter = new DMRPrint(pw);
+            dapprinter.printDMR(ce, dmr);
+            pw.close();
+            sw.close();
+
+            String sdmr = sw.toString();
+            if(DEBUG)
+                System.err.println("Sending: Data DMR:\n" + sdmr);
+
+            // Wrap the outputstream with a Chunk writer
+            OutputStream out = drq.getOutputStream();
+            ChunkWriter cw = new ChunkWriter(out, RequestMode.DAP, this.byteorder);
+            cw.setWriteLimit(this.binarywritelimit);
+            cw.writeDMR(sdmr);
+            cw.flush();
+
+            addCommonHeaders(drq);
+
+            // Dump the databuffer part
+            DapSerializer writer = new DapSerializer(dsp, ce, cw, byteorder);
+            writer.write(dsp.getDMR());
+            cw.flush();
+            cw.close();
+        } finally {
+            DapCache.release(dsp);
+        }
     }
 
     //////////////////////////////////////////////////////////
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -25,6 +26,17 @@ import java.util.List;
 
 public class DapSerializer
 {
+    //////////////////////////////////////////////////
+    // Constants
+
+    // Dimensioned atomic variables are read from the DSP and written out
+    // in slabs of about this many bytes, so that the memory used per request
+    // does not depend on the size of the variable.
+    static final int SLABSIZE = 1 << 20;
+
+    // Slab size in elements for variable size types (String, URL, Opaque)
+    static final int SLABCOUNT = 1024;
+
     //////////////////////////////////////////////////
     // Instance variables
 
@@ -126,7 +138,6 @@ public class DapSerializer
             DataAtomic dav = (DataAtomic) dv;
             DapType basetype = dapvar.getBaseType();
             List<Slice> slices;
-            ByteBuffer buf;
             if(dapvar.getRank() == 0) { // scalar
                 dst.writeObject(basetype, dav.read(0));
             } else {// dimensioned
@@ -134,16 +145,61 @@ public class DapSerializer
                 slices = ce.getConstrainedSlices(dapvar);
                 if(slices == null)
                     throw new DataException("Unknown variable: " + dapvar.getFQN());
+                AtomicType atype = basetype.getPrimitiveType();
+                int elemsize = AtomicType.getSize(atype);
+                long maxcount = (elemsize == 0 ? SLABCOUNT : SLABSIZE / elemsize);
                 long count = DapUtil.sliceProduct(slices);
-                Object vector = Dap4Util.createVector(basetype.getPrimitiveType(), count);
-                dav.read(slices,vector,0);
-                dst.writeArray(basetype, vector);
+                Object vector = Dap4Util.createVector(atype, Math.min(count, maxcount));
+                writeSlabs(slices, 0, new ArrayList<Slice>(), maxcount, dav, basetype, vector, dst);
             }
         } catch (IOException ioe) {
             throw new DataException(ioe);
         }
     }
 
+    /**
+     * Read and write the constrained values of an atomic variable in slabs
+     * of at most maxcount values. The outer dimensions are walked one index
+     * at a time, until the remaining dimensions are small enough that
+     * a run of indices of the current dimension fits in a slab.
+     *
+     * @param slices   the constraint on each dimension
+     * @param dim      the current dimension
+     * @param prefix   single index slices for the dimensions before dim
+     * @param maxcount maximum number of values in a slab
+     * @param vector   slab buffer, of size at least maxcount
+     */
+    protected void
+    writeSlabs(List<Slice> slices, int dim, List<Slice> prefix, long maxcount,
+               DataAtomic dav, DapType basetype, Object vector, SerialWriter dst)
+            throws IOException
+    {
+        List<Slice> rest = slices.subList(dim + 1, slices.size());
+        long inner = DapUtil.sliceProduct(rest); // values per index of this dimension
+        Slice slice = slices.get(dim);
+        long n = slice.getCount();
+        if(inner <= maxcount) {
+            long perslab = maxcount / inner; // indices of this dimension per slab
+            for(long i = 0; i < n; i += perslab) {
+                long first = slice.getFirst() + i * slice.getStride();
+                long last = first + (Math.min(perslab, n - i) - 1) * slice.getStride();
+                List<Slice> slab = new ArrayList<>(prefix);
+                slab.add(new Slice(first, last, slice.getStride(), slice.getMaxSize()));
+                slab.addAll(rest);
+                long count = DapUtil.sliceProduct(slab);
+                dav.read(slab, vector, 0); // reads only this slab from the DSP
+                dst.writeArray(basetype, vector, (int) count);
+            }
+        } else {
+            for(long i = 0; i < n; i++) {
+                long index = slice.getFirst() + i * slice.getStride();
+                List<Slice> next = new ArrayList<>(prefix);
+                next.add(new Slice(index, index, 1, slice.getMaxSize()));
+                writeSlabs(slices, dim + 1, next, maxcount, dav, basetype, vector, dst);
+            }
+        }
+    }
+
     /* unneeded?
     static public Object
     buildAtomicArray(int product, DapType typ)
@@ -45,6 +45,9 @@ public class SerialWriter
 
     static final int COUNTSIZE = 8;
 
+    // Arrays are encoded this many bytes at a time
+    static final int ENCODEBUFFERSIZE = 64 * 1024;
+
     //////////////////////////////////////////////////
     // Instance variables
 
@@ -58,6 +61,7 @@ public class SerialWriter
     protected StringBuilder lastchecksum = new StringBuilder(); // checksum from last variable
 
     protected ByteBuffer longbuffer = null;
+    protected ByteBuffer encodebuffer = null; // reused by writeArray
 
     //////////////////////////////////////////////////
     // Constructor(s)
@@ -410,19 +414,81 @@ public class SerialWriter
     writeArray(DapType daptype, Object values)
             throws IOException
     {
-        ByteBuffer buf = encodeArray(daptype, values);
-        byte[] bytes = buf.array();
-        int len = buf.position();
-        if(checksumming)
-            checksum.update(bytes, 0, len);
-        output.write(bytes, 0, len);
-        if(DEBUG) {
-            System.err.printf("%s: ", daptype.getShortName());
-            for(int i = 0; i < len; i++) {
-                int x = (int) (order == ByteOrder.BIG_ENDIAN ? bytes[i] : bytes[(len - 1) - i]);
-                System.err.printf("%02x", (int) (x & 0xff));
+        writeArray(daptype, values, Array.getLength(values));
+    }
+
+    /**
+     * Write out the first count values of an array.
+     * Fixed size values are encoded a buffer at a time,
+     * and variable size values one at a time, so the memory
+     * used does not depend on the size of the array.
+     *
+     * @param daptype the type of the object
+     * @param values  the array of values
+     * @param count   the number of values to write
+     * @throws IOException
+     */
+    public void
+    writeArray(DapType daptype, Object values, int count)
+            throws IOException
+    {
+        AtomicType atomtype = daptype.getPrimitiveType();
+        int elemsize = AtomicType.getSize(atomtype);
+        if(elemsize == 0) { // String, URL, Opaque
+            for(int i = 0; i < count; i++)
+                writeObject(daptype, Array.get(values, i));
+            return;
+        }
+        if(encodebuffer == null)
+            encodebuffer = ByteBuffer.allocate(ENCODEBUFFERSIZE).order(order);
+        int perbuffer = ENCODEBUFFERSIZE / elemsize;
+        for(int start = 0; start < count; start += perbuffer) {
+            int n = Math.min(perbuffer, count - start);
+            encodebuffer.clear();
+            switch (atomtype) {
+            case Char:
+                char[] datac = (char[]) values;
+                for(int i = 0; i < n; i++)
+                    encodebuffer.put((byte) (0xFFL & (long) (datac[start + i])));
+                break;
+            case UInt8:
+            case Int8:
+                encodebuffer.put((byte[]) values, start, n);
+                break;
+            case Int16:
+            case UInt16:
+                encodebuffer.asShortBuffer().put((short[]) values, start, n);
+                break;
+            case Int32:
+            case UInt32:
+                encodebuffer.asIntBuffer().put((int[]) values, start, n);
+                break;
+            case Int64:
+            case UInt64:
+                encodebuffer.asLongBuffer().put((long[]) values, start, n);
+                break;
+            case Float32:
+                encodebuffer.asFloatBuffer().put((float[]) values, start, n);
+                break;
+            case Float64:
+                encodebuffer.asDoubleBuffer().put((double[]) values, start, n);
+                break;
+            default:
+                throw new DapException("Unknown type: " + daptype.getTypeName());
+            }
+            int len = n * elemsize;
+            byte[] bytes = encodebuffer.array();
+            if(checksumming)
+                checksum.update(bytes, 0, len);
+            output.write(bytes, 0, len);
+            if(DEBUG) {
+                System.err.printf("%s: ", daptype.getShortName());
+                for(int i = 0; i < len; i++) {
+                    int x = (int) (order == ByteOrder.BIG_ENDIAN ? bytes[i] : bytes[(len - 1) - i]);
+                    System.err.printf("%02x", (int) (x & 0xff));
+                }
+                System.err.println();
             }
-            System.err.println();
         }
     }
 
@@ -0,0 +1,69 @@
+package dap4.test;
+
+import dap4.core.dmr.DapType;
+import dap4.dap4shared.ChunkInputStream;
+import dap4.dap4shared.RequestMode;
+import dap4.servlet.ChunkWriter;
+import dap4.servlet.SerialWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * Check that an array much larger than the chunk size is streamed
+ * out as a sequence of chunks after the DMR, with the checksum
+ * computed over all of it.
+ */
+public class TestChunkWriter
+{
+    static protected final String DMR = "<Dataset name=\"test\"/>";
+
+    @Test
+    public void
+    testStreamedArray()
+            throws Exception
+    {
+        ByteOrder order = ByteOrder.LITTLE_ENDIAN;
+        int n = 100000;
+        float[] values = new float[n];
+        for(int i = 0; i < n; i++)
+            values[i] = (float) Math.sin(i);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ChunkWriter cw = new ChunkWriter(bos, RequestMode.DAP, order);
+        cw.setBufferSize(1000); // many chunks, not a multiple of the value size
+        cw.writeDMR(DMR);
+        SerialWriter writer = new SerialWriter(cw, order);
+        writer.startVariable();
+        writer.writeArray(DapType.FLOAT32, values, n - 1);
+        writer.endVariable();
+        cw.close();
+
+        ChunkInputStream cis = new ChunkInputStream(new ByteArrayInputStream(bos.toByteArray()), RequestMode.DAP, order);
+        Assert.assertEquals(DMR, cis.readDMR().trim());
+
+        byte[] data = new byte[4 * (n - 1)];
+        int red = 0;
+        while(red < data.length) {
+            int count = cis.read(data, red, data.length - red);
+            Assert.assertTrue(count > 0);
+            red += count;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(data).order(order);
+        for(int i = 0; i < n - 1; i++)
+            Assert.assertEquals(values[i], buf.getFloat(), 0.0f);
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        ByteBuffer expected = ByteBuffer.allocate(8).order(order);
+        expected.putLong(crc.getValue());
+        for(int i = 0; i < 4; i++)
+            Assert.assertEquals(expected.get(i), (byte) cis.read());
+        Assert.assertEquals(-1, cis.read());
+    }
+}
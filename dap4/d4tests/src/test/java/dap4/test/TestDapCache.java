@@ -0,0 +1,156 @@
+package dap4.test;
+
+import com.google.common.cache.CacheStats;
+import dap4.core.data.DataDataset;
+import dap4.core.util.DapContext;
+import dap4.core.util.DapException;
+import dap4.dap4shared.AbstractDSP;
+import dap4.dap4shared.DSP;
+import dap4.servlet.DSPFactory;
+import dap4.servlet.DapCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Check that concurrent opens of the same path share one DSP,
+ * that opens of different paths proceed in parallel,
+ * and that evicted DSPs are closed once they are no longer in use.
+ */
+public class TestDapCache
+{
+    static protected final AtomicInteger nopens = new AtomicInteger();
+    static protected final AtomicInteger inflight = new AtomicInteger();
+    static protected final AtomicInteger maxinflight = new AtomicInteger();
+
+    // if not null, each open waits here until the other path is being opened too
+    static protected volatile CyclicBarrier together = null;
+
+    static public class SlowDSP extends AbstractDSP
+    {
+        protected volatile boolean closed = false;
+
+        public DSP open(String path, DapContext context)
+                throws DapException
+        {
+            nopens.incrementAndGet();
+            int n = inflight.incrementAndGet();
+            maxinflight.accumulateAndGet(n, Math::max);
+            try {
+                if(together != null)
+                    together.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                throw new DapException(e);
+            } finally {
+                inflight.decrementAndGet();
+            }
+            setPath(path);
+            return this;
+        }
+
+        public DataDataset getDataDataset()
+        {
+            return null;
+        }
+
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    static public class SlowFactory extends DSPFactory
+    {
+        public DSP create(String path)
+                throws DapException
+        {
+            return new SlowDSP().open(path);
+        }
+    }
+
+    @Test
+    public void
+    testConcurrentOpen()
+            throws Exception
+    {
+        DSPFactory saveFactory = DapCache.getFactory();
+        DapCache.setFactory(new SlowFactory());
+        DapCache.flush();
+        nopens.set(0);
+        maxinflight.set(0);
+        together = new CyclicBarrier(2);
+        CacheStats before = DapCache.getStats();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<DSP>> tasks = new ArrayList<>();
+            for(int i = 0; i < 16; i++) {
+                final String path = "file" + (i % 2);
+                tasks.add(() -> {
+                    DSP dsp = DapCache.open(path);
+                    DapCache.release(dsp);
+                    return dsp;
+                });
+            }
+            List<Future<DSP>> results = pool.invokeAll(tasks);
+
+            Assert.assertEquals(2, nopens.get());
+            for(int i = 0; i < results.size(); i++) {
+                Assert.assertSame(results.get(i % 2).get(), results.get(i).get());
+                Assert.assertEquals("file" + (i % 2), results.get(i).get().getPath());
+            }
+            // the two paths were opened in parallel, not one after the other
+            Assert.assertEquals(2, maxinflight.get());
+            CacheStats stats = DapCache.getStats().minus(before);
+            Assert.assertEquals(16, stats.requestCount());
+            Assert.assertEquals(2, stats.loadSuccessCount());
+        } finally {
+            together = null;
+            pool.shutdown();
+            DapCache.flush();
+            DapCache.setFactory(saveFactory);
+        }
+    }
+
+    @Test
+    public void
+    testCloseEvicted()
+            throws Exception
+    {
+        DSPFactory saveFactory = DapCache.getFactory();
+        DapCache.setFactory(new SlowFactory());
+        DapCache.setCacheSize(1, 600);
+        try {
+            SlowDSP a = (SlowDSP) DapCache.open("a");
+            SlowDSP b = (SlowDSP) DapCache.open("b"); // evicts a, which is still in use
+            Assert.assertFalse(a.closed);
+            Assert.assertSame(b, DapCache.open("b"));
+            DapCache.release(a);
+            Assert.assertTrue(a.closed);
+
+            DapCache.release(b);
+            Assert.assertFalse(b.closed); // still cached
+            SlowDSP c = (SlowDSP) DapCache.open("c"); // evicts b, which was opened twice
+            Assert.assertFalse(b.closed);
+            DapCache.release(b);
+            Assert.assertTrue(b.closed);
+
+            // a new open of an evicted path gets a new DSP
+            SlowDSP a2 = (SlowDSP) DapCache.open("a"); // evicts c
+            Assert.assertNotSame(a, a2);
+            Assert.assertFalse(c.closed);
+            DapCache.release(c);
+            Assert.assertTrue(c.closed);
+            DapCache.release(a2);
+            Assert.assertFalse(a2.closed);
+            DapCache.flush();
+            Assert.assertTrue(a2.closed);
+        } finally {
+            DapCache.setCacheSize(100, 600);
+            DapCache.setFactory(saveFactory);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dap4.test;
+
+import dap4.cdm.CDMDataAtomic;
+import dap4.core.data.DataAtomic;
+import dap4.core.data.DataException;
+import dap4.core.dmr.DapAtomicVariable;
+import dap4.core.dmr.DapDimension;
+import dap4.core.dmr.DapType;
+import dap4.core.util.DapUtil;
+import dap4.core.util.Slice;
+import dap4.servlet.DapSerializer;
+import dap4.servlet.SerialWriter;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.NetcdfFileSubclass;
+import ucar.nc2.Variable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Check that a constrained atomic variable written out in slabs smaller
+ * than its inner dimensions, so that DapSerializer.writeSlabs recurses
+ * over the outer dimensions, gives the same values as the constraint,
+ * with each slab read separately from the CDM variable.
+ */
+public class TestDapSlabs
+{
+    static protected final int[] SHAPE = {4, 6, 10};
+
+    @Test
+    public void
+    testSlabs()
+            throws Exception
+    {
+        List<Slice> whole = Arrays.asList(new Slice(0, 3, 1, 4), new Slice(0, 5, 1, 6), new Slice(0, 9, 1, 10));
+        List<Slice> strided = Arrays.asList(new Slice(1, 3, 2, 4), new Slice(0, 5, 2, 6), new Slice(2, 8, 3, 10));
+        for(long maxcount : new long[]{1000, 60, 25, 10, 4, 1}) {
+            check(whole, maxcount);
+            check(strided, maxcount);
+        }
+    }
+
+    protected void
+    check(List<Slice> slices, long maxcount)
+            throws Exception
+    {
+        int n = SHAPE[0] * SHAPE[1] * SHAPE[2];
+        int[] values = new int[n];
+        for(int i = 0; i < n; i++)
+            values[i] = i;
+        Variable cdmvar = new Variable(new NetcdfFileSubclass(), null, null, "v");
+        cdmvar.setDataType(DataType.INT);
+        cdmvar.setDimensionsAnonymous(SHAPE);
+        cdmvar.setCachedData(Array.factory(DataType.INT, SHAPE, values), false);
+
+        DapAtomicVariable template = new DapAtomicVariable("v");
+        template.setBaseType(DapType.INT32);
+        for(int len : SHAPE)
+            template.addDimension(new DapDimension(len));
+        CountingDataAtomic dav = new CountingDataAtomic(template, cdmvar);
+
+        ByteOrder order = ByteOrder.LITTLE_ENDIAN;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        SerialWriter writer = new SerialWriter(bos, order);
+        writer.computeChecksums(false);
+        int count = (int) DapUtil.sliceProduct(slices);
+        new SlabSerializer().write(slices, maxcount, dav, writer, new int[(int) Math.min(count, maxcount)]);
+
+        ByteBuffer buf = ByteBuffer.wrap(bos.toByteArray()).order(order);
+        Assert.assertEquals(4 * count, buf.remaining());
+        for(long i = slices.get(0).getFirst(); i <= slices.get(0).getLast(); i += slices.get(0).getStride())
+            for(long j = slices.get(1).getFirst(); j <= slices.get(1).getLast(); j += slices.get(1).getStride())
+                for(long k = slices.get(2).getFirst(); k <= slices.get(2).getLast(); k += slices.get(2).getStride())
+                    Assert.assertEquals(values[(int) ((i * SHAPE[1] + j) * SHAPE[2] + k)], buf.getInt());
+
+        Assert.assertEquals(values[77], dav.read(77)); // single values are read one at a time
+        Assert.assertEquals(count, dav.total);
+        Assert.assertTrue(dav.largest <= maxcount);
+        if(maxcount < count)
+            Assert.assertTrue(dav.reads > 1);
+    }
+
+    // expose the slab writer
+    static protected class SlabSerializer extends DapSerializer
+    {
+        void write(List<Slice> slices, long maxcount, DataAtomic dav, SerialWriter dst, Object vector)
+                throws IOException
+        {
+            writeSlabs(slices, 0, new ArrayList<Slice>(), maxcount, dav, DapType.INT32, vector, dst);
+        }
+    }
+
+    // keep track of the reads
+    static protected class CountingDataAtomic extends CDMDataAtomic
+    {
+        int reads = 0;
+        long total = 0;
+        long largest = 0;
+
+        CountingDataAtomic(DapAtomicVariable template, Variable cdmvar)
+                throws DataException
+        {
+            super(null, template, cdmvar);
+        }
+
+        @Override
+        public void
+        read(List<Slice> slices, Object data, long offset)
+                throws DataException
+        {
+            long count = DapUtil.sliceProduct(slices);
+            reads++;
+            total += count;
+            largest = Math.max(largest, count);
+            super.read(slices, data, offset);
+        }
+    }
+}
@@ -88,6 +88,7 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
 
     // place each record into its group
     int totalRecords = 0;
+    Map<String, GribIndex> fileIndexes = Grib.debugGbxIndexOnly ? new HashMap<>() : makeFileIndexes();
     try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
       if (iter == null)
         return new ArrayList<>(); // empty
@@ -100,8 +101,7 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
             index = (Grib1Index) GribIndex.open(true, mfile);
             if (index == null) continue;
           } else {
-            // here is where gbx9 files get recreated
-            index = (Grib1Index) GribIndex.readOrCreateIndexFromSingleFile(true, mfile, CollectionUpdateType.test, logger);
+            index = (Grib1Index) readOrCreateFileIndex(fileIndexes, mfile);
           }
           allFiles.add(mfile);  // add on success
 
@@ -89,6 +89,7 @@ class Grib2CollectionBuilder extends GribCollectionBuilder {
 
     // place each record into its group
     int totalRecords = 0;
+    Map<String, GribIndex> fileIndexes = Grib.debugGbxIndexOnly ? new HashMap<>() : makeFileIndexes();
     try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
       if (iter == null)
         return new ArrayList<>(); // empty
@@ -101,8 +102,7 @@ class Grib2CollectionBuilder extends GribCollectionBuilder {
           if (Grib.debugGbxIndexOnly) {
              index = (Grib2Index) GribIndex.open(false, mfile);
            } else {
-             // this is where gbx9 files get recreated
-             index = (Grib2Index) GribIndex.readOrCreateIndexFromSingleFile(false, mfile, CollectionUpdateType.test, logger);
+             index = (Grib2Index) readOrCreateFileIndex(fileIndexes, mfile);
            }
           allFiles.add(mfile);  // add on success
 
@@ -61,11 +61,17 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Utilities for creating GRIB CDM index (ncx) files, both collections and partitions
@@ -100,6 +106,21 @@ public class GribCdmIndex implements IndexReader {
     gribCollectionCache = cache;
   }
 
+  /**
+   * Parse the GribCollection message of an ncx index from a memory mapped region of the file when possible (default false).
+   * This avoids copying the whole message into a byte array on each open, which for large partition indexes
+   * is hundreds of MB of garbage. The message is still decoded in one go, so the opened collection is the same size.
+   * <p>
+   * The mapping is not released when the index is closed, only when the buffer is garbage collected.
+   * On Windows a mapped file cannot be rewritten or deleted until then, so the TDM may fail to update an index
+   * that the server has opened this way. Only turn this on where indexes are not rewritten in place, or not on Windows.
+   *
+   * @param b use memory mapping
+   */
+  static public void setUseMemoryMap(boolean b) {
+    GribCollectionBuilderFromIndex.setUseMemoryMap(b);
+  }
+
   // open GribCollectionImmutable from an existing index file. return null on failure
   static public GribCollectionImmutable acquireGribCollection(FileFactory factory, Object hashKey, String location, int buffer_size, CancelTask cancelTask, Object spiObject) throws IOException {
     FileCacheable result;
@@ -302,6 +323,96 @@ public class GribCdmIndex implements IndexReader {
     return changed;
   }
 
+  ////////////////////////////////////////////////////////////////////////////////////////////////
+  // optional parallel index building.
+  // The whole update of a collection runs as a task in a shared ForkJoinPool; the child partitions of a partition,
+  // and the gbx9 indexes of the files of a collection, are then forked as subtasks and joined before the parent is made.
+
+  static private volatile ForkJoinPool indexPool;  // shared by all collections
+  static private int indexPoolUsers;                // number of collection updates running in indexPool
+  static private boolean indexPoolShutdown;         // shut indexPool down when the last update finishes
+  static private int indexThreads = 1;
+
+  /**
+   * Set the number of threads used to make gbx9 and ncx4 indexes, for collections that dont set
+   * gribConfig indexThreads. 1 (the default) makes them serially on the calling thread.
+   *
+   * @param nthreads number of threads
+   * @since 5.0
+   */
+  static public synchronized void setIndexThreads(int nthreads) {
+    indexThreads = Math.max(1, nthreads);
+  }
+
+  // get the pool for one collection update, must call releaseIndexPool() when done.
+  // The pool is only replaced with a larger one when no update is running in it, otherwise the existing pool is used.
+  static private synchronized ForkJoinPool acquireIndexPool(FeatureCollectionConfig config) {
+    int n = (config.gribConfig.indexThreads > 0) ? config.gribConfig.indexThreads : indexThreads;
+    if (n <= 1) return null;
+    if (indexPool == null || (indexPool.getParallelism() < n && indexPoolUsers == 0)) {
+      if (indexPool != null) indexPool.shutdown();
+      indexPool = new ForkJoinPool(n);
+      indexPoolShutdown = false;
+      classLogger.info("GribCdmIndex using {} threads to make indexes", n);
+    }
+    indexPoolUsers++;
+    return indexPool;
+  }
+
+  static private synchronized void releaseIndexPool() {
+    indexPoolUsers--;
+    if (indexPoolUsers == 0 && indexPoolShutdown)
+      shutdownIndexPool();
+  }
+
+  /**
+   * Shut down the index pool, if one was started.
+   * If collections are being updated in it, that happens when the last one finishes.
+   */
+  static public synchronized void shutdownIndexPool() {
+    if (indexPoolUsers > 0) {
+      indexPoolShutdown = true;
+      return;
+    }
+    if (indexPool != null) indexPool.shutdown();
+    indexPool = null;
+    indexPoolShutdown = false;
+  }
+
+  // is this thread making indexes in the pool ?
+  static boolean inIndexPool() {
+    ForkJoinPool pool = indexPool;
+    return pool != null && ForkJoinTask.getPool() == pool;
+  }
+
+  // call action on each item, in parallel if this thread is in the index pool. action must handle its own errors.
+  static <T> void invokeAll(Iterable<T> items, Consumer<T> action) {
+    if (!inIndexPool()) {
+      for (T item : items) action.accept(item);
+      return;
+    }
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (T item : items)
+      tasks.add(ForkJoinTask.adapt(() -> action.accept(item)));
+    ForkJoinTask.invokeAll(tasks);
+  }
+
+  // same, but action writes to its own Formatter. These are appended to errlog in item order when all are done.
+  static <T> void invokeAll(Iterable<T> items, Formatter errlog, BiConsumer<T, Formatter> action) {
+    List<T> list = new ArrayList<>();
+    for (T item : items) list.add(item);
+    List<Integer> indices = new ArrayList<>(list.size());
+    List<Formatter> logs = new ArrayList<>(list.size());
+    for (int i = 0; i < list.size(); i++) {
+      indices.add(i);
+      logs.add(new Formatter());
+    }
+
+    invokeAll(indices, i -> action.accept(list.get(i), logs.get(i)));
+    for (Formatter log : logs)
+      errlog.format("%s", log);
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////////////////
   // used by Tdm (indirectly by InvDatasetFcGrib)
 
@@ -314,6 +425,19 @@ public class GribCdmIndex implements IndexReader {
   static public boolean updateGribCollection(FeatureCollectionConfig config, CollectionUpdateType updateType, Logger logger) throws IOException {
     if (logger == null) logger = classLogger;
 
+    ForkJoinPool pool = inIndexPool() ? null : acquireIndexPool(config);
+    if (pool != null) {
+      final Logger loggerf = logger;
+      try {
+        return pool.invoke(ForkJoinTask.adapt(() -> updateGribCollection(config, updateType, loggerf)));
+      } catch (RuntimeException e) {
+        if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+        throw e;
+      } finally {
+        releaseIndexPool();
+      }
+    }
+
     long start = System.currentTimeMillis();
 
     Formatter errlog = new Formatter();
@@ -396,23 +520,28 @@ public class GribCdmIndex implements IndexReader {
 
     long start = System.currentTimeMillis();
     Formatter errlog = new Formatter();
+    List<MCollection> failed = Collections.synchronizedList(new ArrayList<>());
 
-    for (MCollection part : tp.makePartitions(updateType)) {
+    invokeAll(tp.makePartitions(updateType), errlog, (part, partlog) -> {
       try {
-        updateGribCollection(isGrib1, part, updateType, FeatureCollectionConfig.PartitionType.timePeriod, logger, errlog);
+        updateGribCollection(isGrib1, part, updateType, FeatureCollectionConfig.PartitionType.timePeriod, logger, partlog);
 
       } catch (Throwable t) {
         logger.warn("Error making partition " + part.getRoot(), t);
-        tp.removePartition(part); // keep on truckin; can happen if directory is empty
+        failed.add(part);
       }
-    }   // loop over component grib collections
-
+    });   // loop over component grib collections
+    for (MCollection part : failed)
+      tp.removePartition(part); // keep on truckin; can happen if directory is empty
+    long startPartition = System.currentTimeMillis();
 
     try {
       boolean changed = updatePartition(isGrib1, tp, updateType, logger, errlog);
 
       long took = System.currentTimeMillis() - start;
       errlog.format(" INFO updateTimePartition %s took %d msecs%n", tp.getRoot(), took);
+      logger.info("updateTimePartition {}: children took {} msecs, partition index took {} msecs", tp.getRoot(),
+              startPartition - start, System.currentTimeMillis() - startPartition);
       if (debug) System.out.printf("GribCdmIndex.updateTimePartition complete (%s) on %s errlog=%s%n", changed, tp.getRoot(), errlog);
       return changed;
 
@@ -465,7 +594,8 @@ public class GribCdmIndex implements IndexReader {
 
     // check the children partitions first
     if (updateType != CollectionUpdateType.testIndexOnly) {   // skip children on testIndexOnly
-      for (MCollection part : dpart.makePartitions(updateType)) {
+      List<MCollection> failed = Collections.synchronizedList(new ArrayList<>());
+      invokeAll(dpart.makePartitions(updateType), part -> {
         part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
         try {
           if (part instanceof DirectoryPartition) {   // LOOK if child partition fails, the parent partition doesnt know that - suckage
@@ -476,14 +606,17 @@ public class GribCdmIndex implements IndexReader {
           }
         } catch (IllegalStateException t) {
           logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
-          dpart.removePartition(part); // keep on truckin; can happen if directory is empty
+          failed.add(part); // keep on truckin; can happen if directory is empty
 
         } catch (Throwable t) {
           logger.error("Error making partition " + part.getRoot(), t);
-          dpart.removePartition(part);
+          failed.add(part);
         }
-      }   // loop over partitions
+      });   // loop over partitions
+      for (MCollection part : failed)
+        dpart.removePartition(part);
     }
+    long startPartition = System.currentTimeMillis();
 
     try {
       // update the partition
@@ -492,6 +625,8 @@ public class GribCdmIndex implements IndexReader {
 
       long took = System.currentTimeMillis() - start;
       errlog.format(" INFO updateDirectoryCollectionRecurse %s took %d msecs%n", dpart.getRoot(), took);
+      logger.info("updateDirectoryCollectionRecurse {}: children took {} msecs, partition index took {} msecs", dpart.getRoot(),
+              startPartition - start, System.currentTimeMillis() - startPartition);
       if (debug) System.out.printf("GribCdmIndex.updateDirectoryCollectionRecurse complete (%s) on %s errlog=%s%n", changed, dpart.getRoot(), errlog);
       return changed;
 
@@ -567,26 +702,34 @@ public class GribCdmIndex implements IndexReader {
 
       // redo the children here
       if (updateType != CollectionUpdateType.testIndexOnly) {   // skip children on testIndexOnly
+        final List<MCollection> parts = new ArrayList<>();
         partition.iterateOverMFileCollection(new DirectoryCollection.Visitor() {
           public void consume(MFile mfile) {
             MCollection part = new CollectionSingleFile(mfile, logger);
             part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+            parts.add(part);
+          }
+        });
 
-            try {
-              boolean changed = updateGribCollection(isGrib1, part, updateType, FeatureCollectionConfig.PartitionType.file, logger, errlog);
-              if (changed) anyChange.set(true);
+        List<MCollection> failed = Collections.synchronizedList(new ArrayList<>());
+        invokeAll(parts, errlog, (part, partlog) -> {
+          try {
+            boolean changed = updateGribCollection(isGrib1, part, updateType, FeatureCollectionConfig.PartitionType.file, logger, partlog);
+            if (changed) anyChange.set(true);
 
-            } catch (IllegalStateException t) {
-              logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
-              partition.removePartition(part); // keep on truckin; can happen if directory is empty
+          } catch (IllegalStateException t) {
+            logger.warn("Error making partition {} '{}'", part.getRoot(), t.getMessage());
+            failed.add(part); // keep on truckin; can happen if directory is empty
 
-            } catch (Throwable t) {
-              logger.error("Error making partition " + part.getRoot(), t);
-              partition.removePartition(part);
-            }
+          } catch (Throwable t) {
+            logger.error("Error making partition " + part.getRoot(), t);
+            failed.add(part);
           }
         });
+        for (MCollection part : failed)
+          partition.removePartition(part);
       }
+      long startPartition = System.currentTimeMillis();
 
       // LOOK what if theres only one file?
 
@@ -595,7 +738,8 @@ public class GribCdmIndex implements IndexReader {
         boolean recreated = updatePartition(isGrib1, partition, updateType, logger, errlog);
 
         long took = System.currentTimeMillis() - start;
-        if (recreated) logger.info("RewriteFilePartition {} took {} msecs", partition.getCollectionName(), took);
+        if (recreated) logger.info("RewriteFilePartition {} took {} msecs (children {} msecs, partition index {} msecs)", partition.getCollectionName(),
+                took, startPartition - start, System.currentTimeMillis() - startPartition);
         return recreated;
 
       } catch (IllegalStateException t) {
@@ -55,6 +55,7 @@ import ucar.unidata.util.StringUtil2;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Superclass to build indexes for collections of Grib files.
@@ -86,6 +87,46 @@ abstract class GribCollectionBuilder {
     this.directory = new File(dcm.getRoot());
   }
 
+  /**
+   * When running in the GribCdmIndex index pool, read or create the gbx9 indexes of all the files in the collection
+   * in parallel. Otherwise they are made one at a time by readOrCreateFileIndex().
+   *
+   * @return map of file path to index; failures are not in the map
+   */
+  protected Map<String, GribIndex> makeFileIndexes() throws IOException {
+    Map<String, GribIndex> result = new ConcurrentHashMap<>();
+    if (!GribCdmIndex.inIndexPool()) return result;
+
+    long start = System.currentTimeMillis();
+    List<MFile> files = new ArrayList<>();
+    try (CloseableIterator<MFile> iter = dcm.getFileIterator()) {
+      while (iter != null && iter.hasNext())
+        files.add(iter.next());
+    }
+
+    GribCdmIndex.invokeAll(files, mfile -> {
+      try {
+        GribIndex index = GribIndex.readOrCreateIndexFromSingleFile(isGrib1, mfile, CollectionUpdateType.test, logger);
+        if (index != null) result.put(mfile.getPath(), index);
+      } catch (Throwable t) {
+        logger.error("GribCollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed", t);
+      }
+    });
+
+    logger.info("GribCollectionBuilder {}: gbx9 indexes for {} files took {} msecs", name, files.size(), System.currentTimeMillis() - start);
+    return result;
+  }
+
+  /**
+   * Get the gbx9 index of a file, from fileIndexes if its there, otherwise read or create it.
+   */
+  protected GribIndex readOrCreateFileIndex(Map<String, GribIndex> fileIndexes, MFile mfile) throws IOException {
+    GribIndex index = fileIndexes.get(mfile.getPath());
+    if (index != null) return index;
+    // this is where gbx9 files get recreated
+    return GribIndex.readOrCreateIndexFromSingleFile(isGrib1, mfile, CollectionUpdateType.test, logger);
+  }
+
   public boolean updateNeeded(CollectionUpdateType ff) throws IOException {
     if (ff == CollectionUpdateType.never) return false;
     if (ff == CollectionUpdateType.always) return true;
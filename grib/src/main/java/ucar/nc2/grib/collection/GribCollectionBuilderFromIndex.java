@@ -34,6 +34,7 @@
 package ucar.nc2.grib.collection;
 
 import thredds.featurecollection.FeatureCollectionConfig;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.ExtensionRegistry;
 import thredds.inventory.MFile;
 import ucar.coord.*;
@@ -46,6 +47,8 @@ import ucar.nc2.time.CalendarPeriod;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -57,6 +60,12 @@ import java.util.*;
 abstract class GribCollectionBuilderFromIndex {
   static protected final boolean debug = false;
   static protected final boolean stackTrace = true;
+  static private boolean useMemoryMap = false;
+
+  // see GribCdmIndex.setUseMemoryMap()
+  static void setUseMemoryMap(boolean b) {
+    useMemoryMap = b;
+  }
 
   protected GribCollectionMutable gc;
   protected final org.slf4j.Logger logger;
@@ -113,8 +122,6 @@ abstract class GribCollectionBuilderFromIndex {
       }
       if (debug) System.out.printf("GribCollectionBuilderFromIndex proto len = %d%n", size);
 
-      byte[] m = new byte[size];
-      raf.readFully(m);
 
       /*
       message GribCollection {
@@ -143,7 +150,7 @@ abstract class GribCollectionBuilderFromIndex {
       }
        */
 
-      GribCollectionProto.GribCollection proto = GribCollectionProto.GribCollection.parseFrom(m);
+      GribCollectionProto.GribCollection proto = parseCollection(raf, size);
 
       // need to read this first to get this.tables initialized
       gc.center = proto.getCenter();
@@ -193,6 +200,55 @@ abstract class GribCollectionBuilderFromIndex {
     }
   }
 
+  /*
+   * Parse the GribCollection message starting at the current position of raf.
+   * When the index is a local file, the message is parsed straight out of a memory mapped region,
+   * instead of first copying it into a byte array as big as the message, which for large partition indexes
+   * can be hundreds of MB of garbage on each open.
+   */
+  private GribCollectionProto.GribCollection parseCollection(RandomAccessFile raf, int size) throws IOException {
+    long start = raf.getFilePointer();
+    ByteBuffer mapped = useMemoryMap ? raf.map(start, size) : null;
+    if (mapped == null) {
+      byte[] m = new byte[size];
+      raf.readFully(m);
+      return GribCollectionProto.GribCollection.parseFrom(m);
+    }
+
+    CodedInputStream cis = CodedInputStream.newInstance(new ByteBufferInputStream(mapped));
+    cis.setSizeLimit(Integer.MAX_VALUE); // default is 64 MB
+    GribCollectionProto.GribCollection proto = GribCollectionProto.GribCollection.parseFrom(cis);
+    raf.seek(start + size);
+    return proto;
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer bb;
+
+    ByteBufferInputStream(ByteBuffer bb) {
+      this.bb = bb;
+    }
+
+    @Override
+    public int read() {
+      return bb.hasRemaining() ? bb.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) return 0;
+      if (!bb.hasRemaining()) return -1;
+      int n = Math.min(len, bb.remaining());
+      bb.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return bb.remaining();
+    }
+  }
+
   protected boolean readExtensions(GribCollectionProto.GribCollection proto) {
     return true;
   }
@@ -54,7 +54,7 @@ import ucar.nc2.grib.grib2.table.Grib2Customizer;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.util.cache.FileCacheIF;
-import ucar.nc2.util.cache.FileCacheable;
+import ucar.nc2.util.cache.FileCacheShareable;
 import ucar.nc2.wmo.CommonCodeTable;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -78,7 +78,7 @@ import java.util.*;
  * @since 11/10/2014
  */
 @Immutable
-public abstract class GribCollectionImmutable implements Closeable, FileCacheable {
+public abstract class GribCollectionImmutable implements Closeable, FileCacheShareable {
   static private final Logger logger = LoggerFactory.getLogger(GribCollectionImmutable.class);
   public static int countGC; // debug
 
@@ -121,6 +121,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
   protected final Map<Integer, MFile> fileMap; // all the files used in the GC; key is the index in original collection, GC has subset of them
   protected final GribTables cust;
   protected final String indexFilename;       // full path of index Filename
+  protected final long indexLastModified;     // of the index file when this was made, identifies it in GribDataCache
 
   protected FileCacheIF objCache = null;  // optional object cache - used in the TDS
 
@@ -155,6 +156,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
         throw new IllegalStateException(indexFile.getPath() + " does not exist, nor in cache");
       indexFilename = indexFileInCache.getPath();
     }
+    indexLastModified = new File(indexFilename).lastModified();
   }
 
   // overridden in PartitionCollection
@@ -481,7 +483,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     final int ndups, nrecords, nmissing;
 
     // read in on demand
-    private SparseArray<Record> sa;   // for GC only; lazily read; same array shape as variable, minus x and y
+    private volatile SparseRecordArray sa;   // for GC only; lazily read; same array shape as variable, minus x and y
 
     protected VariableIndex(GroupGC g, GribCollectionMutable.VariableIndex gcVar) {
       this.group = g;
@@ -529,14 +531,14 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
         for (int i = 0; i < ntrack; i++)
           track[i] = proto.getTrack(i);
 
+        // keep records in primitive arrays, not one Record object per message
         int n = proto.getRecordsCount();
-        List<Record> records = new ArrayList<>(n);
+        SparseRecordArray.Builder builder = new SparseRecordArray.Builder(size, track, n, proto.getNdups());
         for (int i = 0; i < n; i++) {
           GribCollectionProto.Record pr = proto.getRecords(i);
-          records.add(new Record(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset()));
+          builder.add(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset());
         }
-        int ndups = proto.getNdups();
-        this.sa = new SparseArray<>(size, track, records, ndups);
+        this.sa = builder.build();
 
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
         logger.error(" file={} recordsLen={} recordPos={}", indexFilename, recordsLen, recordsPos);
@@ -544,17 +546,17 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       }
     }
 
-    public synchronized Record getRecordAt(int sourceIndex) {
+    public Record getRecordAt(int sourceIndex) {
       return sa.getContent(sourceIndex);
     }
 
-    public synchronized Record getRecordAt(int[] sourceIndex) {
+    public Record getRecordAt(int[] sourceIndex) {
       return sa.getContent(sourceIndex);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // coord based record finding. note only one record at a time
-    public synchronized Record getRecordAt(SubsetParams coords) {
+    public Record getRecordAt(SubsetParams coords) {
       int[] want = new int[getRank()];
       int count = 0;
       int runIdx = -1;
@@ -666,7 +668,15 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       return coordIndex;
     }
 
+    /**
+     * The records as a SparseArray of Record objects. Made on demand from the compact record store, so
+     * this is expensive for large variables, and is intended for debugging and index viewers.
+     */
     public SparseArray<Record> getSparseArray() {
+      return sa == null ? null : sa.toSparseArray();
+    }
+
+    public SparseRecordArray getRecordArray() {
       return sa;
     }
 
@@ -881,11 +891,17 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
 
   //////////////////////////////////////////////////////////////////////////////////////////////////
   // stuff for FileCacheable
+  // Nothing is modified after construction except the lazily read records, so a FileCache shares one open
+  // collection with all its users, as FileCacheGuava already does.
 
   public synchronized void close() throws java.io.IOException {
     if (objCache != null) {
       if (objCache.release(this)) return;
     }
+    // the cached records cant be found again once the index has been rewritten or removed
+    GribDataCache dataCache = GribDataCache.getInstance();
+    if (dataCache != null && new File(indexFilename).lastModified() != indexLastModified)
+      dataCache.invalidate(this);
   }
 
   // release any resources like file handles
@@ -907,6 +923,11 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     return indexFile.lastModified();
   }
 
+  // last modified date of the index file when this collection was read
+  long getIndexLastModified() {
+    return indexLastModified;
+  }
+
   @Override
   public synchronized void setFileCache(FileCacheIF fileCache) {
     this.objCache = fileCache;
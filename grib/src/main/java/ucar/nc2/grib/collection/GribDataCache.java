@@ -0,0 +1,201 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package ucar.nc2.grib.collection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory cache of decoded GRIB records, so that popular fields are not unpacked again on every request.
+ * Keyed by the collection index file and its last modified date, the data file and the record position in it,
+ * so the cache does not keep closed collections reachable, and a rewritten index does not see the old records.
+ * Bounded by the total number of bytes held; optionally the data are kept off the java heap.
+ * Entries belonging to a GribCollectionImmutable are invalidated when it is replaced or closed after its index changed.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class GribDataCache {
+  static private GribDataCache instance;   // null means no caching (default)
+
+  /**
+   * Create the global data cache.
+   * @param maxBytes maximum size of the decoded data held, 0 to turn the cache off
+   * @param offHeap keep the data in direct ByteBuffers instead of on the heap
+   */
+  static public synchronized void init(long maxBytes, boolean offHeap) {
+    if (instance != null) instance.clear();
+    instance = (maxBytes <= 0) ? null : new GribDataCache(maxBytes, offHeap);
+  }
+
+  static public synchronized GribDataCache getInstance() {
+    return instance;
+  }
+
+  static public synchronized void shutdown() {
+    if (instance != null) instance.clear();
+    instance = null;
+  }
+
+  ///////////////////////////////////////////////////////////
+
+  private final long maxBytes;
+  private final boolean offHeap;
+  private final Cache<Key, Object> cache;
+  private final AtomicLong bytes = new AtomicLong();
+
+  private GribDataCache(long maxBytes, boolean offHeap) {
+    this.maxBytes = maxBytes;
+    this.offHeap = offHeap;
+    this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Weigher<Key, Object>) (key, value) -> sizeInBytes(value))
+            .removalListener(notification -> bytes.addAndGet(-sizeInBytes(notification.getValue())))
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Find decoded data in the cache.
+   * @param gc the collection the record was read through
+   * @param location the data file
+   * @param dr the record
+   * @return the data, or null if not in the cache. The array is shared and must not be modified.
+   */
+  public float[] get(GribCollectionImmutable gc, String location, GribDataReader.DataRecord dr) {
+    Object value = cache.getIfPresent(new Key(gc.indexFilename, gc.getIndexLastModified(), location, dr.record.pos, dr.record.drsOffset));
+    if (value == null) return null;
+    if (value instanceof float[]) return (float[]) value;
+
+    FloatBuffer fb = ((ByteBuffer) value).asFloatBuffer();
+    float[] data = new float[fb.remaining()];
+    fb.get(data);
+    return data;
+  }
+
+  /**
+   * Add decoded data to the cache. The array must not be modified after this.
+   */
+  public void put(GribCollectionImmutable gc, String location, GribDataReader.DataRecord dr, float[] data) {
+    Object value = data;
+    if (offHeap) {
+      ByteBuffer bb = ByteBuffer.allocateDirect(4 * data.length).order(ByteOrder.nativeOrder());
+      bb.asFloatBuffer().put(data);
+      value = bb;
+    }
+    bytes.addAndGet(sizeInBytes(value));
+    cache.put(new Key(gc.indexFilename, gc.getIndexLastModified(), location, dr.record.pos, dr.record.drsOffset), value);
+  }
+
+  /**
+   * Remove all records read through this collection, eg when it has been replaced by an updated one.
+   */
+  public void invalidate(GribCollectionImmutable gc) {
+    for (Key key : cache.asMap().keySet()) {
+      if (key.indexLastModified == gc.getIndexLastModified() && key.indexFilename.equals(gc.indexFilename))
+        cache.invalidate(key);
+    }
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public void showCache(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("%nGribDataCache maxBytes= %d offHeap= %s%n", maxBytes, offHeap);
+    f.format("  records= %d bytes= %d hits= %d miss= %d evictions= %d%n", cache.size(), bytes.get(),
+            stats.hitCount(), stats.missCount(), stats.evictionCount());
+  }
+
+  static private int sizeInBytes(Object value) {
+    if (value instanceof float[]) return 4 * ((float[]) value).length;
+    return ((ByteBuffer) value).capacity();
+  }
+
+  @Immutable
+  static private class Key {
+    final String indexFilename;
+    final long indexLastModified;
+    final String location;
+    final long pos;
+    final int drsOffset;
+
+    Key(String indexFilename, long indexLastModified, String location, long pos, int drsOffset) {
+      this.indexFilename = indexFilename;
+      this.indexLastModified = indexLastModified;
+      this.location = location;
+      this.pos = pos;
+      this.drsOffset = drsOffset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return indexLastModified == key.indexLastModified && pos == key.pos && drsOffset == key.drsOffset &&
+              indexFilename.equals(key.indexFilename) && location.equals(key.location);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = indexFilename.hashCode();
+      result = 31 * result + (int) (indexLastModified ^ (indexLastModified >>> 32));
+      result = 31 * result + location.hashCode();
+      result = 31 * result + (int) (pos ^ (pos >>> 32));
+      result = 31 * result + drsOffset;
+      return result;
+    }
+  }
+}
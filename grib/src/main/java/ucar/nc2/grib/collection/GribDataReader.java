@@ -34,6 +34,7 @@
 package ucar.nc2.grib.collection;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.jcip.annotations.Immutable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,14 +49,22 @@ import ucar.nc2.grib.grib1.Grib1Parameter;
 import ucar.nc2.grib.grib1.Grib1Record;
 import ucar.nc2.grib.grib1.Grib1SectionProductDefinition;
 import ucar.nc2.grib.grib1.tables.Grib1Customizer;
+import ucar.nc2.grib.grib2.Grib2JpegDecoder;
 import ucar.nc2.grib.grib2.Grib2Record;
 import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.nc2.grib.grib2.Grib2SectionBitMap;
+import ucar.nc2.grib.grib2.Grib2SectionData;
+import ucar.nc2.grib.grib2.Grib2SectionDataRepresentation;
 import ucar.nc2.grib.grib2.table.Grib2Customizer;
 import ucar.nc2.util.Misc;
+import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Grib Data Reader.
@@ -79,6 +88,60 @@ public abstract class GribDataReader {
   protected abstract float[] readData(RandomAccessFile rafData, DataRecord dr) throws IOException;
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
+  /**
+   * Read the bytes of the record into memory, and return a task that decodes them.
+   * The I/O is done on the calling thread; the returned task does no I/O on rafData, so may run on any thread.
+   */
+  protected abstract Callable<float[]> readDataDeferred(RandomAccessFile rafData, DataRecord dr) throws IOException;
+
+  /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  // experimental multithreading: decode records on a shared pool
+
+  static private ExecutorService decodeExecutor;
+  static private int maxDecodePerRequest = 1;
+  static private final AtomicLong poolDecodeCount = new AtomicLong();
+
+  /**
+   * Decode the records of a multi-record read in parallel.
+   * The records are still read in (file, pos) order by the calling thread, only the unpacking is done on the pool.
+   *
+   * @param nthreads      size of the shared decoding pool, 0 to decode on the calling thread (default)
+   * @param maxPerRequest maximum number of records of one read being decoded at the same time,
+   *                      so that one large request cannot take over the pool.
+   */
+  static public synchronized void setDecodeThreads(int nthreads, int maxPerRequest) {
+    if (decodeExecutor != null)
+      decodeExecutor.shutdownNow();
+    decodeExecutor = (nthreads <= 0) ? null :
+            Executors.newFixedThreadPool(nthreads, new ThreadFactoryBuilder().setNameFormat("GribDecode-%d").setDaemon(true)
+                    .setThreadFactory(GribDataReader::makeDecodeThread).build());
+    maxDecodePerRequest = Math.max(1, maxPerRequest);
+  }
+
+  // the pool threads reuse their jpeg2000 decoder for as long as they live
+  static private Thread makeDecodeThread(Runnable worker) {
+    return new Thread(() -> {
+      try (Grib2JpegDecoder.Reuse reuse = Grib2JpegDecoder.reuseOnThisThread()) {
+        worker.run();
+      }
+    });
+  }
+
+  static public synchronized void shutdown() {
+    if (decodeExecutor != null)
+      decodeExecutor.shutdownNow();
+    decodeExecutor = null;
+  }
+
+  static private synchronized ExecutorService getDecodeExecutor() {
+    return decodeExecutor;
+  }
+
+  // number of records decoded on the pool, for testing
+  static long getPoolDecodeCount() {
+    return poolDecodeCount.get();
+  }
+
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   static public GribCollectionImmutable.Record currentDataRecord;
   static public GribDataValidator validator;
@@ -271,6 +334,8 @@ public abstract class GribDataReader {
 
     int currFile = -1;
     RandomAccessFile rafData = null;
+    ParallelDecoder decoder = makeParallelDecoder(dataReceiver);
+    Grib2JpegDecoder.Reuse decoderReuse = Grib2JpegDecoder.reuseOnThisThread();
     try {
       for (DataRecord dr : records) {
         if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
@@ -298,12 +363,14 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        readRecord(rafData, dr, hcs.nx, dataReceiver, decoder);
       }
+      if (decoder != null) decoder.finish();
 
     } finally {
+      decoderReuse.close();
+      if (decoder != null) decoder.cancel();
       if (rafData != null) rafData.close();  // make sure its closed even on exception
     }
   }
@@ -318,6 +385,8 @@ public abstract class GribDataReader {
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
+    ParallelDecoder decoder = makeParallelDecoder(dataReceiver);
+    Grib2JpegDecoder.Reuse decoderReuse = Grib2JpegDecoder.reuseOnThisThread();
     try {
 
       for (DataRecord dr : records) {
@@ -344,16 +413,118 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        readRecord(rafData, dr, hcs.nx, dataReceiver, decoder);
       }
+      if (decoder != null) decoder.finish();
 
     } finally {
+      decoderReuse.close();
+      if (decoder != null) decoder.cancel();
       if (rafData != null) rafData.close();  // make sure its closed even on exception
     }
   }
 
+  // use the decoded data cache if enabled, else decode here or on the pool
+  private void readRecord(RandomAccessFile rafData, DataRecord dr, int nx, DataReceiverIF dataReceiver, ParallelDecoder decoder) throws IOException {
+    GribDataCache dataCache = GribDataCache.getInstance();
+    if (dataCache != null) {
+      float[] data = dataCache.get(gribCollection, rafData.getLocation(), dr);
+      if (data != null) {
+        dataReceiver.addData(data, dr.resultIndex, nx);
+        return;
+      }
+    }
+
+    if (decoder != null) {
+      decoder.decode(rafData, dr, nx, dataCache);
+    } else {
+      float[] data = readData(rafData, dr);
+      if (dataCache != null) dataCache.put(gribCollection, rafData.getLocation(), dr, data);
+      dataReceiver.addData(data, dr.resultIndex, nx);
+    }
+  }
+
+  private ParallelDecoder makeParallelDecoder(DataReceiverIF dataReceiver) {
+    if (records.size() < 2 || Grib.debugIndexOnly || Grib.debugGbxIndexOnly) return null;
+    ExecutorService exec = getDecodeExecutor();
+    return (exec == null) ? null : new ParallelDecoder(exec, maxDecodePerRequest, dataReceiver);
+  }
+
+  /*
+   Decodes the records of one read on the shared pool.
+   The raw bytes are read in sorted order by the calling thread, then handed to the pool; at most maxInFlight records
+   of this read are held in memory or being decoded at any time. The DataReceiver is called from the worker threads;
+   each record goes to a distinct resultIndex, so DataReceiver writes to disjoint parts of its array.
+   */
+  private class ParallelDecoder {
+    private final ExecutorService exec;
+    private final Semaphore inFlight;
+    private final DataReceiverIF dataReceiver;
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    ParallelDecoder(ExecutorService exec, int maxInFlight, DataReceiverIF dataReceiver) {
+      this.exec = exec;
+      this.inFlight = new Semaphore(maxInFlight);
+      this.dataReceiver = dataReceiver;
+    }
+
+    void decode(RandomAccessFile rafData, final DataRecord dr, final int nx, final GribDataCache dataCache) throws IOException {
+      try {
+        inFlight.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("GribDataReader interrupted");
+      }
+
+      final Callable<float[]> task;
+      final String location = rafData.getLocation();
+      try {
+        task = readDataDeferred(rafData, dr);
+        pending.add(exec.submit(new Callable<Void>() {
+          public Void call() throws Exception {
+            try {
+              float[] data = task.call();
+              if (dataCache != null) dataCache.put(gribCollection, location, dr, data);
+              dataReceiver.addData(data, dr.resultIndex, nx);
+              poolDecodeCount.incrementAndGet();
+              return null;
+            } finally {
+              inFlight.release();
+            }
+          }
+        }));
+      } catch (IOException | RuntimeException e) {
+        inFlight.release();
+        throw e;
+      }
+    }
+
+    // wait for all records to be decoded, rethrow the first failure
+    void finish() throws IOException {
+      for (Future<?> f : pending) {
+        try {
+          f.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("GribDataReader interrupted");
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) throw (IOException) cause;
+          if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+          throw new IOException(cause);
+        }
+      }
+      pending.clear();
+    }
+
+    // on failure, dont leave work in the pool
+    void cancel() {
+      for (Future<?> f : pending)
+        f.cancel(true);
+    }
+  }
+
   static public class DataRecord implements Comparable<DataRecord> {
     int resultIndex; // index into the result array
     GribCollectionImmutable.Record record;
@@ -489,6 +660,33 @@ public abstract class GribDataReader {
               hcs.nxRaw, hcs.nyRaw, hcs.nptsInLine);
     }
 
+    @Override
+    protected Callable<float[]> readDataDeferred(RandomAccessFile rafData, GribDataReader.DataRecord dr) throws IOException {
+      final GdsHorizCoordSys hcs = dr.hcs;
+      long startPos = dr.record.pos;
+
+      // find the end of the data section
+      rafData.seek(startPos + dr.record.drsOffset);
+      new Grib2SectionDataRepresentation(rafData);
+      new Grib2SectionBitMap(rafData);
+      Grib2SectionData dataSection = new Grib2SectionData(rafData);
+
+      // everything from the start of the message, so that a replaced bms is included
+      byte[] raw = new byte[(int) (dataSection.getEndingPosition() - startPos)];
+      rafData.seek(startPos);
+      rafData.readFully(raw);
+
+      final RandomAccessFile rafRaw = new InMemoryRandomAccessFile(rafData.getLocation(), raw);
+      final long dataPos = dr.record.drsOffset;
+      final long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.bmsOffset : 0;
+      return new Callable<float[]>() {
+        public float[] call() throws IOException {
+          return Grib2Record.readData(rafRaw, dataPos, bmsPos, hcs.gdsNumberPoints, hcs.getScanMode(),
+                  hcs.nxRaw, hcs.nyRaw, hcs.nptsInLine);
+        }
+      };
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long pos) throws IOException {
       Grib2Record gr = Grib2RecordScanner.findRecordByDrspos(rafData, pos);
@@ -520,6 +718,34 @@ public abstract class GribDataReader {
       return Grib1Record.readData(rafData, dr.record.pos);
     }
 
+    @Override
+    protected Callable<float[]> readDataDeferred(RandomAccessFile rafData, DataRecord dr) throws IOException {
+      rafData.seek(dr.record.pos);
+      Grib1Record gr = new Grib1Record(rafData);
+
+      // ECMWF "large" records (> 8 Mb) dont have reliable section lengths, so just decode them here
+      if (gr.getIs().getMessageLength() >= 0x800000) {
+        final float[] data = readData(rafData, dr);
+        return new Callable<float[]>() {
+          public float[] call() {
+            return data;
+          }
+        };
+      }
+
+      long endPos = gr.getDataSection().getStartingPosition() + gr.getDataSection().getLength();
+      byte[] raw = new byte[(int) (endPos - dr.record.pos)];
+      rafData.seek(dr.record.pos);
+      rafData.readFully(raw);
+
+      final RandomAccessFile rafRaw = new InMemoryRandomAccessFile(rafData.getLocation(), raw);
+      return new Callable<float[]>() {
+        public float[] call() throws IOException {
+          return Grib1Record.readData(rafRaw, 0);
+        }
+      };
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long dataPos) throws IOException {
       rafData.seek(dataPos);
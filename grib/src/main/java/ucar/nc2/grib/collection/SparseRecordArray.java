@@ -0,0 +1,182 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.grib.collection;
+
+import net.jcip.annotations.Immutable;
+import ucar.coord.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact store of the GribCollectionImmutable.Record for a VariableIndex.
+ * Same layout as SparseArray<Record> (track[totalsize] = {0 = missing, else = index+1 into content}),
+ * but the content is kept in parallel primitive arrays instead of one Record object per GRIB message,
+ * which is ~20 bytes per record instead of ~40 bytes plus object header and List slot.
+ * Records are created on demand by getContent(), and are short-lived.
+ *
+ * @since 5.0
+ */
+@Immutable
+public class SparseRecordArray {
+  private final int[] shape;    // multidim sizes
+  private final int[] stride;   // for index calculation
+  private final int totalSize;  // product of sizes
+  private final int[] track;    // 1-based index into content, 0 = missing
+  private final int ndups;
+
+  // content, in parallel arrays
+  private final int[] fileno;
+  private final long[] pos;
+  private final int[] bmsOffset;
+  private final int[] drsOffset;
+
+  private SparseRecordArray(Builder b) {
+    this.shape = b.shape;
+    this.track = b.track;
+    this.ndups = b.ndups;
+    this.fileno = b.fileno;
+    this.pos = b.pos;
+    this.bmsOffset = b.bmsOffset;
+    this.drsOffset = b.drsOffset;
+
+    int total = 1;
+    this.stride = new int[shape.length];
+    for (int ii = shape.length - 1; ii >= 0; ii--) {
+      stride[ii] = total;
+      total *= shape[ii];
+    }
+    this.totalSize = total;
+
+    if (track.length != totalSize)
+      throw new IllegalStateException("track len " + track.length + " != totalSize " + totalSize);
+    if (b.count != fileno.length)
+      throw new IllegalStateException("nrecords added " + b.count + " != nrecords " + fileno.length);
+  }
+
+  public int calcIndex(int... index) {
+    assert index.length == shape.length;
+    int result = 0;
+    for (int ii = 0; ii < index.length; ii++)
+      result += index[ii] * stride[ii];
+    return result;
+  }
+
+  /**
+   * Get the record at the given 1D index
+   * @param idx index into the sparse array
+   * @return Record, or null if missing
+   */
+  public GribCollectionImmutable.Record getContent(int idx) {
+    int contentIdx = track[idx] - 1;
+    if (contentIdx < 0)
+      return null; // missing
+    return new GribCollectionImmutable.Record(fileno[contentIdx], pos[contentIdx], bmsOffset[contentIdx], drsOffset[contentIdx]);
+  }
+
+  public GribCollectionImmutable.Record getContent(int[] index) {
+    return getContent(calcIndex(index));
+  }
+
+  public int[] getShape() {
+    return shape.clone();
+  }
+
+  public int getRank() {
+    return shape.length;
+  }
+
+  public int getTotalSize() {
+    return totalSize;
+  }
+
+  public int getNdups() {
+    return ndups;
+  }
+
+  public int countNotMissing() {
+    int result = 0;
+    for (int idx : track)
+      if (idx > 0) result++;
+    return result;
+  }
+
+  /**
+   * Materialize as a SparseArray of Record objects, for debugging and the index viewers.
+   * Not retained: each call makes a new SparseArray.
+   */
+  public SparseArray<GribCollectionImmutable.Record> toSparseArray() {
+    int n = fileno.length;
+    List<GribCollectionImmutable.Record> records = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+      records.add(new GribCollectionImmutable.Record(fileno[i], pos[i], bmsOffset[i], drsOffset[i]));
+    return new SparseArray<>(shape, track, records, ndups);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  public static class Builder {
+    private final int[] shape;
+    private final int[] track;
+    private final int ndups;
+    private final int[] fileno;
+    private final long[] pos;
+    private final int[] bmsOffset;
+    private final int[] drsOffset;
+    private int count;
+
+    public Builder(int[] shape, int[] track, int nrecords, int ndups) {
+      this.shape = shape;
+      this.track = track;
+      this.ndups = ndups;
+      this.fileno = new int[nrecords];
+      this.pos = new long[nrecords];
+      this.bmsOffset = new int[nrecords];
+      this.drsOffset = new int[nrecords];
+    }
+
+    public Builder add(int fileno, long pos, int bmsOffset, int drsOffset) {
+      this.fileno[count] = fileno;
+      this.pos[count] = pos;
+      this.bmsOffset[count] = bmsOffset;
+      this.drsOffset[count] = drsOffset;
+      count++;
+      return this;
+    }
+
+    public SparseRecordArray build() {
+      return new SparseRecordArray(this);
+    }
+  }
+}
@@ -36,6 +36,7 @@ package ucar.nc2.grib.grib1;
 import ucar.nc2.grib.GribData;
 import ucar.nc2.grib.GribNumbers;
 import ucar.nc2.iosp.BitReader;
+import ucar.nc2.iosp.BitUnpacker;
 import ucar.nc2.util.Misc;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -158,12 +159,21 @@ public class Grib1DataReader {
         logger.error("Bitmap section length = {} != grid length {} ({},{}) for {}", bitmap.length, nPts, nxRaw, nyRaw, raf.getLocation());
         throw new IllegalStateException("Bitmap section length!= grid length");
       }
-      BitReader reader = new BitReader(raf, startPos + 11);
       values = new float[nPts];
-      for (int i = 0; i < nPts; i++) {
+      int npacked = 0;
+      for (int i = 0; i < nPts; i++)
+        if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) npacked++;
+
+      // unpack into the start of values, then spread out to the bitmap points, from the end
+      if (!isConstant) {
+        BitUnpacker reader = new BitUnpacker(raf, startPos + 11, BitUnpacker.nbytes(info.numberOfBits, npacked));
+        reader.unpack(info.numberOfBits, ref, scale, values, 0, npacked);
+      }
+      int j = npacked - 1;
+      for (int i = nPts - 1; i >= 0; i--) {
         if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
           if (!isConstant) {
-            values[i] = ref + scale * reader.bits2UInt(info.numberOfBits);
+            values[i] = values[j--];
           } else {  // rdg - added this to handle a constant valued parameter
             values[i] = ref;
           }
@@ -183,10 +193,8 @@ public class Grib1DataReader {
             logger.warn("nptsExpected {} != npts {}", nptsExpected, nPts);
           values = new float[nPts];
         }
-        BitReader reader = new BitReader(raf, startPos + 11);
-        for (int i = 0; i < values.length; i++) {
-          values[i] = ref + scale * reader.bits2UInt(info.numberOfBits);
-        }
+        BitUnpacker reader = new BitUnpacker(raf, startPos + 11, BitUnpacker.nbytes(info.numberOfBits, values.length));
+        reader.unpack(info.numberOfBits, ref, scale, values, 0, values.length);
         scanningModeCheck(values, scanMode, nxRaw);
 
       } else {                     // constant valued - same min and max
@@ -816,11 +824,9 @@ From http://cost733.geo.uni-augsburg.de/cost733class-1.2/browser/grib_api-1.9.18
     // boolean isConstant =  (numbits == 0);
 
     // *** read int values *******************************************************
-    BitReader reader = new BitReader(raf, startPos + 11);
+    BitUnpacker reader = new BitUnpacker(raf, startPos + 11, BitUnpacker.nbytes(numbits, nPts));
     int[] ivals = new int[nPts];
-    for (int i = 0; i < nPts; i++) {
-      ivals[i] = (int) reader.bits2UInt(numbits);
-    }
+    reader.unpack(numbits, ivals, 0, nPts);
 
     return ivals;
   }
@@ -698,8 +698,8 @@ public class Grib2DataReader {
           data[i] = (R + idata[i] * EE) / DD;
         }
       } else {  // use bitmap
+        int[] idata = g2j.getGdata();
         for (int i = 0, j = 0; i < totalNPoints; i++) {
-          int[] idata = g2j.getGdata();
           if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
             if (j >= idata.length) {
               System.out.printf("HEY jj2000 data count %d < bitmask count %d, i=%d, totalNPoints=%d%n", idata.length, j, i, totalNPoints);
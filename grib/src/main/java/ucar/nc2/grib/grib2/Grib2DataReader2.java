@@ -36,6 +36,7 @@ package ucar.nc2.grib.grib2;
 import ucar.nc2.grib.GribNumbers;
 import ucar.nc2.grib.GribUtils;
 import ucar.nc2.iosp.BitReader;
+import ucar.nc2.iosp.BitUnpacker;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.awt.image.DataBuffer;
@@ -241,16 +242,27 @@ public class Grib2DataReader2 {
     //   X2 = scaled encoded value
     //   data[ i ] = (R + ( X1 + X2) * EE)/DD ;
 
-    BitReader reader = new BitReader(raf, startPos+5);
-    if (bitmap == null) {
-      for (int i = 0; i < totalNPoints; i++) {
-        //data[ i ] = (R + ( X1 + X2) * EE)/DD ;
-        data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
-      }
-    } else {
-      for (int i = 0; i < totalNPoints; i++) {
+    int npacked = totalNPoints;
+    if (bitmap != null) {
+      npacked = 0;
+      for (int i = 0; i < totalNPoints; i++)
+        if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) npacked++;
+    }
+
+    // unpack into the start of data
+    BitUnpacker reader = new BitUnpacker(raf, startPos+5, BitUnpacker.nbytes(nb, npacked));
+    reader.unpack(nb, R, EE, data, 0, npacked);
+    for (int i = 0; i < npacked; i++) {
+      //data[ i ] = (R + ( X1 + X2) * EE)/DD ;
+      data[i] /= DD;
+    }
+
+    if (bitmap != null) {
+      // spread out to the bitmap points, from the end so that nothing is overwritten before its used
+      int j = npacked - 1;
+      for (int i = totalNPoints - 1; i >= 0; i--) {
         if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
-          data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+          data[i] = data[j--];
         } else {
           data[i] = staticMissingValue;
           //data[i] = R / DD;
@@ -301,7 +313,7 @@ public class Grib2DataReader2 {
       return nGroups0(bitmapIndicator, ref_val, mv);
     }
 
-    BitReader reader = new BitReader(raf, startPos+5);
+    BitUnpacker reader = new BitUnpacker(raf, startPos+5, dataLength-5);
 
     // 6-xx  Get reference values for groups (X1's)
     int[] X1 = new int[NG];
@@ -479,7 +491,7 @@ public class Grib2DataReader2 {
       return nGroups0(bitmapIndicator, ref_val, mv);
     }
 
-    BitReader reader = new BitReader(raf, startPos+5);
+    BitUnpacker reader = new BitUnpacker(raf, startPos+5, dataLength-5);
 
     int ival1 = 0;
     int ival2 = 0;
@@ -751,10 +763,11 @@ public class Grib2DataReader2 {
     Grib2JpegDecoder g2j = null;
     // try {
       if (nb != 0) {  // there's data to decode
-        g2j = new Grib2JpegDecoder(nb, false);
-        byte[] buf = new byte[dataLength - 5];
-        raf.readFully(buf);
-        g2j.decode(buf);
+        g2j = Grib2JpegDecoder.getThreadDecoder(nb);
+        int len = dataLength - 5;
+        byte[] buf = g2j.getCodeStreamBuffer(len);
+        raf.readFully(buf, 0, len);
+        g2j.decode(buf, 0, len, false);  // level shift is done below
         gdrs.hasSignedProblem = g2j.hasSignedProblem();
       }
 
@@ -768,6 +781,7 @@ public class Grib2DataReader2 {
       }
 
       int[] idata = g2j.getGdata();
+      int levelShift = g2j.getLevelShift();
       if (bitmap == null) { // must be one decoded value in idata for every expected data point
         if (idata.length != dataNPoints) {
           log.debug("Number of points in the data record {} != {} expected from GDS", idata.length, dataNPoints);
@@ -777,7 +791,7 @@ public class Grib2DataReader2 {
         for (int i = 0; i < dataNPoints; i++) {
           // Y * 10^D = R + (X1 + X2) * 2^E ; // regulation 92.9.4
           // Y = (R + ( 0 + X2) * EE)/DD ;
-          result[i] = (R + idata[i] * EE) / DD;
+          result[i] = (R + (idata[i] + levelShift) * EE) / DD;
         }
         return result;
 
@@ -788,7 +802,7 @@ public class Grib2DataReader2 {
               System.out.printf("HEY jj2000 data count %d < bitmask count %d, i=%d, totalNPoints=%d%n", idata.length, j, i, totalNPoints);
               break;
             }
-            int indata = idata[j];
+            int indata = idata[j] + levelShift;
             result[i] = (R + indata * EE) / DD;
             j++;
           } else {
@@ -815,11 +829,11 @@ public class Grib2DataReader2 {
     if (nb == 0) return null;
     int missing_value = (2 << nb - 1) - 1;       // all ones - reserved for missing value
 
-    Grib2JpegDecoder g2j;
-    g2j = new Grib2JpegDecoder(nb, false);
-    byte[] buf = new byte[dataLength - 5];
-    raf.readFully(buf);
-    g2j.decode(buf);
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(nb);
+    int len = dataLength - 5;
+    byte[] buf = g2j.getCodeStreamBuffer(len);
+    raf.readFully(buf, 0, len);
+    g2j.decode(buf, 0, len, true);
     gdrs.hasSignedProblem = g2j.hasSignedProblem();
 
     int[] idata = g2j.getGdata();
@@ -54,7 +54,6 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.io.IOException;
 import java.io.EOFException;
-import java.io.ByteArrayInputStream;
 
 /**
  * Adaptation of jj2000.j2k.decoder.Decoder, in order to read input from memory.
@@ -65,6 +64,72 @@ import java.io.ByteArrayInputStream;
 public class Grib2JpegDecoder {
   static private final Logger logger = LoggerFactory.getLogger(Grib2JpegDecoder.class);
 
+  // decoders are not thread safe, but can be reused on the same thread.
+  // Only done inside a Reuse scope, which removes the thread local when closed, so that no decoder or buffer is left
+  // on a thread that belongs to someone else (eg a servlet container), keeping this classloader alive.
+  static private final ThreadLocal<Grib2JpegDecoder[]> threadDecoder = new ThreadLocal<>();
+
+  /**
+   * Scope in which getThreadDecoder() reuses one decoder on the calling thread. Close it on the same thread.
+   */
+  static public final class Reuse implements AutoCloseable {
+    private final boolean owner; // false if nested in another scope on this thread
+
+    private Reuse(boolean owner) {
+      this.owner = owner;
+    }
+
+    @Override
+    public void close() {
+      if (owner) threadDecoder.remove();
+    }
+  }
+
+  /**
+   * Reuse a decoder for all records decoded by the calling thread until the returned scope is closed.
+   * Use in try-with-resources, around a loop over records or around the life of a worker thread.
+   *
+   * @return scope to close when done decoding
+   */
+  static public Reuse reuseOnThisThread() {
+    if (threadDecoder.get() != null) return new Reuse(false);
+    threadDecoder.set(new Grib2JpegDecoder[1]);
+    return new Reuse(true);
+  }
+
+  /**
+   * Get a decoder for the calling thread. Inside a reuseOnThisThread() scope, the same decoder is returned
+   * for all records with the same number of bits, which avoids setting up the parameters and code stream buffer
+   * for each record. Outside of one, a new decoder is made.
+   *
+   * @param nbits number of bits
+   * @return decoder that must only be used by the calling thread
+   */
+  static public Grib2JpegDecoder getThreadDecoder(int nbits) {
+    Grib2JpegDecoder[] holder = threadDecoder.get();
+    if (holder == null)
+      return new Grib2JpegDecoder(nbits, false);
+    if (holder[0] == null || holder[0].rate != nbits)
+      holder[0] = new Grib2JpegDecoder(nbits, false);
+    return holder[0];
+  }
+
+  // the default parameters are the same for all decoders
+  static private class DefaultParameters {
+    static final ParameterList defpl = makeDefaultParameters();
+
+    static private ParameterList makeDefaultParameters() {
+      ParameterList defpl = new ParameterList();
+      String[][] param = Grib2JpegDecoder.getAllParameters();
+
+      for (int i = param.length - 1; i >= 0; i--) {
+        if (param[i][3] != null)
+          defpl.put(param[i][0], param[i][3]);
+      }
+      return defpl;
+    }
+  }
+
   private boolean debug;
   private int rate;
 
@@ -111,21 +176,8 @@ public class Grib2JpegDecoder {
     argv[4] = "-debug" ;
     argv[5] = "on" ;
 
-    // Initialize default parameters
-    //System.err.println("calling Grib2JpegDecoder with argv argument");
-    /*
-    The default parameter list (with modules arguments)
-   */
-    ParameterList defpl = new ParameterList();
-    String[][] param = Grib2JpegDecoder.getAllParameters();
-
-    for (int i = param.length - 1; i >= 0; i--) {
-      if (param[i][3] != null)
-        defpl.put(param[i][0], param[i][3]);
-    }
-
     // Create parameter list using defaults
-    pl = new ParameterList(defpl);
+    pl = new ParameterList(DefaultParameters.defpl);
 
     if (argv.length == 0) {
       throw new IllegalArgumentException("No arguments!");
@@ -154,6 +206,20 @@ public class Grib2JpegDecoder {
     return hasSignedProblem;
   }
 
+  private byte[] codeStream = new byte[0];
+
+  /**
+   * Get a buffer to read the code stream into. It is owned by this decoder and reused on the next call.
+   *
+   * @param size minimum size in bytes
+   * @return buffer of at least size bytes
+   */
+  public byte[] getCodeStreamBuffer(int size) {
+    if (codeStream.length < size)
+      codeStream = new byte[size];
+    return codeStream;
+  }
+
   /**
    * Runs the decoder. After completion the exit code is set, a non-zero
    * value indicates that an error occurred.
@@ -161,6 +227,26 @@ public class Grib2JpegDecoder {
    * @see #getExitCode
    */
   public void decode(byte buf[]) throws IOException {
+    decode(buf, 0, buf.length, true);
+  }
+
+  /**
+   * Runs the decoder on part of a byte array.
+   *
+   * @param buf             contains the code stream
+   * @param offset          code stream starts here
+   * @param length          length of the code stream
+   * @param applyLevelShift if false, unsigned data are not level shifted; the caller must add getLevelShift() to each value.
+   * @see #getExitCode
+   */
+  public void decode(byte buf[], int offset, int length, boolean applyLevelShift) throws IOException {
+    exitCode = 0;
+    hasSignedProblem = false;
+    packBytes = 0;
+    levelShift = 0;
+    csMap = null;
+    data = null;
+
     // int dataSize = buf.length;
     final boolean verbose = false;
     int res; // resolution level to reconstruct
@@ -183,9 +269,8 @@ public class Grib2JpegDecoder {
 
     try {
 
-      // create a ByteArrayInputStream from byte array for ISRandomAccessIO
-      ByteArrayInputStream bais = new ByteArrayInputStream(buf);
-      RandomAccessIO in = new ISRandomAccessIO(bais, buf.length, 1, buf.length);
+      // read directly from the byte array, without another copy
+      RandomAccessIO in = new ArrayRandomAccessIO(buf, offset, length);
 
       // **** File Format ****
       // If the codestream is wrapped in the jp2 fileformat, Read the
@@ -336,8 +421,12 @@ public class Grib2JpegDecoder {
             int levShift = 1 << (nb - 1);      // check
             if (nb != rate) hasSignedProblem = true;
 
-            for (int j = 0; j < data.length; j++)
-              data[j] += levShift;
+            if (applyLevelShift) {
+              for (int j = 0; j < data.length; j++)
+                data[j] += levShift;
+            } else {
+              levelShift = levShift;
+            }
           }
           packBytes = iwa.getPackBytes();
         } catch (IOException e) {
@@ -412,6 +501,14 @@ public class Grib2JpegDecoder {
   }
   private int[] data;
 
+  /**
+   * The level shift that must be added to the values of getGdata(), when decoded with applyLevelShift = false.
+   */
+  public int getLevelShift() {
+    return levelShift;
+  }
+  private int levelShift;
+
   /**
    * Returns all the parameters used in the decoding chain. It calls
    * parameter from each module and store them in one array (one row per
@@ -672,4 +769,124 @@ public class Grib2JpegDecoder {
         }
     } // end ImgWriterArray
 
+  /**
+   * Big endian RandomAccessIO over a section of a byte array, read only.
+   */
+  private static class ArrayRandomAccessIO implements RandomAccessIO {
+    private final byte[] buf;
+    private final int offset;
+    private final int length;
+    private int pos; // relative to offset
+
+    ArrayRandomAccessIO(byte[] buf, int offset, int length) {
+      this.buf = buf;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    public void close() {
+    }
+
+    public int getPos() {
+      return pos;
+    }
+
+    public int length() {
+      return length;
+    }
+
+    public void seek(int off) throws IOException {
+      if (off < 0 || off > length) throw new EOFException();
+      pos = off;
+    }
+
+    public int read() throws IOException {
+      if (pos >= length) throw new EOFException();
+      return buf[offset + pos++] & 0xff;
+    }
+
+    public void readFully(byte[] b, int off, int n) throws IOException {
+      if (pos + n > length) throw new EOFException();
+      System.arraycopy(buf, offset + pos, b, off, n);
+      pos += n;
+    }
+
+    public int getByteOrdering() {
+      return EndianType.BIG_ENDIAN;
+    }
+
+    public byte readByte() throws IOException {
+      return (byte) read();
+    }
+
+    public int readUnsignedByte() throws IOException {
+      return read();
+    }
+
+    public short readShort() throws IOException {
+      return (short) ((read() << 8) | read());
+    }
+
+    public int readUnsignedShort() throws IOException {
+      return (read() << 8) | read();
+    }
+
+    public int readInt() throws IOException {
+      return (read() << 24) | (read() << 16) | (read() << 8) | read();
+    }
+
+    public long readUnsignedInt() throws IOException {
+      return readInt() & 0xffffffffL;
+    }
+
+    public long readLong() throws IOException {
+      return ((long) readInt() << 32) | readUnsignedInt();
+    }
+
+    public float readFloat() throws IOException {
+      return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IOException {
+      return Double.longBitsToDouble(readLong());
+    }
+
+    public int skipBytes(int n) throws IOException {
+      if (pos + n > length) throw new EOFException();
+      pos += n;
+      return n;
+    }
+
+    public void write(int b) throws IOException {
+      throw new IOException("read only");
+    }
+
+    public void writeByte(int v) throws IOException {
+      throw new IOException("read only");
+    }
+
+    public void writeShort(int v) throws IOException {
+      throw new IOException("read only");
+    }
+
+    public void writeInt(int v) throws IOException {
+      throw new IOException("read only");
+    }
+
+    public void writeLong(long v) throws IOException {
+      throw new IOException("read only");
+    }
+
+    public void writeFloat(float v) throws IOException {
+      throw new IOException("read only");
+    }
+
+    public void writeDouble(double v) throws IOException {
+      throw new IOException("read only");
+    }
+
+    public void flush() {
+    }
+  }
+
 } // end Grib2JpegDecoder
@@ -0,0 +1,103 @@
+/* Copyright Unidata */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.featurecollection.FeatureCollectionConfig;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.grib.GribIndexCache;
+import ucar.nc2.util.CancelTask;
+import ucar.nc2.util.cache.FileCache;
+import ucar.nc2.util.cache.FileCacheIF;
+import ucar.nc2.util.cache.FileCacheable;
+import ucar.nc2.util.cache.FileFactory;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent acquires of a GribCollection from a FileCache must open the index once and share the collection.
+ */
+public class TestGribCollectionShared {
+  static private final Logger logger = LoggerFactory.getLogger(TestGribCollectionShared.class);
+  static private final int NTHREADS = 8;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private FileCacheIF saveCache;
+
+  @Before
+  public void useFileCache() {
+    saveCache = GribCdmIndex.gribCollectionCache;
+    GribCdmIndex.gribCollectionCache = new FileCache("TestGribCollectionShared", 0, 100, -1, -1);
+  }
+
+  @After
+  public void restoreCache() {
+    GribCdmIndex.gribCollectionCache.clearCache(true);
+    GribCdmIndex.gribCollectionCache = saveCache;
+  }
+
+  @Test
+  public void testShared() throws Exception {
+    File data = tempFolder.newFile("HLYA10");
+    Files.copy(new File("../grib/src/test/data/HLYA10").toPath(), data.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    try (NetcdfFile nc = NetcdfFile.open(data.getPath())) { // writes the ncx4 index
+      Assert.assertNotNull(nc);
+    }
+    String index = GribIndexCache.getExistingFileOrCache(GribCdmIndex.makeIndexFile("HLYA10", tempFolder.getRoot()).getPath()).getPath();
+
+    AtomicInteger opens = new AtomicInteger();
+    FileFactory factory = new FileFactory() {
+      public FileCacheable open(DatasetUrl durl, int buffer_size, CancelTask cancelTask, Object iospMessage) throws IOException {
+        opens.incrementAndGet();
+        try (RandomAccessFile raf = new RandomAccessFile(durl.trueurl, "r")) {
+          return GribCdmIndex.openGribCollectionFromIndexFile(raf, new FeatureCollectionConfig(), logger);
+        }
+      }
+    };
+
+    ExecutorService pool = Executors.newFixedThreadPool(NTHREADS);
+    CyclicBarrier barrier = new CyclicBarrier(NTHREADS);
+    List<GribCollectionImmutable> gcs = new ArrayList<>();
+    try {
+      List<Callable<GribCollectionImmutable>> tasks = new ArrayList<>();
+      for (int i = 0; i < NTHREADS; i++)
+        tasks.add(() -> {
+          barrier.await();
+          return GribCdmIndex.acquireGribCollection(factory, index, index, -1, null, null);
+        });
+      for (Future<GribCollectionImmutable> f : pool.invokeAll(tasks))
+        gcs.add(f.get());
+    } finally {
+      pool.shutdown();
+    }
+
+    Assert.assertEquals(1, opens.get());
+    for (GribCollectionImmutable gc : gcs)
+      Assert.assertSame(gcs.get(0), gc);
+    for (GribCollectionImmutable gc : gcs)
+      gc.close();
+
+    // still in the cache
+    try (GribCollectionImmutable gc = GribCdmIndex.acquireGribCollection(factory, index, index, -1, null, null)) {
+      Assert.assertSame(gcs.get(0), gc);
+    }
+    Assert.assertEquals(1, opens.get());
+  }
+}
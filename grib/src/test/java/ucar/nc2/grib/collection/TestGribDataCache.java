@@ -0,0 +1,102 @@
+/*
+ * Copyright 1998-2015 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+import java.io.IOException;
+
+public class TestGribDataCache {
+
+  @After
+  public void turnOffCache() {
+    GribDataCache.shutdown();
+  }
+
+  @Test
+  public void testOnHeap() throws IOException {
+    readTwice(false);
+  }
+
+  @Test
+  public void testOffHeap() throws IOException {
+    readTwice(true);
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    GribDataCache.init(100 * 1000 * 1000, false);
+    GribDataCache dataCache = GribDataCache.getInstance();
+
+    float[] first;
+    try (NetcdfFile nc = NetcdfFile.open("../grib/src/test/data/HLYA10")) {
+      Variable var = nc.findVariable("VAR0-19-223_FROM_7-212--1_isobaric");
+      first = (float[]) var.read().get1DJavaArray(float.class);
+    }
+    long misses = dataCache.getStats().missCount();
+    Assert.assertTrue(dataCache.getBytes() > 0); // closing an unchanged collection keeps its records
+
+    // a new collection object on the same index finds the records
+    try (NetcdfFile nc = NetcdfFile.open("../grib/src/test/data/HLYA10")) {
+      Variable var = nc.findVariable("VAR0-19-223_FROM_7-212--1_isobaric");
+      float[] second = (float[]) var.read().get1DJavaArray(float.class);
+      Assert.assertArrayEquals(first, second, 0.0f);
+      Assert.assertEquals(misses, dataCache.getStats().missCount());
+      Assert.assertEquals(misses, dataCache.getStats().hitCount());
+    }
+  }
+
+  private void readTwice(boolean offHeap) throws IOException {
+    GribDataCache.init(100 * 1000 * 1000, offHeap);
+    GribDataCache dataCache = GribDataCache.getInstance();
+
+    try (NetcdfFile nc = NetcdfFile.open("../grib/src/test/data/HLYA10")) {
+      Variable var = nc.findVariable("VAR0-19-223_FROM_7-212--1_isobaric");
+      float[] first = (float[]) var.read().get1DJavaArray(float.class);
+      long misses = dataCache.getStats().missCount();
+      Assert.assertTrue(misses > 0);
+      Assert.assertEquals(0, dataCache.getStats().hitCount());
+      Assert.assertTrue(dataCache.getBytes() > 0);
+
+      float[] second = (float[]) var.read().get1DJavaArray(float.class);
+      Assert.assertArrayEquals(first, second, 0.0f);
+      Assert.assertEquals(misses, dataCache.getStats().missCount());
+      Assert.assertEquals(misses, dataCache.getStats().hitCount());
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+/* Copyright Unidata */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.featurecollection.FeatureCollectionConfig;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.grib.GribIndexCache;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Formatter;
+
+/**
+ * Opening an ncx4 index from a memory mapped region must give the same collection as reading it into a byte array.
+ */
+public class TestGribIndexMemoryMap {
+  static private final Logger logger = LoggerFactory.getLogger(TestGribIndexMemoryMap.class);
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void resetMemoryMap() {
+    GribCdmIndex.setUseMemoryMap(false);
+  }
+
+  @Test
+  public void testGrib2() throws IOException {
+    compare("HLYA10");
+  }
+
+  @Test
+  public void testGrib1() throws IOException {
+    compare("complex_packing.grib1");
+  }
+
+  private void compare(String name) throws IOException {
+    File data = tempFolder.newFile(name);
+    Files.copy(new File("../grib/src/test/data/" + name).toPath(), data.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    try (NetcdfFile nc = NetcdfFile.open(data.getPath())) { // writes the ncx4 index
+      Assert.assertNotNull(nc);
+    }
+    File index = GribIndexCache.getExistingFileOrCache(GribCdmIndex.makeIndexFile(name, tempFolder.getRoot()).getPath());
+    Assert.assertNotNull(index);
+
+    String copied = show(index, false);
+    String mapped = show(index, true);
+    Assert.assertTrue(copied.contains("Variable"));
+    Assert.assertEquals(copied, mapped);
+  }
+
+  private String show(File index, boolean useMemoryMap) throws IOException {
+    GribCdmIndex.setUseMemoryMap(useMemoryMap);
+    FeatureCollectionConfig config = new FeatureCollectionConfig();
+    Formatter f = new Formatter();
+    try (RandomAccessFile raf = new RandomAccessFile(index.getPath(), "r");
+         GribCollectionImmutable gc = GribCdmIndex.openGribCollectionFromIndexFile(raf, config, logger)) {
+      Assert.assertNotNull(gc);
+      f.format("masterRuntime=%d%n", gc.masterRuntime.getSize());
+      for (GribCollectionImmutable.Dataset ds : gc.getDatasets()) {
+        for (GribCollectionImmutable.GroupGC g : ds.getGroups()) {
+          f.format("Group %s%n", g.getId());
+          for (GribCollectionImmutable.VariableIndex v : g.getVariables()) {
+            v.readRecords();
+            f.format(" Variable %s records=%d%n", v.toStringFrom(), v.getNRecords());
+          }
+        }
+      }
+    }
+    return f.toString();
+  }
+}
@@ -0,0 +1,90 @@
+/* Copyright Unidata */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.featurecollection.FeatureCollectionType;
+import thredds.inventory.CollectionUpdateType;
+import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.grib.GribIndexCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Formatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Making the indexes of a file partition in the index pool must give the same collection as making them serially,
+ * also when collections with different numbers of threads are updated at the same time.
+ */
+public class TestGribIndexParallel {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TestGribIndexParallel.class);
+  static private final String[] files = {"cosmo-eu.grib2", "rap-native.grib2", "MRMS_LowLevelCompositeReflectivity_00.50_20141207-072038.grib2"};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void shutdown() {
+    GribCdmIndex.shutdownIndexPool();
+  }
+
+  @Test
+  public void testFilePartition() throws IOException {
+    String serial = update("serial", 1);
+    String parallel = update("parallel", 4);
+    Assert.assertTrue(serial.contains("Variable"));
+    Assert.assertEquals(serial, parallel);
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    String serial = update("serial", 1);
+    ExecutorService exec = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> small = exec.submit(() -> update("small", 2));
+      Future<String> large = exec.submit(() -> update("large", 4));
+      Assert.assertEquals(serial, small.get());
+      Assert.assertEquals(serial, large.get());
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  // copy the test files into their own directory, make the partition and return a summary of it
+  private String update(String name, int nthreads) throws IOException {
+    File dir = tempFolder.newFolder(name);
+    for (String filename : files)
+      Files.copy(new File("../grib/src/test/data/" + filename).toPath(), new File(dir, filename).toPath());
+
+    FeatureCollectionConfig config = new FeatureCollectionConfig(name, "test/" + name, FeatureCollectionType.GRIB2,
+            dir.getPath().replace('\\', '/') + "/.*grib2$", null, null, null, "file", null);
+    config.gribConfig.indexThreads = nthreads;
+    Assert.assertTrue(GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, logger));
+
+    File index = GribIndexCache.getExistingFileOrCache(new File(dir, name + GribCdmIndex.NCX_SUFFIX).getPath());
+    Assert.assertNotNull(index);
+    Formatter f = new Formatter();
+    try (NetcdfFile nc = NetcdfFile.open(index.getPath())) {
+      show(nc.getRootGroup(), f);
+    }
+    return f.toString();
+  }
+
+  private void show(Group g, Formatter f) {
+    f.format("Group %s%n", g.getShortName());
+    for (Variable v : g.getVariables())
+      f.format(" Variable %s%n", v.getNameAndDimensions());
+    for (Group nested : g.getGroups())
+      show(nested, f);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 1998-2015 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Multi-record reads must give the same result when the records are decoded on the pool.
+ * The test files have one record each, so a second record of the same variable is added, at another level or time.
+ */
+public class TestGribParallelDecode {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void resetDecodeThreads() {
+    GribDataReader.setDecodeThreads(0, 1);
+  }
+
+  @Test
+  public void testGrib2() throws IOException {
+    byte[] rec = Files.readAllBytes(new File("../grib/src/test/data/HLYA10").toPath());
+    int start = indexOfGrib(rec);
+    byte[] rec2 = rec.clone();
+    // walk to section 4 (template 4.0), change the value of the first fixed surface: 1000 hPa -> 500 hPa
+    int pos = start + 16;
+    while (rec2[pos + 4] != 4)
+      pos += ByteBuffer.wrap(rec2, pos, 4).getInt();
+    ByteBuffer.wrap(rec2).putInt(pos + 24, 50000);
+    compare(twoRecords("twoLevels.grib2", rec, rec2), 2);
+  }
+
+  @Test
+  public void testGrib1() throws IOException {
+    byte[] rec = Files.readAllBytes(new File("../grib/src/test/data/complex_packing.grib1").toPath());
+    int pds = indexOfGrib(rec) + 8;
+    byte[] rec2 = rec.clone();
+    // a later time interval: P1 and P2
+    rec2[pds + 18] += 2;
+    rec2[pds + 19] += 2;
+    compare(twoRecords("twoTimes.grib1", rec, rec2), 2);
+  }
+
+  private int indexOfGrib(byte[] b) {
+    for (int i = 0; i < b.length - 4; i++)
+      if (b[i] == 'G' && b[i + 1] == 'R' && b[i + 2] == 'I' && b[i + 3] == 'B') return i;
+    throw new IllegalStateException("no GRIB record");
+  }
+
+  private String twoRecords(String name, byte[] rec1, byte[] rec2) throws IOException {
+    File file = tempFolder.newFile(name);
+    byte[] both = new byte[rec1.length + rec2.length];
+    System.arraycopy(rec1, 0, both, 0, rec1.length);
+    System.arraycopy(rec2, 0, both, rec1.length, rec2.length);
+    Files.write(file.toPath(), both);
+    return file.getPath();
+  }
+
+  private void compare(String filename, int nrecords) throws IOException {
+    long before = GribDataReader.getPoolDecodeCount();
+    Map<String, float[]> serial = readAll(filename);
+    Assert.assertEquals(before, GribDataReader.getPoolDecodeCount());
+
+    GribDataReader.setDecodeThreads(4, 2);
+    Map<String, float[]> parallel = readAll(filename);
+    long decoded = GribDataReader.getPoolDecodeCount() - before;
+    Assert.assertTrue("records decoded on the pool: " + decoded, decoded >= nrecords);
+
+    Assert.assertFalse(serial.isEmpty());
+    Assert.assertEquals(serial.keySet(), parallel.keySet());
+    for (String name : serial.keySet())
+      Assert.assertArrayEquals(name, serial.get(name), parallel.get(name), 0.0f);
+  }
+
+  private Map<String, float[]> readAll(String filename) throws IOException {
+    Map<String, float[]> result = new HashMap<>();
+    try (NetcdfFile nc = NetcdfFile.open(filename)) {
+      for (Variable v : nc.getVariables()) {
+        if (v.getRank() < 3 || v.getDataType() != ucar.ma2.DataType.FLOAT) continue;
+        result.put(v.getFullName(), (float[]) v.read().get1DJavaArray(float.class));
+      }
+    }
+    return result;
+  }
+}
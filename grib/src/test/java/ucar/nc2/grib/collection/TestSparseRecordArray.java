@@ -0,0 +1,76 @@
+/*
+ * Copyright 1998-2015 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.coord.SparseArray;
+
+public class TestSparseRecordArray {
+
+  @Test
+  public void testLookup() {
+    int[] shape = new int[] {2, 3};
+    int[] track = new int[] {1, 0, 2, 0, 3, 0};
+    SparseRecordArray sa = new SparseRecordArray.Builder(shape, track, 3, 0)
+            .add(0, 100L, 0, 16)
+            .add(1, 5000000000L, 40, 16)
+            .add(2, 300L, 0, 0)
+            .build();
+
+    Assert.assertEquals(6, sa.getTotalSize());
+    Assert.assertEquals(3, sa.countNotMissing());
+    Assert.assertNull(sa.getContent(1));
+    Assert.assertNull(sa.getContent(new int[] {1, 0}));
+
+    GribCollectionImmutable.Record r = sa.getContent(new int[] {0, 2});
+    Assert.assertEquals(1, r.fileno);
+    Assert.assertEquals(5000000000L, r.pos);
+    Assert.assertEquals(40, r.bmsOffset);
+    Assert.assertEquals(16, r.drsOffset);
+
+    SparseArray<GribCollectionImmutable.Record> full = sa.toSparseArray();
+    for (int i = 0; i < sa.getTotalSize(); i++) {
+      GribCollectionImmutable.Record want = full.getContent(i);
+      GribCollectionImmutable.Record got = sa.getContent(i);
+      if (want == null) {
+        Assert.assertNull(got);
+        continue;
+      }
+      Assert.assertEquals(want.fileno, got.fileno);
+      Assert.assertEquals(want.pos, got.pos);
+      Assert.assertEquals(want.bmsOffset, got.bmsOffset);
+      Assert.assertEquals(want.drsOffset, got.drsOffset);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/* Copyright Unidata */
+package opendap.dap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Bulk XDR encoding and decoding of the primitive vectors.
+ * Rather than moving one value at a time through DataOutputStream / DataInputStream,
+ * values are converted a chunk at a time through a big-endian ByteBuffer, which is reused by each thread.
+ * The bytes on the wire are identical to writeFloat(), writeDouble() and writeInt().
+ *
+ * @since 5.0
+ */
+public class XdrVectorIO {
+    static private final int BUFFER_SIZE = 64 * 1024; // bytes, multiple of 8
+
+    static private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(BUFFER_SIZE); // big-endian by default
+        }
+    };
+
+    private XdrVectorIO() {
+    }
+
+    /**
+     * Write vals[i] for i = start, start+stride, ... i <= stop, as XDR floats.
+     */
+    static public void writeFloats(DataOutputStream sink, float[] vals, int start, int stop, int stride) throws IOException {
+        ByteBuffer bb = buffers.get();
+        int chunk = BUFFER_SIZE / 4;
+        int i = start;
+        while (i <= stop) {
+            int n = Math.min(chunk, 1 + (stop - i) / stride);
+            bb.clear();
+            FloatBuffer fb = bb.asFloatBuffer();
+            if (stride == 1) {
+                fb.put(vals, i, n);
+            } else {
+                for (int k = 0; k < n; k++)
+                    fb.put(vals[i + k * stride]);
+            }
+            sink.write(bb.array(), 0, n * 4);
+            i += n * stride;
+        }
+    }
+
+    /**
+     * Write vals[i] for i = start, start+stride, ... i <= stop, as XDR doubles.
+     */
+    static public void writeDoubles(DataOutputStream sink, double[] vals, int start, int stop, int stride) throws IOException {
+        ByteBuffer bb = buffers.get();
+        int chunk = BUFFER_SIZE / 8;
+        int i = start;
+        while (i <= stop) {
+            int n = Math.min(chunk, 1 + (stop - i) / stride);
+            bb.clear();
+            DoubleBuffer db = bb.asDoubleBuffer();
+            if (stride == 1) {
+                db.put(vals, i, n);
+            } else {
+                for (int k = 0; k < n; k++)
+                    db.put(vals[i + k * stride]);
+            }
+            sink.write(bb.array(), 0, n * 8);
+            i += n * stride;
+        }
+    }
+
+    /**
+     * Write vals[i] for i = start, start+stride, ... i <= stop, as XDR ints.
+     */
+    static public void writeInts(DataOutputStream sink, int[] vals, int start, int stop, int stride) throws IOException {
+        ByteBuffer bb = buffers.get();
+        int chunk = BUFFER_SIZE / 4;
+        int i = start;
+        while (i <= stop) {
+            int n = Math.min(chunk, 1 + (stop - i) / stride);
+            bb.clear();
+            IntBuffer ib = bb.asIntBuffer();
+            if (stride == 1) {
+                ib.put(vals, i, n);
+            } else {
+                for (int k = 0; k < n; k++)
+                    ib.put(vals[i + k * stride]);
+            }
+            sink.write(bb.array(), 0, n * 4);
+            i += n * stride;
+        }
+    }
+
+    /**
+     * Write vals[i] for i = start, start+stride, ... i <= stop, widened to XDR ints.
+     */
+    static public void writeShorts(DataOutputStream sink, short[] vals, int start, int stop, int stride) throws IOException {
+        ByteBuffer bb = buffers.get();
+        int chunk = BUFFER_SIZE / 4;
+        int i = start;
+        while (i <= stop) {
+            int n = Math.min(chunk, 1 + (stop - i) / stride);
+            bb.clear();
+            IntBuffer ib = bb.asIntBuffer();
+            for (int k = 0; k < n; k++)
+                ib.put((int) vals[i + k * stride]);
+            sink.write(bb.array(), 0, n * 4);
+            i += n * stride;
+        }
+    }
+
+    /**
+     * Read vals.length XDR floats. The statusUI is updated once per chunk.
+     */
+    static public void readFloats(DataInputStream source, float[] vals, StatusUI statusUI) throws IOException, DataReadException {
+        ByteBuffer bb = buffers.get();
+        int chunk = BUFFER_SIZE / 4;
+        for (int i = 0; i < vals.length; i += chunk) {
+            int n = Math.min(chunk, vals.length - i);
+            source.readFully(bb.array(), 0, n * 4);
+            bb.clear();
+            bb.asFloatBuffer().get(vals, i, n);
+            checkStatus(statusUI, n * 4);
+        }
+    }
+
+    /**
+     * Read vals.length XDR doubles. The statusUI is updated once per chunk.
+     */
+    static public void readDoubles(DataInputStream source, double[] vals, StatusUI statusUI) throws IOException, DataReadException {
+        ByteBuffer bb = buffers.get();
+        int chunk = BUFFER_SIZE / 8;
+        for (int i = 0; i < vals.length; i += chunk) {
+            int n = Math.min(chunk, vals.length - i);
+            source.readFully(bb.array(), 0, n * 8);
+            bb.clear();
+            bb.asDoubleBuffer().get(vals, i, n);
+            checkStatus(statusUI, n * 8);
+        }
+    }
+
+    /**
+     * Read vals.length XDR ints. The statusUI is updated once per chunk.
+     */
+    static public void readInts(DataInputStream source, int[] vals, StatusUI statusUI) throws IOException, DataReadException {
+        ByteBuffer bb = buffers.get();
+        int chunk = BUFFER_SIZE / 4;
+        for (int i = 0; i < vals.length; i += chunk) {
+            int n = Math.min(chunk, vals.length - i);
+            source.readFully(bb.array(), 0, n * 4);
+            bb.clear();
+            bb.asIntBuffer().get(vals, i, n);
+            checkStatus(statusUI, n * 4);
+        }
+    }
+
+    /**
+     * Read vals.length XDR ints, narrowed to shorts. The statusUI is updated once per chunk.
+     */
+    static public void readShorts(DataInputStream source, short[] vals, StatusUI statusUI) throws IOException, DataReadException {
+        ByteBuffer bb = buffers.get();
+        int chunk = BUFFER_SIZE / 4;
+        for (int i = 0; i < vals.length; i += chunk) {
+            int n = Math.min(chunk, vals.length - i);
+            source.readFully(bb.array(), 0, n * 4);
+            bb.clear();
+            IntBuffer ib = bb.asIntBuffer();
+            for (int k = 0; k < n; k++)
+                vals[i + k] = (short) ib.get(k);
+            checkStatus(statusUI, n * 4);
+        }
+    }
+
+    static private void checkStatus(StatusUI statusUI, int nbytes) throws DataReadException {
+        if (statusUI != null) {
+            statusUI.incrementByteCount(nbytes);
+            if (statusUI.userCancelled())
+                throw new DataReadException("User cancelled");
+        }
+    }
+}
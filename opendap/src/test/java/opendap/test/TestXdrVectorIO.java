@@ -0,0 +1,102 @@
+/* Copyright Unidata */
+package opendap.test;
+
+import opendap.dap.XdrVectorIO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+/**
+ * Check that the bulk XDR encoding is byte for byte the same as writing one value at a time,
+ * across chunk boundaries and with strides.
+ */
+public class TestXdrVectorIO {
+  private static final int N = 50000; // spans several chunks
+
+  @Test
+  public void testFloats() throws IOException {
+    Random r = new Random(17);
+    float[] vals = new float[N];
+    for (int i = 0; i < N; i++) vals[i] = r.nextFloat() * 1000 - 500;
+    vals[3] = Float.NaN;
+    vals[4] = Float.NEGATIVE_INFINITY;
+
+    for (int stride : new int[]{1, 3, 7}) {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      DataOutputStream dout = new DataOutputStream(expected);
+      for (int i = 1; i <= N - 2; i += stride) dout.writeFloat(vals[i]);
+
+      ByteArrayOutputStream result = new ByteArrayOutputStream();
+      XdrVectorIO.writeFloats(new DataOutputStream(result), vals, 1, N - 2, stride);
+      Assert.assertArrayEquals("stride " + stride, expected.toByteArray(), result.toByteArray());
+    }
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    XdrVectorIO.writeFloats(new DataOutputStream(bout), vals, 0, N - 1, 1);
+    float[] back = new float[N];
+    XdrVectorIO.readFloats(new DataInputStream(new ByteArrayInputStream(bout.toByteArray())), back, null);
+    Assert.assertArrayEquals(vals, back, 0.0f);
+  }
+
+  @Test
+  public void testDoubles() throws IOException {
+    Random r = new Random(19);
+    double[] vals = new double[N];
+    for (int i = 0; i < N; i++) vals[i] = r.nextGaussian() * 1.0e10;
+
+    for (int stride : new int[]{1, 5}) {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      DataOutputStream dout = new DataOutputStream(expected);
+      for (int i = 0; i <= N - 1; i += stride) dout.writeDouble(vals[i]);
+
+      ByteArrayOutputStream result = new ByteArrayOutputStream();
+      XdrVectorIO.writeDoubles(new DataOutputStream(result), vals, 0, N - 1, stride);
+      Assert.assertArrayEquals("stride " + stride, expected.toByteArray(), result.toByteArray());
+    }
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    XdrVectorIO.writeDoubles(new DataOutputStream(bout), vals, 0, N - 1, 1);
+    double[] back = new double[N];
+    XdrVectorIO.readDoubles(new DataInputStream(new ByteArrayInputStream(bout.toByteArray())), back, null);
+    Assert.assertArrayEquals(vals, back, 0.0);
+  }
+
+  @Test
+  public void testIntsAndShorts() throws IOException {
+    Random r = new Random(23);
+    int[] ivals = new int[N];
+    short[] svals = new short[N];
+    for (int i = 0; i < N; i++) {
+      ivals[i] = r.nextInt();
+      svals[i] = (short) r.nextInt();
+    }
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    DataOutputStream dout = new DataOutputStream(expected);
+    for (int i = 0; i < N; i++) dout.writeInt(ivals[i]);
+    for (int i = 2; i < N; i += 2) dout.writeInt((int) svals[i]);
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    DataOutputStream rout = new DataOutputStream(result);
+    XdrVectorIO.writeInts(rout, ivals, 0, N - 1, 1);
+    XdrVectorIO.writeShorts(rout, svals, 2, N - 1, 2);
+    Assert.assertArrayEquals(expected.toByteArray(), result.toByteArray());
+
+    int[] iback = new int[N];
+    short[] sback = new short[(N - 1) / 2];
+    DataInputStream din = new DataInputStream(new ByteArrayInputStream(result.toByteArray()));
+    XdrVectorIO.readInts(din, iback, null);
+    XdrVectorIO.readShorts(din, sback, null);
+    Assert.assertArrayEquals(ivals, iback);
+    for (int i = 0; i < sback.length; i++)
+      Assert.assertEquals(svals[2 + 2 * i], sback[i]);
+  }
+
+  @Test(expected = EOFException.class)
+  public void testTruncated() throws IOException {
+    byte[] bytes = new byte[4 * 10 - 1];
+    XdrVectorIO.readFloats(new DataInputStream(new ByteArrayInputStream(bytes)), new float[10], null);
+  }
+}
@@ -138,6 +138,7 @@ public class Tdm {
 
   public void setNThreads(int n) {
     executor = Executors.newFixedThreadPool(n);
+    GribCdmIndex.setIndexThreads(n);  // also build the indexes within a collection in parallel
     tdmLogger.info(" TDM nthreads= {}", n);
   }
 
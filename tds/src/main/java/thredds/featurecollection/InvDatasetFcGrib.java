@@ -169,8 +169,11 @@ public class InvDatasetFcGrib extends InvDatasetFeatureCollection {
         logger.error("InvDatasetFcGrib.updateCollection failed " + this.config);
 
       logger.debug("{}: GribCollection object was recreated", name);
-      if (previous != null)
+      if (previous != null) {
+        GribDataCache dataCache = GribDataCache.getInstance();
+        if (dataCache != null) dataCache.invalidate(previous);
         previous.close();                 // LOOK may be another thread using - other thread will fail
+      }
       if (previousLatest != null) previousLatest.close();
 
     } catch (IOException ioe) {
@@ -37,6 +37,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import thredds.server.config.TdsContext;
+import thredds.server.wms.ThreddsWmsCache;
 import thredds.servlet.ServletUtil;
 import ucar.nc2.dataset.NetcdfDataset;
 
@@ -48,6 +49,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribDataCache;
 import ucar.nc2.util.cache.FileCacheIF;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -163,6 +165,14 @@ public class DebugCommands {
           fc.showCache(f);
         }
 
+        GribDataCache dataCache = GribDataCache.getInstance();
+        if (dataCache == null) f.format("%nGribDataCache : turned off%n");
+        else dataCache.showCache(f);
+
+        ThreddsWmsCache wmsCache = ThreddsWmsCache.getInstance();
+        if (wmsCache == null) f.format("%nThreddsWmsCache : turned off%n");
+        else wmsCache.showCache(f);
+
         e.pw.flush();
       }
     };
@@ -174,6 +184,10 @@ public class DebugCommands {
          RandomAccessFile.getGlobalFileCache().clearCache(false);
          FileCacheIF fc = GribCdmIndex.gribCollectionCache;
          if (fc != null) fc.clearCache(false);
+         GribDataCache dataCache = GribDataCache.getInstance();
+         if (dataCache != null) dataCache.clear();
+         ThreddsWmsCache wmsCache = ThreddsWmsCache.getInstance();
+         if (wmsCache != null) wmsCache.clear();
          e.pw.println("  ClearCache ok");
        }
      };
@@ -54,11 +54,18 @@ import thredds.server.catalog.DatasetScan;
 import thredds.server.ncss.controller.NcssDiskCache;
 import thredds.server.ncss.format.FormatsAvailabilityService;
 import thredds.server.ncss.format.SupportedFormat;
+import thredds.server.wms.ThreddsWmsCache;
 import thredds.util.LoggerFactorySpecial;
 import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.grib.GribIndexCache;
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribDataCache;
+import ucar.nc2.grib.collection.GribDataReader;
+import ucar.nc2.iosp.hdf5.DataBTree;
+import ucar.nc2.iosp.hdf5.H5iosp;
+import ucar.nc2.iosp.hdf5.H5iospWriter;
 import ucar.nc2.jni.netcdf.Nc4Iosp;
 import ucar.nc2.ncml.Aggregation;
 import ucar.nc2.util.DiskCache;
@@ -76,6 +83,7 @@ import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * A Singleton class to initialize and shutdown the CDM/TDS
@@ -114,6 +122,8 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
   @Autowired
   @Qualifier("fcTriggerExecutor")
   private ExecutorService executor;  // need this so we can shut it down
+  private ExecutorService h5InflateExecutor;
+  private ExecutorService h5DeflateExecutor;
 
   @Autowired
   private AllowedServices allowedServices;
@@ -290,7 +300,19 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
       }
     }
 
-    if (Nc4Iosp.isClibraryPresent()) {  // NetCDF-4 lib could be set as an environment variable or as a JVM parameter.
+    // 5.0: write netCDF-4 files in pure Java when possible, so they are not serialized on the C library lock. default is off
+    boolean netcdf4JavaWriter = ThreddsConfig.getBoolean("Netcdf4Writer.useJava", false);
+    int h5DeflateThreads = ThreddsConfig.getInt("Netcdf4Writer.deflateThreads", 0);
+    NetcdfFileWriter.setJavaNetcdf4Writer(netcdf4JavaWriter);
+    if (netcdf4JavaWriter && h5DeflateThreads > 0) {
+      h5DeflateExecutor = Executors.newFixedThreadPool(h5DeflateThreads);
+      H5iospWriter.setChunkDeflateExecutor(h5DeflateExecutor, 2 * h5DeflateThreads);
+    }
+    startupLog.info("TdsInit: Netcdf4Writer useJava= " + netcdf4JavaWriter + " deflateThreads= " + h5DeflateThreads);
+
+    // NetCDF-4 lib could be set as an environment variable or as a JVM parameter.
+    // It is needed for the files that the Java writer cant write.
+    if (Nc4Iosp.isClibraryPresent()) {
       FormatsAvailabilityService.setFormatAvailability(SupportedFormat.NETCDF4, true);
       // FormatsAvailabilityService.setFormatAvailability(SupportedFormat.NETCDF4EXT, true);
     }
@@ -344,6 +366,46 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     GribIndexCache.setDiskCache2(gribCache);
     startupLog.info("TdsInit: GribIndex=" + gribCache);
 
+    // 5.0: parse ncx indexes from a memory mapped region. default is off
+    boolean gribIndexUseMemoryMap = ThreddsConfig.getBoolean("GribIndex.useMemoryMap", false);
+    GribCdmIndex.setUseMemoryMap(gribIndexUseMemoryMap);
+    startupLog.info("TdsInit: GribIndex useMemoryMap= " + gribIndexUseMemoryMap);
+
+    // 5.0: decode the records of a multi-record GRIB read on a shared pool. default is off
+    int gribDecodeThreads = ThreddsConfig.getInt("GribDecode.threads", 0);
+    int gribDecodeMaxPerRequest = ThreddsConfig.getInt("GribDecode.maxPerRequest", 4);
+    if (gribDecodeThreads > 0) {
+      GribDataReader.setDecodeThreads(gribDecodeThreads, gribDecodeMaxPerRequest);
+      startupLog.info("TdsInit: GribDecode threads= " + gribDecodeThreads + " maxPerRequest= " + gribDecodeMaxPerRequest);
+    }
+
+    // 5.0: memory cache of decoded GRIB records. default is off
+    long gribDataCacheSize = ThreddsConfig.getBytes("GribDataCache.maxSize", 0);
+    boolean gribDataCacheOffHeap = ThreddsConfig.getBoolean("GribDataCache.offHeap", false);
+    if (gribDataCacheSize > 0) {
+      GribDataCache.init(gribDataCacheSize, gribDataCacheOffHeap);
+      startupLog.info("TdsInit: GribDataCache maxSize= " + gribDataCacheSize + " offHeap= " + gribDataCacheOffHeap);
+    }
+
+    // 5.0: HDF5 / netCDF-4 cache of uncompressed chunks, per open file, and parallel chunk inflation. default is off
+    long h5ChunkCacheSize = ThreddsConfig.getBytes("H5ChunkCache.maxSize", 0);
+    int h5InflateThreads = ThreddsConfig.getInt("H5ChunkCache.inflateThreads", 0);
+    H5iosp.setChunkCacheSize(h5ChunkCacheSize);
+    if (h5InflateThreads > 0) {
+      h5InflateExecutor = Executors.newFixedThreadPool(h5InflateThreads);
+      H5iosp.setChunkInflateExecutor(h5InflateExecutor, 2 * h5InflateThreads);
+    }
+    int h5MaxBtreeNodes = ThreddsConfig.getInt("H5ChunkCache.maxBtreeNodes", 0);
+    DataBTree.setMaxCachedNodes(h5MaxBtreeNodes);
+    startupLog.info("TdsInit: H5ChunkCache maxSize= " + h5ChunkCacheSize + " inflateThreads= " + h5InflateThreads +
+            " maxBtreeNodes= " + h5MaxBtreeNodes);
+
+    // 5.0: WMS cache of opened datasets and extracted map features. default is 100 datasets, 10 million feature values
+    int wmsMaxDatasets = ThreddsConfig.getInt("WMS.cache.maxDatasets", 100);
+    long wmsMaxFeatureValues = ThreddsConfig.getLong("WMS.cache.maxFeatureValues", 10 * 1000 * 1000);
+    ThreddsWmsCache.init(wmsMaxDatasets, wmsMaxFeatureValues);
+    startupLog.info("TdsInit: ThreddsWmsCache maxDatasets= " + wmsMaxDatasets + " maxFeatureValues= " + wmsMaxFeatureValues);
+
     // LOOK just create the diskCache here and send it in
     ncssDiskCache.init();
 
@@ -485,6 +547,17 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
 
     // memory caches
     GribCdmIndex.shutdown();
+    GribDataReader.shutdown();
+    GribDataCache.shutdown();
+    ThreddsWmsCache.shutdown();
+    if (h5InflateExecutor != null) {
+      H5iosp.setChunkInflateExecutor(null, 1);
+      h5InflateExecutor.shutdownNow();
+    }
+    if (h5DeflateExecutor != null) {
+      H5iospWriter.setChunkDeflateExecutor(null, 1);
+      h5DeflateExecutor.shutdownNow();
+    }
     datasetManager.setDatasetTracker(null); // closes the existing tracker
 
     collectionUpdater.shutdown();
@@ -137,9 +137,43 @@ public class NcssGridController extends AbstractNcssController {
                 " have different vertical levels. Grid requests with vertCoord must have variables with same vertical levels.");
       }
 
+    // netcdf-3 is streamed straight to the client; netcdf-4 has to be written to a file first
+    if (version == NetcdfFileWriter.Version.netcdf3 && ThreddsConfig.getBoolean("NetcdfSubsetService.streamNetcdf3", true)) {
+      streamCFNetcdf3(res, gcd, params, datasetPath, sf);
+      return;
+    }
+
     String responseFile = getResponseFileName(datasetPath, version);
     File netcdfResult = makeCFNetcdfFile(gcd, responseFile, params, version);
 
+    setGridResponseHeaders(res, datasetPath, version, sf);
+
+    IO.copyFileB(netcdfResult, res.getOutputStream(), 60000);
+    res.flushBuffer();
+    res.getOutputStream().close();
+    res.setStatus(HttpServletResponse.SC_OK);
+  }
+
+  private void streamCFNetcdf3(HttpServletResponse res, CoverageCollection gcd, NcssGridParamsBean params, String datasetPath, SupportedFormat sf)
+          throws NcssException, InvalidRangeException, ParseException, IOException {
+
+    SubsetParams subset = params.makeSubset(gcd);
+
+    // any errors must be found before the first byte is sent
+    checkRequestSize(gcd, params, subset, NetcdfFileWriter.Version.netcdf3, true);
+
+    setGridResponseHeaders(res, datasetPath, NetcdfFileWriter.Version.netcdf3, sf);
+
+    Optional<Long> result = CFGridCoverageWriter2.writeNetcdf3Stream(gcd, params.getVar(), subset, params.isAddLatLon(), res.getOutputStream());
+    if (!result.isPresent())
+      throw new InvalidRangeException("Request contains no data: " + result.getErrorMessage());
+
+    res.flushBuffer();
+    res.getOutputStream().close();
+    res.setStatus(HttpServletResponse.SC_OK);
+  }
+
+  private void setGridResponseHeaders(HttpServletResponse res, String datasetPath, NetcdfFileWriter.Version version, SupportedFormat sf) {
     // filename download attachment
     String suffix = version.getSuffix();
     int pos = datasetPath.lastIndexOf("/");
@@ -153,11 +187,25 @@ public class NcssGridController extends AbstractNcssController {
     httpHeaders.set(ContentType.HEADER, sf.getMimeType());
     httpHeaders.set(Constants.Content_Disposition, Constants.setContentDispositionValue(filename));
     setResponseHeaders(res, httpHeaders);
+  }
 
-    IO.copyFileB(netcdfResult, res.getOutputStream(), 60000);
-    res.flushBuffer();
-    res.getOutputStream().close();
-    res.setStatus(HttpServletResponse.SC_OK);
+  // Test that there is data, and maxFileDownloadSize. always=false only tests if maxFileDownloadSize is set
+  private void checkRequestSize(CoverageCollection gcd, NcssGridParamsBean params, SubsetParams subset, NetcdfFileWriter.Version version,
+                                boolean always) throws InvalidRangeException, IOException {
+
+    long maxFileDownloadSize = ThreddsConfig.getBytes("NetcdfSubsetService.maxFileDownloadSize", -1L);
+    if (maxFileDownloadSize <= 0 && !always) return;
+
+    Optional<Long> estimatedSizeo = CFGridCoverageWriter2.writeOrTestSize(gcd, params.getVar(), subset, params.isAddLatLon(), true, null);
+    if (!estimatedSizeo.isPresent())
+      throw new InvalidRangeException("Request contains no data: " + estimatedSizeo.getErrorMessage());
+
+    long estimatedSize = estimatedSizeo.get();
+    if (version == NetcdfFileWriter.Version.netcdf4)
+      estimatedSize /= ESTIMATED_COMPRESION_RATE;
+
+    if (maxFileDownloadSize > 0 && estimatedSize > maxFileDownloadSize)
+      throw new RequestTooLargeException("NCSS response too large = " + estimatedSize + " max = " + maxFileDownloadSize);
   }
 
   File makeCFNetcdfFile(CoverageCollection gcd, String responseFilename, NcssGridParamsBean params, NetcdfFileWriter.Version version)
@@ -167,19 +215,7 @@ public class NcssGridController extends AbstractNcssController {
     SubsetParams subset = params.makeSubset(gcd);
 
     // Test maxFileDownloadSize
-    long maxFileDownloadSize = ThreddsConfig.getBytes("NetcdfSubsetService.maxFileDownloadSize", -1L);
-    if (maxFileDownloadSize > 0) {
-      Optional<Long> estimatedSizeo = CFGridCoverageWriter2.writeOrTestSize(gcd, params.getVar(), subset, params.isAddLatLon(), true, writer);
-      if (!estimatedSizeo.isPresent())
-        throw new InvalidRangeException("Request contains no data: " + estimatedSizeo.getErrorMessage());
-
-      long estimatedSize = estimatedSizeo.get();
-      if (version == NetcdfFileWriter.Version.netcdf4)
-        estimatedSize /= ESTIMATED_COMPRESION_RATE;
-
-      if (estimatedSize > maxFileDownloadSize)
-        throw new RequestTooLargeException("NCSS response too large = " + estimatedSize + " max = " + maxFileDownloadSize);
-    }
+    checkRequestSize(gcd, params, subset, version, false);
 
     // write the file
     Optional<Long> estimatedSizeo = CFGridCoverageWriter2.writeOrTestSize(gcd, params.getVar(), subset, params.isAddLatLon(), false, writer);
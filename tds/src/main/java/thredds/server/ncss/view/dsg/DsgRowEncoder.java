@@ -0,0 +1,286 @@
+/* Copyright Unidata */
+package thredds.server.ncss.view.dsg;
+
+import ucar.ma2.Array;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
+import ucar.nc2.VariableSimpleIF;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.unidata.util.Format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes the rows of the CSV and XML point and station responses straight into a byte buffer, one for each request.
+ * The StructureMembers.Member of the wanted variables are found once, not by name for each observation,
+ * and times, numbers and scalar values are encoded without making intermediate Strings or Arrays.
+ * The text is the same as from CalendarDateFormatter.toDateTimeStringISO(), Format.dfrac() and Array.toString().trim().
+ *
+ * @since 5.0
+ */
+public class DsgRowEncoder {
+  static private final long MILLIS_PER_DAY = 24 * 3600 * 1000L;
+  static private final byte[] lineSeparator = System.lineSeparator().getBytes(CDM.utf8Charset);
+
+  private final OutputStream out;
+  private final List<VariableSimpleIF> wantedVariables;
+  private final byte[] buf = new byte[16 * 1024];
+  private int pos;
+
+  private StructureMembers members;              // the wantedMembers were found in these
+  private StructureMembers.Member[] wantedMembers;
+
+  private long day = Long.MIN_VALUE;  // dayPrefix is the date of this day
+  private byte[] dayPrefix;
+
+  public DsgRowEncoder(List<VariableSimpleIF> wantedVariables, OutputStream out) {
+    this.wantedVariables = wantedVariables;
+    this.out = out;
+  }
+
+  /**
+   * The members of the wanted variables, in the same order. Only looked up again when the StructureMembers change.
+   *
+   * @param sdata an observation
+   * @return member for each wanted variable, null if not in sdata
+   */
+  public StructureMembers.Member[] getWantedMembers(StructureData sdata) {
+    StructureMembers sm = sdata.getStructureMembers();
+    if (sm != members) {
+      wantedMembers = new StructureMembers.Member[wantedVariables.size()];
+      for (int i = 0; i < wantedMembers.length; i++)
+        wantedMembers[i] = sm.findMember(wantedVariables.get(i).getShortName());
+      members = sm;
+    }
+    return wantedMembers;
+  }
+
+  /**
+   * Write an ASCII char.
+   */
+  public void write(char c) throws IOException {
+    if (pos == buf.length) flushBuffer();
+    buf[pos++] = (byte) c;
+  }
+
+  /**
+   * Write a String in UTF-8.
+   */
+  public void write(String s) throws IOException {
+    int n = s.length();
+    for (int i = 0; i < n; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x80) {  // not ASCII
+        write(s.substring(i).getBytes(CDM.utf8Charset));
+        return;
+      }
+      if (pos == buf.length) flushBuffer();
+      buf[pos++] = (byte) c;
+    }
+  }
+
+  public void write(byte[] b) throws IOException {
+    if (b.length > buf.length - pos) {
+      flushBuffer();
+      if (b.length > buf.length) {
+        out.write(b);
+        return;
+      }
+    }
+    System.arraycopy(b, 0, buf, pos, b.length);
+    pos += b.length;
+  }
+
+  public void writeLineSeparator() throws IOException {
+    write(lineSeparator);
+  }
+
+  /**
+   * Write a String in UTF-8, escaping the characters that XMLStreamWriter escapes.
+   *
+   * @param s           the text
+   * @param isAttribute escape double quotes also
+   */
+  public void writeXml(String s, boolean isAttribute) throws IOException {
+    int start = 0;
+    int n = s.length();
+    for (int i = 0; i < n; i++) {
+      String entity;
+      switch (s.charAt(i)) {
+        case '<':
+          entity = "&lt;";
+          break;
+        case '>':
+          entity = "&gt;";
+          break;
+        case '&':
+          entity = "&amp;";
+          break;
+        case '"':
+          entity = isAttribute ? "&quot;" : null;
+          break;
+        default:
+          entity = null;
+      }
+      if (entity != null) {
+        write(s.substring(start, i));
+        write(entity);
+        start = i + 1;
+      }
+    }
+    write(start == 0 ? s : s.substring(start));
+  }
+
+  /**
+   * Write a time as CalendarDateFormatter.toDateTimeStringISO() does.
+   * The formatter is only called for the date, once a day.
+   */
+  public void writeTime(CalendarDate cd) throws IOException {
+    long millis = cd.getMillis();
+    long d = Math.floorDiv(millis, MILLIS_PER_DAY);
+    if (d != day) {
+      String s = CalendarDateFormatter.toDateTimeStringISO(cd);
+      dayPrefix = s.substring(0, s.indexOf('T') + 1).getBytes(CDM.utf8Charset);
+      day = d;
+    }
+    write(dayPrefix);
+
+    int msecs = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+    write2(msecs / 3600000);
+    write(':');
+    write2(msecs / 60000 % 60);
+    write(':');
+    write2(msecs / 1000 % 60);
+    if (msecs % 1000 != 0) {
+      write('.');
+      writeDigits(msecs % 1000, 3);
+    }
+    write('Z');
+  }
+
+  private void write2(int val) throws IOException {
+    writeDigits(val, 2);
+  }
+
+  /**
+   * Write a number as Format.dfrac() does: Double.toString(), with the fraction cut or zero padded to decimals digits.
+   * Falls back to Format.dfrac() for numbers that Double.toString() writes in exponential notation,
+   * and for numbers so close to a multiple of 10^-decimals that the cut is not obvious.
+   *
+   * @param d        the number
+   * @param decimals number of digits after the decimal point
+   */
+  public void writeFixed(double d, int decimals) throws IOException {
+    double x = Math.abs(d);
+    if (x >= 1.0e-3 && x < 1.0e5 && decimals >= 0 && decimals < pow10.length) {
+      long scale = pow10[decimals];
+      double p = x * scale;
+      long n = Math.round(p);
+      long cut;
+      if (Math.abs(p - n) > 1.0e-6)
+        cut = (long) Math.floor(p);   // not near a multiple
+      else if (n / (double) scale == x)
+        cut = n;                       // Double.toString() gives the decimal itself
+      else
+        cut = -1;                      // leave it to Format.dfrac()
+
+      if (cut >= 0) {
+        if (d < 0) write('-');
+        writeLong(cut / scale);
+        if (decimals > 0) {
+          write('.');
+          writeDigits(cut % scale, decimals);
+        }
+        return;
+      }
+    }
+    write(Format.dfrac(d, decimals));
+  }
+
+  static private final long[] pow10 = {1, 10, 100, 1000};
+
+  public void writeLong(long val) throws IOException {
+    if (val == Long.MIN_VALUE) {
+      write(Long.toString(val));
+      return;
+    }
+    if (val < 0) {
+      write('-');
+      val = -val;
+    }
+    int n = 1;
+    for (long v = val / 10; v > 0; v /= 10) n++;
+    writeDigits(val, n);
+  }
+
+  // the last n decimal digits of val >= 0, with leading zeros
+  private void writeDigits(long val, int n) throws IOException {
+    if (n > buf.length - pos) flushBuffer();
+    for (int i = pos + n - 1; i >= pos; i--) {
+      buf[i] = (byte) ('0' + val % 10);
+      val /= 10;
+    }
+    pos += n;
+  }
+
+  /**
+   * Write the value of a member, as Array.toString().trim() does.
+   *
+   * @param sdata observation
+   * @param m     member of sdata, if null nothing is written
+   * @param isXml remove characters not allowed in XML from Strings and escape the rest
+   */
+  public void writeValue(StructureData sdata, StructureMembers.Member m, boolean isXml) throws IOException {
+    if (m == null) return;
+    if (m.getSize() == 1) {
+      switch (m.getDataType()) {
+        case BYTE:
+          writeLong(sdata.getScalarByte(m));
+          return;
+        case SHORT:
+          writeLong(sdata.getScalarShort(m));
+          return;
+        case INT:
+          writeLong(sdata.getScalarInt(m));
+          return;
+        case LONG:
+          writeLong(sdata.getScalarLong(m));
+          return;
+        case FLOAT:
+          write(Float.toString(sdata.getScalarFloat(m)));
+          return;
+        case DOUBLE:
+          write(Double.toString(sdata.getScalarDouble(m)));
+          return;
+      }
+    }
+
+    Array dataArray = sdata.getArray(m);
+    String ss = dataArray.toString();
+    if (isXml) {
+      Class elemType = dataArray.getElementType();
+      if ((elemType == String.class) || (elemType == char.class) || (elemType == StructureData.class))
+        ss = ucar.nc2.util.xml.Parse.cleanCharacterData(ss); // make sure no bad chars
+      writeXml(ss.trim(), false);
+    } else {
+      write(ss.trim());
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    out.write(buf, 0, pos);
+    pos = 0;
+  }
+
+  /**
+   * Write the buffer to the OutputStream, and flush it. The OutputStream is not closed.
+   */
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+}
@@ -34,34 +34,30 @@ package thredds.server.ncss.view.dsg.point;
 
 import org.springframework.http.HttpHeaders;
 import thredds.server.ncss.exception.NcssException;
+import thredds.server.ncss.view.dsg.DsgRowEncoder;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
-import ucar.ma2.Array;
 import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.VariableSimpleIF;
-import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.PointFeature;
 import ucar.nc2.ft2.coverage.SubsetParams;
-import ucar.nc2.time.CalendarDateFormatter;
 import ucar.unidata.geoloc.EarthLocation;
-import ucar.unidata.util.Format;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 
 /**
  * Created by cwardgar on 2014/06/02.
  */
 public class PointSubsetWriterCSV extends AbstractPointSubsetWriter {
-    private final PrintWriter writer;
+    private final DsgRowEncoder writer;
 
     public PointSubsetWriterCSV(FeatureDatasetPoint fdPoint, SubsetParams ncssParams, OutputStream out)
             throws NcssException, IOException {
         super(fdPoint, ncssParams);
-      this.writer = new PrintWriter(new OutputStreamWriter(out, CDM.utf8Charset));
+      this.writer = new DsgRowEncoder(wantedVariables, out);
     }
 
     @Override
@@ -82,38 +78,37 @@ public class PointSubsetWriterCSV extends AbstractPointSubsetWriter {
     }
 
     @Override
-    public void writeHeader(PointFeature pf) {
-        writer.print("time,latitude[unit=\"degrees_north\"],longitude[unit=\"degrees_east\"]");
+    public void writeHeader(PointFeature pf) throws IOException {
+        writer.write("time,latitude[unit=\"degrees_north\"],longitude[unit=\"degrees_east\"]");
         for (VariableSimpleIF wantedVar : wantedVariables) {
-            writer.print(",");
-            writer.print(wantedVar.getShortName());
+            writer.write(",");
+            writer.write(wantedVar.getShortName());
             if (wantedVar.getUnitsString() != null)
-                writer.print("[unit=\"" + wantedVar.getUnitsString() + "\"]");
+                writer.write("[unit=\"" + wantedVar.getUnitsString() + "\"]");
         }
-        writer.println();
+        writer.writeLineSeparator();
     }
 
     @Override
     public void writePoint(PointFeature pointFeat) throws IOException {
         EarthLocation loc = pointFeat.getLocation();
 
-        writer.print(CalendarDateFormatter.toDateTimeStringISO(pointFeat.getObservationTimeAsCalendarDate()));
-        writer.print(',');
-        writer.print(Format.dfrac(loc.getLatitude(), 3));
-        writer.print(',');
-        writer.print(Format.dfrac(loc.getLongitude(), 3));
+        writer.writeTime(pointFeat.getObservationTimeAsCalendarDate());
+        writer.write(',');
+        writer.writeFixed(loc.getLatitude(), 3);
+        writer.write(',');
+        writer.writeFixed(loc.getLongitude(), 3);
 
         StructureData structureData = pointFeat.getDataAll();
-        for (VariableSimpleIF wantedVar : wantedVariables) {
-            writer.print(',');
-            Array dataArray = structureData.getArray(wantedVar.getShortName());
-            writer.print(dataArray.toString().trim());
+        for (StructureMembers.Member m : writer.getWantedMembers(structureData)) {
+            writer.write(',');
+            writer.writeValue(structureData, m, false);
         }
-        writer.println();
+        writer.writeLineSeparator();
     }
 
     @Override
-    public void writeFooter() {
+    public void writeFooter() throws IOException {
         writer.flush();
     }
 }
@@ -34,22 +34,18 @@ package thredds.server.ncss.view.dsg.point;
 
 import org.springframework.http.HttpHeaders;
 import thredds.server.ncss.exception.NcssException;
+import thredds.server.ncss.view.dsg.DsgRowEncoder;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
-import ucar.ma2.Array;
 import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.PointFeature;
 import ucar.nc2.ft2.coverage.SubsetParams;
-import ucar.nc2.time.CalendarDateFormatter;
 import ucar.unidata.geoloc.EarthLocation;
-import ucar.unidata.util.Format;
 
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -57,14 +53,12 @@ import java.io.OutputStream;
  * Created by cwardgar on 2014/06/03.
  */
 public class PointSubsetWriterXML extends AbstractPointSubsetWriter {
-    private final XMLStreamWriter staxWriter;
+    private final DsgRowEncoder writer;  // writes the same XML that XMLStreamWriter did
 
     public PointSubsetWriterXML(FeatureDatasetPoint fdPoint, SubsetParams ncssParams, OutputStream out)
-            throws XMLStreamException, NcssException, IOException {
+            throws NcssException, IOException {
         super(fdPoint, ncssParams);
-
-        XMLOutputFactory factory = XMLOutputFactory.newInstance();
-        staxWriter = factory.createXMLStreamWriter(out, "UTF-8");
+        writer = new DsgRowEncoder(wantedVariables, out);
     }
 
     @Override
@@ -82,56 +76,49 @@ public class PointSubsetWriterXML extends AbstractPointSubsetWriter {
     }
 
     @Override
-    public void writeHeader(PointFeature pf) throws XMLStreamException {
-        staxWriter.writeStartDocument("UTF-8", "1.0");
-        staxWriter.writeCharacters("\n");
-        staxWriter.writeStartElement("pointFeatureCollection");
+    public void writeHeader(PointFeature pf) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<pointFeatureCollection>");
     }
 
     @Override
-    public void writePoint(PointFeature pointFeat) throws XMLStreamException, IOException {
+    public void writePoint(PointFeature pointFeat) throws IOException {
         EarthLocation loc = pointFeat.getLocation();
 
-        staxWriter.writeCharacters("\n    ");
-        staxWriter.writeStartElement("pointFeature");
-        staxWriter.writeAttribute("date",
-                CalendarDateFormatter.toDateTimeStringISO(pointFeat.getObservationTimeAsCalendarDate()));
-
-        staxWriter.writeCharacters("\n        ");
-        staxWriter.writeEmptyElement("location");
-        staxWriter.writeAttribute("latitude", Format.dfrac(loc.getLatitude(), 3));
-        staxWriter.writeAttribute("longitude", Format.dfrac(loc.getLongitude(), 3));
-        if (!Double.isNaN(loc.getAltitude()))
-            staxWriter.writeAttribute("altitude", Format.dfrac(loc.getAltitude(), 0));
+        writer.write("\n    <pointFeature date=\"");
+        writer.writeTime(pointFeat.getObservationTimeAsCalendarDate());
+        writer.write("\">");
+
+        writer.write("\n        <location latitude=\"");
+        writer.writeFixed(loc.getLatitude(), 3);
+        writer.write("\" longitude=\"");
+        writer.writeFixed(loc.getLongitude(), 3);
+        if (!Double.isNaN(loc.getAltitude())) {
+            writer.write("\" altitude=\"");
+            writer.writeFixed(loc.getAltitude(), 0);
+        }
+        writer.write("\"/>");
 
         StructureData structureData = pointFeat.getDataAll();
-        for (VariableSimpleIF wantedVar : wantedVariables) {
-            staxWriter.writeCharacters("\n        ");
-            staxWriter.writeStartElement("data");
-            staxWriter.writeAttribute("name", wantedVar.getShortName());
-            if (wantedVar.getUnitsString() != null)
-                staxWriter.writeAttribute(CDM.UNITS, wantedVar.getUnitsString());
-
-            Array dataArray = structureData.getArray(wantedVar.getShortName());
-            String ss = dataArray.toString();
-            Class elemType = dataArray.getElementType();
-            if ((elemType == String.class) || (elemType == char.class) || (elemType == StructureData.class))
-                ss = ucar.nc2.util.xml.Parse.cleanCharacterData(ss); // make sure no bad chars
-            staxWriter.writeCharacters(ss.trim());
-            staxWriter.writeEndElement();
+        StructureMembers.Member[] members = writer.getWantedMembers(structureData);
+        for (int i = 0; i < members.length; i++) {
+            VariableSimpleIF wantedVar = wantedVariables.get(i);
+            writer.write("\n        <data name=\"");
+            writer.writeXml(wantedVar.getShortName(), true);
+            if (wantedVar.getUnitsString() != null) {
+                writer.write("\" " + CDM.UNITS + "=\"");
+                writer.writeXml(wantedVar.getUnitsString(), true);
+            }
+            writer.write("\">");
+            writer.writeValue(structureData, members[i], true);
+            writer.write("</data>");
         }
 
-        staxWriter.writeCharacters("\n    ");
-        staxWriter.writeEndElement();
+        writer.write("\n    </pointFeature>");
     }
 
     @Override
-    public void writeFooter() throws XMLStreamException {
-        staxWriter.writeCharacters("\n");
-        staxWriter.writeEndElement();
-        staxWriter.writeCharacters("\n");
-        staxWriter.writeEndDocument();
-
-        staxWriter.close();  // This should flush the writer. The underlying output stream remains open.
+    public void writeFooter() throws IOException {
+        writer.write("\n</pointFeatureCollection>\n");
+        writer.flush();  // The underlying output stream remains open.
     }
 }
@@ -34,32 +34,29 @@ package thredds.server.ncss.view.dsg.station;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import org.springframework.http.HttpHeaders;
 import thredds.server.ncss.exception.NcssException;
+import thredds.server.ncss.view.dsg.DsgRowEncoder;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
-import ucar.ma2.Array;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.VariableSimpleIF;
-import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.point.StationPointFeature;
 import ucar.nc2.ft2.coverage.SubsetParams;
-import ucar.nc2.time.CalendarDateFormatter;
 import ucar.unidata.geoloc.Station;
-import ucar.unidata.util.Format;
 
 /**
  * Created by cwardgar on 2014-05-24.
  */
 public class StationSubsetWriterCSV extends AbstractStationSubsetWriter {
-    private final PrintWriter writer;
+    private final DsgRowEncoder writer;
 
     public StationSubsetWriterCSV(FeatureDatasetPoint fdPoint, SubsetParams ncssParams, OutputStream out)
             throws NcssException, IOException {
         super(fdPoint, ncssParams);
-      this.writer = new PrintWriter(new OutputStreamWriter(out, CDM.utf8Charset));
+      this.writer = new DsgRowEncoder(wantedVariables, out);
     }
 
     @Override
@@ -81,34 +78,34 @@ public class StationSubsetWriterCSV extends AbstractStationSubsetWriter {
 
     @Override
     protected void writeHeader(StationPointFeature stationPointFeat) throws IOException {
-        writer.print("time,station,latitude[unit=\"degrees_north\"],longitude[unit=\"degrees_east\"]");
+        writer.write("time,station,latitude[unit=\"degrees_north\"],longitude[unit=\"degrees_east\"]");
         for (VariableSimpleIF wantedVar : wantedVariables) {
-            writer.print(",");
-            writer.print(wantedVar.getShortName());
+            writer.write(",");
+            writer.write(wantedVar.getShortName());
             if (wantedVar.getUnitsString() != null)
-                writer.print("[unit=\"" + wantedVar.getUnitsString() + "\"]");
+                writer.write("[unit=\"" + wantedVar.getUnitsString() + "\"]");
         }
-        writer.println();
+        writer.writeLineSeparator();
     }
 
     @Override
     protected void writeStationPointFeature(StationPointFeature stationPointFeat) throws IOException {
         Station station = stationPointFeat.getStation();
 
-        writer.print(CalendarDateFormatter.toDateTimeStringISO(stationPointFeat.getObservationTimeAsCalendarDate()));
-        writer.print(',');
-        writer.print(station.getName());
-        writer.print(',');
-        writer.print(Format.dfrac(station.getLatitude(), 3));
-        writer.print(',');
-        writer.print(Format.dfrac(station.getLongitude(), 3));
+        writer.writeTime(stationPointFeat.getObservationTimeAsCalendarDate());
+        writer.write(',');
+        writer.write(station.getName());
+        writer.write(',');
+        writer.writeFixed(station.getLatitude(), 3);
+        writer.write(',');
+        writer.writeFixed(station.getLongitude(), 3);
 
-        for (VariableSimpleIF wantedVar : wantedVariables) {
-            writer.print(',');
-            Array dataArray = stationPointFeat.getDataAll().getArray(wantedVar.getShortName());
-            writer.print(dataArray.toString().trim());
+        StructureData structureData = stationPointFeat.getDataAll();
+        for (StructureMembers.Member m : writer.getWantedMembers(structureData)) {
+            writer.write(',');
+            writer.writeValue(structureData, m, false);
         }
-        writer.println();
+        writer.writeLineSeparator();
     }
 
     @Override
@@ -34,36 +34,30 @@ package thredds.server.ncss.view.dsg.station;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 import org.springframework.http.HttpHeaders;
 import thredds.server.ncss.exception.NcssException;
+import thredds.server.ncss.view.dsg.DsgRowEncoder;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
-import ucar.ma2.Array;
 import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.point.StationPointFeature;
 import ucar.nc2.ft2.coverage.SubsetParams;
-import ucar.nc2.time.CalendarDateFormatter;
 import ucar.unidata.geoloc.Station;
-import ucar.unidata.util.Format;
 
 /**
  * Created by cwardgar on 2014/05/27.
  */
 public class StationSubsetWriterXML extends AbstractStationSubsetWriter {
-    private final XMLStreamWriter staxWriter;
+    private final DsgRowEncoder writer;  // writes the same XML that XMLStreamWriter did
 
     public StationSubsetWriterXML(FeatureDatasetPoint fdPoint, SubsetParams ncssParams, OutputStream out)
-            throws XMLStreamException, NcssException, IOException {
+            throws NcssException, IOException {
         super(fdPoint, ncssParams);
-
-        XMLOutputFactory factory = XMLOutputFactory.newInstance();
-        staxWriter = factory.createXMLStreamWriter(out, "UTF-8");
+        writer = new DsgRowEncoder(wantedVariables, out);
     }
 
     @Override
@@ -81,60 +75,55 @@ public class StationSubsetWriterXML extends AbstractStationSubsetWriter {
     }
 
     @Override
-    protected void writeHeader(StationPointFeature stationPointFeat) throws XMLStreamException {
-        staxWriter.writeStartDocument("UTF-8", "1.0");
-        staxWriter.writeCharacters("\n");
-        staxWriter.writeStartElement("stationFeatureCollection");
+    protected void writeHeader(StationPointFeature stationPointFeat) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<stationFeatureCollection>");
     }
 
     @Override
     protected void writeStationPointFeature(StationPointFeature stationPointFeat)
-            throws XMLStreamException, IOException {
+            throws IOException {
         Station station = stationPointFeat.getStation();
 
-        staxWriter.writeCharacters("\n    ");
-        staxWriter.writeStartElement("stationFeature");
-        staxWriter.writeAttribute("date",
-                CalendarDateFormatter.toDateTimeStringISO(stationPointFeat.getObservationTimeAsCalendarDate()));
-
-        staxWriter.writeCharacters("\n        ");
-        staxWriter.writeStartElement("station");
-        staxWriter.writeAttribute("name", station.getName());
-        staxWriter.writeAttribute("latitude", Format.dfrac(station.getLatitude(), 3));
-        staxWriter.writeAttribute("longitude", Format.dfrac(station.getLongitude(), 3));
-        if (!Double.isNaN(station.getAltitude()))
-            staxWriter.writeAttribute("altitude", Format.dfrac(station.getAltitude(), 0));
+        writer.write("\n    <stationFeature date=\"");
+        writer.writeTime(stationPointFeat.getObservationTimeAsCalendarDate());
+        writer.write("\">");
+
+        writer.write("\n        <station name=\"");
+        writer.writeXml(station.getName(), true);
+        writer.write("\" latitude=\"");
+        writer.writeFixed(station.getLatitude(), 3);
+        writer.write("\" longitude=\"");
+        writer.writeFixed(station.getLongitude(), 3);
+        if (!Double.isNaN(station.getAltitude())) {
+            writer.write("\" altitude=\"");
+            writer.writeFixed(station.getAltitude(), 0);
+        }
+        writer.write("\">");
         if (station.getDescription() != null)
-            staxWriter.writeCharacters(station.getDescription());
-        staxWriter.writeEndElement();
-
-        for (VariableSimpleIF wantedVar : wantedVariables) {
-            staxWriter.writeCharacters("\n        ");
-            staxWriter.writeStartElement("data");
-            staxWriter.writeAttribute("name", wantedVar.getShortName());
-            if (wantedVar.getUnitsString() != null)
-                staxWriter.writeAttribute(CDM.UNITS, wantedVar.getUnitsString());
-
-            Array dataArray = stationPointFeat.getDataAll().getArray(wantedVar.getShortName());
-            String ss = dataArray.toString();
-            Class elemType = dataArray.getElementType();
-            if ((elemType == String.class) || (elemType == char.class) || (elemType == StructureData.class))
-                ss = ucar.nc2.util.xml.Parse.cleanCharacterData(ss); // make sure no bad chars
-            staxWriter.writeCharacters(ss.trim());
-            staxWriter.writeEndElement();
+            writer.writeXml(station.getDescription(), false);
+        writer.write("</station>");
+
+        StructureData structureData = stationPointFeat.getDataAll();
+        StructureMembers.Member[] members = writer.getWantedMembers(structureData);
+        for (int i = 0; i < members.length; i++) {
+            VariableSimpleIF wantedVar = wantedVariables.get(i);
+            writer.write("\n        <data name=\"");
+            writer.writeXml(wantedVar.getShortName(), true);
+            if (wantedVar.getUnitsString() != null) {
+                writer.write("\" " + CDM.UNITS + "=\"");
+                writer.writeXml(wantedVar.getUnitsString(), true);
+            }
+            writer.write("\">");
+            writer.writeValue(structureData, members[i], true);
+            writer.write("</data>");
         }
 
-        staxWriter.writeCharacters("\n    ");
-        staxWriter.writeEndElement();
+        writer.write("\n    </stationFeature>");
     }
 
     @Override
-    protected void writeFooter() throws XMLStreamException {
-        staxWriter.writeCharacters("\n");
-        staxWriter.writeEndElement();
-        staxWriter.writeCharacters("\n");
-        staxWriter.writeEndDocument();
-
-        staxWriter.close();  // This should flush the writer. The underlying output stream remains open.
+    protected void writeFooter() throws IOException {
+        writer.write("\n</stationFeatureCollection>\n");
+        writer.flush();  // The underlying output stream remains open.
     }
 }
@@ -0,0 +1,246 @@
+/* Copyright Unidata */
+package thredds.server.wms;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import uk.ac.rdg.resc.edal.exceptions.EdalException;
+import uk.ac.rdg.resc.edal.feature.DiscreteFeature;
+import uk.ac.rdg.resc.edal.geometry.BoundingBox;
+import uk.ac.rdg.resc.edal.graphics.utils.FeaturesAndMemberName;
+import uk.ac.rdg.resc.edal.graphics.utils.PlottingDomainParams;
+
+import java.io.IOException;
+import java.util.Formatter;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Memory cache for the WMS, shared by all requests, so that a tiled map client does not make the server
+ * open and analyse the dataset, and extract the same map features, again for every tile.
+ * <ol>
+ * <li>ThreddsWmsCatalogue, keyed by dataset path. An entry is replaced when the last modified time of the dataset changes.
+ * <li>Map features, keyed by catalogue, layer name and the part of the PlottingDomainParams that they are extracted with.
+ * </ol>
+ * Catalogues are bounded by the number of entries, map features by the number of values they hold,
+ * so that a few large maps cannot use as much memory as many small tiles.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class ThreddsWmsCache {
+  static private ThreddsWmsCache instance;   // null means no caching
+
+  /**
+   * Create the global WMS cache.
+   * @param maxDatasets maximum number of ThreddsWmsCatalogue, 0 to turn the cache off
+   * @param maxFeatureValues maximum number of values in all cached map features, 0 to not cache them
+   */
+  static public synchronized void init(int maxDatasets, long maxFeatureValues) {
+    if (instance != null) instance.clear();
+    instance = (maxDatasets <= 0) ? null : new ThreddsWmsCache(maxDatasets, maxFeatureValues);
+  }
+
+  static public synchronized ThreddsWmsCache getInstance() {
+    return instance;
+  }
+
+  static public synchronized void shutdown() {
+    if (instance != null) instance.clear();
+    instance = null;
+  }
+
+  public interface CatalogueFactory {
+    ThreddsWmsCatalogue make() throws IOException, EdalException;
+  }
+
+  public interface FeaturesFactory {
+    FeaturesAndMemberName make() throws EdalException;
+  }
+
+  ///////////////////////////////////////////////////////////
+
+  private final int maxDatasets;
+  private final long maxFeatureValues;
+  private final Cache<String, CatalogueEntry> catalogues;  // key is the dataset path
+  private final Cache<FeaturesKey, FeaturesAndMemberName> features;
+
+  private ThreddsWmsCache(int maxDatasets, long maxFeatureValues) {
+    this.maxDatasets = maxDatasets;
+    this.maxFeatureValues = maxFeatureValues;
+    this.features = CacheBuilder.newBuilder()
+            .maximumWeight(Math.max(maxFeatureValues, 0))
+            .weigher((FeaturesKey key, FeaturesAndMemberName value) -> weigh(value))
+            .recordStats()
+            .build();
+    this.catalogues = CacheBuilder.newBuilder()
+            .maximumSize(maxDatasets)
+            .removalListener(notification -> {
+              CatalogueEntry entry = (CatalogueEntry) notification.getValue();
+              if (entry != null) invalidateFeatures(entry.catalogue);
+            })
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Get the catalogue for a dataset, making it if it is not in the cache, or if the dataset has changed since.
+   * Concurrent requests for the same dataset wait for a single call to factory.
+   *
+   * @param path         dataset path
+   * @param lastModified last modified time of the dataset, -1 if not known
+   * @param factory      makes the catalogue
+   * @return the catalogue
+   */
+  public ThreddsWmsCatalogue getCatalogue(String path, long lastModified, CatalogueFactory factory)
+          throws IOException, EdalException {
+    CatalogueEntry entry = catalogues.getIfPresent(path);
+    if (entry != null && entry.lastModified != lastModified)
+      catalogues.asMap().remove(path, entry); // out of date
+
+    try {
+      return catalogues.get(path, () -> new CatalogueEntry(factory.make(), lastModified)).catalogue;
+    } catch (ExecutionException e) {
+      Throwable c = e.getCause();
+      if (c instanceof IOException) throw (IOException) c;
+      if (c instanceof EdalException) throw (EdalException) c;
+      throw new RuntimeException(c);
+    }
+  }
+
+  /**
+   * Get the map features of a layer, extracting them if they are not in the cache.
+   *
+   * @param catalogue the catalogue of the dataset
+   * @param layerName the layer
+   * @param params    the map domain
+   * @param factory   extracts the features
+   * @return the features, which are shared and must not be modified
+   */
+  public FeaturesAndMemberName getFeatures(ThreddsWmsCatalogue catalogue, String layerName, PlottingDomainParams params,
+                                           FeaturesFactory factory) throws EdalException {
+    if (maxFeatureValues <= 0) return factory.make();
+    try {
+      return features.get(new FeaturesKey(catalogue, layerName, params), (Callable<FeaturesAndMemberName>) factory::make);
+    } catch (ExecutionException e) {
+      Throwable c = e.getCause();
+      if (c instanceof EdalException) throw (EdalException) c;
+      throw new RuntimeException(c);
+    }
+  }
+
+  /**
+   * The weight of a cache entry: the number of values in its features, at least 1.
+   */
+  static int weigh(FeaturesAndMemberName value) {
+    long total = 0;
+    for (DiscreteFeature<?, ?> feature : value.getFeatures())
+      total += feature.getDomain().size() * Math.max(feature.getParameterIds().size(), 1);
+    return (int) Math.min(Math.max(total, 1), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Remove all features extracted from this catalogue.
+   */
+  public void invalidateFeatures(ThreddsWmsCatalogue catalogue) {
+    for (FeaturesKey key : features.asMap().keySet()) {
+      if (key.catalogue == catalogue)
+        features.invalidate(key);
+    }
+  }
+
+  public void clear() {
+    catalogues.invalidateAll();
+    features.invalidateAll();
+  }
+
+  public CacheStats getCatalogueStats() {
+    return catalogues.stats();
+  }
+
+  public CacheStats getFeaturesStats() {
+    return features.stats();
+  }
+
+  public void showCache(Formatter f) {
+    f.format("%nThreddsWmsCache maxDatasets= %d maxFeatureValues= %d%n", maxDatasets, maxFeatureValues);
+    CacheStats stats = catalogues.stats();
+    f.format("  datasets= %d hits= %d miss= %d evictions= %d loadMsecs= %d%n", catalogues.size(),
+            stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.totalLoadTime() / 1000 / 1000);
+    stats = features.stats();
+    long values = 0;
+    for (FeaturesAndMemberName value : features.asMap().values())
+      values += weigh(value);
+    f.format("  features= %d values= %d hits= %d miss= %d evictions= %d loadMsecs= %d%n", features.size(), values,
+            stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.totalLoadTime() / 1000 / 1000);
+    for (String path : catalogues.asMap().keySet())
+      f.format("   %s%n", path);
+  }
+
+  @Immutable
+  static private class CatalogueEntry {
+    final ThreddsWmsCatalogue catalogue;
+    final long lastModified;
+
+    CatalogueEntry(ThreddsWmsCatalogue catalogue, long lastModified) {
+      this.catalogue = catalogue;
+      this.lastModified = lastModified;
+    }
+  }
+
+  // The map domain of ThreddsWmsCatalogue.extractFeatures(), so that equal requests are equal keys
+  // whether or not PlottingDomainParams and its parts define equals().
+  @Immutable
+  static private class FeaturesKey {
+    final ThreddsWmsCatalogue catalogue;
+    final String layerName;
+    final int width, height;
+    final double minX, minY, maxX, maxY;
+    final CoordinateReferenceSystem crs;
+    final Double targetZ;
+
+    FeaturesKey(ThreddsWmsCatalogue catalogue, String layerName, PlottingDomainParams params) {
+      this.catalogue = catalogue;
+      this.layerName = layerName;
+      this.width = params.getWidth();
+      this.height = params.getHeight();
+      BoundingBox bbox = params.getBbox();
+      this.minX = bbox.getMinX();
+      this.minY = bbox.getMinY();
+      this.maxX = bbox.getMaxX();
+      this.maxY = bbox.getMaxY();
+      this.crs = bbox.getCoordinateReferenceSystem();
+      this.targetZ = params.getTargetZ();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      FeaturesKey key = (FeaturesKey) o;
+      return catalogue == key.catalogue && layerName.equals(key.layerName) && width == key.width && height == key.height &&
+              Double.compare(minX, key.minX) == 0 && Double.compare(minY, key.minY) == 0 &&
+              Double.compare(maxX, key.maxX) == 0 && Double.compare(maxY, key.maxY) == 0 &&
+              Objects.equals(crs, key.crs) && Objects.equals(targetZ, key.targetZ);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(catalogue);
+      result = 31 * result + layerName.hashCode();
+      result = 31 * result + width;
+      result = 31 * result + height;
+      result = 31 * result + Double.hashCode(minX);
+      result = 31 * result + Double.hashCode(minY);
+      result = 31 * result + Double.hashCode(maxX);
+      result = 31 * result + Double.hashCode(maxY);
+      result = 31 * result + Objects.hashCode(crs);
+      result = 31 * result + Objects.hashCode(targetZ);
+      return result;
+    }
+  }
+}
@@ -63,12 +63,12 @@ import uk.ac.rdg.resc.edal.wms.util.ServerInfo;
  * This {@link WmsCatalogue} provides access to a SINGLE dataset. As such, each
  * different dataset requested will have a new instance of this class.
  * 
- * NB - No caching is implemented in this {@link WmsCatalogue}. I would
- * recommend a cache which is shared amongst all {@link WmsCatalogue}s, passed
- * in on object construction, and which performs the caching/retrieval in the
+ * Map features are cached in a {@link ThreddsWmsCache} which is shared amongst
+ * all {@link WmsCatalogue}s, passed in on object construction, and which
+ * performs the caching/retrieval in the
  * {@link WmsCatalogue#getFeaturesForLayer(String, PlottingDomainParams)}
- * method. The cache keys will be a pair of the layerName and the
- * {@link PlottingDomainParams}, and the cached values will be
+ * method. The cache keys are a pair of the layerName and the
+ * {@link PlottingDomainParams}, and the cached values are
  * {@link Collection}s of {@link DiscreteFeature}s.
  *
  * @author Guy Griffiths
@@ -108,8 +108,18 @@ public class ThreddsWmsCatalogue implements WmsCatalogue {
      */
     private static final StyleCatalogue styleCatalogue =  SldTemplateStyleCatalogue.getStyleCatalogue();
 
+    /*
+     * Shared by all catalogues, null if features are not cached
+     */
+    private final ThreddsWmsCache cache;
+
     public ThreddsWmsCatalogue(String id, String location) throws IOException, EdalException {
+        this(id, location, null);
+    }
+
+    public ThreddsWmsCatalogue(String id, String location, ThreddsWmsCache cache) throws IOException, EdalException {
         dataset = datasetFactory.createDataset(id, location);
+        this.cache = cache;
     }
 
     @Override
@@ -119,9 +129,17 @@ public class ThreddsWmsCatalogue implements WmsCatalogue {
          * This uses the method on GriddedDataset to extract the appropriate
          * features.
          * 
-         * Caching of individual features (i.e. 2d plottable map features) can
-         * go here if caching is desired for the TDS WMS.
+         * Individual features (i.e. 2d plottable map features) are cached, so
+         * that the tiles of a map which are requested again are not extracted
+         * again.
          */
+        if (cache == null)
+            return extractFeatures(layerName, params);
+        return cache.getFeatures(this, layerName, params, () -> extractFeatures(layerName, params));
+    }
+
+    private FeaturesAndMemberName extractFeatures(String layerName, PlottingDomainParams params)
+            throws EdalException {
         MapDomain mapDomain = new MapDomain(params.getBbox(), params.getWidth(), params.getHeight(),
                 params.getTargetZ(), null);
         List<? extends DiscreteFeature<?, ?>> extractedFeatures = dataset.extractMapFeatures(
@@ -28,14 +28,15 @@
 
 package thredds.server.wms;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import thredds.core.TdsRequestedDataset;
 
+import ucar.nc2.NetcdfFile;
+import uk.ac.rdg.resc.edal.exceptions.EdalException;
 import uk.ac.rdg.resc.edal.graphics.exceptions.EdalLayerNotFoundException;
 import uk.ac.rdg.resc.edal.wms.RequestParams;
 import uk.ac.rdg.resc.edal.wms.WmsCatalogue;
@@ -46,15 +47,15 @@ import uk.ac.rdg.resc.edal.wms.WmsServlet;
  * data.
  * 
  * This is example is well commented and demonstrates how to properly integrate
- * the EDAL WMS into the THREDDS catalogue. It doesn't show how to implement
- * caching, or WMS-specific configuration, but these things are recommended in
- * the final version.
+ * the EDAL WMS into the THREDDS catalogue. Catalogues and map features are
+ * kept in the shared {@link ThreddsWmsCache}, if it has been turned on. It
+ * doesn't show WMS-specific configuration, but this is recommended in the
+ * final version.
  *
  * @author Guy Griffiths
  */
 @SuppressWarnings("serial")
 public class ThreddsWmsServlet extends WmsServlet {
-    private Map<String, WmsCatalogue> catalogueCache = new HashMap<>();
 
     @Override
     protected void dispatchWmsRequest(String request, RequestParams params,
@@ -64,9 +65,9 @@ public class ThreddsWmsServlet extends WmsServlet {
          * The super implementation of this gets called with a servlet-wide
          * catalogue, which "should" have been injected with the
          * WmsServlet.setCatalogue() method. Since we want one catalogue per
-         * dataset, we never call setCatalogue(), but instead we generate a
-         * WmsCatalogue (or more likely in a final version, retrieve a cached
-         * one) on each request, and pass that to the super implementation.
+         * dataset, we never call setCatalogue(), but instead we retrieve a
+         * cached WmsCatalogue (or generate one) on each request, and pass that
+         * to the super implementation.
          */
 
         /*
@@ -75,30 +76,19 @@ public class ThreddsWmsServlet extends WmsServlet {
         // Look - is setting this to null the right thing to do??
         String removePrefix = null;
         TdsRequestedDataset tdsDataset = new TdsRequestedDataset(httpServletRequest, removePrefix);
-        if(catalogueCache.containsKey(tdsDataset.getPath())) {
-            catalogue = catalogueCache.get(tdsDataset.getPath());
+        String path = tdsDataset.getPath();
+        ThreddsWmsCache cache = ThreddsWmsCache.getInstance();
+        if (cache == null) {
+            catalogue = makeCatalogue(path, null, httpServletRequest, httpServletResponse);
         } else {
-            String netcdfFilePath = tdsDataset.getNetcdfFile(httpServletRequest, httpServletResponse,
-                    tdsDataset.getPath()).getLocation();
-    
             /*
-             * Generate a new catalogue for the given dataset
-             * 
-             * In the full system, we should keep a cache of these
-             * ThreddsWmsCatalogues, but in this example we just create each new one
-             * on the fly.
-             * 
-             * If a feature cache is required on the WMS (a Good Idea), I recommend
-             * a single cache in this servlet which gets passed to each WmsCatalogue
-             * upon construction (i.e. HERE). That's a TDS implementation detail
-             * though, hence not in this example.
+             * The catalogue is replaced when the file changes. The last
+             * modified time is -1 for datasets that are not a single file, and
+             * then the catalogue is only replaced when it is evicted.
              */
-            if (netcdfFilePath == null) {
-                throw new EdalLayerNotFoundException(
-                        "The requested dataset is not available on this server");
-            }
-            catalogue = new ThreddsWmsCatalogue(tdsDataset.getPath(), netcdfFilePath);
-            catalogueCache.put(tdsDataset.getPath(), catalogue);
+            long lastModified = TdsRequestedDataset.getLastModified(path);
+            catalogue = cache.getCatalogue(path, lastModified,
+                    () -> makeCatalogue(path, cache, httpServletRequest, httpServletResponse));
         }
 
         /*
@@ -108,4 +98,29 @@ public class ThreddsWmsServlet extends WmsServlet {
         super.dispatchWmsRequest(request, params, httpServletRequest, httpServletResponse,
                 catalogue);
     }
+
+    private ThreddsWmsCatalogue makeCatalogue(String path, ThreddsWmsCache cache,
+            HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse)
+            throws IOException, EdalException {
+        /*
+         * Only the location of the dataset is needed here: the catalogue's
+         * dataset factory opens it again.
+         */
+        String netcdfFilePath = null;
+        try (NetcdfFile ncfile = TdsRequestedDataset.getNetcdfFile(httpServletRequest,
+                httpServletResponse, path)) {
+            if (ncfile != null)
+                netcdfFilePath = ncfile.getLocation();
+        }
+
+        /*
+         * Generate a new catalogue for the given dataset, which uses the
+         * shared cache for its map features.
+         */
+        if (netcdfFilePath == null) {
+            throw new EdalLayerNotFoundException(
+                    "The requested dataset is not available on this server");
+        }
+        return new ThreddsWmsCatalogue(path, netcdfFilePath, cache);
+    }
 }
@@ -0,0 +1,100 @@
+/* Copyright Unidata */
+package thredds.server.ncss.view.dsg;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.*;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.unidata.util.Format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * DsgRowEncoder must write the same text as the String formatting it replaces.
+ */
+public class DsgRowEncoderTest {
+  private final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+  private final DsgRowEncoder encoder = new DsgRowEncoder(Collections.emptyList(), bos);
+
+  private String written() throws IOException {
+    encoder.flush();
+    String result = new String(bos.toByteArray(), CDM.utf8Charset);
+    bos.reset();
+    return result;
+  }
+
+  @Test
+  public void testWriteFixed() throws IOException {
+    double[] special = {0.0, -0.0, 1.0, -91.0, 40.0005, 0.1 + 0.2, 99999.9999, 1.0e5, 1.0e-4, 1.5e20, Double.NaN};
+    for (double d : special) {
+      for (int dec = 0; dec < 5; dec++) {
+        encoder.writeFixed(d, dec);
+        Assert.assertEquals(d + " " + dec, Format.dfrac(d, dec), written());
+      }
+    }
+
+    Random r = new Random(17);
+    for (int i = 0; i < 100000; i++) {
+      double d = (i % 2 == 0) ? (r.nextDouble() - 0.5) * 400 : Math.round((r.nextDouble() - 0.5) * 400000) / 1000.0;
+      int dec = r.nextInt(4);
+      encoder.writeFixed(d, dec);
+      Assert.assertEquals(d + " " + dec, Format.dfrac(d, dec), written());
+    }
+  }
+
+  @Test
+  public void testWriteTime() throws IOException {
+    Random r = new Random(17);
+    for (int i = 0; i < 10000; i++) {
+      long millis = (long) ((r.nextDouble() - 0.3) * 4.0e12);
+      if (i % 2 == 0) millis = millis / 1000 * 1000;
+      CalendarDate cd = CalendarDate.of(millis);
+      encoder.writeTime(cd);
+      Assert.assertEquals(CalendarDateFormatter.toDateTimeStringISO(cd), written());
+    }
+  }
+
+  @Test
+  public void testWriteValue() throws IOException {
+    StructureMembers sm = new StructureMembers("obs");
+    StructureDataW sdata = new StructureDataW(sm);
+    addMember(sdata, "b", DataType.BYTE, new int[0], new byte[]{-7});
+    addMember(sdata, "s", DataType.SHORT, new int[0], new short[]{Short.MIN_VALUE});
+    addMember(sdata, "i", DataType.INT, new int[0], new int[]{123456});
+    addMember(sdata, "l", DataType.LONG, new int[0], new long[]{Long.MIN_VALUE});
+    addMember(sdata, "f", DataType.FLOAT, new int[0], new float[]{1.0e-5f});
+    addMember(sdata, "d", DataType.DOUBLE, new int[0], new double[]{Double.NaN});
+    addMember(sdata, "v", DataType.INT, new int[]{3}, new int[]{1, -2, 3});
+    ArrayChar.D1 chars = new ArrayChar.D1(8);
+    chars.setString("a<b&c\"");
+    sdata.setMemberData(sm.addMember("c", null, null, DataType.CHAR, new int[]{8}), chars);
+
+    for (StructureMembers.Member m : sm.getMembers()) {
+      String expected = sdata.getArray(m).toString().trim();
+      encoder.writeValue(sdata, m, false);
+      Assert.assertEquals(m.getName(), expected, written());
+      encoder.writeValue(sdata, m, true);
+      Assert.assertEquals(m.getName(), expected.replace("&", "&amp;").replace("<", "&lt;"), written());
+    }
+  }
+
+  private void addMember(StructureDataW sdata, String name, DataType dt, int[] shape, Object storage) {
+    StructureMembers.Member m = sdata.getStructureMembers().addMember(name, null, null, dt, shape);
+    sdata.setMemberData(m, Array.factory(dt, shape, storage));
+  }
+
+  @Test
+  public void testGetWantedMembers() {
+    StructureMembers sm = new StructureMembers("obs");
+    sm.addMember("a", null, null, DataType.INT, new int[0]);
+    StructureData sdata = new StructureDataW(sm);
+    // no wanted variables
+    Assert.assertEquals(0, encoder.getWantedMembers(sdata).length);
+    Assert.assertSame(encoder.getWantedMembers(sdata), encoder.getWantedMembers(new StructureDataW(sm)));
+  }
+}
@@ -0,0 +1,78 @@
+/* Copyright Unidata */
+package thredds.server.wms;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import uk.ac.rdg.resc.edal.exceptions.EdalException;
+import uk.ac.rdg.resc.edal.feature.DiscreteFeature;
+import uk.ac.rdg.resc.edal.geometry.BoundingBoxImpl;
+import uk.ac.rdg.resc.edal.graphics.utils.FeaturesAndMemberName;
+import uk.ac.rdg.resc.edal.graphics.utils.PlottingDomainParams;
+import uk.ac.rdg.resc.edal.util.GISUtils;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Map features are extracted once for equal requests, and are bounded by the number of values they hold.
+ */
+public class TestThreddsWmsCache {
+
+  @After
+  public void shutdown() {
+    ThreddsWmsCache.shutdown();
+  }
+
+  @Test
+  public void testSameParamsHit() throws EdalException {
+    ThreddsWmsCache.init(10, 1000);
+    ThreddsWmsCache cache = ThreddsWmsCache.getInstance();
+    AtomicInteger extracts = new AtomicInteger();
+
+    // separate but equal params, as made for each request
+    FeaturesAndMemberName first = cache.getFeatures(null, "layer", params(-180, 0, 10.0), () -> extract(extracts));
+    FeaturesAndMemberName second = cache.getFeatures(null, "layer", params(-180, 0, 10.0), () -> extract(extracts));
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, extracts.get());
+    Assert.assertEquals(1, cache.getFeaturesStats().hitCount());
+
+    // another tile, another elevation, another layer
+    cache.getFeatures(null, "layer", params(0, 0, 10.0), () -> extract(extracts));
+    cache.getFeatures(null, "layer", params(-180, 0, 20.0), () -> extract(extracts));
+    cache.getFeatures(null, "other", params(-180, 0, 10.0), () -> extract(extracts));
+    Assert.assertEquals(4, extracts.get());
+    Assert.assertEquals(1, cache.getFeaturesStats().hitCount());
+  }
+
+  @Test
+  public void testWeight() throws EdalException {
+    ThreddsWmsCache.init(10, 2); // an empty collection weighs 1
+    ThreddsWmsCache cache = ThreddsWmsCache.getInstance();
+    AtomicInteger extracts = new AtomicInteger();
+    for (int i = 0; i < 4; i++)
+      cache.getFeatures(null, "layer", params(-180 + 90 * i, 0, null), () -> extract(extracts));
+    Assert.assertEquals(4, extracts.get());
+    Assert.assertTrue(cache.getFeaturesStats().evictionCount() >= 2);
+  }
+
+  @Test
+  public void testOff() throws EdalException {
+    ThreddsWmsCache.init(10, 0);
+    ThreddsWmsCache cache = ThreddsWmsCache.getInstance();
+    AtomicInteger extracts = new AtomicInteger();
+    cache.getFeatures(null, "layer", params(-180, 0, null), () -> extract(extracts));
+    cache.getFeatures(null, "layer", params(-180, 0, null), () -> extract(extracts));
+    Assert.assertEquals(2, extracts.get());
+  }
+
+  private PlottingDomainParams params(double minX, double minY, Double targetZ) {
+    BoundingBoxImpl bbox = new BoundingBoxImpl(minX, minY, minX + 90, minY + 90, GISUtils.defaultGeographicCRS());
+    return new PlottingDomainParams(256, 256, bbox, null, null, null, targetZ, null);
+  }
+
+  private FeaturesAndMemberName extract(AtomicInteger extracts) {
+    extracts.incrementAndGet();
+    return new FeaturesAndMemberName(new ArrayList<DiscreteFeature<?, ?>>(), "layer");
+  }
+}
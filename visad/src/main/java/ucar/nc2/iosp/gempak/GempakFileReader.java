@@ -35,6 +35,7 @@
 package ucar.nc2.iosp.gempak;
 
 
+import ucar.nc2.iosp.FileSignature;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.*;
@@ -47,6 +48,11 @@ import java.util.*;
  */
 public class GempakFileReader implements GempakConstants {
 
+  /**
+   * Every GEMPAK file starts with the DM label
+   */
+  public static final FileSignature SIGNATURE = FileSignature.of(0, DMLabel.DMLABEL);
+
   /**
    * The file
    */
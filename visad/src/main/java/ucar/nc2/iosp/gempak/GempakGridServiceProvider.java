@@ -41,6 +41,7 @@ import ucar.nc2.*;
 import ucar.nc2.iosp.grid.GridIndexToNC;
 import ucar.nc2.iosp.grid.GridServiceProvider;
 
+import ucar.nc2.iosp.FileSignature;
 import ucar.nc2.util.CancelTask;
 import ucar.unidata.io.RandomAccessFile;
 import java.io.IOException;
@@ -79,6 +80,11 @@ public class GempakGridServiceProvider extends GridServiceProvider {
     }
   }
 
+  @Override
+  public FileSignature getFileSignature() {
+    return GempakFileReader.SIGNATURE;
+  }
+
   public String getFileTypeId() {
     return "GempakGrid";
   }
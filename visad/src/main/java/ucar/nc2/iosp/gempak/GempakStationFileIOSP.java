@@ -40,6 +40,7 @@ import ucar.nc2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.constants.CF;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.FileSignature;
 import ucar.nc2.util.CancelTask;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -138,6 +139,11 @@ public abstract class GempakStationFileIOSP extends AbstractIOServiceProvider {
     }
   }
 
+  @Override
+  public FileSignature getFileSignature() {
+    return GempakFileReader.SIGNATURE;
+  }
+
   /**
    * Make the appropriate station file reader, subclasses need to implement
    * this